@@ -17,13 +17,22 @@
 package feast.common.models;
 
 import feast.proto.core.StoreProto.Store.Subscription;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class Store {
 
+  private static final int MAX_CACHED_MATCHERS = 100;
+
+  // Matchers of the subscriptions of every store, so that subscriptions are compiled once per store
+  private static final Map<List<Subscription>, SubscriptionMatcher> matchers =
+      new ConcurrentHashMap<>();
+
   /**
    * Accepts a comma-delimited string and converts it to a list of Subscription class objects.
    *
@@ -98,7 +107,8 @@ public class Store {
 
   /**
    * The current use of this function is to determine whether a FeatureRow is subscribed to a
-   * Featureset.
+   * Featureset. The {@link SubscriptionMatcher} of the subscriptions is cached, so the
+   * subscriptions of a store are only compiled once.
    *
    * @param subscriptions List of Subscriptions available in Store
    * @param projectName Project name used for matching Subscription's Project
@@ -107,57 +117,14 @@ public class Store {
    */
   public static boolean isSubscribedToFeatureSet(
       List<Subscription> subscriptions, String projectName, String featureSetName) {
-    // Case 1: Highest priority check, to exclude all matching subscriptions with excluded flag =
-    // true
-    for (Subscription sub : subscriptions) {
-      // If configuration missing, fail
-      if (sub.getProject().isEmpty() || sub.getName().isEmpty()) {
-        throw new IllegalArgumentException(
-            String.format("Subscription is missing arguments: %s", sub.toString()));
+    SubscriptionMatcher matcher = matchers.get(subscriptions);
+    if (matcher == null) {
+      matcher = new SubscriptionMatcher(subscriptions);
+      if (matchers.size() >= MAX_CACHED_MATCHERS) {
+        matchers.clear();
       }
-      // Match feature set name to pattern
-      Pattern patternName = getNamePattern(sub);
-      Pattern patternProject = getProjectPattern(sub);
-      // SubCase: Project name and feature set name matches and excluded flag is true
-      if (patternProject.matcher(projectName).matches()
-          && patternName.matcher(featureSetName).matches()
-          && sub.getExclude()) {
-        return false;
-      }
-    }
-    // Case 2: Featureset is not excluded, check if it is included in the current subscriptions
-    // filteredSubscriptions only contain subscriptions with excluded flag = false
-    List<Subscription> filteredSubscriptions =
-        subscriptions.stream().filter(sub -> !sub.getExclude()).collect(Collectors.toList());
-
-    for (Subscription filteredSub : filteredSubscriptions) {
-      // Match feature set name to pattern
-      Pattern patternName = getNamePattern(filteredSub);
-      Pattern patternProject = getProjectPattern(filteredSub);
-      // SubCase: Project name and feature set name matches
-      if (patternProject.matcher(projectName).matches()
-          && patternName.matcher(featureSetName).matches()) {
-        return true;
-      }
-    }
-    return false;
-  }
-
-  private static Pattern getProjectPattern(Subscription subscription) {
-    String subProject = subscription.getProject();
-    if (!subscription.getProject().contains(".*")) {
-      subProject = subProject.replace("*", ".*");
+      matchers.put(Collections.unmodifiableList(new ArrayList<>(subscriptions)), matcher);
     }
-
-    return Pattern.compile(subProject);
-  }
-
-  private static Pattern getNamePattern(Subscription subscription) {
-    String subName = subscription.getName();
-    if (!subscription.getProject().contains(".*")) {
-      subName = subName.replace("*", ".*");
-    }
-
-    return Pattern.compile(subName);
+    return matcher.isSubscribedToFeatureSet(projectName, featureSetName);
   }
 }
@@ -0,0 +1,143 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.common.models;
+
+import feast.proto.core.StoreProto.Store.Subscription;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Matches feature sets against a list of store {@link Subscription}s, with the same semantics as
+ * {@link Store#isSubscribedToFeatureSet(List, String, String)}.
+ *
+ * <p>Subscriptions are compiled once: subscriptions without wildcards are matched by hash lookup,
+ * and patterns are only compiled for subscriptions with wildcards. Results are memoized per feature
+ * set, so repeated matches of the same feature set are a single lookup.
+ */
+public class SubscriptionMatcher implements Serializable {
+
+  private static final int MAX_MEMOIZED_RESULTS = 10000;
+  private static final Pattern REGEX_METACHARACTERS = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+  private final Map<String, Set<String>> exactExclusions = new HashMap<>();
+  private final List<Pattern[]> patternExclusions = new ArrayList<>();
+  private final Map<String, Set<String>> exactInclusions = new HashMap<>();
+  private final List<Pattern[]> patternInclusions = new ArrayList<>();
+  private final Map<String, Boolean> results = new ConcurrentHashMap<>();
+
+  /**
+   * @param subscriptions List of Subscriptions available in Store
+   * @throws IllegalArgumentException if a subscription is missing its project or name
+   */
+  public SubscriptionMatcher(List<Subscription> subscriptions) {
+    for (Subscription sub : subscriptions) {
+      // If configuration missing, fail
+      if (sub.getProject().isEmpty() || sub.getName().isEmpty()) {
+        throw new IllegalArgumentException(
+            String.format("Subscription is missing arguments: %s", sub.toString()));
+      }
+      String projectRegex = getProjectRegex(sub);
+      String nameRegex = getNameRegex(sub);
+      if (isLiteral(projectRegex) && isLiteral(nameRegex)) {
+        (sub.getExclude() ? exactExclusions : exactInclusions)
+            .computeIfAbsent(projectRegex, project -> new HashSet<>())
+            .add(nameRegex);
+      } else {
+        (sub.getExclude() ? patternExclusions : patternInclusions)
+            .add(new Pattern[] {Pattern.compile(projectRegex), Pattern.compile(nameRegex)});
+      }
+    }
+  }
+
+  /**
+   * Determine whether a feature set is subscribed to. Exclusions take precedence over inclusions.
+   *
+   * @param projectName Project name used for matching Subscription's Project
+   * @param featureSetName Featureset name used for matching Subscription's Featureset
+   * @return boolean flag to signify if the Featureset is subscribed to
+   */
+  public boolean isSubscribedToFeatureSet(String projectName, String featureSetName) {
+    String key = projectName + "/" + featureSetName;
+    Boolean result = results.get(key);
+    if (result == null) {
+      result =
+          !isExcluded(projectName, featureSetName)
+              && matches(exactInclusions, patternInclusions, projectName, featureSetName);
+      if (results.size() >= MAX_MEMOIZED_RESULTS) {
+        results.clear();
+      }
+      results.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Determine whether a feature set is matched by one of the subscriptions with the exclude flag.
+   *
+   * @param projectName Project name used for matching Subscription's Project
+   * @param featureSetName Featureset name used for matching Subscription's Featureset
+   * @return boolean flag to signify if the Featureset is excluded
+   */
+  public boolean isExcluded(String projectName, String featureSetName) {
+    return matches(exactExclusions, patternExclusions, projectName, featureSetName);
+  }
+
+  private static boolean matches(
+      Map<String, Set<String>> exact,
+      List<Pattern[]> patterns,
+      String projectName,
+      String featureSetName) {
+    Set<String> names = exact.get(projectName);
+    if (names != null && names.contains(featureSetName)) {
+      return true;
+    }
+    for (Pattern[] pattern : patterns) {
+      if (pattern[0].matcher(projectName).matches()
+          && pattern[1].matcher(featureSetName).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isLiteral(String regex) {
+    return !REGEX_METACHARACTERS.matcher(regex).find();
+  }
+
+  private static String getProjectRegex(Subscription subscription) {
+    String subProject = subscription.getProject();
+    if (!subscription.getProject().contains(".*")) {
+      subProject = subProject.replace("*", ".*");
+    }
+    return subProject;
+  }
+
+  private static String getNameRegex(Subscription subscription) {
+    String subName = subscription.getName();
+    if (!subscription.getProject().contains(".*")) {
+      subName = subName.replace("*", ".*");
+    }
+    return subName;
+  }
+}
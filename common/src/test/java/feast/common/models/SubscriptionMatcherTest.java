@@ -0,0 +1,86 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.common.models;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import feast.proto.core.StoreProto.Store.Subscription;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class SubscriptionMatcherTest {
+
+  private Subscription subscription(String project, String name, boolean exclude) {
+    return Subscription.newBuilder().setProject(project).setName(name).setExclude(exclude).build();
+  }
+
+  @Test
+  public void shouldMatchLiteralSubscriptions() {
+    SubscriptionMatcher matcher =
+        new SubscriptionMatcher(Collections.singletonList(subscription("project1", "fs_1", false)));
+
+    assertThat(matcher.isSubscribedToFeatureSet("project1", "fs_1"), equalTo(true));
+    assertThat(matcher.isSubscribedToFeatureSet("project1", "fs_2"), equalTo(false));
+    assertThat(matcher.isSubscribedToFeatureSet("project2", "fs_1"), equalTo(false));
+  }
+
+  @Test
+  public void shouldMatchWildcardSubscriptions() {
+    SubscriptionMatcher matcher =
+        new SubscriptionMatcher(
+            Arrays.asList(subscription("*", "bq*", false), subscription("project.*", "fs", false)));
+
+    assertThat(matcher.isSubscribedToFeatureSet("any", "bq_1"), equalTo(true));
+    assertThat(matcher.isSubscribedToFeatureSet("any", "redis_1"), equalTo(false));
+    assertThat(matcher.isSubscribedToFeatureSet("project2", "fs"), equalTo(true));
+  }
+
+  @Test
+  public void shouldGiveExclusionsPrecedenceOverInclusions() {
+    List<Subscription> subscriptions =
+        Arrays.asList(
+            subscription("*", "*", false),
+            subscription("project1", "fs_1", true),
+            subscription("project2", "*", true));
+    SubscriptionMatcher matcher = new SubscriptionMatcher(subscriptions);
+
+    assertThat(matcher.isSubscribedToFeatureSet("project1", "fs_1"), equalTo(false));
+    assertThat(matcher.isSubscribedToFeatureSet("project1", "fs_2"), equalTo(true));
+    assertThat(matcher.isSubscribedToFeatureSet("project2", "fs_2"), equalTo(false));
+    assertThat(matcher.isExcluded("project2", "fs_2"), equalTo(true));
+    assertThat(matcher.isExcluded("project1", "fs_2"), equalTo(false));
+
+    // Memoized results are consistent with the results of the first match
+    assertThat(matcher.isSubscribedToFeatureSet("project1", "fs_1"), equalTo(false));
+    assertThat(matcher.isSubscribedToFeatureSet("project1", "fs_2"), equalTo(true));
+
+    for (String[] featureSet :
+        new String[][] {{"project1", "fs_1"}, {"project1", "fs_2"}, {"project2", "fs_2"}}) {
+      assertThat(
+          matcher.isSubscribedToFeatureSet(featureSet[0], featureSet[1]),
+          equalTo(Store.isSubscribedToFeatureSet(subscriptions, featureSet[0], featureSet[1])));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowOnIncompleteSubscription() {
+    new SubscriptionMatcher(Collections.singletonList(Subscription.newBuilder().build()));
+  }
+}
@@ -187,15 +187,15 @@ public class FeastProperties {
     /* Population job metrics enabled */
     private boolean enabled;
 
-    /* Metric type. Possible options: statsd */
-    @OneOfStrings({"statsd"})
+    /* Metric type. Possible options: statsd, prometheus */
+    @OneOfStrings({"statsd", "prometheus"})
     @NotBlank
     private String type;
 
     /* Host of metric sink */
     private String host;
 
-    /* Port of metric sink */
+    /* Port of metric sink, or port on which workers serve metrics for Prometheus */
     @Positive private int port;
   }
 
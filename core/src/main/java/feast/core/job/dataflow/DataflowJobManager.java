@@ -31,16 +31,21 @@ import feast.core.config.FeastProperties.MetricsProperties;
 import feast.core.exception.JobExecutionException;
 import feast.core.job.JobManager;
 import feast.core.job.Runner;
+import feast.core.job.option.FeatureSetJsonByteConverter;
 import feast.core.model.*;
 import feast.ingestion.ImportJob;
+import feast.ingestion.options.BZip2Compressor;
 import feast.ingestion.options.ImportOptions;
+import feast.proto.core.FeatureSetProto;
 import feast.proto.core.IngestionJobProto;
 import feast.proto.core.RunnerProto.DataflowRunnerConfigOptions;
 import feast.proto.core.SourceProto;
 import feast.proto.core.StoreProto;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.beam.runners.dataflow.DataflowPipelineJob;
 import org.apache.beam.runners.dataflow.DataflowRunner;
@@ -114,7 +119,11 @@ public class DataflowJobManager implements JobManager {
     try {
       String extId =
           submitDataflowJob(
-              job.getId(), job.getSource().toProto(), job.getStore().toProto(), false);
+              job.getId(),
+              job.getSource().toProto(),
+              job.getStore().toProto(),
+              getFeatureSetProtos(job),
+              false);
       job.setExtId(extId);
       job.setStatus(JobStatus.RUNNING);
       return job;
@@ -221,9 +230,14 @@ public class DataflowJobManager implements JobManager {
   }
 
   private String submitDataflowJob(
-      String jobName, SourceProto.Source source, StoreProto.Store sink, boolean update) {
+      String jobName,
+      SourceProto.Source source,
+      StoreProto.Store sink,
+      List<FeatureSetProto.FeatureSet> featureSets,
+      boolean update) {
     try {
-      ImportOptions pipelineOptions = getPipelineOptions(jobName, source, sink, update);
+      ImportOptions pipelineOptions =
+          getPipelineOptions(jobName, source, sink, featureSets, update);
       DataflowPipelineJob pipelineResult = runPipeline(pipelineOptions);
       String jobId = waitForJobToRun(pipelineResult);
       return jobId;
@@ -234,7 +248,11 @@ public class DataflowJobManager implements JobManager {
   }
 
   private ImportOptions getPipelineOptions(
-      String jobName, SourceProto.Source source, StoreProto.Store sink, boolean update)
+      String jobName,
+      SourceProto.Source source,
+      StoreProto.Store sink,
+      List<FeatureSetProto.FeatureSet> featureSets,
+      boolean update)
       throws IOException, IllegalAccessException {
     ImportOptions pipelineOptions =
         PipelineOptionsFactory.fromArgs(defaultOptions.toArgs()).as(ImportOptions.class);
@@ -245,6 +263,8 @@ public class DataflowJobManager implements JobManager {
         jsonPrinter.print(specsStreamingUpdateConfig));
     pipelineOptions.setSourceJson(jsonPrinter.print(source));
     pipelineOptions.setStoreJson(Collections.singletonList(jsonPrinter.print(sink)));
+    pipelineOptions.setFeatureSetJson(
+        new BZip2Compressor<>(new FeatureSetJsonByteConverter()).compress(featureSets));
     pipelineOptions.setProject(projectId);
     pipelineOptions.setDefaultFeastProject(Project.DEFAULT_NAME);
     pipelineOptions.setUpdate(update);
@@ -257,11 +277,22 @@ public class DataflowJobManager implements JobManager {
       if (metrics.getType().equals("statsd")) {
         pipelineOptions.setStatsdHost(metrics.getHost());
         pipelineOptions.setStatsdPort(metrics.getPort());
+      } else if (metrics.getType().equals("prometheus")) {
+        pipelineOptions.setPrometheusExporterPort(metrics.getPort());
       }
     }
     return pipelineOptions;
   }
 
+  private List<FeatureSetProto.FeatureSet> getFeatureSetProtos(Job job)
+      throws InvalidProtocolBufferException {
+    List<FeatureSetProto.FeatureSet> featureSetProtos = new ArrayList<>();
+    for (FeatureSet featureSet : job.getFeatureSets()) {
+      featureSetProtos.add(featureSet.toProto());
+    }
+    return featureSetProtos;
+  }
+
   public DataflowPipelineJob runPipeline(ImportOptions pipelineOptions) throws IOException {
     return (DataflowPipelineJob) ImportJob.runPipeline(pipelineOptions);
   }
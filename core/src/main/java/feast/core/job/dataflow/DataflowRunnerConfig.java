@@ -43,6 +43,11 @@ public class DataflowRunnerConfig extends RunnerConfig {
     this.maxNumWorkers = runnerConfigOptions.getMaxNumWorkers();
     this.deadLetterTableSpec = runnerConfigOptions.getDeadLetterTableSpec();
     this.labels = runnerConfigOptions.getLabelsMap();
+    this.deadLetterType = runnerConfigOptions.getDeadLetterType();
+    this.deadLetterKafkaBootstrapServers = runnerConfigOptions.getDeadLetterKafkaBootstrapServers();
+    this.deadLetterKafkaTopic = runnerConfigOptions.getDeadLetterKafkaTopic();
+    this.deadLetterFilePathPrefix = runnerConfigOptions.getDeadLetterFilePathPrefix();
+    this.deadLetterMaxElementsPerMinute = runnerConfigOptions.getDeadLetterMaxElementsPerMinute();
     validate();
   }
 
@@ -87,6 +92,20 @@ public class DataflowRunnerConfig extends RunnerConfig {
 
   public Map<String, String> labels;
 
+  /* Type of the sink deadletter elements are written to: bigquery, kafka, file or none */
+  public String deadLetterType;
+
+  /* Kafka bootstrap servers and topic deadletter elements are written to, for the kafka type */
+  public String deadLetterKafkaBootstrapServers;
+
+  public String deadLetterKafkaTopic;
+
+  /* Path prefix of the files deadletter elements are written to, for the file type */
+  public String deadLetterFilePathPrefix;
+
+  /* Maximum number of deadletter elements of an error class written by a worker per minute */
+  public Integer deadLetterMaxElementsPerMinute;
+
   /** Validates Dataflow runner configuration options */
   public void validate() {
     ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
@@ -31,9 +31,28 @@ public class DirectRunnerConfig extends RunnerConfig {
 
   public String tempLocation;
 
+  /* Type of the sink deadletter elements are written to: bigquery, kafka, file or none */
+  public String deadLetterType;
+
+  /* Kafka bootstrap servers and topic deadletter elements are written to, for the kafka type */
+  public String deadLetterKafkaBootstrapServers;
+
+  public String deadLetterKafkaTopic;
+
+  /* Path prefix of the files deadletter elements are written to, for the file type */
+  public String deadLetterFilePathPrefix;
+
+  /* Maximum number of deadletter elements of an error class written by a worker per minute */
+  public Integer deadLetterMaxElementsPerMinute;
+
   public DirectRunnerConfig(DirectRunnerConfigOptions runnerConfigOptions) {
     this.deadletterTableSpec = runnerConfigOptions.getDeadLetterTableSpec();
     this.targetParallelism = runnerConfigOptions.getTargetParallelism();
     this.tempLocation = runnerConfigOptions.getTempLocation();
+    this.deadLetterType = runnerConfigOptions.getDeadLetterType();
+    this.deadLetterKafkaBootstrapServers = runnerConfigOptions.getDeadLetterKafkaBootstrapServers();
+    this.deadLetterKafkaTopic = runnerConfigOptions.getDeadLetterKafkaTopic();
+    this.deadLetterFilePathPrefix = runnerConfigOptions.getDeadLetterFilePathPrefix();
+    this.deadLetterMaxElementsPerMinute = runnerConfigOptions.getDeadLetterMaxElementsPerMinute();
   }
 }
@@ -17,20 +17,26 @@
 package feast.core.job.direct;
 
 import com.google.common.base.Strings;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.util.JsonFormat;
 import feast.core.config.FeastProperties.MetricsProperties;
 import feast.core.exception.JobExecutionException;
 import feast.core.job.JobManager;
 import feast.core.job.Runner;
+import feast.core.job.option.FeatureSetJsonByteConverter;
 import feast.core.model.*;
 import feast.ingestion.ImportJob;
+import feast.ingestion.options.BZip2Compressor;
 import feast.ingestion.options.ImportOptions;
+import feast.proto.core.FeatureSetProto;
 import feast.proto.core.IngestionJobProto;
 import feast.proto.core.RunnerProto.DirectRunnerConfigOptions;
 import feast.proto.core.SourceProto;
 import feast.proto.core.StoreProto;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.beam.runners.direct.DirectRunner;
 import org.apache.beam.sdk.PipelineResult;
@@ -71,7 +77,11 @@ public class DirectRunnerJobManager implements JobManager {
   public Job startJob(Job job) {
     try {
       ImportOptions pipelineOptions =
-          getPipelineOptions(job.getId(), job.getSource().toProto(), job.getStore().toProto());
+          getPipelineOptions(
+              job.getId(),
+              job.getSource().toProto(),
+              job.getStore().toProto(),
+              getFeatureSetProtos(job));
       PipelineResult pipelineResult = runPipeline(pipelineOptions);
       DirectJob directJob = new DirectJob(job.getId(), pipelineResult);
       jobs.add(directJob);
@@ -85,7 +95,10 @@ public class DirectRunnerJobManager implements JobManager {
   }
 
   private ImportOptions getPipelineOptions(
-      String jobName, SourceProto.Source source, StoreProto.Store sink)
+      String jobName,
+      SourceProto.Source source,
+      StoreProto.Store sink,
+      List<FeatureSetProto.FeatureSet> featureSets)
       throws IOException, IllegalAccessException {
     ImportOptions pipelineOptions =
         PipelineOptionsFactory.fromArgs(defaultOptions.toArgs()).as(ImportOptions.class);
@@ -95,6 +108,8 @@ public class DirectRunnerJobManager implements JobManager {
     pipelineOptions.setSourceJson(JsonFormat.printer().print(source));
     pipelineOptions.setJobName(jobName);
     pipelineOptions.setStoreJson(Collections.singletonList(JsonFormat.printer().print(sink)));
+    pipelineOptions.setFeatureSetJson(
+        new BZip2Compressor<>(new FeatureSetJsonByteConverter()).compress(featureSets));
     pipelineOptions.setRunner(DirectRunner.class);
     pipelineOptions.setDefaultFeastProject(Project.DEFAULT_NAME);
     pipelineOptions.setProject(""); // set to default value to satisfy validation
@@ -103,12 +118,23 @@ public class DirectRunnerJobManager implements JobManager {
       if (metrics.getType().equals("statsd")) {
         pipelineOptions.setStatsdHost(metrics.getHost());
         pipelineOptions.setStatsdPort(metrics.getPort());
+      } else if (metrics.getType().equals("prometheus")) {
+        pipelineOptions.setPrometheusExporterPort(metrics.getPort());
       }
     }
     pipelineOptions.setBlockOnRun(false);
     return pipelineOptions;
   }
 
+  private List<FeatureSetProto.FeatureSet> getFeatureSetProtos(Job job)
+      throws InvalidProtocolBufferException {
+    List<FeatureSetProto.FeatureSet> featureSetProtos = new ArrayList<>();
+    for (FeatureSet featureSet : job.getFeatureSets()) {
+      featureSetProtos.add(featureSet.toProto());
+    }
+    return featureSetProtos;
+  }
+
   /**
    * Stops an existing job and restarts a new job in its place as a proxy for job updates. Note that
    * since we do not maintain a consumer group across the two jobs and the old job is not drained,
@@ -20,6 +20,7 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import feast.core.util.TypeConversion;
 import feast.proto.core.FeatureSetProto.FeatureSpec;
 import feast.proto.core.FeatureSetProto.FeatureSpec.Builder;
+import feast.proto.core.FeatureSetProto.WindowedAggregation;
 import feast.proto.types.ValueProto.ValueType;
 import java.util.Arrays;
 import java.util.Map;
@@ -81,6 +82,10 @@ public class Feature {
   private byte[] timeDomain;
   private byte[] timeOfDayDomain;
 
+  // Windowed aggregation computing the feature during ingestion (refer to proto
+  // feast.core.FeatureSet.WindowedAggregation)
+  private byte[] aggregation;
+
   public Feature() {}
   // Whether this feature has been archived. A archived feature cannot be
   // retrieved from or written to.
@@ -158,6 +163,10 @@ public class Feature {
       featureSpecBuilder.setTimeOfDayDomain(TimeOfDayDomain.parseFrom(getTimeOfDayDomain()));
     }
 
+    if (getAggregation() != null) {
+      featureSpecBuilder.setAggregation(WindowedAggregation.parseFrom(getAggregation()));
+    }
+
     if (getLabels() != null) {
       featureSpecBuilder.putAllLabels(getLabels());
     }
@@ -227,6 +236,9 @@ public class Feature {
       case DOMAININFO_NOT_SET:
         break;
     }
+
+    setAggregation(
+        featureSpec.hasAggregation() ? featureSpec.getAggregation().toByteArray() : null);
   }
 
   /** Archive this feature. */
@@ -287,7 +299,8 @@ public class Feature {
         && Arrays.equals(getMidDomain(), feature.getMidDomain())
         && Arrays.equals(getUrlDomain(), feature.getUrlDomain())
         && Arrays.equals(getTimeDomain(), feature.getTimeDomain())
-        && Arrays.equals(getTimeDomain(), feature.getTimeOfDayDomain());
+        && Arrays.equals(getTimeDomain(), feature.getTimeOfDayDomain())
+        && Arrays.equals(getAggregation(), feature.getAggregation());
   }
 
   @Override
@@ -19,6 +19,7 @@ package feast.core.service;
 import static feast.core.model.FeatureSet.parseReference;
 
 import com.google.protobuf.InvalidProtocolBufferException;
+import feast.common.models.SubscriptionMatcher;
 import feast.core.config.FeastProperties;
 import feast.core.config.FeastProperties.JobProperties;
 import feast.core.dao.FeatureSetRepository;
@@ -37,6 +38,7 @@ import feast.proto.core.CoreServiceProto.ListStoresRequest.Filter;
 import feast.proto.core.CoreServiceProto.ListStoresResponse;
 import feast.proto.core.FeatureSetProto;
 import feast.proto.core.IngestionJobProto;
+import feast.proto.core.StoreProto.Store.Subscription;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
@@ -246,14 +248,23 @@ public class JobCoordinatorService {
   }
 
   /**
-   * Get the FeatureSets that the given store subscribes to.
+   * Get the FeatureSets that the given store subscribes to. FeatureSets matching the store's
+   * subscriptions are looked up in the repository, after which FeatureSets excluded by the store
+   * are filtered out.
    *
    * @param store to get subscribed FeatureSets for
    * @return list of FeatureSets that the store subscribes to.
    */
   @Transactional
   private List<FeatureSet> getFeatureSetsForStore(Store store) {
-    return store.getSubscriptions().stream()
+    List<Subscription> subscriptions =
+        store.getSubscriptions().stream()
+            .filter(s -> !s.getProject().isEmpty() && !s.getName().isEmpty())
+            .collect(Collectors.toList());
+    SubscriptionMatcher subscriptionMatcher = new SubscriptionMatcher(subscriptions);
+
+    return subscriptions.stream()
+        .filter(subscription -> !subscription.getExclude())
         .flatMap(
             subscription ->
                 featureSetRepository
@@ -262,6 +273,10 @@ public class JobCoordinatorService {
                         subscription.getProject().replace('*', '%'))
                     .stream())
         .distinct()
+        .filter(
+            featureSet ->
+                !subscriptionMatcher.isExcluded(
+                    featureSet.getProject().getName(), featureSet.getName()))
         .collect(Collectors.toList());
   }
 
@@ -321,7 +321,17 @@ public class SpecService {
               .build();
     }
 
-    // Validate incoming feature set
+    // Set source to default if not set in proto
+    if (newFeatureSet.getSpec().getSource() == SourceProto.Source.getDefaultInstance()) {
+      newFeatureSet =
+          newFeatureSet
+              .toBuilder()
+              .setSpec(
+                  newFeatureSet.getSpec().toBuilder().setSource(defaultSource.toProto()).build())
+              .build();
+    }
+
+    // Validate incoming feature set, including its source
     FeatureSetValidator.validateSpec(newFeatureSet);
 
     // Find project or create new one if it does not exist
@@ -336,16 +346,6 @@ public class SpecService {
       throw new IllegalArgumentException(String.format("Project is archived: %s", project_name));
     }
 
-    // Set source to default if not set in proto
-    if (newFeatureSet.getSpec().getSource() == SourceProto.Source.getDefaultInstance()) {
-      newFeatureSet =
-          newFeatureSet
-              .toBuilder()
-              .setSpec(
-                  newFeatureSet.getSpec().toBuilder().setSource(defaultSource.toProto()).build())
-              .build();
-    }
-
     // Retrieve existing FeatureSet
     FeatureSet featureSet =
         featureSetRepository.findFeatureSetByNameAndProject_Name(
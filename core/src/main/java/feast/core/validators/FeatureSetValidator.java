@@ -19,9 +19,16 @@ package feast.core.validators;
 import static feast.core.validators.Matchers.checkValidCharacters;
 
 import com.google.common.collect.Sets;
+import com.google.protobuf.util.Durations;
 import feast.proto.core.FeatureSetProto.EntitySpec;
 import feast.proto.core.FeatureSetProto.FeatureSet;
 import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.FeatureSetProto.WindowedAggregation;
+import feast.proto.core.FeatureSetProto.WindowedAggregation.AggregationType;
+import feast.proto.core.SourceProto.KafkaConsumerConfig.TimestampPolicy;
+import feast.proto.core.SourceProto.Source;
+import feast.proto.core.SourceProto.SourceType;
+import feast.proto.types.ValueProto.ValueType;
 import java.util.HashSet;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -51,6 +58,96 @@ public class FeatureSetValidator {
       if (featureSpec.getLabelsMap().containsKey("")) {
         throw new IllegalArgumentException("Feature label keys must not be empty");
       }
+      if (featureSpec.hasAggregation()) {
+        checkAggregation(featureSpec, featureSet.getSpec().getFeaturesList());
+      }
+    }
+    if (featureSet.getSpec().getFeaturesList().stream().anyMatch(FeatureSpec::hasAggregation)) {
+      checkAggregationSource(featureSet.getSpec().getSource());
+    }
+  }
+
+  /**
+   * Aggregations are emitted as the watermark passes the end of their windows, so Kafka sources
+   * must derive the watermark from the event timestamps of the rows.
+   */
+  private static void checkAggregationSource(Source source) {
+    if (source.getType() == SourceType.KAFKA
+        && source.getKafkaSourceConfig().getConsumerConfig().getTimestampPolicy()
+            != TimestampPolicy.EVENT_TIME) {
+      throw new IllegalArgumentException(
+          "Feature sets with aggregations must be read from Kafka with the EVENT_TIME "
+              + "timestamp policy");
+    }
+  }
+
+  private static void checkAggregation(FeatureSpec featureSpec, List<FeatureSpec> featureSpecs) {
+    WindowedAggregation aggregation = featureSpec.getAggregation();
+    ValueType.Enum expectedType =
+        aggregation.getType() == AggregationType.COUNT
+            ? ValueType.Enum.INT64
+            : ValueType.Enum.DOUBLE;
+    switch (aggregation.getType()) {
+      case COUNT:
+      case SUM:
+      case MIN:
+      case MAX:
+      case MEAN:
+        break;
+      default:
+        throw new IllegalArgumentException(
+            String.format(
+                "Aggregation of feature %s must have a valid type", featureSpec.getName()));
+    }
+    if (featureSpec.getValueType() != expectedType) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Feature %s with %s aggregation must be of type %s",
+              featureSpec.getName(), aggregation.getType(), expectedType));
+    }
+    if (Durations.toMillis(aggregation.getWindow()) <= 0
+        || (aggregation.hasPeriod() && Durations.toMillis(aggregation.getPeriod()) <= 0)) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Aggregation of feature %s must have a positive window and period",
+              featureSpec.getName()));
+    }
+    if (aggregation.getSourceFeature().isEmpty()) {
+      if (aggregation.getType() != AggregationType.COUNT) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Aggregation of feature %s must have a source feature", featureSpec.getName()));
+      }
+      return;
+    }
+    FeatureSpec sourceFeature =
+        featureSpecs.stream()
+            .filter(f -> f.getName().equals(aggregation.getSourceFeature()))
+            .findFirst()
+            .orElseThrow(
+                () ->
+                    new IllegalArgumentException(
+                        String.format(
+                            "Source feature %s of the aggregation of feature %s does not exist",
+                            aggregation.getSourceFeature(), featureSpec.getName())));
+    if (sourceFeature.hasAggregation()) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Source feature %s of the aggregation of feature %s must not be aggregated",
+              sourceFeature.getName(), featureSpec.getName()));
+    }
+    switch (sourceFeature.getValueType()) {
+      case INT32:
+      case INT64:
+      case FLOAT:
+      case DOUBLE:
+      case BOOL:
+        break;
+      default:
+        throw new IllegalArgumentException(
+            String.format(
+                "Source feature %s of the aggregation of feature %s must be numerical",
+                sourceFeature.getName(), featureSpec.getName()));
     }
   }
 
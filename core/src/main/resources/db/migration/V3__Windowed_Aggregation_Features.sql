@@ -0,0 +1,4 @@
+--- Windowed aggregation computing a feature during ingestion
+
+ALTER TABLE features
+    ADD column aggregation bytea;
@@ -516,6 +516,75 @@ public class JobCoordinatorServiceTest {
     }
   }
 
+  @Test
+  public void shouldIgnoreEmptySubscriptionsOfStore() throws InvalidProtocolBufferException {
+    // Stores without subscriptions are read back with a single empty subscription
+    StoreProto.Store store =
+        StoreProto.Store.newBuilder()
+            .setName("test")
+            .setType(StoreProto.Store.StoreType.REDIS)
+            .setRedisConfig(StoreProto.Store.RedisConfig.newBuilder())
+            .build();
+    when(specService.listStores(any()))
+        .thenReturn(ListStoresResponse.newBuilder().addStore(store).build());
+
+    jcs.Poll();
+
+    verify(featureSetRepository, never())
+        .findAllByNameLikeAndProject_NameLikeOrderByNameAsc(anyString(), anyString());
+    verify(jobManager, never()).startJob(any());
+  }
+
+  @Test
+  public void shouldNotIngestFeatureSetsExcludedByStore() throws InvalidProtocolBufferException {
+    Store store =
+        TestUtil.createStore(
+            "test",
+            List.of(
+                Subscription.newBuilder().setName("*").setProject("*").build(),
+                Subscription.newBuilder()
+                    .setName("features2")
+                    .setProject(Project.DEFAULT_NAME)
+                    .setExclude(true)
+                    .build()));
+    Source source = TestUtil.createKafkaSource("servers:9092", "topic", false);
+    FeatureSet featureSet1 = TestUtil.createEmptyFeatureSet("features1", source);
+    FeatureSet featureSet2 = TestUtil.createEmptyFeatureSet("features2", source);
+
+    when(specService.listStores(any()))
+        .thenReturn(ListStoresResponse.newBuilder().addStore(store.toProto()).build());
+    when(featureSetRepository.findAllByNameLikeAndProject_NameLikeOrderByNameAsc("%", "%"))
+        .thenReturn(Lists.newArrayList(featureSet1, featureSet2));
+    when(sourceRepository.findFirstByTypeAndConfigOrderByIdAsc(
+            source.getType(), source.getConfig()))
+        .thenReturn(source);
+    when(jobManager.getRunnerType()).thenReturn(Runner.DATAFLOW);
+    when(jobManager.startJob(any()))
+        .thenAnswer(
+            invocation ->
+                ((Job) invocation.getArgument(0))
+                    .toBuilder()
+                    .setExtId("extid")
+                    .setStatus(JobStatus.RUNNING)
+                    .build());
+    when(jobRepository.findByStatus(JobStatus.RUNNING)).thenReturn(List.of());
+    when(jobRepository
+            .findFirstBySourceTypeAndSourceConfigAndStoreNameAndStatusNotInOrderByLastUpdatedDesc(
+                source.getType(),
+                source.getConfig(),
+                store.getName(),
+                JobStatus.getTerminalStates()))
+        .thenReturn(Optional.empty());
+    ArgumentCaptor<List<Job>> jobArgCaptor = ArgumentCaptor.forClass(List.class);
+
+    jcs.Poll();
+
+    verify(jobRepository).saveAll(jobArgCaptor.capture());
+    List<Job> jobs = jobArgCaptor.getValue();
+    assertThat(jobs.size(), is(1));
+    assertThat(jobs.get(0).getFeatureSets(), containsInAnyOrder(featureSet1));
+  }
+
   @Test
   public void shouldSendPendingFeatureSetToJobs() {
     FeatureSet fs1 =
@@ -16,7 +16,10 @@
  */
 package feast.core.validators;
 
+import com.google.protobuf.Duration;
+import com.google.protobuf.util.Durations;
 import feast.proto.core.FeatureSetProto;
+import feast.proto.core.SourceProto;
 import feast.proto.types.ValueProto;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -84,4 +87,128 @@ public class FeatureSetValidatorTest {
     expectedException.expectMessage("Feature set label keys must not be empty");
     FeatureSetValidator.validateSpec(featureSet);
   }
+
+  @Test
+  public void shouldThrowExceptionForAggregationOfNonNumericalFeature() {
+    FeatureSetProto.FeatureSetSpec featureSetSpec =
+        FeatureSetProto.FeatureSetSpec.newBuilder()
+            .setProject("project1")
+            .setName("featureSetWithAggregation")
+            .addFeatures(
+                FeatureSetProto.FeatureSpec.newBuilder()
+                    .setName("city")
+                    .setValueType(ValueProto.ValueType.Enum.STRING))
+            .addFeatures(
+                FeatureSetProto.FeatureSpec.newBuilder()
+                    .setName("city_max")
+                    .setValueType(ValueProto.ValueType.Enum.DOUBLE)
+                    .setAggregation(
+                        FeatureSetProto.WindowedAggregation.newBuilder()
+                            .setType(FeatureSetProto.WindowedAggregation.AggregationType.MAX)
+                            .setSourceFeature("city")
+                            .setWindow(Durations.fromSeconds(3600))))
+            .build();
+    FeatureSetProto.FeatureSet featureSet =
+        FeatureSetProto.FeatureSet.newBuilder().setSpec(featureSetSpec).build();
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage(
+        "Source feature city of the aggregation of feature city_max must be numerical");
+    FeatureSetValidator.validateSpec(featureSet);
+  }
+
+  @Test
+  public void shouldThrowExceptionForAggregationWithZeroPeriod() {
+    FeatureSetProto.FeatureSet featureSet =
+        featureSetWithAggregationPeriod(Durations.fromMillis(0));
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage(
+        "Aggregation of feature trips_count must have a positive window and period");
+    FeatureSetValidator.validateSpec(featureSet);
+  }
+
+  @Test
+  public void shouldThrowExceptionForAggregationWithPeriodBelowOneMillisecond() {
+    FeatureSetProto.FeatureSet featureSet =
+        featureSetWithAggregationPeriod(Durations.fromNanos(500000));
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage(
+        "Aggregation of feature trips_count must have a positive window and period");
+    FeatureSetValidator.validateSpec(featureSet);
+  }
+
+  @Test
+  public void shouldThrowExceptionForAggregationReadWithoutEventTimePolicy() {
+    FeatureSetProto.FeatureSet featureSet =
+        featureSetWithAggregationPeriod(Durations.fromSeconds(60));
+    featureSet =
+        featureSet
+            .toBuilder()
+            .setSpec(
+                featureSet
+                    .getSpec()
+                    .toBuilder()
+                    .setSource(
+                        SourceProto.Source.newBuilder()
+                            .setType(SourceProto.SourceType.KAFKA)
+                            .setKafkaSourceConfig(
+                                SourceProto.KafkaSourceConfig.newBuilder()
+                                    .setBootstrapServers("kafka:9092")
+                                    .setTopic("topic"))))
+            .build();
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage(
+        "Feature sets with aggregations must be read from Kafka with the EVENT_TIME timestamp policy");
+    FeatureSetValidator.validateSpec(featureSet);
+  }
+
+  @Test
+  public void shouldAcceptAggregationReadWithEventTimePolicy() {
+    FeatureSetProto.FeatureSet featureSet =
+        featureSetWithAggregationPeriod(Durations.fromSeconds(60));
+    featureSet =
+        featureSet
+            .toBuilder()
+            .setSpec(
+                featureSet
+                    .getSpec()
+                    .toBuilder()
+                    .setSource(
+                        SourceProto.Source.newBuilder()
+                            .setType(SourceProto.SourceType.KAFKA)
+                            .setKafkaSourceConfig(
+                                SourceProto.KafkaSourceConfig.newBuilder()
+                                    .setBootstrapServers("kafka:9092")
+                                    .setTopic("topic")
+                                    .setConsumerConfig(
+                                        SourceProto.KafkaConsumerConfig.newBuilder()
+                                            .setTimestampPolicy(
+                                                SourceProto.KafkaConsumerConfig.TimestampPolicy
+                                                    .EVENT_TIME)
+                                            .setMaxEventTimeDelay(Durations.fromSeconds(60))))))
+            .build();
+
+    FeatureSetValidator.validateSpec(featureSet);
+  }
+
+  private static FeatureSetProto.FeatureSet featureSetWithAggregationPeriod(Duration period) {
+    FeatureSetProto.FeatureSetSpec featureSetSpec =
+        FeatureSetProto.FeatureSetSpec.newBuilder()
+            .setProject("project1")
+            .setName("featureSetWithAggregation")
+            .addFeatures(
+                FeatureSetProto.FeatureSpec.newBuilder()
+                    .setName("trips_count")
+                    .setValueType(ValueProto.ValueType.Enum.INT64)
+                    .setAggregation(
+                        FeatureSetProto.WindowedAggregation.newBuilder()
+                            .setType(FeatureSetProto.WindowedAggregation.AggregationType.COUNT)
+                            .setWindow(Durations.fromSeconds(3600))
+                            .setPeriod(period)))
+            .build();
+    return FeatureSetProto.FeatureSet.newBuilder().setSpec(featureSetSpec).build();
+  }
 }
@@ -16,35 +16,48 @@
  */
 package feast.ingestion;
 
+import static feast.common.models.FeatureSet.getFeatureSetStringRef;
 import static feast.ingestion.utils.StoreUtil.getFeatureSink;
 
+import com.google.common.base.Preconditions;
 import com.google.protobuf.InvalidProtocolBufferException;
+import feast.ingestion.coders.FeatureRowCoder;
+import feast.ingestion.deadletter.SampleFailedElements;
+import feast.ingestion.options.BZip2Decompressor;
 import feast.ingestion.options.ImportOptions;
-import feast.ingestion.transform.FeatureRowToStoreAllocator;
-import feast.ingestion.transform.ProcessAndValidateFeatureRows;
+import feast.ingestion.options.StringListStreamConverter;
+import feast.ingestion.transform.ComputeWindowedAggregations;
 import feast.ingestion.transform.ReadFromSource;
+import feast.ingestion.transform.ValidateAndAllocateFeatureRows;
 import feast.ingestion.transform.metrics.WriteFailureMetricsTransform;
 import feast.ingestion.transform.metrics.WriteInflightMetricsTransform;
 import feast.ingestion.transform.metrics.WriteSuccessMetricsTransform;
 import feast.ingestion.transform.specs.ReadFeatureSetSpecs;
 import feast.ingestion.transform.specs.WriteFeatureSetSpecAck;
+import feast.ingestion.utils.DeadletterUtil;
 import feast.ingestion.utils.SpecUtil;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.IngestionJobProto.SpecsStreamingUpdateConfig;
 import feast.proto.core.SourceProto.Source;
+import feast.proto.core.SourceProto.SourceType;
 import feast.proto.core.StoreProto.Store;
+import feast.proto.core.StoreProto.Store.StoreType;
 import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.specs.CompiledSpecRegistry;
 import feast.storage.api.writer.DeadletterSink;
 import feast.storage.api.writer.FailedElement;
 import feast.storage.api.writer.FeatureSink;
 import feast.storage.api.writer.WriteResult;
-import feast.storage.connectors.bigquery.writer.BigQueryDeadletterSink;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.PipelineResult;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.options.PipelineOptionsValidator;
 import org.apache.beam.sdk.transforms.*;
@@ -75,14 +88,15 @@ public class ImportJob {
   public static PipelineResult runPipeline(ImportOptions options) throws IOException {
     /*
      * Steps:
-     * 1. Read FeatureSetSpec messages from kafka
+     * 1. Read FeatureSetSpec messages from kafka, or use the given specs for bounded sources
      * 2. Read messages from Feast Source as FeatureRow
-     * 3. Validate the feature rows to ensure the schema matches what is registered to the system
-     * 4. Distribute rows across stores by subscription
+     * 3. Compute windowed aggregation features, and validate the feature rows to ensure the schema
+     *    matches what is registered to the system, and distribute rows across stores by subscription
+     * 4. Write in-flight metrics of the rows allocated to each Store
      * 5. Write FeatureRow to the corresponding Store
      * 6. Write elements that failed to be processed to a dead letter queue.
      * 7. Write metrics to a metrics sink
-     * 8. Send ack on receiving FeatureSetSpec
+     * 8. Send ack on receiving FeatureSetSpec from kafka
      */
 
     PipelineOptionsValidator.validate(ImportOptions.class, options);
@@ -92,21 +106,45 @@ public class ImportJob {
 
     List<Store> stores = SpecUtil.parseStoreJsonList(options.getStoreJson());
     Source source = SpecUtil.parseSourceJson(options.getSourceJson());
+    List<FeatureSetSpec> knownFeatureSetSpecs =
+        options.getFeatureSetJson() == null
+            ? Collections.emptyList()
+            : SpecUtil.parseFeatureSetSpecJsonList(
+                new BZip2Decompressor<>(new StringListStreamConverter())
+                    .decompress(options.getFeatureSetJson()));
     SpecsStreamingUpdateConfig specsStreamingUpdateConfig =
         SpecUtil.parseSpecsStreamingUpdateConfig(options.getSpecsStreamingUpdateConfigJson());
 
-    // Step 1. Read FeatureSetSpecs from Spec source
-    PCollection<KV<String, FeatureSetSpec>> featureSetSpecs =
-        pipeline.apply(
-            "ReadFeatureSetSpecs",
-            ReadFeatureSetSpecs.newBuilder()
-                .setSource(source)
-                .setStores(stores)
-                .setSpecsStreamingUpdateConfig(specsStreamingUpdateConfig)
-                .build());
+    // Step 1. Read FeatureSetSpecs from Spec source. Rows of a bounded source are ingested with the
+    // specs known when the job is started, so that the pipeline completes once they are written.
+    boolean isBoundedSource = source.getType().equals(SourceType.FILE);
+    PCollection<KV<String, FeatureSetSpec>> featureSetSpecs;
+    if (isBoundedSource) {
+      Preconditions.checkArgument(
+          !knownFeatureSetSpecs.isEmpty(),
+          "featureSetJson must contain the spec of the feature set read from a FILE source.");
+      featureSetSpecs =
+          pipeline.apply(
+              "CreateFeatureSetSpecs",
+              Create.of(
+                      knownFeatureSetSpecs.stream()
+                          .map(spec -> KV.of(getFeatureSetStringRef(spec), spec))
+                          .collect(Collectors.toList()))
+                  .withCoder(
+                      KvCoder.of(StringUtf8Coder.of(), ProtoCoder.of(FeatureSetSpec.class))));
+    } else {
+      featureSetSpecs =
+          pipeline.apply(
+              "ReadFeatureSetSpecs",
+              ReadFeatureSetSpecs.newBuilder()
+                  .setSource(source)
+                  .setStores(stores)
+                  .setSpecsStreamingUpdateConfig(specsStreamingUpdateConfig)
+                  .build());
+    }
 
-    PCollectionView<Map<String, Iterable<FeatureSetSpec>>> globalSpecView =
-        featureSetSpecs.apply("GlobalSpecView", View.asMultimap());
+    PCollectionView<CompiledSpecRegistry> globalSpecView =
+        featureSetSpecs.apply("GlobalSpecView", CompiledSpecRegistry.asSingletonView());
 
     // Step 2. Read messages from Feast Source as FeatureRow.
     PCollectionTuple convertedFeatureRows =
@@ -116,69 +154,128 @@ public class ImportJob {
                 .setSource(source)
                 .setSuccessTag(FEATURE_ROW_OUT)
                 .setFailureTag(DEADLETTER_OUT)
+                .setDefaultProject(options.getDefaultFeastProject())
                 .build());
 
-    // Step 3. Process and validate incoming FeatureRows
-    PCollectionTuple validatedRows =
+    Map<Store, TupleTag<FeatureRow>> storeTags =
+        stores.stream()
+            .map(s -> Pair.of(s, new TupleTag<FeatureRow>()))
+            .collect(Collectors.toMap(Pair::getLeft, Pair::getRight));
+
+    // Step 3. Compute windowed aggregation features, process and validate incoming FeatureRows and
+    // the aggregated rows, and allocate them to stores by store subscription
+    PCollection<FeatureRow> aggregatedFeatureRows =
         convertedFeatureRows
             .get(FEATURE_ROW_OUT)
             .apply(
-                ProcessAndValidateFeatureRows.newBuilder()
-                    .setDefaultProject(options.getDefaultFeastProject())
+                "ComputeWindowedAggregations",
+                ComputeWindowedAggregations.newBuilder()
                     .setFeatureSetSpecs(globalSpecView)
-                    .setSuccessTag(FEATURE_ROW_OUT)
-                    .setFailureTag(DEADLETTER_OUT)
+                    .setDefaultProject(options.getDefaultFeastProject())
                     .build());
 
-    Map<Store, TupleTag<FeatureRow>> storeTags =
-        stores.stream()
-            .map(s -> Pair.of(s, new TupleTag<FeatureRow>()))
-            .collect(Collectors.toMap(Pair::getLeft, Pair::getRight));
-
-    // Step 4. Allocate validated rows to stores by store subscription
     PCollectionTuple storeAllocatedRows =
-        validatedRows
+        convertedFeatureRows
             .get(FEATURE_ROW_OUT)
             .apply(
-                FeatureRowToStoreAllocator.newBuilder()
+                "ValidateAndAllocateFeatureRows",
+                ValidateAndAllocateFeatureRows.newBuilder()
+                    .setDefaultProject(options.getDefaultFeastProject())
+                    .setFeatureSetSpecs(globalSpecView)
                     .setStores(stores)
                     .setStoreTags(storeTags)
+                    .setFailureTag(DEADLETTER_OUT)
+                    .setFeatureRowCoder(FeatureRowCoder.of(knownFeatureSetSpecs))
                     .build());
 
-    for (Store store : stores) {
-      FeatureSink featureSink = getFeatureSink(store, featureSetSpecs);
+    PCollectionTuple storeAllocatedAggregatedRows =
+        aggregatedFeatureRows.apply(
+            "ValidateAndAllocateAggregatedFeatureRows",
+            ValidateAndAllocateFeatureRows.newBuilder()
+                .setDefaultProject(options.getDefaultFeastProject())
+                .setFeatureSetSpecs(globalSpecView)
+                .setStores(stores)
+                .setStoreTags(storeTags)
+                .setFailureTag(DEADLETTER_OUT)
+                .setFeatureRowCoder(FeatureRowCoder.of(knownFeatureSetSpecs))
+                .build());
 
-      // Step 5. Write metrics of successfully validated rows
-      validatedRows
-          .get(FEATURE_ROW_OUT)
-          .apply("WriteInflightMetrics", WriteInflightMetricsTransform.create(store.getName()));
+    // Step 6. Write FailedElements to the dead letter, limiting the rate of each error class.
+    // Elements that failed to be written to a store are written in the loop below.
+    DeadletterSink deadletterSink = DeadletterUtil.getDeadletterSink(options);
+    if (deadletterSink != null) {
+      deadletterSink.prepareWrite();
+      convertedFeatureRows
+          .get(DEADLETTER_OUT)
+          .apply(
+              "SampleFailedElements_ReadFromSource",
+              SampleFailedElements.create(options.getDeadLetterMaxElementsPerMinute()))
+          .apply("WriteFailedElements_ReadFromSource", deadletterSink.write());
 
-      // Step 6. Write FeatureRow to the corresponding Store.
-      WriteResult writeFeatureRows =
-          storeAllocatedRows
-              .get(storeTags.get(store))
-              .apply("WriteFeatureRowToStore", featureSink.writer());
+      storeAllocatedRows
+          .get(DEADLETTER_OUT)
+          .apply(
+              "SampleFailedElements_ValidateRows",
+              SampleFailedElements.create(options.getDeadLetterMaxElementsPerMinute()))
+          .apply("WriteFailedElements_ValidateRows", deadletterSink.write());
 
-      // Step 7. Write FailedElements to a dead letter table in BigQuery.
-      if (options.getDeadLetterTableSpec() != null) {
-        // TODO: make deadletter destination type configurable
-        DeadletterSink deadletterSink =
-            new BigQueryDeadletterSink(options.getDeadLetterTableSpec());
+      storeAllocatedAggregatedRows
+          .get(DEADLETTER_OUT)
+          .apply(
+              "SampleFailedElements_ValidateAggregatedRows",
+              SampleFailedElements.create(options.getDeadLetterMaxElementsPerMinute()))
+          .apply("WriteFailedElements_ValidateAggregatedRows", deadletterSink.write());
+    }
 
-        convertedFeatureRows
-            .get(DEADLETTER_OUT)
-            .apply("WriteFailedElements_ReadFromSource", deadletterSink.write());
+    for (Store store : stores) {
+      FeatureSink featureSink = getFeatureSink(store, featureSetSpecs);
 
-        validatedRows
-            .get(DEADLETTER_OUT)
-            .apply("WriteFailedElements_ValidateRows", deadletterSink.write());
+      // Online stores replace all the features of an entity on every write, so the rows of
+      // feature sets with aggregations are written with the latest aggregations of their entity,
+      // and the aggregations with the latest values of the other features, both computed from the
+      // rows allocated to the store.
+      PCollection<FeatureRow> storeRows = storeAllocatedRows.get(storeTags.get(store));
+      PCollection<FeatureRow> storeAggregatedRows;
+      if (isOnlineStore(store)) {
+        storeAggregatedRows =
+            storeRows.apply(
+                "ComputeWindowedAggregationsWithRows",
+                ComputeWindowedAggregations.newBuilder()
+                    .setFeatureSetSpecs(globalSpecView)
+                    .setDefaultProject(options.getDefaultFeastProject())
+                    .setEmitInputRows(true)
+                    .build());
+        storeRows =
+            storeRows.apply(
+                "DropRowsOfAggregatedFeatureSets",
+                ComputeWindowedAggregations.dropRowsOfAggregatedFeatureSets(globalSpecView));
+      } else {
+        storeAggregatedRows = storeAllocatedAggregatedRows.get(storeTags.get(store));
+      }
+      storeRows =
+          PCollectionList.of(storeRows)
+              .and(storeAggregatedRows)
+              .apply("FlattenAggregatedFeatureRows", Flatten.pCollections());
+
+      // Step 4. Write metrics of successfully validated rows allocated to the store
+      storeRows.apply(
+          "WriteInflightMetrics", WriteInflightMetricsTransform.create(store.getName()));
+
+      // Step 5. Write FeatureRow to the corresponding Store.
+      WriteResult writeFeatureRows =
+          storeRows.apply("WriteFeatureRowToStore", featureSink.writer());
 
+      // Step 6. Write FailedElements of the store to the dead letter.
+      if (deadletterSink != null) {
         writeFeatureRows
             .getFailedInserts()
+            .apply(
+                "SampleFailedElements_WriteFeatureRowToStore",
+                SampleFailedElements.create(options.getDeadLetterMaxElementsPerMinute()))
             .apply("WriteFailedElements_WriteFeatureRowToStore", deadletterSink.write());
       }
 
-      // Step 8. Write metrics to a metrics sink.
+      // Step 7. Write metrics to a metrics sink.
       writeFeatureRows
           .getSuccessfulInserts()
           .apply("WriteSuccessMetrics", WriteSuccessMetricsTransform.create(store.getName()));
@@ -188,13 +285,20 @@ public class ImportJob {
           .apply("WriteFailureMetrics", WriteFailureMetricsTransform.create(store.getName()));
     }
 
-    // Step 9. Send ack that FeatureSetSpec state is updated
-    featureSetSpecs.apply(
-        "WriteAck",
-        WriteFeatureSetSpecAck.newBuilder()
-            .setSpecsStreamingUpdateConfig(specsStreamingUpdateConfig)
-            .build());
+    // Step 8. Send ack that FeatureSetSpec state is updated
+    if (!isBoundedSource) {
+      featureSetSpecs.apply(
+          "WriteAck",
+          WriteFeatureSetSpecAck.newBuilder()
+              .setSpecsStreamingUpdateConfig(specsStreamingUpdateConfig)
+              .build());
+    }
 
     return pipeline.run();
   }
+
+  private static boolean isOnlineStore(Store store) {
+    return store.getType().equals(StoreType.REDIS)
+        || store.getType().equals(StoreType.REDIS_CLUSTER);
+  }
 }
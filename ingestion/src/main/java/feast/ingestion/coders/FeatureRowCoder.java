@@ -0,0 +1,204 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.coders;
+
+import static feast.common.models.FeatureSet.getFeatureSetStringRef;
+
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.util.VarInt;
+
+/**
+ * The {@link FeatureRowCoder} encodes and decodes {@link FeatureRow} objects against the feature
+ * set specs known when the pipeline is constructed.
+ *
+ * <p>Rows of a known feature set are encoded with the index of their feature set and the slot of
+ * each of their fields in the spec instead of the feature set reference and field names, which
+ * otherwise make up most of the encoded size of a row. Field values are encoded as-is, so rows
+ * remain decodable if the type of a field changes. Rows of an unknown feature set, rows without
+ * event timestamp and rows with fields that are not part of the known spec fall back to the
+ * protobuf encoding.
+ *
+ * <p>The field table is part of the coder, so it must not be changed once the pipeline has been
+ * constructed.
+ */
+public class FeatureRowCoder extends CustomCoder<FeatureRow> {
+
+  private static final int FALLBACK = 0;
+  private static final int COMPACT = 1;
+
+  private static final ProtoCoder<FeatureRow> PROTO_CODER = ProtoCoder.of(FeatureRow.class);
+  private static final StringUtf8Coder STRING_CODER = StringUtf8Coder.of();
+
+  private final String[] featureSetRefs;
+  private final String[][] fieldNames;
+
+  private transient volatile Map<String, Integer> featureSetIds;
+  private transient List<Map<String, Integer>> fieldSlots;
+
+  private FeatureRowCoder(String[] featureSetRefs, String[][] fieldNames) {
+    this.featureSetRefs = featureSetRefs;
+    this.fieldNames = fieldNames;
+  }
+
+  /**
+   * Create a coder that encodes rows of the given feature sets compactly.
+   *
+   * @param featureSetSpecs specs of the feature sets known when the pipeline is constructed
+   * @return {@link FeatureRowCoder}
+   */
+  public static FeatureRowCoder of(List<FeatureSetSpec> featureSetSpecs) {
+    String[] featureSetRefs = new String[featureSetSpecs.size()];
+    String[][] fieldNames = new String[featureSetSpecs.size()][];
+    for (int i = 0; i < featureSetSpecs.size(); i++) {
+      FeatureSetSpec spec = featureSetSpecs.get(i);
+      featureSetRefs[i] = getFeatureSetStringRef(spec);
+
+      List<String> names = new ArrayList<>();
+      for (EntitySpec entity : spec.getEntitiesList()) {
+        names.add(entity.getName());
+      }
+      for (FeatureSpec feature : spec.getFeaturesList()) {
+        names.add(feature.getName());
+      }
+      fieldNames[i] = names.toArray(new String[0]);
+    }
+    return new FeatureRowCoder(featureSetRefs, fieldNames);
+  }
+
+  @Override
+  public void encode(FeatureRow value, OutputStream outStream) throws IOException {
+    Integer featureSetId = getFeatureSetIds().get(value.getFeatureSet());
+    int[] slots =
+        featureSetId == null || !value.hasEventTimestamp() ? null : getSlots(featureSetId, value);
+    if (slots == null) {
+      outStream.write(FALLBACK);
+      PROTO_CODER.encode(value, outStream);
+      return;
+    }
+
+    outStream.write(COMPACT);
+    VarInt.encode(featureSetId, outStream);
+    VarInt.encode(value.getEventTimestamp().getSeconds(), outStream);
+    VarInt.encode(value.getEventTimestamp().getNanos(), outStream);
+    STRING_CODER.encode(value.getIngestionId(), outStream);
+    VarInt.encode(slots.length, outStream);
+    for (int i = 0; i < slots.length; i++) {
+      // The lowest bit of the slot records whether the field has a value
+      Field field = value.getFields(i);
+      VarInt.encode(slots[i] << 1 | (field.hasValue() ? 1 : 0), outStream);
+      if (field.hasValue()) {
+        field.getValue().writeDelimitedTo(outStream);
+      }
+    }
+  }
+
+  @Override
+  public FeatureRow decode(InputStream inStream) throws IOException {
+    int header = inStream.read();
+    if (header == FALLBACK) {
+      return PROTO_CODER.decode(inStream);
+    }
+    if (header != COMPACT) {
+      throw new CoderException(String.format("Unexpected FeatureRow encoding: %d", header));
+    }
+
+    int featureSetId = VarInt.decodeInt(inStream);
+    if (featureSetId >= featureSetRefs.length) {
+      throw new CoderException(String.format("Unknown feature set index: %d", featureSetId));
+    }
+    FeatureRow.Builder builder =
+        FeatureRow.newBuilder()
+            .setFeatureSet(featureSetRefs[featureSetId])
+            .setEventTimestamp(
+                Timestamp.newBuilder()
+                    .setSeconds(VarInt.decodeLong(inStream))
+                    .setNanos(VarInt.decodeInt(inStream)))
+            .setIngestionId(STRING_CODER.decode(inStream));
+    String[] names = fieldNames[featureSetId];
+    int fieldCount = VarInt.decodeInt(inStream);
+    for (int i = 0; i < fieldCount; i++) {
+      int encodedSlot = VarInt.decodeInt(inStream);
+      int slot = encodedSlot >>> 1;
+      if (slot >= names.length) {
+        throw new CoderException(String.format("Unknown field slot: %d", slot));
+      }
+      Field.Builder field = Field.newBuilder().setName(names[slot]);
+      if ((encodedSlot & 1) != 0) {
+        field.setValue(Value.parseDelimitedFrom(inStream));
+      }
+      builder.addFields(field);
+    }
+    return builder.build();
+  }
+
+  @Override
+  public void verifyDeterministic() throws NonDeterministicException {
+    PROTO_CODER.verifyDeterministic();
+  }
+
+  /**
+   * @return slot of every field of the row in the spec of the feature set, or null if one of the
+   *     fields is not part of the spec
+   */
+  private int[] getSlots(int featureSetId, FeatureRow value) {
+    Map<String, Integer> slotsByName = fieldSlots.get(featureSetId);
+    int[] slots = new int[value.getFieldsCount()];
+    for (int i = 0; i < slots.length; i++) {
+      Integer slot = slotsByName.get(value.getFields(i).getName());
+      if (slot == null) {
+        return null;
+      }
+      slots[i] = slot;
+    }
+    return slots;
+  }
+
+  private Map<String, Integer> getFeatureSetIds() {
+    if (featureSetIds == null) {
+      List<Map<String, Integer>> slots = new ArrayList<>(fieldNames.length);
+      Map<String, Integer> ids = new HashMap<>();
+      for (int i = 0; i < featureSetRefs.length; i++) {
+        ids.put(featureSetRefs[i], i);
+        Map<String, Integer> slotsByName = new HashMap<>();
+        for (int slot = 0; slot < fieldNames[i].length; slot++) {
+          slotsByName.put(fieldNames[i][slot], slot);
+        }
+        slots.add(slotsByName);
+      }
+      fieldSlots = slots;
+      featureSetIds = ids;
+    }
+    return featureSetIds;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.deadletter;
+
+import com.google.gson.Gson;
+import feast.storage.api.writer.FailedElement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.beam.sdk.transforms.SimpleFunction;
+
+/**
+ * Converts {@link FailedElement}s into single line JSON objects, with the same field names as the
+ * columns of the BigQuery dead letter table. Fields without value are omitted.
+ */
+public class FailedElementToJsonFn extends SimpleFunction<FailedElement, String> {
+
+  private static final Gson gson = new Gson();
+
+  @Override
+  public String apply(FailedElement element) {
+    Map<String, String> json = new LinkedHashMap<>();
+    json.put("timestamp", element.getTimestamp().toString());
+    json.put("job_name", element.getJobName());
+    json.put("project_name", element.getProjectName());
+    json.put("feature_set_name", element.getFeatureSetName());
+    json.put("transform_name", element.getTransformName());
+    json.put("payload", element.getPayload());
+    json.put("error_message", element.getErrorMessage());
+    json.put("stack_trace", element.getStackTrace());
+    return gson.toJson(json);
+  }
+}
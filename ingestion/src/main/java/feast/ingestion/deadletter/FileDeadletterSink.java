@@ -0,0 +1,88 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.deadletter;
+
+import com.google.auto.value.AutoValue;
+import feast.storage.api.writer.DeadletterSink;
+import feast.storage.api.writer.FailedElement;
+import org.apache.beam.sdk.io.TextIO;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PDone;
+import org.joda.time.Duration;
+
+/**
+ * Writes failed elements as newline delimited JSON files, with one file per window of one minute.
+ * The path prefix may be a local path, or any location supported by Beam file systems, e.g. a
+ * Google Cloud Storage location.
+ */
+public class FileDeadletterSink implements DeadletterSink {
+
+  private static final Duration WINDOW_SIZE = Duration.standardMinutes(1);
+
+  private final String pathPrefix;
+
+  public FileDeadletterSink(String pathPrefix) {
+    this.pathPrefix = pathPrefix;
+  }
+
+  @Override
+  public void prepareWrite() {}
+
+  @Override
+  public PTransform<PCollection<FailedElement>, PDone> write() {
+    return WriteFailedElement.newBuilder().setPathPrefix(pathPrefix).build();
+  }
+
+  @AutoValue
+  public abstract static class WriteFailedElement
+      extends PTransform<PCollection<FailedElement>, PDone> {
+
+    public abstract String getPathPrefix();
+
+    public static Builder newBuilder() {
+      return new AutoValue_FileDeadletterSink_WriteFailedElement.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+
+      /** @param pathPrefix Prefix of the path of the files the failed elements are written to */
+      public abstract Builder setPathPrefix(String pathPrefix);
+
+      public abstract WriteFailedElement build();
+    }
+
+    @Override
+    public PDone expand(PCollection<FailedElement> input) {
+      input
+          .apply("FailedElementToJson", MapElements.via(new FailedElementToJsonFn()))
+          .apply("WindowFailedElements", Window.into(FixedWindows.of(WINDOW_SIZE)))
+          .apply(
+              "WriteFailedElementsToFiles",
+              TextIO.write()
+                  .to(getPathPrefix())
+                  .withSuffix(".json")
+                  .withWindowedWrites()
+                  .withNumShards(1));
+      return PDone.in(input.getPipeline());
+    }
+  }
+}
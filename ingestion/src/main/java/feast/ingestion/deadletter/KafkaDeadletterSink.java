@@ -0,0 +1,106 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.deadletter;
+
+import com.google.auto.value.AutoValue;
+import feast.storage.api.writer.DeadletterSink;
+import feast.storage.api.writer.FailedElement;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.io.kafka.KafkaIO;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PDone;
+import org.apache.beam.sdk.values.TypeDescriptors;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+/**
+ * Writes failed elements to a Kafka topic as JSON messages, keyed by the reference of the feature
+ * set of the element so that failures of a feature set are kept in order within a partition.
+ */
+public class KafkaDeadletterSink implements DeadletterSink {
+
+  private final String bootstrapServers;
+  private final String topic;
+
+  public KafkaDeadletterSink(String bootstrapServers, String topic) {
+    this.bootstrapServers = bootstrapServers;
+    this.topic = topic;
+  }
+
+  @Override
+  public void prepareWrite() {}
+
+  @Override
+  public PTransform<PCollection<FailedElement>, PDone> write() {
+    return WriteFailedElement.newBuilder()
+        .setBootstrapServers(bootstrapServers)
+        .setTopic(topic)
+        .build();
+  }
+
+  @AutoValue
+  public abstract static class WriteFailedElement
+      extends PTransform<PCollection<FailedElement>, PDone> {
+
+    public abstract String getBootstrapServers();
+
+    public abstract String getTopic();
+
+    public static Builder newBuilder() {
+      return new AutoValue_KafkaDeadletterSink_WriteFailedElement.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+
+      public abstract Builder setBootstrapServers(String bootstrapServers);
+
+      public abstract Builder setTopic(String topic);
+
+      public abstract WriteFailedElement build();
+    }
+
+    @Override
+    public PDone expand(PCollection<FailedElement> input) {
+      FailedElementToJsonFn toJson = new FailedElementToJsonFn();
+      return input
+          .apply(
+              "FailedElementToJson",
+              MapElements.into(
+                      TypeDescriptors.kvs(TypeDescriptors.strings(), TypeDescriptors.strings()))
+                  .via(element -> KV.of(getFeatureSetReference(element), toJson.apply(element))))
+          .setCoder(KvCoder.of(StringUtf8Coder.of(), StringUtf8Coder.of()))
+          .apply(
+              "WriteFailedElementsToKafka",
+              KafkaIO.<String, String>write()
+                  .withBootstrapServers(getBootstrapServers())
+                  .withTopic(getTopic())
+                  .withKeySerializer(StringSerializer.class)
+                  .withValueSerializer(StringSerializer.class));
+    }
+  }
+
+  private static String getFeatureSetReference(FailedElement element) {
+    if (element.getFeatureSetName() == null) {
+      return "";
+    }
+    return String.format("%s/%s", element.getProjectName(), element.getFeatureSetName());
+  }
+}
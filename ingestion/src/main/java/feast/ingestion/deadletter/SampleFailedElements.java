@@ -0,0 +1,188 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.deadletter;
+
+import com.google.auto.value.AutoValue;
+import feast.storage.api.writer.FailedElement;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.values.PCollection;
+import org.joda.time.Instant;
+
+/**
+ * Limits the rate of failed elements written to the dead letter, so that a misbehaving producer
+ * cannot flood it with millions of copies of the same error.
+ *
+ * <p>Failed elements are grouped into error classes by transform, feature set and exception type.
+ * Every worker passes through at most {@code maxElementsPerMinute} elements of each error class per
+ * minute, and drops the others. Dropped elements are counted, and for every error class with
+ * dropped elements a summary element holding the number of dropped elements is emitted at the end
+ * of the bundle, so that the dead letter still reflects the extent of the failures.
+ */
+@AutoValue
+public abstract class SampleFailedElements
+    extends PTransform<PCollection<FailedElement>, PCollection<FailedElement>> {
+
+  public static final String METRIC_NAMESPACE = "SampleFailedElements";
+  public static final String DROPPED_ELEMENTS_METRIC = "deadletter_elements_dropped";
+
+  public abstract int getMaxElementsPerMinute();
+
+  /**
+   * @param maxElementsPerMinute Maximum number of failed elements of an error class passed through
+   *     by each worker per minute. Rate limiting is disabled if not greater than 0.
+   * @return transform limiting the rate of failed elements
+   */
+  public static SampleFailedElements create(int maxElementsPerMinute) {
+    return new AutoValue_SampleFailedElements(maxElementsPerMinute);
+  }
+
+  @Override
+  public PCollection<FailedElement> expand(PCollection<FailedElement> input) {
+    if (getMaxElementsPerMinute() <= 0) {
+      return input;
+    }
+    return input
+        .apply(
+            "RateLimitFailedElements",
+            ParDo.of(new SampleFailedElementsDoFn(getMaxElementsPerMinute())))
+        .setCoder(input.getCoder());
+  }
+
+  /**
+   * @param element failed element
+   * @return error class of the element, made of its transform, feature set and exception type
+   */
+  static String getErrorClass(FailedElement element) {
+    String exceptionType = "";
+    String stackTrace = element.getStackTrace();
+    if (stackTrace != null) {
+      int end = stackTrace.length();
+      for (char separator : new char[] {':', '\n'}) {
+        int index = stackTrace.indexOf(separator);
+        if (index >= 0) {
+          end = Math.min(end, index);
+        }
+      }
+      exceptionType = stackTrace.substring(0, end).trim();
+    }
+    return String.format(
+        "%s/%s/%s/%s",
+        element.getTransformName(),
+        element.getProjectName(),
+        element.getFeatureSetName(),
+        exceptionType);
+  }
+
+  static class SampleFailedElementsDoFn extends DoFn<FailedElement, FailedElement> {
+
+    private static final long MINUTE_MILLIS = 60000L;
+    private static final int MAX_ERROR_CLASSES = 10000;
+    private static final Counter droppedElements =
+        Metrics.counter(METRIC_NAMESPACE, DROPPED_ELEMENTS_METRIC);
+
+    private final int maxElementsPerMinute;
+    private transient Map<String, ErrorClassState> errorClasses;
+
+    SampleFailedElementsDoFn(int maxElementsPerMinute) {
+      this.maxElementsPerMinute = maxElementsPerMinute;
+    }
+
+    @Setup
+    public void setup() {
+      errorClasses = new HashMap<>();
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext context, BoundedWindow window) {
+      FailedElement element = context.element();
+      long minute = System.currentTimeMillis() / MINUTE_MILLIS;
+      String errorClass = getErrorClass(element);
+      ErrorClassState state = errorClasses.get(errorClass);
+      if (state == null) {
+        if (errorClasses.size() >= MAX_ERROR_CLASSES) {
+          // Protects workers against error messages that make every error class distinct
+          errorClasses.values().removeIf(s -> s.dropped == 0);
+        }
+        state = new ErrorClassState();
+        errorClasses.put(errorClass, state);
+      }
+      if (state.minute != minute) {
+        state.minute = minute;
+        state.passed = 0;
+      }
+      if (state.passed < maxElementsPerMinute) {
+        state.passed++;
+        context.output(element);
+        return;
+      }
+
+      droppedElements.inc();
+      if (state.dropped == 0) {
+        state.droppedSince = Instant.now();
+      }
+      state.dropped++;
+      state.lastDropped = element;
+      state.lastDroppedTimestamp = context.timestamp();
+      state.lastDroppedWindow = window;
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext context) {
+      for (Map.Entry<String, ErrorClassState> errorClass : errorClasses.entrySet()) {
+        ErrorClassState state = errorClass.getValue();
+        if (state.dropped == 0) {
+          continue;
+        }
+        FailedElement summary =
+            FailedElement.newBuilder()
+                .setJobName(state.lastDropped.getJobName())
+                .setTransformName(state.lastDropped.getTransformName())
+                .setProjectName(state.lastDropped.getProjectName())
+                .setFeatureSetName(state.lastDropped.getFeatureSetName())
+                .setErrorMessage(
+                    String.format(
+                        "%d failed elements of error class '%s' were dropped since %s, the last of which failed with: %s",
+                        state.dropped,
+                        errorClass.getKey(),
+                        state.droppedSince,
+                        state.lastDropped.getErrorMessage()))
+                .build();
+        context.output(summary, state.lastDroppedTimestamp, state.lastDroppedWindow);
+        state.dropped = 0;
+        state.lastDropped = null;
+        state.lastDroppedWindow = null;
+      }
+    }
+  }
+
+  private static class ErrorClassState {
+    long minute;
+    int passed;
+    long dropped;
+    Instant droppedSince;
+    FailedElement lastDropped;
+    Instant lastDroppedTimestamp;
+    BoundedWindow lastDroppedWindow;
+  }
+}
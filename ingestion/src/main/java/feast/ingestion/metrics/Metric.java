@@ -0,0 +1,42 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.metrics;
+
+import com.google.auto.value.AutoValue;
+import java.util.List;
+
+/** A single gauge value or counter increment recorded by a {@link MetricsExporter}. */
+@AutoValue
+public abstract class Metric {
+
+  public enum Type {
+    GAUGE,
+    COUNT
+  }
+
+  public abstract Type getType();
+
+  public abstract String getName();
+
+  public abstract double getValue();
+
+  public abstract List<String> getTags();
+
+  public static Metric of(Type type, String name, double value, List<String> tags) {
+    return new AutoValue_Metric(type, name, value, tags);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports ingestion metrics to a metrics collector. Metrics are buffered and only exported when
+ * {@link #flush()} is called, typically once per bundle, so the cost of exporting is paid once for
+ * all the metrics computed in the bundle. Increments of the same counter are summed until then.
+ *
+ * <p>Tags follow the DogStatsD convention of "key:value" strings.
+ */
+public abstract class MetricsExporter implements AutoCloseable {
+
+  public static final String METRIC_PREFIX = "feast_ingestion";
+
+  private final List<Metric> buffer = new ArrayList<>();
+  // Position in the buffer of each counter, by name and tags
+  private final Map<List<String>, Integer> counterPositions = new HashMap<>();
+
+  /**
+   * Record the value of a gauge.
+   *
+   * @param name Name of the gauge, without the {@link #METRIC_PREFIX}
+   * @param value Value of the gauge
+   * @param tags Tags of the gauge, in "key:value" format
+   */
+  public void gauge(String name, double value, String... tags) {
+    buffer.add(Metric.of(Metric.Type.GAUGE, name, value, Arrays.asList(tags)));
+  }
+
+  /**
+   * Record an increment of a counter.
+   *
+   * @param name Name of the counter, without the {@link #METRIC_PREFIX}
+   * @param delta Increment of the counter
+   * @param tags Tags of the counter, in "key:value" format
+   */
+  public void count(String name, long delta, String... tags) {
+    List<String> key = new ArrayList<>(tags.length + 1);
+    key.add(name);
+    key.addAll(Arrays.asList(tags));
+    Integer position = counterPositions.get(key);
+    if (position == null) {
+      counterPositions.put(key, buffer.size());
+      buffer.add(Metric.of(Metric.Type.COUNT, name, delta, Arrays.asList(tags)));
+    } else {
+      Metric counter = buffer.get(position);
+      buffer.set(
+          position,
+          Metric.of(Metric.Type.COUNT, name, counter.getValue() + delta, counter.getTags()));
+    }
+  }
+
+  /** Export all the metrics recorded since the last flush, in the order they were recorded. */
+  public void flush() {
+    if (buffer.isEmpty()) {
+      return;
+    }
+    export(buffer);
+    buffer.clear();
+    counterPositions.clear();
+  }
+
+  protected abstract void export(List<Metric> metrics);
+
+  /** Flush the remaining metrics and release the resources held by the exporter. */
+  @Override
+  public void close() {
+    flush();
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.metrics;
+
+import feast.ingestion.options.ImportOptions;
+import java.io.Serializable;
+
+/**
+ * Creates {@link MetricsExporter}s on the workers. Factories are serialized with the transforms
+ * that export metrics, while exporters are created in the setup of each DoFn.
+ */
+@FunctionalInterface
+public interface MetricsExporterFactory extends Serializable {
+
+  MetricsExporter create();
+
+  static MetricsExporterFactory statsd(String host, int port) {
+    return () -> new StatsDMetricsExporter(host, port);
+  }
+
+  static MetricsExporterFactory prometheus(int port) {
+    return () -> new PrometheusMetricsExporter(port);
+  }
+
+  /**
+   * Get the factory of the metrics exporter configured in the import options.
+   *
+   * @param options Import options
+   * @return metrics exporter factory
+   * @throws IllegalArgumentException if the metrics exporter type is not supported
+   */
+  static MetricsExporterFactory fromOptions(ImportOptions options) {
+    switch (options.getMetricsExporterType()) {
+      case "statsd":
+        return statsd(options.getStatsdHost(), options.getStatsdPort());
+      case "prometheus":
+        return prometheus(options.getPrometheusExporterPort());
+      default:
+        throw new IllegalArgumentException(
+            String.format(
+                "Unsupported metrics exporter type '%s'.", options.getMetricsExporterType()));
+    }
+  }
+}
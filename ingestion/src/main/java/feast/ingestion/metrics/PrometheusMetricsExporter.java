@@ -0,0 +1,155 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.SimpleCollector;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+
+/**
+ * Exports metrics to a Prometheus registry shared by all the exporters of the JVM, which is exposed
+ * in the Prometheus text format on an HTTP endpoint of the worker, so it can be scraped by
+ * Prometheus or forwarded to a push gateway. The endpoint is started by the first exporter created
+ * for a given port, and served by daemon threads for the lifetime of the JVM, so it is not stopped
+ * when DoFns are torn down and does not prevent the JVM from exiting.
+ *
+ * <p>Metric names are prefixed with {@link #METRIC_PREFIX}, and tags are exported as labels.
+ */
+public class PrometheusMetricsExporter extends MetricsExporter {
+
+  private static final Logger log =
+      org.slf4j.LoggerFactory.getLogger(PrometheusMetricsExporter.class);
+
+  static final CollectorRegistry registry = new CollectorRegistry();
+  private static final Map<String, SimpleCollector<?>> collectors = new HashMap<>();
+  private static final Map<Integer, HttpServer> servers = new HashMap<>();
+
+  public PrometheusMetricsExporter(int port) {
+    synchronized (servers) {
+      if (!servers.containsKey(port)) {
+        servers.put(port, startServer(port));
+      }
+    }
+  }
+
+  private static HttpServer startServer(int port) {
+    try {
+      HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+      server.setExecutor(
+          Executors.newSingleThreadExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "prometheus-metrics-" + port);
+                thread.setDaemon(true);
+                return thread;
+              }));
+      server.createContext(
+          "/metrics",
+          exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", TextFormat.CONTENT_TYPE_004);
+            exchange.sendResponseHeaders(200, 0);
+            try (Writer writer =
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+              TextFormat.write004(writer, registry.metricFamilySamples());
+            }
+          });
+      // The dispatcher thread of the server inherits the daemon status of the thread starting it
+      Thread starter = new Thread(server::start);
+      starter.setDaemon(true);
+      starter.start();
+      starter.join();
+      log.info("Serving Prometheus metrics on port {}", port);
+      return server;
+    } catch (IOException e) {
+      throw new UncheckedIOException(
+          String.format("Unable to serve Prometheus metrics on port %d", port), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(
+          String.format("Interrupted while serving Prometheus metrics on port %d", port), e);
+    }
+  }
+
+  @Override
+  protected void export(List<Metric> metrics) {
+    synchronized (collectors) {
+      for (Metric metric : metrics) {
+        String[] labelNames = new String[metric.getTags().size()];
+        String[] labelValues = new String[metric.getTags().size()];
+        for (int i = 0; i < labelNames.length; i++) {
+          String tag = metric.getTags().get(i);
+          int separator = tag.indexOf(':');
+          labelNames[i] = separator < 0 ? tag : tag.substring(0, separator);
+          labelValues[i] = separator < 0 ? "" : tag.substring(separator + 1);
+        }
+
+        SimpleCollector<?> collector = getCollector(metric, labelNames);
+        if (collector == null) {
+          continue;
+        }
+        switch (metric.getType()) {
+          case GAUGE:
+            ((Gauge) collector).labels(labelValues).set(metric.getValue());
+            break;
+          case COUNT:
+            ((Counter) collector).labels(labelValues).inc(metric.getValue());
+            break;
+        }
+      }
+    }
+  }
+
+  private SimpleCollector<?> getCollector(Metric metric, String[] labelNames) {
+    String name = METRIC_PREFIX + "_" + metric.getName();
+    String key = metric.getType() + "/" + name + "/" + Arrays.toString(labelNames);
+    SimpleCollector<?> collector = collectors.get(key);
+    if (collector != null) {
+      return collector;
+    }
+    try {
+      switch (metric.getType()) {
+        case GAUGE:
+          collector = Gauge.build().name(name).help(name).labelNames(labelNames).register(registry);
+          break;
+        case COUNT:
+          collector =
+              Counter.build().name(name).help(name).labelNames(labelNames).register(registry);
+          break;
+      }
+    } catch (IllegalArgumentException e) {
+      // Metrics can only be registered once per name, with the same labels
+      log.error("Skip exporting metric '{}': {}", name, e.getMessage());
+      return null;
+    }
+    collectors.put(key, collector);
+    return collector;
+  }
+}
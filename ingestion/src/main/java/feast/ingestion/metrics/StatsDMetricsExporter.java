@@ -0,0 +1,76 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.metrics;
+
+import com.timgroup.statsd.NonBlockingStatsDClient;
+import com.timgroup.statsd.StatsDClient;
+import java.util.List;
+import org.slf4j.Logger;
+
+/** Exports metrics to StatsD, as DogStatsD gauges and counts. */
+public class StatsDMetricsExporter extends MetricsExporter {
+
+  private static final Logger log = org.slf4j.LoggerFactory.getLogger(StatsDMetricsExporter.class);
+
+  private StatsDClient statsDClient;
+
+  public StatsDMetricsExporter(String host, int port) {
+    // Note that exception may be thrown during StatsD client instantiation but no exception
+    // will be thrown when sending metrics (mimicking the UDP protocol behaviour).
+    // https://jar-download.com/artifacts/com.datadoghq/java-dogstatsd-client/2.1.1/documentation
+    // https://github.com/DataDog/java-dogstatsd-client#unix-domain-socket-support
+    try {
+      statsDClient = new NonBlockingStatsDClient(METRIC_PREFIX, host, port);
+    } catch (Exception e) {
+      log.error("StatsD client cannot be started: " + e.getMessage());
+    }
+  }
+
+  @Override
+  protected void export(List<Metric> metrics) {
+    if (statsDClient == null) {
+      log.error("StatsD client is null, likely because it encounters an error during setup");
+      return;
+    }
+    for (Metric metric : metrics) {
+      String[] tags = metric.getTags().toArray(new String[0]);
+      switch (metric.getType()) {
+        case GAUGE:
+          if (metric.getValue() < 0) {
+            // StatsD gauge will asssign a delta instead of the actual value, if there is a sign in
+            // the value. E.g. if the value is negative, a delta will be assigned. For this reason,
+            // the gauge value is set to zero beforehand.
+            // https://github.com/statsd/statsd/blob/master/docs/metric_types.md#gauges
+            statsDClient.gauge(metric.getName(), 0, tags);
+          }
+          statsDClient.gauge(metric.getName(), metric.getValue(), tags);
+          break;
+        case COUNT:
+          statsDClient.count(metric.getName(), (long) metric.getValue(), tags);
+          break;
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    if (statsDClient != null) {
+      statsDClient.close();
+    }
+  }
+}
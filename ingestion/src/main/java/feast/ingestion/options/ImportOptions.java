@@ -73,6 +73,15 @@ public interface ImportOptions extends PipelineOptions, DataflowPipelineOptions,
 
   void setStoreJson(List<String> storeJson);
 
+  @Description(
+      "(Optional) JSON string representations of the FeatureSetSpecs known when the job is started,"
+          + " joined by newline and compressed with BZip2. FeatureRows of these feature sets are"
+          + " encoded compactly between pipeline stages. FeatureSetSpecs registered after the job"
+          + " is started are still read from the specs stream.")
+  byte[] getFeatureSetJson();
+
+  void setFeatureSetJson(byte[] featureSetJson);
+
   @Description(
       "(Optional) Deadletter elements will be written to this BigQuery table."
           + "Table spec must follow this format PROJECT_ID:DATASET_ID.PROJECT_ID"
@@ -85,7 +94,43 @@ public interface ImportOptions extends PipelineOptions, DataflowPipelineOptions,
    */
   void setDeadLetterTableSpec(String deadLetterTableSpec);
 
-  @Description("MetricsAccumulator exporter type to instantiate. Supported type: statsd")
+  @Description(
+      "Type of the sink deadletter elements are written to. Supported types: bigquery (requires"
+          + " deadLetterTableSpec), kafka (requires deadLetterKafkaBootstrapServers and"
+          + " deadLetterKafkaTopic), file (requires deadLetterFilePathPrefix), none")
+  @Default.String("bigquery")
+  String getDeadLetterType();
+
+  void setDeadLetterType(String deadLetterType);
+
+  @Description("(Optional) Kafka bootstrap servers deadletter elements are written to.")
+  String getDeadLetterKafkaBootstrapServers();
+
+  void setDeadLetterKafkaBootstrapServers(String deadLetterKafkaBootstrapServers);
+
+  @Description("(Optional) Kafka topic deadletter elements are written to, as JSON messages.")
+  String getDeadLetterKafkaTopic();
+
+  void setDeadLetterKafkaTopic(String deadLetterKafkaTopic);
+
+  @Description(
+      "(Optional) Path prefix of the newline delimited JSON files deadletter elements are written"
+          + " to. Local paths and any location supported by Beam file systems can be used.")
+  String getDeadLetterFilePathPrefix();
+
+  void setDeadLetterFilePathPrefix(String deadLetterFilePathPrefix);
+
+  @Description(
+      "Maximum number of deadletter elements of an error class, i.e. of the same transform,"
+          + " feature set and exception type, written by each worker per minute. Other elements"
+          + " are dropped and counted. Rate limiting is disabled if not greater than 0, the default.")
+  @Default.Integer(0)
+  int getDeadLetterMaxElementsPerMinute();
+
+  void setDeadLetterMaxElementsPerMinute(int deadLetterMaxElementsPerMinute);
+
+  @Description(
+      "MetricsAccumulator exporter type to instantiate. Supported types: statsd, prometheus, none")
   @Default.String("none")
   String getMetricsExporterType();
 
@@ -104,6 +149,13 @@ public interface ImportOptions extends PipelineOptions, DataflowPipelineOptions,
 
   void setStatsdPort(int StatsdPort);
 
+  @Description(
+      "Port on which each worker serves its metrics to Prometheus. Required if the metrics exporter is set to Prometheus.")
+  @Default.Integer(9091)
+  int getPrometheusExporterPort();
+
+  void setPrometheusExporterPort(int prometheusExporterPort);
+
   @Description(
       "Fixed window size in seconds (default 60) to apply before aggregating the numerical value of "
           + "features and exporting the aggregated values as metrics. Refer to "
@@ -0,0 +1,213 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform;
+
+import com.google.auto.value.AutoValue;
+import com.google.protobuf.TextFormat;
+import feast.ingestion.transform.fn.FeatureSetReferenceNormalizer;
+import feast.ingestion.transform.fn.WindowedAggregationDoFn;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.storage.api.specs.CompiledSpecRegistry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+
+/**
+ * Computes the windowed aggregation features declared in feature set specs from incoming {@link
+ * FeatureRow}s, and returns the rows holding the aggregations. Rows of feature sets without
+ * aggregations are dropped, so the output is meant to be written to stores alongside the input.
+ *
+ * <p>Online stores replace all the features of an entity on every write, so writing both the input
+ * rows and the aggregated rows would clear the aggregated features on every input row. Rows written
+ * to online stores are therefore computed with {@link #getEmitInputRows()}, which also emits every
+ * input row of a feature set with aggregations, carrying the latest aggregations of its entity, so
+ * that the input rows of these feature sets can be dropped with {@link
+ * #dropRowsOfAggregatedFeatureSets(PCollectionView)} and replaced by the output.
+ *
+ * <p>Aggregations are computed per entity by {@link WindowedAggregationDoFn}, and emitted as the
+ * watermark passes the end of each window. Feast Core therefore rejects feature sets with
+ * aggregations unless their Kafka source uses the event time timestamp policy, so that the
+ * watermark follows the event timestamps of the rows.
+ */
+@AutoValue
+public abstract class ComputeWindowedAggregations
+    extends PTransform<PCollection<FeatureRow>, PCollection<FeatureRow>> {
+
+  public abstract PCollectionView<CompiledSpecRegistry> getFeatureSetSpecs();
+
+  public abstract String getDefaultProject();
+
+  /**
+   * Whether input rows of feature sets with aggregations are emitted too, carrying the latest
+   * aggregations of their entity, as written to online stores.
+   */
+  public abstract boolean getEmitInputRows();
+
+  public static Builder newBuilder() {
+    return new AutoValue_ComputeWindowedAggregations.Builder().setEmitInputRows(false);
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    public abstract Builder setFeatureSetSpecs(
+        PCollectionView<CompiledSpecRegistry> featureSetSpecs);
+
+    public abstract Builder setDefaultProject(String defaultProject);
+
+    public abstract Builder setEmitInputRows(boolean emitInputRows);
+
+    public abstract ComputeWindowedAggregations build();
+  }
+
+  @Override
+  public PCollection<FeatureRow> expand(PCollection<FeatureRow> input) {
+    return input
+        .apply(
+            "KeyByEntities",
+            ParDo.of(new KeyByEntitiesDoFn(getFeatureSetSpecs(), getDefaultProject()))
+                .withSideInputs(getFeatureSetSpecs()))
+        .setCoder(
+            KvCoder.of(
+                StringUtf8Coder.of(),
+                KvCoder.of(ProtoCoder.of(FeatureSetSpec.class), ProtoCoder.of(FeatureRow.class))))
+        .apply("AggregateWindows", ParDo.of(new WindowedAggregationDoFn(getEmitInputRows())))
+        .setCoder(ProtoCoder.of(FeatureRow.class));
+  }
+
+  /**
+   * Returns a transform dropping the rows of feature sets with aggregations, which is applied to
+   * the input rows allocated to online stores, as they are emitted with their aggregations when
+   * {@link #getEmitInputRows()} is set. Rows are expected to have normalized feature set
+   * references.
+   *
+   * @param featureSetSpecs view of the latest feature set specs
+   * @return transform dropping the rows of feature sets with aggregations
+   */
+  public static ParDo.SingleOutput<FeatureRow, FeatureRow> dropRowsOfAggregatedFeatureSets(
+      PCollectionView<CompiledSpecRegistry> featureSetSpecs) {
+    return ParDo.of(new DropRowsOfAggregatedFeatureSetsDoFn(featureSetSpecs))
+        .withSideInputs(featureSetSpecs);
+  }
+
+  static class DropRowsOfAggregatedFeatureSetsDoFn extends DoFn<FeatureRow, FeatureRow> {
+
+    private final PCollectionView<CompiledSpecRegistry> featureSetSpecs;
+
+    DropRowsOfAggregatedFeatureSetsDoFn(PCollectionView<CompiledSpecRegistry> featureSetSpecs) {
+      this.featureSetSpecs = featureSetSpecs;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext context) {
+      FeatureRow featureRow = context.element();
+      AggregatedFeatures aggregatedFeatures =
+          CompiledSpecRegistry.intern(featureSetSpecs, context.sideInput(featureSetSpecs))
+              .getCompiled(
+                  featureRow.getFeatureSet(), AggregatedFeatures.class, AggregatedFeatures::new);
+      if (aggregatedFeatures == null || aggregatedFeatures.spec.getFeaturesCount() == 0) {
+        context.output(featureRow);
+      }
+    }
+  }
+
+  /**
+   * Keys rows of feature sets with aggregations by their normalized feature set reference and the
+   * values of their entities, in the order of the entities of the spec. Rows are paired with a spec
+   * reduced to the aggregated features, which is compiled once per spec version by the registry.
+   */
+  static class KeyByEntitiesDoFn
+      extends DoFn<FeatureRow, KV<String, KV<FeatureSetSpec, FeatureRow>>> {
+
+    private final PCollectionView<CompiledSpecRegistry> featureSetSpecs;
+    private final FeatureSetReferenceNormalizer referenceNormalizer;
+
+    KeyByEntitiesDoFn(
+        PCollectionView<CompiledSpecRegistry> featureSetSpecs, String defaultProject) {
+      this.featureSetSpecs = featureSetSpecs;
+      this.referenceNormalizer = new FeatureSetReferenceNormalizer(defaultProject);
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext context) {
+      FeatureRow featureRow = context.element();
+      String featureSetRef = referenceNormalizer.normalize(featureRow.getFeatureSet());
+      AggregatedFeatures aggregatedFeatures =
+          CompiledSpecRegistry.intern(featureSetSpecs, context.sideInput(featureSetSpecs))
+              .getCompiled(featureSetRef, AggregatedFeatures.class, AggregatedFeatures::new);
+      if (aggregatedFeatures == null
+          || aggregatedFeatures.spec.getFeaturesCount() == 0
+          || !featureRow.hasEventTimestamp()) {
+        return;
+      }
+
+      Map<String, Field> fields = new HashMap<>();
+      featureRow.getFieldsList().forEach(field -> fields.put(field.getName(), field));
+      StringBuilder key = new StringBuilder(featureSetRef);
+      for (String entityName : aggregatedFeatures.entityNames) {
+        Field entity = fields.get(entityName);
+        if (entity == null) {
+          // Rows without all entities are rejected by validation
+          return;
+        }
+        key.append('\u0000').append(TextFormat.shortDebugString(entity.getValue()));
+      }
+      context.output(
+          KV.of(
+              key.toString(),
+              KV.of(
+                  aggregatedFeatures.spec,
+                  featureRow.toBuilder().setFeatureSet(featureSetRef).build())));
+    }
+  }
+
+  /** Entity names and aggregated features of a feature set spec. */
+  static class AggregatedFeatures {
+
+    private final List<String> entityNames;
+    private final FeatureSetSpec spec;
+
+    AggregatedFeatures(FeatureSetSpec spec) {
+      this.entityNames =
+          spec.getEntitiesList().stream().map(EntitySpec::getName).collect(Collectors.toList());
+      this.spec =
+          FeatureSetSpec.newBuilder()
+              .setProject(spec.getProject())
+              .setName(spec.getName())
+              .setVersion(spec.getVersion())
+              .addAllFeatures(
+                  spec.getFeaturesList().stream()
+                      .filter(FeatureSpec::hasAggregation)
+                      .collect(Collectors.toList()))
+              .build();
+    }
+  }
+}
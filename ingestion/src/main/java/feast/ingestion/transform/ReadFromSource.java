@@ -18,21 +18,51 @@ package feast.ingestion.transform;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Preconditions;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.WireFormat;
+import com.google.protobuf.util.Durations;
+import com.google.protobuf.util.Timestamps;
+import feast.ingestion.coders.FailsafeFeatureRowCoder;
+import feast.ingestion.transform.fn.AvroRecordToFeatureRowFn;
+import feast.ingestion.transform.fn.FeatureSetReferenceNormalizer;
 import feast.ingestion.transform.fn.KafkaRecordToFeatureRowDoFn;
+import feast.ingestion.values.FailsafeFeatureRow;
+import feast.proto.core.SourceProto.FileSourceConfig;
+import feast.proto.core.SourceProto.FileSourceConfig.FileFormat;
+import feast.proto.core.SourceProto.KafkaConsumerConfig;
+import feast.proto.core.SourceProto.KafkaConsumerConfig.TimestampPolicy;
+import feast.proto.core.SourceProto.KafkaSourceConfig;
 import feast.proto.core.SourceProto.Source;
 import feast.proto.core.SourceProto.SourceType;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.storage.api.writer.FailedElement;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.stream.Collectors;
+import org.apache.beam.sdk.coders.NullableCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.io.AvroIO;
+import org.apache.beam.sdk.io.kafka.CustomTimestampPolicyWithLimitedDelay;
 import org.apache.beam.sdk.io.kafka.KafkaIO;
+import org.apache.beam.sdk.io.kafka.KafkaRecord;
+import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.Reshuffle;
+import org.apache.beam.sdk.transforms.SerializableFunction;
 import org.apache.beam.sdk.values.PBegin;
+import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.TupleTag;
 import org.apache.beam.sdk.values.TupleTagList;
-import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
 
 @AutoValue
 public abstract class ReadFromSource extends PTransform<PBegin, PCollectionTuple> {
@@ -43,6 +73,8 @@ public abstract class ReadFromSource extends PTransform<PBegin, PCollectionTuple
 
   public abstract TupleTag<FailedElement> getFailureTag();
 
+  public abstract String getDefaultProject();
+
   public static Builder newBuilder() {
     return new AutoValue_ReadFromSource.Builder();
   }
@@ -56,51 +88,224 @@ public abstract class ReadFromSource extends PTransform<PBegin, PCollectionTuple
 
     public abstract Builder setFailureTag(TupleTag<FailedElement> failureTag);
 
+    public abstract Builder setDefaultProject(String defaultProject);
+
     abstract ReadFromSource autobuild();
 
     public ReadFromSource build() {
       ReadFromSource read = autobuild();
       Source source = read.getSource();
-      Preconditions.checkState(
-          source.getType().equals(SourceType.KAFKA),
-          "Source type must be KAFKA. Please raise an issue in https://github.com/feast-dev/feast/issues to request additional source types.");
-      Preconditions.checkState(
-          !source.getKafkaSourceConfig().getBootstrapServers().isEmpty(),
-          "bootstrap_servers cannot be empty.");
-      Preconditions.checkState(
-          !source.getKafkaSourceConfig().getTopic().isEmpty(), "topic cannot be empty.");
+      switch (source.getType()) {
+        case KAFKA:
+          Preconditions.checkState(
+              !source.getKafkaSourceConfig().getBootstrapServers().isEmpty(),
+              "bootstrap_servers cannot be empty.");
+          Preconditions.checkState(
+              !source.getKafkaSourceConfig().getTopic().isEmpty(), "topic cannot be empty.");
+          KafkaConsumerConfig consumerConfig = source.getKafkaSourceConfig().getConsumerConfig();
+          Preconditions.checkState(
+              consumerConfig.getTimestampPolicy() != TimestampPolicy.EVENT_TIME
+                  || consumerConfig.hasMaxEventTimeDelay(),
+              "max_event_time_delay must be set for the EVENT_TIME timestamp policy.");
+          break;
+        case FILE:
+          FileSourceConfig fileSourceConfig = source.getFileSourceConfig();
+          Preconditions.checkState(
+              !fileSourceConfig.getFilePattern().isEmpty(), "file_pattern cannot be empty.");
+          Preconditions.checkState(
+              fileSourceConfig.getFormat().equals(FileFormat.AVRO), "format must be AVRO.");
+          Preconditions.checkState(
+              !fileSourceConfig.getFeatureSet().isEmpty(), "feature_set cannot be empty.");
+          Preconditions.checkState(
+              !fileSourceConfig.getEventTimestampColumn().isEmpty(),
+              "event_timestamp_column cannot be empty.");
+          break;
+        default:
+          throw new IllegalStateException(
+              "Source type must be KAFKA or FILE. Please raise an issue in https://github.com/feast-dev/feast/issues to request additional source types.");
+      }
       return read;
     }
   }
 
   @Override
   public PCollectionTuple expand(PBegin input) {
+    if (getSource().getType().equals(SourceType.FILE)) {
+      return readFromFiles(input);
+    }
+    return readFromKafka(input);
+  }
+
+  private PCollectionTuple readFromKafka(PBegin input) {
+    KafkaSourceConfig kafkaSourceConfig = getSource().getKafkaSourceConfig();
+    KafkaConsumerConfig consumerConfig = kafkaSourceConfig.getConsumerConfig();
+
+    KafkaIO.Read<byte[], byte[]> read =
+        KafkaIO.readBytes()
+            .withBootstrapServers(kafkaSourceConfig.getBootstrapServers())
+            .withTopic(kafkaSourceConfig.getTopic())
+            .withConsumerConfigUpdates(
+                getConsumerConfigUpdates(
+                    consumerConfig,
+                    generateConsumerGroupId(input.getPipeline().getOptions().getJobName())))
+            .withReadCommitted()
+            .commitOffsetsInFinalize();
+    switch (consumerConfig.getTimestampPolicy()) {
+      case LOG_APPEND_TIME:
+        read = read.withLogAppendTime();
+        break;
+      case EVENT_TIME:
+        Duration maxDelay =
+            Duration.millis(Durations.toMillis(consumerConfig.getMaxEventTimeDelay()));
+        read =
+            read.withTimestampPolicyFactory(
+                (partition, previousWatermark) ->
+                    new CustomTimestampPolicyWithLimitedDelay<>(
+                        new FeatureRowEventTimestampFn(), maxDelay, previousWatermark));
+        break;
+      case PROCESSING_TIME:
+      default:
+    }
+
+    PCollection<KafkaRecord<byte[], byte[]>> records =
+        input.getPipeline().apply("ReadFromKafka", read);
+    if (consumerConfig.getRedistributeRecords()) {
+      records = records.apply("RedistributeRecords", Reshuffle.viaRandomKey());
+    }
+    return records.apply(
+        "KafkaRecordToFeatureRow",
+        ParDo.of(
+                KafkaRecordToFeatureRowDoFn.newBuilder()
+                    .setSuccessTag(getSuccessTag())
+                    .setFailureTag(getFailureTag())
+                    .setDefaultProject(getDefaultProject())
+                    .build())
+            .withOutputTags(getSuccessTag(), TupleTagList.of(getFailureTag())));
+  }
+
+  /**
+   * Reads Avro files in a bounded, splittable read. All rows read belong to the feature set of the
+   * file source.
+   */
+  private PCollectionTuple readFromFiles(PBegin input) {
+    FileSourceConfig fileSourceConfig = getSource().getFileSourceConfig();
+    String featureSetRef =
+        new FeatureSetReferenceNormalizer(getDefaultProject())
+            .normalize(fileSourceConfig.getFeatureSet());
+
     return input
         .getPipeline()
         .apply(
-            "ReadFromKafka",
-            KafkaIO.readBytes()
-                .withBootstrapServers(getSource().getKafkaSourceConfig().getBootstrapServers())
-                .withTopic(getSource().getKafkaSourceConfig().getTopic())
-                .withConsumerConfigUpdates(
-                    ImmutableMap.of(
-                        "group.id",
-                        generateConsumerGroupId(input.getPipeline().getOptions().getJobName())))
-                .withReadCommitted()
-                .commitOffsetsInFinalize())
+            "ReadFromFiles",
+            AvroIO.parseGenericRecords(
+                    new AvroRecordToFeatureRowFn(
+                        featureSetRef, fileSourceConfig.getEventTimestampColumn()))
+                .from(fileSourceConfig.getFilePattern())
+                .withHintMatchesManyFiles()
+                .withCoder(
+                    FailsafeFeatureRowCoder.of(
+                        NullableCoder.of(StringUtf8Coder.of()),
+                        NullableCoder.of(ProtoCoder.of(FeatureRow.class)))))
         .apply(
-            "KafkaRecordToFeatureRow",
-            ParDo.of(
-                    KafkaRecordToFeatureRowDoFn.newBuilder()
-                        .setSuccessTag(getSuccessTag())
-                        .setFailureTag(getFailureTag())
-                        .build())
+            "AvroRecordToFeatureRow",
+            ParDo.of(new SplitFailsafeFeatureRowsDoFn(getFailureTag()))
                 .withOutputTags(getSuccessTag(), TupleTagList.of(getFailureTag())));
   }
 
+  /**
+   * Outputs converted feature rows to the success tag, and records that could not be converted to
+   * the failure tag.
+   */
+  static class SplitFailsafeFeatureRowsDoFn
+      extends DoFn<FailsafeFeatureRow<String, FeatureRow>, FeatureRow> {
+
+    private final TupleTag<FailedElement> failureTag;
+
+    SplitFailsafeFeatureRowsDoFn(TupleTag<FailedElement> failureTag) {
+      this.failureTag = failureTag;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext context) {
+      FailsafeFeatureRow<String, FeatureRow> row = context.element();
+      if (row.getPayload() != null) {
+        context.output(row.getPayload());
+        return;
+      }
+      context.output(
+          failureTag,
+          FailedElement.newBuilder()
+              .setTransformName("AvroRecordToFeatureRow")
+              .setStackTrace(row.getStacktrace())
+              .setJobName(context.getPipelineOptions().getJobName())
+              .setPayload(row.getOriginalPayload())
+              .setErrorMessage(row.getErrorMessage())
+              .build());
+    }
+  }
+
+  /**
+   * Consumer properties to update from the defaults of {@link KafkaIO}. Only tuning options that
+   * are set in the source are overridden.
+   */
+  static Map<String, Object> getConsumerConfigUpdates(
+      KafkaConsumerConfig consumerConfig, String groupId) {
+    Map<String, Object> updates = new HashMap<>();
+    updates.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+    putIfSet(updates, ConsumerConfig.MAX_POLL_RECORDS_CONFIG, consumerConfig.getMaxPollRecords());
+    putIfSet(updates, ConsumerConfig.FETCH_MIN_BYTES_CONFIG, consumerConfig.getFetchMinBytes());
+    putIfSet(updates, ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, consumerConfig.getFetchMaxWaitMs());
+    putIfSet(updates, ConsumerConfig.FETCH_MAX_BYTES_CONFIG, consumerConfig.getFetchMaxBytes());
+    putIfSet(
+        updates,
+        ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG,
+        consumerConfig.getMaxPartitionFetchBytes());
+    putIfSet(updates, ConsumerConfig.RECEIVE_BUFFER_CONFIG, consumerConfig.getReceiveBufferBytes());
+    return updates;
+  }
+
+  private static void putIfSet(Map<String, Object> updates, String property, int value) {
+    if (value > 0) {
+      updates.put(property, value);
+    }
+  }
+
   private String generateConsumerGroupId(String jobName) {
     String jobNameWithoutTimestamp =
         Arrays.stream(jobName.split("-")).limit(4).collect(Collectors.joining("-"));
     return "feast_import_job_" + jobNameWithoutTimestamp;
   }
+
+  /**
+   * Extracts the event timestamp of the {@link FeatureRow} in a Kafka record, without decoding the
+   * rest of the row. Falls back to the timestamp of the Kafka record if the row has no event
+   * timestamp or cannot be decoded, in which case it will be sent to the dead letter anyway.
+   */
+  static class FeatureRowEventTimestampFn
+      implements SerializableFunction<KafkaRecord<byte[], byte[]>, Instant> {
+
+    private static final int EVENT_TIMESTAMP_TAG =
+        FeatureRow.EVENT_TIMESTAMP_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+    @Override
+    public Instant apply(KafkaRecord<byte[], byte[]> record) {
+      byte[] value = record.getKV().getValue();
+      if (value != null) {
+        try {
+          CodedInputStream input = CodedInputStream.newInstance(value);
+          for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            if (tag == EVENT_TIMESTAMP_TAG) {
+              Timestamp timestamp =
+                  input.readMessage(Timestamp.parser(), ExtensionRegistryLite.getEmptyRegistry());
+              return new Instant(Timestamps.toMillis(timestamp));
+            }
+            input.skipField(tag);
+          }
+        } catch (IOException e) {
+          // Rows that cannot be decoded are timestamped with the record timestamp
+        }
+      }
+      return new Instant(record.getTimestamp());
+    }
+  }
 }
@@ -0,0 +1,117 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform;
+
+import com.google.auto.value.AutoValue;
+import feast.ingestion.transform.fn.ValidateAndAllocateFeatureRowDoFn;
+import feast.proto.core.StoreProto;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.specs.CompiledSpecRegistry;
+import feast.storage.api.writer.FailedElement;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.*;
+
+/**
+ * Normalizes and validates incoming {@link FeatureRow}s, and allocates valid rows to the stores
+ * subscribed to their feature set, in a single {@link ValidateAndAllocateFeatureRowDoFn}.
+ *
+ * <p>Return PCollectionTuple with one {@link TupleTag} per {@link StoreProto.Store} and the failure
+ * tag. Tags must be generated in advance.
+ */
+@AutoValue
+public abstract class ValidateAndAllocateFeatureRows
+    extends PTransform<PCollection<FeatureRow>, PCollectionTuple> {
+
+  public abstract PCollectionView<CompiledSpecRegistry> getFeatureSetSpecs();
+
+  public abstract String getDefaultProject();
+
+  public abstract List<StoreProto.Store> getStores();
+
+  public abstract Map<StoreProto.Store, TupleTag<FeatureRow>> getStoreTags();
+
+  public abstract TupleTag<FailedElement> getFailureTag();
+
+  @Nullable
+  public abstract Coder<FeatureRow> getFeatureRowCoder();
+
+  public static Builder newBuilder() {
+    return new AutoValue_ValidateAndAllocateFeatureRows.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    public abstract Builder setFeatureSetSpecs(PCollectionView<CompiledSpecRegistry> featureSets);
+
+    public abstract Builder setDefaultProject(String defaultProject);
+
+    public abstract Builder setStores(List<StoreProto.Store> stores);
+
+    public abstract Builder setStoreTags(Map<StoreProto.Store, TupleTag<FeatureRow>> tags);
+
+    public abstract Builder setFailureTag(TupleTag<FailedElement> failureTag);
+
+    /**
+     * setFeatureRowCoder overrides the coder of the rows allocated to stores, which is the protobuf
+     * coder by default.
+     *
+     * @param featureRowCoder Coder for the allocated {@link FeatureRow}s
+     */
+    public abstract Builder setFeatureRowCoder(Coder<FeatureRow> featureRowCoder);
+
+    public abstract ValidateAndAllocateFeatureRows build();
+  }
+
+  @Override
+  public PCollectionTuple expand(PCollection<FeatureRow> input) {
+    List<TupleTag<?>> additionalTags =
+        getStores().stream().skip(1).map(getStoreTags()::get).collect(Collectors.toList());
+    additionalTags.add(getFailureTag());
+
+    PCollectionTuple allocatedRows =
+        input.apply(
+            "ValidateAndAllocateFeatureRows",
+            ParDo.of(
+                    ValidateAndAllocateFeatureRowDoFn.newBuilder()
+                        .setFeatureSets(getFeatureSetSpecs())
+                        .setDefaultProject(getDefaultProject())
+                        .setStores(getStores())
+                        .setStoreTags(getStoreTags())
+                        .setFailureTag(getFailureTag())
+                        .build())
+                .withSideInputs(getFeatureSetSpecs())
+                .withOutputTags(
+                    getStoreTags().get(getStores().get(0)), TupleTagList.of(additionalTags)));
+
+    // Store tags are not required to carry type information, so the coder cannot be inferred for
+    // the additional outputs.
+    Coder<FeatureRow> featureRowCoder =
+        getFeatureRowCoder() == null ? ProtoCoder.of(FeatureRow.class) : getFeatureRowCoder();
+    for (StoreProto.Store store : getStores()) {
+      allocatedRows.get(getStoreTags().get(store)).setCoder(featureRowCoder);
+    }
+    return allocatedRows;
+  }
+}
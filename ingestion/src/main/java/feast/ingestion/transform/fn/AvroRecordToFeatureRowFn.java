@@ -0,0 +1,214 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.util.Timestamps;
+import feast.ingestion.values.FailsafeFeatureRow;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.BoolList;
+import feast.proto.types.ValueProto.BytesList;
+import feast.proto.types.ValueProto.DoubleList;
+import feast.proto.types.ValueProto.FloatList;
+import feast.proto.types.ValueProto.Int32List;
+import feast.proto.types.ValueProto.Int64List;
+import feast.proto.types.ValueProto.StringList;
+import feast.proto.types.ValueProto.Value;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Collection;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+/**
+ * Converts Avro records read from a file source into {@link FeatureRow}s of a single feature set.
+ * Every column of a record other than the event timestamp column becomes a field of the row, and
+ * null values become fields without value.
+ *
+ * <p>Records that cannot be converted, e.g. because a column has a type that has no equivalent
+ * Feast value type, are returned with the error and the JSON representation of the record instead
+ * of failing the read, so they can be written to the dead letter.
+ */
+public class AvroRecordToFeatureRowFn
+    implements SerializableFunction<GenericRecord, FailsafeFeatureRow<String, FeatureRow>> {
+
+  private final String featureSetRef;
+  private final String eventTimestampColumn;
+
+  /**
+   * @param featureSetRef reference of the feature set of the rows, in the form {@code
+   *     <project>/<name>}
+   * @param eventTimestampColumn name of the column holding the event timestamp of the rows
+   */
+  public AvroRecordToFeatureRowFn(String featureSetRef, String eventTimestampColumn) {
+    this.featureSetRef = featureSetRef;
+    this.eventTimestampColumn = eventTimestampColumn;
+  }
+
+  @Override
+  public FailsafeFeatureRow<String, FeatureRow> apply(GenericRecord record) {
+    try {
+      return FailsafeFeatureRow.of(null, toFeatureRow(record));
+    } catch (RuntimeException | ParseException e) {
+      return FailsafeFeatureRow.<String, FeatureRow>of(record.toString(), null)
+          .setErrorMessage(e.getMessage())
+          .setStacktrace(ExceptionUtils.getStackTrace(e));
+    }
+  }
+
+  private FeatureRow toFeatureRow(GenericRecord record) throws ParseException {
+    FeatureRow.Builder featureRow = FeatureRow.newBuilder().setFeatureSet(featureSetRef);
+    boolean hasEventTimestamp = false;
+    for (Schema.Field column : record.getSchema().getFields()) {
+      Object value = record.get(column.pos());
+      Schema schema = unwrapNullable(column.schema());
+      if (column.name().equals(eventTimestampColumn)) {
+        if (value != null) {
+          featureRow.setEventTimestamp(toTimestamp(schema, value));
+          hasEventTimestamp = true;
+        }
+        continue;
+      }
+
+      Field.Builder field = Field.newBuilder().setName(column.name());
+      if (value != null) {
+        field.setValue(toValue(column.name(), schema, value));
+      }
+      featureRow.addFields(field);
+    }
+    if (!hasEventTimestamp) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Record has no value for event timestamp column '%s'", eventTimestampColumn));
+    }
+    return featureRow.build();
+  }
+
+  private static Timestamp toTimestamp(Schema schema, Object value) throws ParseException {
+    if (value instanceof CharSequence) {
+      return Timestamps.parse(value.toString());
+    }
+    if (value instanceof Long) {
+      LogicalType logicalType = schema.getLogicalType();
+      if (logicalType != null && logicalType.getName().equals("timestamp-micros")) {
+        return Timestamps.fromMicros((Long) value);
+      }
+      return Timestamps.fromMillis((Long) value);
+    }
+    throw new IllegalArgumentException(
+        String.format("Unsupported event timestamp type: %s", schema.getType()));
+  }
+
+  private static Value toValue(String column, Schema schema, Object value) {
+    switch (schema.getType()) {
+      case INT:
+        return Value.newBuilder().setInt32Val((Integer) value).build();
+      case LONG:
+        return Value.newBuilder().setInt64Val((Long) value).build();
+      case FLOAT:
+        return Value.newBuilder().setFloatVal((Float) value).build();
+      case DOUBLE:
+        return Value.newBuilder().setDoubleVal((Double) value).build();
+      case BOOLEAN:
+        return Value.newBuilder().setBoolVal((Boolean) value).build();
+      case STRING:
+      case ENUM:
+        return Value.newBuilder().setStringVal(value.toString()).build();
+      case BYTES:
+      case FIXED:
+        return Value.newBuilder().setBytesVal(toByteString(value)).build();
+      case ARRAY:
+        return toListValue(column, unwrapNullable(schema.getElementType()), (Collection<?>) value);
+      default:
+        throw new IllegalArgumentException(
+            String.format("Column '%s' has unsupported type: %s", column, schema.getType()));
+    }
+  }
+
+  private static Value toListValue(String column, Schema elementSchema, Collection<?> values) {
+    Value.Builder value = Value.newBuilder();
+    switch (elementSchema.getType()) {
+      case INT:
+        Int32List.Builder int32List = value.getInt32ListValBuilder();
+        values.forEach(v -> int32List.addVal((Integer) v));
+        break;
+      case LONG:
+        Int64List.Builder int64List = value.getInt64ListValBuilder();
+        values.forEach(v -> int64List.addVal((Long) v));
+        break;
+      case FLOAT:
+        FloatList.Builder floatList = value.getFloatListValBuilder();
+        values.forEach(v -> floatList.addVal((Float) v));
+        break;
+      case DOUBLE:
+        DoubleList.Builder doubleList = value.getDoubleListValBuilder();
+        values.forEach(v -> doubleList.addVal((Double) v));
+        break;
+      case BOOLEAN:
+        BoolList.Builder boolList = value.getBoolListValBuilder();
+        values.forEach(v -> boolList.addVal((Boolean) v));
+        break;
+      case STRING:
+      case ENUM:
+        StringList.Builder stringList = value.getStringListValBuilder();
+        values.forEach(v -> stringList.addVal(v.toString()));
+        break;
+      case BYTES:
+      case FIXED:
+        BytesList.Builder bytesList = value.getBytesListValBuilder();
+        values.forEach(v -> bytesList.addVal(toByteString(v)));
+        break;
+      default:
+        throw new IllegalArgumentException(
+            String.format(
+                "Column '%s' has unsupported array element type: %s",
+                column, elementSchema.getType()));
+    }
+    return value.build();
+  }
+
+  private static ByteString toByteString(Object value) {
+    if (value instanceof GenericFixed) {
+      return ByteString.copyFrom(((GenericFixed) value).bytes());
+    }
+    return ByteString.copyFrom(((ByteBuffer) value).duplicate());
+  }
+
+  /** @return the non-null branch of a nullable union, or the schema itself */
+  private static Schema unwrapNullable(Schema schema) {
+    if (schema.getType() != Schema.Type.UNION) {
+      return schema;
+    }
+    Schema nonNullSchema = null;
+    for (Schema branch : schema.getTypes()) {
+      if (branch.getType() != Schema.Type.NULL) {
+        if (nonNullSchema != null) {
+          // Unions of several types are not supported, and rejected when converting values
+          return schema;
+        }
+        nonNullSchema = branch;
+      }
+    }
+    return nonNullSchema == null ? schema : nonNullSchema;
+  }
+}
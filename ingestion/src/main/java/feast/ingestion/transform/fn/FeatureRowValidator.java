@@ -0,0 +1,156 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value.ValCase;
+import feast.proto.types.ValueProto.ValueType;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validates feature rows of a single feature set. The slot and expected value type of every entity
+ * and feature are resolved once from the {@link FeatureSetSpec}, so validating a row only requires
+ * a single lookup per field, and rows that are already valid are returned as-is instead of being
+ * rebuilt.
+ */
+public class FeatureRowValidator {
+
+  private final int version;
+  private final String project;
+  private final String name;
+  private final Map<String, Integer> fieldSlots;
+  private final ValueType.Enum[] fieldTypes;
+
+  public FeatureRowValidator(FeatureSetSpec spec) {
+    this.version = spec.getVersion();
+    this.project = spec.getProject();
+    this.name = spec.getName();
+
+    int fieldCount = spec.getEntitiesCount() + spec.getFeaturesCount();
+    this.fieldSlots = new HashMap<>(fieldCount * 2);
+    this.fieldTypes = new ValueType.Enum[fieldCount];
+    for (EntitySpec entity : spec.getEntitiesList()) {
+      addField(entity.getName(), entity.getValueType());
+    }
+    for (FeatureSpec feature : spec.getFeaturesList()) {
+      addField(feature.getName(), feature.getValueType());
+    }
+  }
+
+  private void addField(String fieldName, ValueType.Enum type) {
+    int slot = fieldSlots.size();
+    fieldSlots.put(fieldName, slot);
+    fieldTypes[slot] = type;
+  }
+
+  /** @return version of the {@link FeatureSetSpec} this validator was compiled from */
+  public int getVersion() {
+    return version;
+  }
+
+  /** @return project of the feature set this validator was compiled from */
+  public String getProject() {
+    return project;
+  }
+
+  /** @return name of the feature set this validator was compiled from */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Validate that the values of the fields of a feature row match the types defined in the feature
+   * set spec. Fields that are not part of the spec and fields without value are ignored.
+   *
+   * @param featureRow Feature row to validate
+   * @return error message if the row is invalid, null otherwise
+   */
+  public String validate(FeatureRow featureRow) {
+    List<Field> fields = featureRow.getFieldsList();
+    for (int i = 0; i < fields.size(); i++) {
+      Field field = fields.get(i);
+      Integer slot = fieldSlots.get(field.getName());
+      if (slot == null) {
+        continue;
+      }
+      ValCase valCase = field.getValue().getValCase();
+      if (valCase != ValCase.VAL_NOT_SET && valCase.getNumber() != fieldTypes[slot].getNumber()) {
+        return String.format(
+            "FeatureRow contains field '%s' with invalid type '%s'. Feast expects the field type to match that in FeatureSet '%s'. Please check the FeatureRow data.",
+            field.getName(), valCase, fieldTypes[slot]);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Drop the fields of a feature row that are not part of the feature set spec, and keep duplicated
+   * fields only once.
+   *
+   * @param featureRow Feature row
+   * @return the same feature row if all its fields are part of the spec and appear once, a rebuilt
+   *     feature row otherwise
+   */
+  public FeatureRow retainValidFields(FeatureRow featureRow) {
+    if (hasOnlyUniqueSpecFields(featureRow)) {
+      return featureRow;
+    }
+
+    Set<Field> validFields = new LinkedHashSet<>();
+    for (Field field : featureRow.getFieldsList()) {
+      if (fieldSlots.containsKey(field.getName())) {
+        validFields.add(field);
+      }
+    }
+    return featureRow.toBuilder().clearFields().addAllFields(validFields).build();
+  }
+
+  private boolean hasOnlyUniqueSpecFields(FeatureRow featureRow) {
+    List<Field> fields = featureRow.getFieldsList();
+    // Most feature sets have less than 64 fields, which fit in a single word
+    long seenSlots = 0;
+    BitSet seenSlotsSet = fieldTypes.length > Long.SIZE ? new BitSet(fieldTypes.length) : null;
+    for (int i = 0; i < fields.size(); i++) {
+      Integer slot = fieldSlots.get(fields.get(i).getName());
+      if (slot == null) {
+        return false;
+      }
+      if (seenSlotsSet == null) {
+        long mask = 1L << slot;
+        if ((seenSlots & mask) != 0) {
+          return false;
+        }
+        seenSlots |= mask;
+      } else {
+        if (seenSlotsSet.get(slot)) {
+          return false;
+        }
+        seenSlotsSet.set(slot);
+      }
+    }
+    return true;
+  }
+}
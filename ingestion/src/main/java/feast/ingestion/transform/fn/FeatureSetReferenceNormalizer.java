@@ -0,0 +1,73 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Normalizes feature set references of incoming rows into the form {@code <project>/<name>}, by
+ * stripping the legacy version suffix and applying the default project when none is given.
+ *
+ * <p>Rows of a feature set share the same reference string, so normalized references are cached per
+ * distinct input reference. The cache is bounded to protect workers against producers writing
+ * arbitrary references.
+ */
+public class FeatureSetReferenceNormalizer implements Serializable {
+
+  private static final int MAX_CACHED_REFERENCES = 10000;
+
+  private final String defaultProject;
+  private transient Map<String, String> cache;
+
+  public FeatureSetReferenceNormalizer(String defaultProject) {
+    this.defaultProject = defaultProject;
+  }
+
+  /**
+   * @param reference feature set reference as provided by the row producer
+   * @return reference in the form {@code <project>/<name>}
+   */
+  public String normalize(String reference) {
+    if (cache == null) {
+      cache = new HashMap<>();
+    }
+    String normalized = cache.get(reference);
+    if (normalized == null) {
+      normalized = applyDefaultProject(stripVersion(reference));
+      if (cache.size() >= MAX_CACHED_REFERENCES) {
+        cache.clear();
+      }
+      cache.put(reference, normalized);
+    }
+    return normalized;
+  }
+
+  // For backward compatibility. Will be deprecated eventually.
+  private String stripVersion(String reference) {
+    int versionSeparator = reference.indexOf(':');
+    return versionSeparator < 0 ? reference : reference.substring(0, versionSeparator);
+  }
+
+  private String applyDefaultProject(String reference) {
+    if (reference.indexOf('/') < 0) {
+      return defaultProject + "/" + reference;
+    }
+    return reference;
+  }
+}
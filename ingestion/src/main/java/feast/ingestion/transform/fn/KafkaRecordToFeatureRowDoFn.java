@@ -21,11 +21,20 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.storage.api.writer.FailedElement;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 import org.apache.beam.sdk.io.kafka.KafkaRecord;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.values.TupleTag;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
+/**
+ * Decodes Kafka records into {@link FeatureRow}s, and records the lag of the records of every
+ * partition, i.e. the difference between the time a record is decoded and its Kafka timestamp, in a
+ * distribution metric per topic and partition.
+ */
 @AutoValue
 public abstract class KafkaRecordToFeatureRowDoFn
     extends DoFn<KafkaRecord<byte[], byte[]>, FeatureRow> {
@@ -34,6 +43,14 @@ public abstract class KafkaRecordToFeatureRowDoFn
 
   public abstract TupleTag<FailedElement> getFailureTag();
 
+  public abstract String getDefaultProject();
+
+  public static final String METRIC_NAMESPACE = "ReadFromSource";
+  public static final String PARTITION_LAG_METRIC = "kafka_partition_record_lag_ms";
+
+  private transient FeatureSetReferenceNormalizer referenceNormalizer;
+  private transient Map<String, Map<Integer, Distribution>> partitionLags;
+
   public static KafkaRecordToFeatureRowDoFn.Builder newBuilder() {
     return new AutoValue_KafkaRecordToFeatureRowDoFn.Builder();
   }
@@ -45,16 +62,33 @@ public abstract class KafkaRecordToFeatureRowDoFn
 
     public abstract Builder setFailureTag(TupleTag<FailedElement> failureTag);
 
+    public abstract Builder setDefaultProject(String defaultProject);
+
     public abstract KafkaRecordToFeatureRowDoFn build();
   }
 
+  @Setup
+  public void setup() {
+    referenceNormalizer = new FeatureSetReferenceNormalizer(getDefaultProject());
+    partitionLags = new HashMap<>();
+  }
+
   @ProcessElement
   public void processElement(ProcessContext context) {
-    byte[] value = context.element().getKV().getValue();
+    KafkaRecord<byte[], byte[]> record = context.element();
+    getPartitionLag(record.getTopic(), record.getPartition())
+        .update(System.currentTimeMillis() - record.getTimestamp());
+
+    byte[] value = record.getKV().getValue();
     FeatureRow featureRow;
 
     try {
-      featureRow = FeatureRow.parseFrom(value);
+      // Decode into a builder so that the feature set reference can be normalized before the row
+      // is built, instead of rebuilding the row in a separate step.
+      FeatureRow.Builder featureRowBuilder = FeatureRow.newBuilder().mergeFrom(value);
+      featureRowBuilder.setFeatureSet(
+          referenceNormalizer.normalize(featureRowBuilder.getFeatureSet()));
+      featureRow = featureRowBuilder.build();
     } catch (InvalidProtocolBufferException e) {
       context.output(
           getFailureTag(),
@@ -69,4 +103,14 @@ public abstract class KafkaRecordToFeatureRowDoFn
     }
     context.output(featureRow);
   }
+
+  private Distribution getPartitionLag(String topic, int partition) {
+    return partitionLags
+        .computeIfAbsent(topic, t -> new HashMap<>())
+        .computeIfAbsent(
+            partition,
+            p ->
+                Metrics.distribution(
+                    METRIC_NAMESPACE, String.format("%s_%s_%d", PARTITION_LAG_METRIC, topic, p)));
+  }
 }
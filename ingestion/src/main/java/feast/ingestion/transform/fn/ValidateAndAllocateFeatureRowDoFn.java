@@ -0,0 +1,156 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import static feast.ingestion.utils.SpecUtil.parseFeatureSetReference;
+
+import com.google.auto.value.AutoValue;
+import feast.common.models.SubscriptionMatcher;
+import feast.ingestion.transform.metrics.WriteInflightMetricsTransform;
+import feast.proto.core.StoreProto;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.specs.CompiledSpecRegistry;
+import feast.storage.api.writer.FailedElement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Normalizes the feature set reference of incoming {@link FeatureRow}s, validates them against the
+ * latest spec of their feature set and outputs valid rows to the tag of every {@link
+ * StoreProto.Store} subscribed to the feature set, in a single pass. Valid rows are counted once
+ * towards the in-flight elements metric, regardless of the number of stores they are allocated to.
+ *
+ * <p>Stores subscribed to a feature set are resolved once per feature set reference and cached for
+ * the lifetime of the DoFn, since store subscriptions do not change while the job is running.
+ * Validators are compiled by the {@link CompiledSpecRegistry} of the worker, once per spec version.
+ */
+@AutoValue
+public abstract class ValidateAndAllocateFeatureRowDoFn extends DoFn<FeatureRow, FeatureRow> {
+
+  private static final Counter inflightElementsCount =
+      Metrics.counter(
+          WriteInflightMetricsTransform.METRIC_NAMESPACE,
+          WriteInflightMetricsTransform.ELEMENTS_WRITTEN_METRIC);
+
+  public abstract PCollectionView<CompiledSpecRegistry> getFeatureSets();
+
+  public abstract String getDefaultProject();
+
+  public abstract List<StoreProto.Store> getStores();
+
+  public abstract Map<StoreProto.Store, TupleTag<FeatureRow>> getStoreTags();
+
+  public abstract TupleTag<FailedElement> getFailureTag();
+
+  private transient FeatureSetReferenceNormalizer referenceNormalizer;
+  private transient Map<StoreProto.Store, SubscriptionMatcher> subscriptionMatchers;
+  private transient Map<String, List<TupleTag<FeatureRow>>> subscribedStoreTags;
+
+  public static Builder newBuilder() {
+    return new AutoValue_ValidateAndAllocateFeatureRowDoFn.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    public abstract Builder setFeatureSets(PCollectionView<CompiledSpecRegistry> featureSets);
+
+    public abstract Builder setDefaultProject(String defaultProject);
+
+    public abstract Builder setStores(List<StoreProto.Store> stores);
+
+    public abstract Builder setStoreTags(Map<StoreProto.Store, TupleTag<FeatureRow>> storeTags);
+
+    public abstract Builder setFailureTag(TupleTag<FailedElement> failureTag);
+
+    public abstract ValidateAndAllocateFeatureRowDoFn build();
+  }
+
+  @Setup
+  public void setup() {
+    referenceNormalizer = new FeatureSetReferenceNormalizer(getDefaultProject());
+    subscriptionMatchers = new HashMap<>();
+    for (StoreProto.Store store : getStores()) {
+      subscriptionMatchers.put(store, new SubscriptionMatcher(store.getSubscriptionsList()));
+    }
+    subscribedStoreTags = new HashMap<>();
+  }
+
+  @ProcessElement
+  public void processElement(ProcessContext context) {
+    FeatureRow featureRow = context.element();
+    String featureSetRef = featureRow.getFeatureSet();
+    String normalizedRef = referenceNormalizer.normalize(featureSetRef);
+    // Rows decoded from the source are usually normalized already, in which case the row is
+    // passed through without being rebuilt.
+    if (!normalizedRef.equals(featureSetRef)) {
+      featureRow = featureRow.toBuilder().setFeatureSet(normalizedRef).build();
+    }
+    FeatureRowValidator validator =
+        ValidateFeatureRowDoFn.getValidator(
+            CompiledSpecRegistry.intern(getFeatureSets(), context.sideInput(getFeatureSets())),
+            featureRow.getFeatureSet());
+
+    String error =
+        validator == null
+            ? ValidateFeatureRowDoFn.unknownFeatureSetError(featureRow)
+            : validator.validate(featureRow);
+    if (error != null) {
+      context.output(
+          getFailureTag(),
+          ValidateFeatureRowDoFn.toFailedElement(
+              featureRow, validator, error, context.getPipelineOptions().getJobName()));
+      return;
+    }
+
+    inflightElementsCount.inc();
+    List<TupleTag<FeatureRow>> storeTags = getSubscribedStoreTags(featureRow.getFeatureSet());
+    if (storeTags.isEmpty()) {
+      return;
+    }
+    featureRow = validator.retainValidFields(featureRow);
+    for (TupleTag<FeatureRow> storeTag : storeTags) {
+      context.output(storeTag, featureRow);
+    }
+  }
+
+  private List<TupleTag<FeatureRow>> getSubscribedStoreTags(String featureSetRef) {
+    List<TupleTag<FeatureRow>> storeTags = subscribedStoreTags.get(featureSetRef);
+    if (storeTags == null) {
+      Pair<String, String> projectAndSetNames = parseFeatureSetReference(featureSetRef);
+      storeTags = new ArrayList<>();
+      for (StoreProto.Store store : getStores()) {
+        if (subscriptionMatchers
+            .get(store)
+            .isSubscribedToFeatureSet(
+                projectAndSetNames.getLeft(), projectAndSetNames.getRight())) {
+          storeTags.add(getStoreTags().get(store));
+        }
+      }
+      subscribedStoreTags.put(featureSetRef, storeTags);
+    }
+    return storeTags;
+  }
+}
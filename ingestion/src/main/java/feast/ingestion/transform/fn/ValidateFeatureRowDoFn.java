@@ -17,17 +17,10 @@
 package feast.ingestion.transform.fn;
 
 import com.google.auto.value.AutoValue;
-import com.google.common.collect.Iterators;
-import feast.ingestion.values.FeatureSet;
-import feast.ingestion.values.Field;
-import feast.proto.core.FeatureSetProto;
 import feast.proto.types.FeatureRowProto.FeatureRow;
-import feast.proto.types.FieldProto;
-import feast.proto.types.ValueProto.Value.ValCase;
+import feast.storage.api.specs.CompiledSpecRegistry;
 import feast.storage.api.writer.FailedElement;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.TupleTag;
@@ -35,8 +28,7 @@ import org.apache.beam.sdk.values.TupleTag;
 @AutoValue
 public abstract class ValidateFeatureRowDoFn extends DoFn<FeatureRow, FeatureRow> {
 
-  public abstract PCollectionView<Map<String, Iterable<FeatureSetProto.FeatureSetSpec>>>
-      getFeatureSets();
+  public abstract PCollectionView<CompiledSpecRegistry> getFeatureSets();
 
   public abstract TupleTag<FeatureRow> getSuccessTag();
 
@@ -49,8 +41,7 @@ public abstract class ValidateFeatureRowDoFn extends DoFn<FeatureRow, FeatureRow
   @AutoValue.Builder
   public abstract static class Builder {
 
-    public abstract Builder setFeatureSets(
-        PCollectionView<Map<String, Iterable<FeatureSetProto.FeatureSetSpec>>> featureSets);
+    public abstract Builder setFeatureSets(PCollectionView<CompiledSpecRegistry> featureSets);
 
     public abstract Builder setSuccessTag(TupleTag<FeatureRow> successTag);
 
@@ -61,62 +52,59 @@ public abstract class ValidateFeatureRowDoFn extends DoFn<FeatureRow, FeatureRow
 
   @ProcessElement
   public void processElement(ProcessContext context) {
-    String error = null;
     FeatureRow featureRow = context.element();
-    Iterable<FeatureSetProto.FeatureSetSpec> featureSetSpecs =
-        context.sideInput(getFeatureSets()).get(featureRow.getFeatureSet());
-
-    List<FieldProto.Field> fields = new ArrayList<>();
-    if (featureSetSpecs != null) {
-      FeatureSetProto.FeatureSetSpec latestSpec = Iterators.getLast(featureSetSpecs.iterator());
-      FeatureSet featureSet = new FeatureSet(latestSpec);
-
-      for (FieldProto.Field field : featureRow.getFieldsList()) {
-        Field fieldSpec = featureSet.getField(field.getName());
-        if (fieldSpec == null) {
-          // skip
-          continue;
-        }
-        // If value is set in the FeatureRow, make sure the value type matches
-        // that defined in FeatureSetSpec
-        if (!field.getValue().getValCase().equals(ValCase.VAL_NOT_SET)) {
-          int expectedTypeFieldNumber = fieldSpec.getType().getNumber();
-          int actualTypeFieldNumber = field.getValue().getValCase().getNumber();
-          if (expectedTypeFieldNumber != actualTypeFieldNumber) {
-            error =
-                String.format(
-                    "FeatureRow contains field '%s' with invalid type '%s'. Feast expects the field type to match that in FeatureSet '%s'. Please check the FeatureRow data.",
-                    field.getName(), field.getValue().getValCase(), fieldSpec.getType());
-            break;
-          }
-        }
-        if (!fields.contains(field)) {
-          fields.add(field);
-        }
-      }
-    } else {
-      error =
-          String.format(
-              "FeatureRow contains invalid feature set id %s. Please check that the feature rows are being published to the correct topic on the feature stream.",
-              featureRow.getFeatureSet());
-    }
+    FeatureRowValidator validator =
+        getValidator(
+            CompiledSpecRegistry.intern(getFeatureSets(), context.sideInput(getFeatureSets())),
+            featureRow.getFeatureSet());
 
+    String error =
+        validator == null ? unknownFeatureSetError(featureRow) : validator.validate(featureRow);
     if (error != null) {
-      FailedElement.Builder failedElement =
-          FailedElement.newBuilder()
-              .setTransformName("ValidateFeatureRow")
-              .setJobName(context.getPipelineOptions().getJobName())
-              .setPayload(featureRow.toString())
-              .setErrorMessage(error);
-      if (featureSetSpecs != null) {
-        FeatureSetProto.FeatureSetSpec spec = Iterators.getLast(featureSetSpecs.iterator());
-        failedElement =
-            failedElement.setProjectName(spec.getProject()).setFeatureSetName(spec.getName());
-      }
-      context.output(getFailureTag(), failedElement.build());
+      context.output(
+          getFailureTag(),
+          toFailedElement(featureRow, validator, error, context.getPipelineOptions().getJobName()));
     } else {
-      featureRow = featureRow.toBuilder().clearFields().addAllFields(fields).build();
-      context.output(getSuccessTag(), featureRow);
+      context.output(getSuccessTag(), validator.retainValidFields(featureRow));
+    }
+  }
+
+  /**
+   * Get the validator compiled from the latest spec of a feature set. Validators are compiled by
+   * the registry once per spec version, and reused by every bundle of the worker until the spec is
+   * updated.
+   *
+   * @param registry Registry of the worker, interned from the feature set specs side input
+   * @param featureSetRef Reference of the feature set
+   * @return validator of the feature set, null if there is no spec for the feature set
+   */
+  static FeatureRowValidator getValidator(CompiledSpecRegistry registry, String featureSetRef) {
+    return registry.getCompiled(featureSetRef, FeatureRowValidator.class, FeatureRowValidator::new);
+  }
+
+  static String unknownFeatureSetError(FeatureRow featureRow) {
+    return String.format(
+        "FeatureRow contains invalid feature set id %s. Please check that the feature rows are being published to the correct topic on the feature stream.",
+        featureRow.getFeatureSet());
+  }
+
+  static FailedElement toFailedElement(
+      FeatureRow featureRow,
+      @Nullable FeatureRowValidator validator,
+      String error,
+      String jobName) {
+    FailedElement.Builder failedElement =
+        FailedElement.newBuilder()
+            .setTransformName("ValidateFeatureRow")
+            .setJobName(jobName)
+            .setFeatureRowPayload(featureRow)
+            .setErrorMessage(error);
+    if (validator != null) {
+      failedElement =
+          failedElement
+              .setProjectName(validator.getProject())
+              .setFeatureSetName(validator.getName());
     }
+    return failedElement.build();
   }
 }
@@ -0,0 +1,379 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import com.google.protobuf.util.Durations;
+import com.google.protobuf.util.Timestamps;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.FeatureSetProto.WindowedAggregation;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.state.BagState;
+import org.apache.beam.sdk.state.StateSpec;
+import org.apache.beam.sdk.state.StateSpecs;
+import org.apache.beam.sdk.state.TimeDomain;
+import org.apache.beam.sdk.state.Timer;
+import org.apache.beam.sdk.state.TimerSpec;
+import org.apache.beam.sdk.state.TimerSpecs;
+import org.apache.beam.sdk.state.ValueState;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.KV;
+import org.joda.time.Instant;
+
+/**
+ * Computes the windowed aggregation features of a feature set for the rows of a single entity,
+ * keyed by feature set reference and entity values. Every row is paired with the aggregated
+ * features of the latest spec of its feature set, since side inputs are neither available to
+ * stateful DoFns on every runner nor when timers fire.
+ *
+ * <p>Windows are not known when the pipeline is constructed, since feature set specs are updated
+ * while the job is running, so aggregations are computed with state and an event time timer rather
+ * than with Beam windowing. Rows are buffered, and the timer is set to the next window boundary,
+ * i.e. the next multiple of the period of any aggregation of the feature set after the event
+ * timestamp of the row. When the watermark passes a boundary, every aggregation is computed over
+ * the buffered rows within its window ending at the boundary, and a row with the event timestamp of
+ * the boundary is emitted, unless none of the windows holds any row. The row also carries the
+ * values of the other features of the latest row at the boundary.
+ *
+ * <p>Online stores replace all the features of an entity on every write, so rows written to them
+ * must carry both the latest values and the latest aggregations. If input rows are emitted, every
+ * input row is emitted as soon as it is processed, with the latest aggregations of its entity in
+ * place of its aggregated features. Aggregated rows then carry the values of the freshest input row
+ * instead, and its event timestamp if it is after the boundary, so that they do not overwrite newer
+ * values.
+ *
+ * <p>Rows are discarded once they are out of the windows of the next boundary, and the timer is
+ * only set to boundaries with rows in their windows. The state of the entity is cleared when no
+ * rows are left, so that idle entities neither accumulate state nor emit empty aggregations.
+ */
+public class WindowedAggregationDoFn
+    extends DoFn<KV<String, KV<FeatureSetSpec, FeatureRow>>, FeatureRow> {
+
+  @StateId("rows")
+  private final StateSpec<BagState<FeatureRow>> rowsSpec =
+      StateSpecs.bag(ProtoCoder.of(FeatureRow.class));
+
+  // Latest row at the last boundary, retained after it is discarded from the buffered rows
+  @StateId("latestRow")
+  private final StateSpec<ValueState<FeatureRow>> latestRowSpec =
+      StateSpecs.value(ProtoCoder.of(FeatureRow.class));
+
+  // Aggregated features of the last emitted aggregated row, carried by emitted input rows
+  @StateId("aggregations")
+  private final StateSpec<ValueState<FeatureRow>> aggregationsSpec =
+      StateSpecs.value(ProtoCoder.of(FeatureRow.class));
+
+  @StateId("featureSetSpec")
+  private final StateSpec<ValueState<FeatureSetSpec>> featureSetSpecSpec =
+      StateSpecs.value(ProtoCoder.of(FeatureSetSpec.class));
+
+  @StateId("nextBoundary")
+  private final StateSpec<ValueState<Long>> nextBoundarySpec = StateSpecs.value(VarLongCoder.of());
+
+  @TimerId("boundary")
+  private final TimerSpec boundarySpec = TimerSpecs.timer(TimeDomain.EVENT_TIME);
+
+  private final boolean emitInputRows;
+
+  /**
+   * @param emitInputRows whether input rows are emitted with the latest aggregations, and
+   *     aggregated rows with the freshest input values, as written to online stores
+   */
+  public WindowedAggregationDoFn(boolean emitInputRows) {
+    this.emitInputRows = emitInputRows;
+  }
+
+  @ProcessElement
+  public void processElement(
+      ProcessContext context,
+      @StateId("rows") BagState<FeatureRow> rows,
+      @StateId("aggregations") ValueState<FeatureRow> aggregations,
+      @StateId("featureSetSpec") ValueState<FeatureSetSpec> featureSetSpec,
+      @StateId("nextBoundary") ValueState<Long> nextBoundary,
+      @TimerId("boundary") Timer boundaryTimer) {
+    FeatureSetSpec spec = context.element().getValue().getKey();
+    FeatureRow featureRow = context.element().getValue().getValue();
+    // Rows at a boundary belong to the windows ending at that boundary
+    long boundary = getNextBoundary(spec, getEventMillis(featureRow) - 1);
+    if (boundary == Long.MAX_VALUE) {
+      // The spec has no aggregations
+      return;
+    }
+    featureSetSpec.write(spec);
+    rows.add(featureRow);
+    if (emitInputRows) {
+      context.output(withAggregations(featureRow, spec, aggregations.read()));
+    }
+
+    Long scheduledBoundary = nextBoundary.read();
+    if (scheduledBoundary == null || boundary < scheduledBoundary) {
+      boundaryTimer.set(new Instant(boundary));
+      nextBoundary.write(boundary);
+    }
+  }
+
+  @OnTimer("boundary")
+  public void onBoundary(
+      OnTimerContext context,
+      @StateId("rows") BagState<FeatureRow> rows,
+      @StateId("latestRow") ValueState<FeatureRow> latestRow,
+      @StateId("aggregations") ValueState<FeatureRow> aggregations,
+      @StateId("featureSetSpec") ValueState<FeatureSetSpec> featureSetSpec,
+      @StateId("nextBoundary") ValueState<Long> nextBoundary,
+      @TimerId("boundary") Timer boundaryTimer) {
+    long boundary = context.timestamp().getMillis();
+    FeatureSetSpec spec = featureSetSpec.read();
+    List<FeatureRow> bufferedRows = new ArrayList<>();
+    rows.read().forEach(bufferedRows::add);
+
+    FeatureRow latest = latestRow.read();
+    FeatureRow freshest = latest;
+    for (FeatureRow featureRow : bufferedRows) {
+      if (freshest == null || getEventMillis(featureRow) >= getEventMillis(freshest)) {
+        freshest = featureRow;
+      }
+    }
+    long maxWindow = getMaxWindow(spec);
+    boolean hasWindowedRows = false;
+    for (FeatureRow featureRow : bufferedRows) {
+      long eventMillis = getEventMillis(featureRow);
+      if (eventMillis <= boundary && (latest == null || eventMillis >= getEventMillis(latest))) {
+        latest = featureRow;
+      }
+      hasWindowedRows |= eventMillis <= boundary && eventMillis > boundary - maxWindow;
+    }
+
+    // Nothing is emitted for boundaries without rows in any window, e.g. when only rows after the
+    // boundary are left, after a late row moved the timer backwards
+    if (hasWindowedRows) {
+      FeatureRow carriedRow = emitInputRows ? freshest : latest;
+      Set<String> aggregatedFeatures = new HashSet<>();
+      FeatureRow.Builder aggregatedRow =
+          FeatureRow.newBuilder()
+              .setFeatureSet(latest.getFeatureSet())
+              .setEventTimestamp(
+                  Timestamps.fromMillis(
+                      emitInputRows ? Math.max(boundary, getEventMillis(freshest)) : boundary));
+      for (FeatureSpec featureSpec : spec.getFeaturesList()) {
+        if (!featureSpec.hasAggregation()) {
+          continue;
+        }
+        WindowedAggregation aggregation = featureSpec.getAggregation();
+        long window = Durations.toMillis(aggregation.getWindow());
+        aggregatedFeatures.add(featureSpec.getName());
+        aggregatedRow.addFields(
+            aggregate(
+                featureSpec.getName(), aggregation, bufferedRows, boundary - window, boundary));
+      }
+      if (emitInputRows) {
+        aggregations.write(
+            FeatureRow.newBuilder().addAllFields(aggregatedRow.getFieldsList()).build());
+      }
+      for (Field field : carriedRow.getFieldsList()) {
+        if (!aggregatedFeatures.contains(field.getName())) {
+          aggregatedRow.addFields(field);
+        }
+      }
+      context.output(aggregatedRow.build());
+    }
+
+    // Rows are only needed for as long as they are in one of the windows of the next boundaries,
+    // and the timer skips the boundaries before the earliest of them
+    long next = getNextBoundary(spec, boundary);
+    rows.clear();
+    Long earliest = null;
+    for (FeatureRow featureRow : bufferedRows) {
+      long eventMillis = getEventMillis(featureRow);
+      if (eventMillis > next - maxWindow) {
+        rows.add(featureRow);
+        earliest = earliest == null ? eventMillis : Math.min(earliest, eventMillis);
+      }
+    }
+    if (earliest != null && earliest > next) {
+      next = getNextBoundary(spec, earliest - 1);
+    }
+    if (earliest != null && next != Long.MAX_VALUE) {
+      boundaryTimer.set(new Instant(next));
+      nextBoundary.write(next);
+      if (latest != null) {
+        latestRow.write(latest);
+      }
+    } else {
+      rows.clear();
+      latestRow.clear();
+      aggregations.clear();
+      featureSetSpec.clear();
+      nextBoundary.clear();
+    }
+  }
+
+  /**
+   * @return the input row with the given aggregations in place of its aggregated features, or
+   *     without them if no aggregations were emitted yet
+   */
+  private static FeatureRow withAggregations(
+      FeatureRow featureRow, FeatureSetSpec spec, FeatureRow aggregations) {
+    Set<String> aggregatedFeatures = new HashSet<>();
+    for (FeatureSpec featureSpec : spec.getFeaturesList()) {
+      if (featureSpec.hasAggregation()) {
+        aggregatedFeatures.add(featureSpec.getName());
+      }
+    }
+    FeatureRow.Builder row = featureRow.toBuilder().clearFields();
+    for (Field field : featureRow.getFieldsList()) {
+      if (!aggregatedFeatures.contains(field.getName())) {
+        row.addFields(field);
+      }
+    }
+    if (aggregations != null) {
+      row.addAllFields(aggregations.getFieldsList());
+    }
+    return row.build();
+  }
+
+  private static long getEventMillis(FeatureRow featureRow) {
+    return Timestamps.toMillis(featureRow.getEventTimestamp());
+  }
+
+  /** @return the numerical value of the field of the row, or null if it has no such value */
+  private static Double getValue(FeatureRow featureRow, String fieldName) {
+    for (Field field : featureRow.getFieldsList()) {
+      if (field.getName().equals(fieldName)) {
+        return toDouble(field.getValue());
+      }
+    }
+    return null;
+  }
+
+  private static Double toDouble(Value value) {
+    switch (value.getValCase()) {
+      case INT32_VAL:
+        return (double) value.getInt32Val();
+      case INT64_VAL:
+        return (double) value.getInt64Val();
+      case FLOAT_VAL:
+        return (double) value.getFloatVal();
+      case DOUBLE_VAL:
+        return value.getDoubleVal();
+      case BOOL_VAL:
+        return value.getBoolVal() ? 1.0 : 0.0;
+      default:
+        return null;
+    }
+  }
+
+  /** @return the longest window of the aggregations of the spec */
+  private static long getMaxWindow(FeatureSetSpec spec) {
+    long maxWindow = 0;
+    for (FeatureSpec featureSpec : spec.getFeaturesList()) {
+      if (featureSpec.hasAggregation()) {
+        maxWindow =
+            Math.max(maxWindow, Durations.toMillis(featureSpec.getAggregation().getWindow()));
+      }
+    }
+    return maxWindow;
+  }
+
+  /**
+   * @return the smallest boundary of the aggregations of the spec after the given time.
+   *     Aggregations without a positive period are ignored, as they are rejected by spec
+   *     validation.
+   */
+  static long getNextBoundary(FeatureSetSpec spec, long millis) {
+    long next = Long.MAX_VALUE;
+    for (FeatureSpec featureSpec : spec.getFeaturesList()) {
+      if (!featureSpec.hasAggregation()) {
+        continue;
+      }
+      WindowedAggregation aggregation = featureSpec.getAggregation();
+      long period =
+          aggregation.hasPeriod()
+              ? Durations.toMillis(aggregation.getPeriod())
+              : Durations.toMillis(aggregation.getWindow());
+      if (period > 0) {
+        next = Math.min(next, Math.floorDiv(millis, period) * period + period);
+      }
+    }
+    return next;
+  }
+
+  private static Field aggregate(
+      String name,
+      WindowedAggregation aggregation,
+      List<FeatureRow> featureRows,
+      long windowStart,
+      long windowEnd) {
+    String sourceFeature = aggregation.getSourceFeature();
+    long count = 0;
+    double sum = 0;
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    for (FeatureRow featureRow : featureRows) {
+      long eventMillis = getEventMillis(featureRow);
+      if (eventMillis <= windowStart || eventMillis > windowEnd) {
+        continue;
+      }
+      if (sourceFeature.isEmpty()) {
+        count++;
+        continue;
+      }
+      Double value = getValue(featureRow, sourceFeature);
+      if (value != null) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+    }
+
+    Field.Builder field = Field.newBuilder().setName(name);
+    switch (aggregation.getType()) {
+      case COUNT:
+        field.setValue(Value.newBuilder().setInt64Val(count));
+        break;
+      case SUM:
+        field.setValue(Value.newBuilder().setDoubleVal(sum));
+        break;
+      case MIN:
+        if (count > 0) {
+          field.setValue(Value.newBuilder().setDoubleVal(min));
+        }
+        break;
+      case MAX:
+        if (count > 0) {
+          field.setValue(Value.newBuilder().setDoubleVal(max));
+        }
+        break;
+      case MEAN:
+        if (count > 0) {
+          field.setValue(Value.newBuilder().setDoubleVal(sum / count));
+        }
+        break;
+      default:
+        break;
+    }
+    return field.build();
+  }
+}
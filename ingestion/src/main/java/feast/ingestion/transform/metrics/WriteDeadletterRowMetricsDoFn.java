@@ -17,21 +17,15 @@
 package feast.ingestion.transform.metrics;
 
 import com.google.auto.value.AutoValue;
-import com.timgroup.statsd.NonBlockingStatsDClient;
-import com.timgroup.statsd.StatsDClient;
-import com.timgroup.statsd.StatsDClientException;
+import feast.ingestion.metrics.MetricsExporter;
+import feast.ingestion.metrics.MetricsExporterFactory;
 import feast.storage.api.writer.FailedElement;
 import org.apache.beam.sdk.transforms.DoFn;
-import org.slf4j.Logger;
 
 @AutoValue
 public abstract class WriteDeadletterRowMetricsDoFn extends DoFn<FailedElement, Void> {
 
-  private static final Logger log =
-      org.slf4j.LoggerFactory.getLogger(WriteDeadletterRowMetricsDoFn.class);
-
   private final String INGESTION_JOB_NAME_KEY = "ingestion_job_name";
-  private final String METRIC_PREFIX = "feast_ingestion";
   private final String STORE_TAG_KEY = "feast_store";
   private final String PROJECT_TAG_KEY = "feast_project_name";
   private final String FEATURE_SET_NAME_TAG_KEY = "feast_featureSet_name";
@@ -39,11 +33,9 @@ public abstract class WriteDeadletterRowMetricsDoFn extends DoFn<FailedElement,
 
   public abstract String getStoreName();
 
-  public abstract String getStatsdHost();
-
-  public abstract int getStatsdPort();
+  public abstract MetricsExporterFactory getMetricsExporterFactory();
 
-  public StatsDClient statsd;
+  private MetricsExporter metricsExporter;
 
   public static WriteDeadletterRowMetricsDoFn.Builder newBuilder() {
     return new AutoValue_WriteDeadletterRowMetricsDoFn.Builder();
@@ -54,31 +46,40 @@ public abstract class WriteDeadletterRowMetricsDoFn extends DoFn<FailedElement,
 
     public abstract Builder setStoreName(String storeName);
 
-    public abstract Builder setStatsdHost(String statsdHost);
-
-    public abstract Builder setStatsdPort(int statsdPort);
+    public abstract Builder setMetricsExporterFactory(
+        MetricsExporterFactory metricsExporterFactory);
 
     public abstract WriteDeadletterRowMetricsDoFn build();
   }
 
   @Setup
   public void setup() {
-    statsd = new NonBlockingStatsDClient(METRIC_PREFIX, getStatsdHost(), getStatsdPort());
+    metricsExporter = getMetricsExporterFactory().create();
+  }
+
+  @FinishBundle
+  public void finishBundle() {
+    metricsExporter.flush();
+  }
+
+  @Teardown
+  public void tearDown() {
+    if (metricsExporter != null) {
+      metricsExporter.close();
+    }
   }
 
   @ProcessElement
   public void processElement(ProcessContext c) {
     FailedElement ignored = c.element();
-    try {
-      statsd.count(
-          "deadletter_row_count",
-          1,
-          STORE_TAG_KEY + ":" + getStoreName(),
-          PROJECT_TAG_KEY + ":" + ignored.getProjectName(),
-          FEATURE_SET_NAME_TAG_KEY + ":" + ignored.getFeatureSetName(),
-          INGESTION_JOB_NAME_KEY + ":" + c.getPipelineOptions().getJobName());
-    } catch (StatsDClientException e) {
-      log.warn("Unable to push metrics to server", e);
-    }
+    // Every failed row is counted. Counts of the same feature set are summed by the exporter and
+    // exported once per bundle.
+    metricsExporter.count(
+        "deadletter_row_count",
+        1,
+        STORE_TAG_KEY + ":" + getStoreName(),
+        PROJECT_TAG_KEY + ":" + ignored.getProjectName(),
+        FEATURE_SET_NAME_TAG_KEY + ":" + ignored.getFeatureSetName(),
+        INGESTION_JOB_NAME_KEY + ":" + c.getPipelineOptions().getJobName());
   }
 }
@@ -17,6 +17,7 @@
 package feast.ingestion.transform.metrics;
 
 import com.google.auto.value.AutoValue;
+import feast.ingestion.metrics.MetricsExporterFactory;
 import feast.ingestion.options.ImportOptions;
 import feast.storage.api.writer.FailedElement;
 import org.apache.beam.sdk.transforms.DoFn;
@@ -38,23 +39,26 @@ public abstract class WriteFailureMetricsTransform
   @Override
   public PDone expand(PCollection<FailedElement> input) {
     ImportOptions options = input.getPipeline().getOptions().as(ImportOptions.class);
-    if ("statsd".equals(options.getMetricsExporterType())) {
-      input.apply(
-          "WriteDeadletterMetrics",
-          ParDo.of(
-              WriteDeadletterRowMetricsDoFn.newBuilder()
-                  .setStatsdHost(options.getStatsdHost())
-                  .setStatsdPort(options.getStatsdPort())
-                  .setStoreName(getStoreName())
-                  .build()));
-    } else {
-      input.apply(
-          "Noop",
-          ParDo.of(
-              new DoFn<FailedElement, Void>() {
-                @ProcessElement
-                public void processElement(ProcessContext c) {}
-              }));
+    switch (options.getMetricsExporterType()) {
+      case "statsd":
+      case "prometheus":
+        input.apply(
+            "WriteDeadletterMetrics",
+            ParDo.of(
+                WriteDeadletterRowMetricsDoFn.newBuilder()
+                    .setMetricsExporterFactory(MetricsExporterFactory.fromOptions(options))
+                    .setStoreName(getStoreName())
+                    .build()));
+        break;
+      case "none":
+      default:
+        input.apply(
+            "Noop",
+            ParDo.of(
+                new DoFn<FailedElement, Void>() {
+                  @ProcessElement
+                  public void processElement(ProcessContext c) {}
+                }));
     }
     return PDone.in(input.getPipeline());
   }
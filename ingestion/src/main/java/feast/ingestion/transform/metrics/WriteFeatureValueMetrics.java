@@ -0,0 +1,171 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import com.google.auto.value.AutoValue;
+import feast.ingestion.metrics.MetricsExporterFactory;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.util.List;
+import org.apache.beam.sdk.transforms.ApproximateQuantiles.ApproximateQuantilesCombineFn;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.CombineFns;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Mean;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.SimpleFunction;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PDone;
+import org.apache.beam.sdk.values.TupleTag;
+
+/**
+ * Computes the statistics of the numerical values of each feature in the (windowed) input rows and
+ * writes them with {@link WriteFeatureValueMetricsDoFn}.
+ *
+ * <p>Values are combined per feature set reference and feature name with a mergeable quantile
+ * sketch and a mean accumulator, so the memory used per feature is bounded regardless of the number
+ * of rows in the window, and partial results can be computed in parallel on every worker.
+ */
+@AutoValue
+public abstract class WriteFeatureValueMetrics extends PTransform<PCollection<FeatureRow>, PDone> {
+
+  // 101 evenly spaced quantiles, so the quantile at index p is the p-th percentile
+  static final int NUM_QUANTILES = 101;
+  static final TupleTag<List<Double>> QUANTILES_TAG = new TupleTag<List<Double>>() {};
+  static final TupleTag<Double> MEAN_TAG = new TupleTag<Double>() {};
+
+  abstract String getStoreName();
+
+  abstract MetricsExporterFactory getMetricsExporterFactory();
+
+  abstract String getMetricsNamespace();
+
+  static Builder newBuilder() {
+    return new AutoValue_WriteFeatureValueMetrics.Builder();
+  }
+
+  @AutoValue.Builder
+  abstract static class Builder {
+
+    abstract Builder setStoreName(String storeName);
+
+    abstract Builder setMetricsExporterFactory(MetricsExporterFactory metricsExporterFactory);
+
+    abstract Builder setMetricsNamespace(String metricsNamespace);
+
+    abstract WriteFeatureValueMetrics build();
+  }
+
+  @Override
+  public PDone expand(PCollection<FeatureRow> input) {
+    input
+        .apply("ExtractFeatureValues", ParDo.of(new ExtractFeatureValuesDoFn()))
+        .apply(
+            "CombineFeatureValues",
+            Combine.perKey(
+                CombineFns.compose()
+                    .with(
+                        new Identity(),
+                        ApproximateQuantilesCombineFn.<Double>create(NUM_QUANTILES),
+                        QUANTILES_TAG)
+                    .with(new Identity(), Mean.<Double>of(), MEAN_TAG)))
+        .apply(
+            "WriteFeatureValueMetrics",
+            ParDo.of(
+                WriteFeatureValueMetricsDoFn.newBuilder()
+                    .setMetricsExporterFactory(getMetricsExporterFactory())
+                    .setStoreName(getStoreName())
+                    .setMetricsNamespace(getMetricsNamespace())
+                    .build()));
+    return PDone.in(input.getPipeline());
+  }
+
+  private static class Identity extends SimpleFunction<Double, Double> {
+    @Override
+    public Double apply(Double input) {
+      return input;
+    }
+  }
+
+  /**
+   * Outputs every numerical value of the fields of a feature row, keyed by feature set reference
+   * and feature name. Non-numerical values are skipped because we are only concerned with numerical
+   * value in metrics data. For boolean value, true and false are treated as numerical value of 1 or
+   * 0 respectively.
+   */
+  static class ExtractFeatureValuesDoFn extends DoFn<FeatureRow, KV<KV<String, String>, Double>> {
+
+    @ProcessElement
+    public void processElement(ProcessContext context, @Element FeatureRow featureRow) {
+      for (Field field : featureRow.getFieldsList()) {
+        KV<String, String> key = KV.of(featureRow.getFeatureSet(), field.getName());
+        Value value = field.getValue();
+        switch (value.getValCase()) {
+          case INT32_VAL:
+            context.output(KV.of(key, (double) value.getInt32Val()));
+            break;
+          case INT64_VAL:
+            context.output(KV.of(key, (double) value.getInt64Val()));
+            break;
+          case DOUBLE_VAL:
+            context.output(KV.of(key, value.getDoubleVal()));
+            break;
+          case FLOAT_VAL:
+            context.output(KV.of(key, (double) value.getFloatVal()));
+            break;
+          case BOOL_VAL:
+            context.output(KV.of(key, value.getBoolVal() ? 1d : 0d));
+            break;
+          case INT32_LIST_VAL:
+            for (Integer val : value.getInt32ListVal().getValList()) {
+              context.output(KV.of(key, (double) val));
+            }
+            break;
+          case INT64_LIST_VAL:
+            for (Long val : value.getInt64ListVal().getValList()) {
+              context.output(KV.of(key, (double) val));
+            }
+            break;
+          case DOUBLE_LIST_VAL:
+            for (Double val : value.getDoubleListVal().getValList()) {
+              context.output(KV.of(key, val));
+            }
+            break;
+          case FLOAT_LIST_VAL:
+            for (Float val : value.getFloatListVal().getValList()) {
+              context.output(KV.of(key, (double) val));
+            }
+            break;
+          case BOOL_LIST_VAL:
+            for (Boolean val : value.getBoolListVal().getValList()) {
+              context.output(KV.of(key, val ? 1d : 0d));
+            }
+            break;
+          case BYTES_VAL:
+          case BYTES_LIST_VAL:
+          case STRING_VAL:
+          case STRING_LIST_VAL:
+          case VAL_NOT_SET:
+          default:
+        }
+      }
+    }
+  }
+}
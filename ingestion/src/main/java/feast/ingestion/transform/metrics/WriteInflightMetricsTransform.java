@@ -17,17 +17,14 @@
 package feast.ingestion.transform.metrics;
 
 import com.google.auto.value.AutoValue;
+import feast.ingestion.metrics.MetricsExporterFactory;
 import feast.ingestion.options.ImportOptions;
 import feast.proto.types.FeatureRowProto.FeatureRow;
-import org.apache.beam.sdk.metrics.Counter;
-import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.*;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Window;
-import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PDone;
-import org.apache.beam.sdk.values.TypeDescriptors;
 import org.joda.time.Duration;
 
 @AutoValue
@@ -36,8 +33,6 @@ public abstract class WriteInflightMetricsTransform
 
   public static final String METRIC_NAMESPACE = "Inflight";
   public static final String ELEMENTS_WRITTEN_METRIC = "elements_count";
-  private static final Counter elements_count =
-      Metrics.counter(METRIC_NAMESPACE, ELEMENTS_WRITTEN_METRIC);
 
   public abstract String getStoreName();
 
@@ -49,60 +44,39 @@ public abstract class WriteInflightMetricsTransform
   public PDone expand(PCollection<FeatureRow> input) {
     ImportOptions options = input.getPipeline().getOptions().as(ImportOptions.class);
 
-    input.apply(
-        "IncrementInflightElementsCounter",
-        MapElements.into(TypeDescriptors.booleans())
-            .via(
-                (FeatureRow row) -> {
-                  elements_count.inc();
-                  return true;
-                }));
-
+    // The in-flight elements counter is incremented by ValidateAndAllocateFeatureRowDoFn, so that
+    // each row is only counted once regardless of the number of stores it is allocated to.
     switch (options.getMetricsExporterType()) {
       case "statsd":
+      case "prometheus":
+        MetricsExporterFactory metricsExporterFactory = MetricsExporterFactory.fromOptions(options);
 
         // Fixed window is applied so the metric collector will not be overwhelmed with the metrics
         // data. For validation, only summaries of the values are usually required vs the actual
         // values.
-        PCollection<KV<String, Iterable<FeatureRow>>> rowsGroupedByRef =
-            input
-                .apply(
-                    "FixedWindow",
-                    Window.into(
-                        FixedWindows.of(
-                            Duration.standardSeconds(
-                                options.getWindowSizeInSecForFeatureValueMetric()))))
-                .apply(
-                    "ConvertToKV_FeatureSetRefToFeatureRow",
-                    ParDo.of(
-                        new DoFn<FeatureRow, KV<String, FeatureRow>>() {
-                          @ProcessElement
-                          public void processElement(
-                              ProcessContext c, @Element FeatureRow featureRow) {
-                            c.output(KV.of(featureRow.getFeatureSet(), featureRow));
-                          }
-                        }))
-                .apply("GroupByFeatureSetRef", GroupByKey.create());
+        PCollection<FeatureRow> windowedRows =
+            input.apply(
+                "FixedWindow",
+                Window.into(
+                    FixedWindows.of(
+                        Duration.standardSeconds(
+                            options.getWindowSizeInSecForFeatureValueMetric()))));
 
-        rowsGroupedByRef.apply(
+        windowedRows.apply(
             "WriteInflightRowMetrics",
-            ParDo.of(
-                WriteRowMetricsDoFn.newBuilder()
-                    .setStatsdHost(options.getStatsdHost())
-                    .setStatsdPort(options.getStatsdPort())
-                    .setStoreName(getStoreName())
-                    .setMetricsNamespace(METRIC_NAMESPACE)
-                    .build()));
+            WriteRowMetrics.newBuilder()
+                .setMetricsExporterFactory(metricsExporterFactory)
+                .setStoreName(getStoreName())
+                .setMetricsNamespace(METRIC_NAMESPACE)
+                .build());
 
-        rowsGroupedByRef.apply(
+        windowedRows.apply(
             "WriteInflightFeatureValueMetrics",
-            ParDo.of(
-                WriteFeatureValueMetricsDoFn.newBuilder()
-                    .setStatsdHost(options.getStatsdHost())
-                    .setStatsdPort(options.getStatsdPort())
-                    .setStoreName(getStoreName())
-                    .setMetricsNamespace(METRIC_NAMESPACE)
-                    .build()));
+            WriteFeatureValueMetrics.newBuilder()
+                .setMetricsExporterFactory(metricsExporterFactory)
+                .setStoreName(getStoreName())
+                .setMetricsNamespace(METRIC_NAMESPACE)
+                .build());
 
         return PDone.in(input.getPipeline());
       case "none":
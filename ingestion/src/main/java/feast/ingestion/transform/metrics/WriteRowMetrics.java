@@ -0,0 +1,258 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.metrics;
+
+import com.google.auto.value.AutoValue;
+import com.google.protobuf.util.Timestamps;
+import feast.ingestion.metrics.MetricsExporterFactory;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value.ValCase;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.beam.sdk.transforms.ApproximateQuantiles.ApproximateQuantilesCombineFn;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.CombineFns;
+import org.apache.beam.sdk.transforms.CombineFns.CoCombineResult;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.Mean;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.SimpleFunction;
+import org.apache.beam.sdk.transforms.join.CoGroupByKey;
+import org.apache.beam.sdk.transforms.join.KeyedPCollectionTuple;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PDone;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
+
+/**
+ * Computes the lag of the (windowed) input rows and of their feature values, and the number of
+ * missing feature values, and writes them with {@link WriteRowMetricsDoFn}.
+ *
+ * <p>Each row is reduced to its lag and the missing value count of its fields before being combined
+ * per feature set reference, and the lag of every present feature value is combined per feature set
+ * reference and feature name. Feature rows themselves are never shuffled, and only the combined
+ * statistics of a feature set are grouped together before being written.
+ */
+@AutoValue
+public abstract class WriteRowMetrics extends PTransform<PCollection<FeatureRow>, PDone> {
+
+  static final TupleTag<List<Long>> LAG_QUANTILES_TAG = new TupleTag<List<Long>>() {};
+  static final TupleTag<Double> LAG_MEAN_TAG = new TupleTag<Double>() {};
+  static final TupleTag<Long> ROW_COUNT_TAG = new TupleTag<Long>() {};
+  static final TupleTag<Map<String, Long>> MISSING_COUNTS_TAG =
+      new TupleTag<Map<String, Long>>() {};
+
+  static final TupleTag<CoCombineResult> ROW_STATS_TAG = new TupleTag<CoCombineResult>() {};
+  static final TupleTag<KV<String, CoCombineResult>> FEATURE_STATS_TAG =
+      new TupleTag<KV<String, CoCombineResult>>() {};
+
+  private static final TupleTag<KV<String, KV<Long, Map<String, Long>>>> ROW_LAGS_TAG =
+      new TupleTag<KV<String, KV<Long, Map<String, Long>>>>() {};
+  private static final TupleTag<KV<KV<String, String>, Long>> FEATURE_LAGS_TAG =
+      new TupleTag<KV<KV<String, String>, Long>>() {};
+
+  abstract String getStoreName();
+
+  abstract MetricsExporterFactory getMetricsExporterFactory();
+
+  abstract String getMetricsNamespace();
+
+  @Nullable
+  abstract Clock getClock();
+
+  static Builder newBuilder() {
+    return new AutoValue_WriteRowMetrics.Builder();
+  }
+
+  @AutoValue.Builder
+  abstract static class Builder {
+
+    abstract Builder setStoreName(String storeName);
+
+    abstract Builder setMetricsExporterFactory(MetricsExporterFactory metricsExporterFactory);
+
+    abstract Builder setMetricsNamespace(String metricsNamespace);
+
+    /**
+     * setClock will override the default system clock used to calculate feature row lag.
+     *
+     * @param clock Clock instance
+     */
+    abstract Builder setClock(Clock clock);
+
+    abstract WriteRowMetrics build();
+  }
+
+  @Override
+  public PDone expand(PCollection<FeatureRow> input) {
+    PCollectionTuple lags =
+        input.apply(
+            "ExtractLags",
+            ParDo.of(new ExtractLagsDoFn(getClock()))
+                .withOutputTags(ROW_LAGS_TAG, TupleTagList.of(FEATURE_LAGS_TAG)));
+
+    PCollection<KV<String, CoCombineResult>> rowStats =
+        lags.get(ROW_LAGS_TAG)
+            .apply(
+                "CombineRowLags",
+                Combine.perKey(
+                    CombineFns.compose()
+                        .with(
+                            new RowLag(),
+                            ApproximateQuantilesCombineFn.<Long>create(
+                                WriteFeatureValueMetrics.NUM_QUANTILES),
+                            LAG_QUANTILES_TAG)
+                        .with(new RowLag(), Mean.<Long>of(), LAG_MEAN_TAG)
+                        .with(new RowLag(), Count.combineFn(), ROW_COUNT_TAG)
+                        .with(new MissingCounts(), new SumCountsFn(), MISSING_COUNTS_TAG)));
+
+    PCollection<KV<String, KV<String, CoCombineResult>>> featureStats =
+        lags.get(FEATURE_LAGS_TAG)
+            .apply(
+                "CombineFeatureValueLags",
+                Combine.perKey(
+                    CombineFns.compose()
+                        .with(
+                            new Identity(),
+                            ApproximateQuantilesCombineFn.<Long>create(
+                                WriteFeatureValueMetrics.NUM_QUANTILES),
+                            LAG_QUANTILES_TAG)
+                        .with(new Identity(), Mean.<Long>of(), LAG_MEAN_TAG)))
+            .apply(
+                "KeyByFeatureSetRef",
+                MapElements.via(
+                    new SimpleFunction<
+                        KV<KV<String, String>, CoCombineResult>,
+                        KV<String, KV<String, CoCombineResult>>>() {
+                      @Override
+                      public KV<String, KV<String, CoCombineResult>> apply(
+                          KV<KV<String, String>, CoCombineResult> input) {
+                        return KV.of(
+                            input.getKey().getKey(),
+                            KV.of(input.getKey().getValue(), input.getValue()));
+                      }
+                    }));
+
+    KeyedPCollectionTuple.of(ROW_STATS_TAG, rowStats)
+        .and(FEATURE_STATS_TAG, featureStats)
+        .apply("GroupStatsByFeatureSetRef", CoGroupByKey.create())
+        .apply(
+            "WriteRowMetrics",
+            ParDo.of(
+                WriteRowMetricsDoFn.newBuilder()
+                    .setMetricsExporterFactory(getMetricsExporterFactory())
+                    .setStoreName(getStoreName())
+                    .setMetricsNamespace(getMetricsNamespace())
+                    .build()));
+    return PDone.in(input.getPipeline());
+  }
+
+  /**
+   * Outputs the lag of every feature row with the missing value count of each of its fields, keyed
+   * by feature set reference, and the lag of every field with a value, keyed by feature set
+   * reference and feature name.
+   */
+  static class ExtractLagsDoFn extends DoFn<FeatureRow, KV<String, KV<Long, Map<String, Long>>>> {
+
+    @Nullable private final Clock clock;
+
+    ExtractLagsDoFn(@Nullable Clock clock) {
+      this.clock = clock;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext context, @Element FeatureRow featureRow) {
+      long currentTime = clock == null ? System.currentTimeMillis() : clock.millis();
+      long featureRowLag = currentTime - Timestamps.toMillis(featureRow.getEventTimestamp());
+
+      Map<String, Long> missingCounts = new HashMap<>();
+      for (Field field : featureRow.getFieldsList()) {
+        if (field.getValue().getValCase().equals(ValCase.VAL_NOT_SET)) {
+          missingCounts.merge(field.getName(), 1L, Long::sum);
+        } else {
+          missingCounts.putIfAbsent(field.getName(), 0L);
+          context.output(
+              FEATURE_LAGS_TAG,
+              KV.of(KV.of(featureRow.getFeatureSet(), field.getName()), featureRowLag));
+        }
+      }
+      context.output(KV.of(featureRow.getFeatureSet(), KV.of(featureRowLag, missingCounts)));
+    }
+  }
+
+  /** Sums counts by name. Names are kept with a count of zero, so they can still be reported. */
+  static class SumCountsFn
+      extends CombineFn<Map<String, Long>, Map<String, Long>, Map<String, Long>> {
+
+    @Override
+    public Map<String, Long> createAccumulator() {
+      return new HashMap<>();
+    }
+
+    @Override
+    public Map<String, Long> addInput(Map<String, Long> accumulator, Map<String, Long> input) {
+      input.forEach((name, count) -> accumulator.merge(name, count, Long::sum));
+      return accumulator;
+    }
+
+    @Override
+    public Map<String, Long> mergeAccumulators(Iterable<Map<String, Long>> accumulators) {
+      Map<String, Long> merged = createAccumulator();
+      for (Map<String, Long> accumulator : accumulators) {
+        addInput(merged, accumulator);
+      }
+      return merged;
+    }
+
+    @Override
+    public Map<String, Long> extractOutput(Map<String, Long> accumulator) {
+      return accumulator;
+    }
+  }
+
+  private static class RowLag extends SimpleFunction<KV<Long, Map<String, Long>>, Long> {
+    @Override
+    public Long apply(KV<Long, Map<String, Long>> input) {
+      return input.getKey();
+    }
+  }
+
+  private static class MissingCounts
+      extends SimpleFunction<KV<Long, Map<String, Long>>, Map<String, Long>> {
+    @Override
+    public Map<String, Long> apply(KV<Long, Map<String, Long>> input) {
+      return input.getValue();
+    }
+  }
+
+  private static class Identity extends SimpleFunction<Long, Long> {
+    @Override
+    public Long apply(Long input) {
+      return input;
+    }
+  }
+}
@@ -17,30 +17,23 @@
 package feast.ingestion.transform.metrics;
 
 import com.google.auto.value.AutoValue;
-import com.google.protobuf.util.Timestamps;
-import com.timgroup.statsd.NonBlockingStatsDClient;
-import com.timgroup.statsd.StatsDClient;
-import feast.proto.types.FeatureRowProto.FeatureRow;
-import feast.proto.types.FieldProto.Field;
-import feast.proto.types.ValueProto.Value;
-import feast.proto.types.ValueProto.Value.ValCase;
-import java.time.Clock;
-import java.util.HashMap;
-import java.util.Map;
+import feast.ingestion.metrics.MetricsExporter;
+import feast.ingestion.metrics.MetricsExporterFactory;
+import java.util.List;
 import java.util.Map.Entry;
-import javax.annotation.Nullable;
+import org.apache.beam.sdk.transforms.CombineFns.CoCombineResult;
 import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.join.CoGbkResult;
 import org.apache.beam.sdk.values.KV;
 import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.slf4j.Logger;
 
 @AutoValue
-public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<FeatureRow>>, Void> {
+public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, CoGbkResult>, Void> {
 
   private static final Logger log = org.slf4j.LoggerFactory.getLogger(WriteRowMetricsDoFn.class);
 
-  public static final String METRIC_PREFIX = "feast_ingestion";
+  public static final String METRIC_PREFIX = MetricsExporter.METRIC_PREFIX;
   public static final String STORE_TAG_KEY = "feast_store";
   public static final String FEATURE_SET_PROJECT_TAG_KEY = "feast_project_name";
   public static final String FEATURE_SET_NAME_TAG_KEY = "feast_featureSet_name";
@@ -73,25 +66,19 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
 
   public abstract String getStoreName();
 
-  public abstract String getStatsdHost();
-
-  public abstract int getStatsdPort();
+  public abstract MetricsExporterFactory getMetricsExporterFactory();
 
   public abstract String getMetricsNamespace();
 
-  @Nullable
-  public abstract Clock getClock();
-
   public static WriteRowMetricsDoFn create(
-      String newStoreName, String newStatsdHost, int newStatsdPort) {
+      String newStoreName, MetricsExporterFactory newMetricsExporterFactory) {
     return newBuilder()
         .setStoreName(newStoreName)
-        .setStatsdHost(newStatsdHost)
-        .setStatsdPort(newStatsdPort)
+        .setMetricsExporterFactory(newMetricsExporterFactory)
         .build();
   }
 
-  public StatsDClient statsd;
+  private MetricsExporter metricsExporter;
 
   public static Builder newBuilder() {
     return new AutoValue_WriteRowMetricsDoFn.Builder();
@@ -102,45 +89,34 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
 
     public abstract Builder setStoreName(String storeName);
 
-    public abstract Builder setStatsdHost(String statsdHost);
-
-    public abstract Builder setStatsdPort(int statsdPort);
+    public abstract Builder setMetricsExporterFactory(
+        MetricsExporterFactory metricsExporterFactory);
 
     public abstract Builder setMetricsNamespace(String metricNamespace);
 
-    /**
-     * setClock will override the default system clock used to calculate feature row lag.
-     *
-     * @param clock Clock instance
-     */
-    public abstract Builder setClock(Clock clock);
-
     public abstract WriteRowMetricsDoFn build();
   }
 
   @Setup
   public void setup() {
-    // Note that exception may be thrown during StatsD client instantiation but no exception
-    // will be thrown when sending metrics (mimicking the UDP protocol behaviour).
-    // https://jar-download.com/artifacts/com.datadoghq/java-dogstatsd-client/2.1.1/documentation
-    // https://github.com/DataDog/java-dogstatsd-client#unix-domain-socket-support
-    try {
-      statsd = new NonBlockingStatsDClient(METRIC_PREFIX, getStatsdHost(), getStatsdPort());
-    } catch (Exception e) {
-      log.error("StatsD client cannot be started: " + e.getMessage());
-    }
+    metricsExporter = getMetricsExporterFactory().create();
   }
 
-  @SuppressWarnings("DuplicatedCode")
-  @ProcessElement
-  public void processElement(
-      ProcessContext c, @Element KV<String, Iterable<FeatureRow>> featureSetRefToFeatureRows) {
-    if (statsd == null) {
-      log.error("StatsD client is null, likely because it encounters an error during setup");
-      return;
+  @FinishBundle
+  public void finishBundle() {
+    metricsExporter.flush();
+  }
+
+  @Teardown
+  public void tearDown() {
+    if (metricsExporter != null) {
+      metricsExporter.close();
     }
+  }
 
-    String featureSetRef = featureSetRefToFeatureRows.getKey();
+  @ProcessElement
+  public void processElement(ProcessContext c, @Element KV<String, CoGbkResult> featureSetStats) {
+    String featureSetRef = featureSetStats.getKey();
     if (featureSetRef == null) {
       log.error(
           "Feature set reference in the feature row is null. Please check the input feature rows from previous steps");
@@ -158,40 +134,6 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
     String featureSetProject = slashSplits[0];
     String featureSetName = slashSplits[1];
 
-    // featureRowLagStats is stats for feature row lag for feature set "featureSetName"
-    DescriptiveStatistics featureRowLagStats = new DescriptiveStatistics();
-    // featureNameToLagStats is stats for feature lag for all features in feature set
-    // "featureSetName"
-    Map<String, DescriptiveStatistics> featureNameToLagStats = new HashMap<>();
-    // featureNameToMissingCount is count for "value_not_set" for all features in feature set
-    // "featureSetName"
-    Map<String, Long> featureNameToMissingCount = new HashMap<>();
-
-    for (FeatureRow featureRow : featureSetRefToFeatureRows.getValue()) {
-      long currentTime = getClock() == null ? System.currentTimeMillis() : getClock().millis();
-      long featureRowLag = currentTime - Timestamps.toMillis(featureRow.getEventTimestamp());
-      featureRowLagStats.addValue(featureRowLag);
-
-      for (Field field : featureRow.getFieldsList()) {
-        String featureName = field.getName();
-        Value featureValue = field.getValue();
-        if (!featureNameToLagStats.containsKey(featureName)) {
-          // Ensure map contains the "featureName" key
-          featureNameToLagStats.put(featureName, new DescriptiveStatistics());
-        }
-        if (!featureNameToMissingCount.containsKey(featureName)) {
-          // Ensure map contains the "featureName" key
-          featureNameToMissingCount.put(featureName, 0L);
-        }
-        if (featureValue.getValCase().equals(ValCase.VAL_NOT_SET)) {
-          featureNameToMissingCount.put(
-              featureName, featureNameToMissingCount.get(featureName) + 1);
-        } else {
-          featureNameToLagStats.get(featureName).addValue(featureRowLag);
-        }
-      }
-    }
-
     String[] tags = {
       STORE_TAG_KEY + ":" + getStoreName(),
       FEATURE_SET_PROJECT_TAG_KEY + ":" + featureSetProject,
@@ -200,46 +142,69 @@ public abstract class WriteRowMetricsDoFn extends DoFn<KV<String, Iterable<Featu
       METRICS_NAMESPACE_KEY + ":" + getMetricsNamespace(),
     };
 
-    statsd.count(COUNT_NAME_FEATURE_ROW_INGESTED, featureRowLagStats.getN(), tags);
-    // DescriptiveStatistics returns invalid NaN value for getMin(), getMax(), ... when there is no
-    // items in the stats.
-    if (featureRowLagStats.getN() > 0) {
-      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MIN, featureRowLagStats.getMin(), tags);
-      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MAX, featureRowLagStats.getMax(), tags);
-      statsd.gauge(GAUGE_NAME_FEATURE_ROW_LAG_MS_MEAN, featureRowLagStats.getMean(), tags);
-      statsd.gauge(
-          GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_90, featureRowLagStats.getPercentile(90), tags);
-      statsd.gauge(
-          GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_95, featureRowLagStats.getPercentile(95), tags);
-      statsd.gauge(
-          GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_99, featureRowLagStats.getPercentile(99), tags);
+    CoCombineResult rowStats =
+        featureSetStats.getValue().getOnly(WriteRowMetrics.ROW_STATS_TAG, null);
+    if (rowStats == null) {
+      return;
+    }
+    metricsExporter.count(
+        COUNT_NAME_FEATURE_ROW_INGESTED, rowStats.get(WriteRowMetrics.ROW_COUNT_TAG), tags);
+    writeLagStats(
+        rowStats,
+        tags,
+        GAUGE_NAME_FEATURE_ROW_LAG_MS_MIN,
+        GAUGE_NAME_FEATURE_ROW_LAG_MS_MAX,
+        GAUGE_NAME_FEATURE_ROW_LAG_MS_MEAN,
+        GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_90,
+        GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_95,
+        GAUGE_NAME_FEATURE_ROW_LAG_MS_PERCENTILE_99);
+
+    for (KV<String, CoCombineResult> featureStats :
+        featureSetStats.getValue().getAll(WriteRowMetrics.FEATURE_STATS_TAG)) {
+      String[] tagsWithFeatureName =
+          ArrayUtils.add(tags, FEATURE_TAG_KEY + ":" + featureStats.getKey());
+      writeLagStats(
+          featureStats.getValue(),
+          tagsWithFeatureName,
+          GAUGE_NAME_FEATURE_VALUE_LAG_MS_MIN,
+          GAUGE_NAME_FEATURE_VALUE_LAG_MS_MAX,
+          GAUGE_NAME_FEATURE_VALUE_LAG_MS_MEAN,
+          GAUGE_NAME_FEATURE_VALUE_LAG_MS_PERCENTILE_90,
+          GAUGE_NAME_FEATURE_VALUE_LAG_MS_PERCENTILE_95,
+          GAUGE_NAME_FEATURE_VALUE_LAG_MS_PERCENTILE_99);
+    }
+
+    for (Entry<String, Long> entry : rowStats.get(WriteRowMetrics.MISSING_COUNTS_TAG).entrySet()) {
+      String[] tagsWithFeatureName = ArrayUtils.add(tags, FEATURE_TAG_KEY + ":" + entry.getKey());
+      metricsExporter.count(
+          COUNT_NAME_FEATURE_VALUE_MISSING, entry.getValue(), tagsWithFeatureName);
     }
+  }
 
-    for (Entry<String, DescriptiveStatistics> entry : featureNameToLagStats.entrySet()) {
-      String featureName = entry.getKey();
-      String[] tagsWithFeatureName = ArrayUtils.add(tags, FEATURE_TAG_KEY + ":" + featureName);
-      DescriptiveStatistics stats = entry.getValue();
-      if (stats.getN() > 0) {
-        statsd.gauge(GAUGE_NAME_FEATURE_VALUE_LAG_MS_MIN, stats.getMin(), tagsWithFeatureName);
-        statsd.gauge(GAUGE_NAME_FEATURE_VALUE_LAG_MS_MAX, stats.getMax(), tagsWithFeatureName);
-        statsd.gauge(GAUGE_NAME_FEATURE_VALUE_LAG_MS_MEAN, stats.getMean(), tagsWithFeatureName);
-        statsd.gauge(
-            GAUGE_NAME_FEATURE_VALUE_LAG_MS_PERCENTILE_90,
-            stats.getPercentile(90),
-            tagsWithFeatureName);
-        statsd.gauge(
-            GAUGE_NAME_FEATURE_VALUE_LAG_MS_PERCENTILE_95,
-            stats.getPercentile(95),
-            tagsWithFeatureName);
-        statsd.gauge(
-            GAUGE_NAME_FEATURE_VALUE_LAG_MS_PERCENTILE_99,
-            stats.getPercentile(99),
-            tagsWithFeatureName);
-      }
-      statsd.count(
-          COUNT_NAME_FEATURE_VALUE_MISSING,
-          featureNameToMissingCount.get(featureName),
-          tagsWithFeatureName);
+  private void writeLagStats(
+      CoCombineResult stats,
+      String[] tags,
+      String minGauge,
+      String maxGauge,
+      String meanGauge,
+      String p90Gauge,
+      String p95Gauge,
+      String p99Gauge) {
+    // The first and last quantiles returned by the sketch are the exact min and max values.
+    List<Long> quantiles = stats.get(WriteRowMetrics.LAG_QUANTILES_TAG);
+    if (quantiles == null || quantiles.isEmpty()) {
+      return;
     }
+    metricsExporter.gauge(minGauge, quantiles.get(0), tags);
+    metricsExporter.gauge(maxGauge, quantiles.get(quantiles.size() - 1), tags);
+    metricsExporter.gauge(meanGauge, stats.get(WriteRowMetrics.LAG_MEAN_TAG), tags);
+    metricsExporter.gauge(p90Gauge, percentile(quantiles, 90), tags);
+    metricsExporter.gauge(p95Gauge, percentile(quantiles, 95), tags);
+    metricsExporter.gauge(p99Gauge, percentile(quantiles, 99), tags);
+  }
+
+  // Quantiles are evenly spaced, so the p-th percentile is the quantile at the same relative rank.
+  static <T> T percentile(List<T> quantiles, int percent) {
+    return quantiles.get(percent * (quantiles.size() - 1) / 100);
   }
 }
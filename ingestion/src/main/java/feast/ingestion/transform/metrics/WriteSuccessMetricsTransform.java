@@ -17,6 +17,7 @@
 package feast.ingestion.transform.metrics;
 
 import com.google.auto.value.AutoValue;
+import feast.ingestion.metrics.MetricsExporterFactory;
 import feast.ingestion.options.ImportOptions;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import org.apache.beam.sdk.metrics.Counter;
@@ -24,7 +25,6 @@ import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.*;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Window;
-import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PDone;
 import org.apache.beam.sdk.values.TypeDescriptors;
@@ -60,50 +60,36 @@ public abstract class WriteSuccessMetricsTransform
 
     switch (options.getMetricsExporterType()) {
       case "statsd":
+      case "prometheus":
+        MetricsExporterFactory metricsExporterFactory = MetricsExporterFactory.fromOptions(options);
 
         // Fixed window is applied so the metric collector will not be overwhelmed with the metrics
         // data. For validation, only summaries of the values are usually required vs the actual
         // values.
-        PCollection<KV<String, Iterable<FeatureRow>>> validRowsGroupedByRef =
-            input
-                .apply(
-                    "FixedWindow",
-                    Window.<FeatureRow>into(
-                            FixedWindows.of(
-                                Duration.standardSeconds(
-                                    options.getWindowSizeInSecForFeatureValueMetric())))
-                        .withAllowedLateness(Duration.millis(0)))
-                .apply(
-                    "ConvertToKV_FeatureSetRefToFeatureRow",
-                    ParDo.of(
-                        new DoFn<FeatureRow, KV<String, FeatureRow>>() {
-                          @ProcessElement
-                          public void processElement(
-                              ProcessContext c, @Element FeatureRow featureRow) {
-                            c.output(KV.of(featureRow.getFeatureSet(), featureRow));
-                          }
-                        }))
-                .apply("GroupByFeatureSetRef", GroupByKey.create());
+        PCollection<FeatureRow> windowedRows =
+            input.apply(
+                "FixedWindow",
+                Window.<FeatureRow>into(
+                        FixedWindows.of(
+                            Duration.standardSeconds(
+                                options.getWindowSizeInSecForFeatureValueMetric())))
+                    .withAllowedLateness(Duration.millis(0)));
 
-        validRowsGroupedByRef.apply(
+        windowedRows.apply(
             "WriteRowMetrics",
-            ParDo.of(
-                WriteRowMetricsDoFn.newBuilder()
-                    .setStatsdHost(options.getStatsdHost())
-                    .setStatsdPort(options.getStatsdPort())
-                    .setStoreName(getStoreName())
-                    .setMetricsNamespace(METRIC_NAMESPACE)
-                    .build()));
+            WriteRowMetrics.newBuilder()
+                .setMetricsExporterFactory(metricsExporterFactory)
+                .setStoreName(getStoreName())
+                .setMetricsNamespace(METRIC_NAMESPACE)
+                .build());
 
-        validRowsGroupedByRef.apply(
+        windowedRows.apply(
             "WriteFeatureValueMetrics",
-            ParDo.of(
-                WriteFeatureValueMetricsDoFn.newBuilder()
-                    .setStatsdHost(options.getStatsdHost())
-                    .setStatsdPort(options.getStatsdPort())
-                    .setStoreName(getStoreName())
-                    .setMetricsNamespace(METRIC_NAMESPACE)
-                    .build()));
+            WriteFeatureValueMetrics.newBuilder()
+                .setMetricsExporterFactory(metricsExporterFactory)
+                .setStoreName(getStoreName())
+                .setMetricsNamespace(METRIC_NAMESPACE)
+                .build());
 
         return PDone.in(input.getPipeline());
       case "none":
@@ -16,11 +16,12 @@
  */
 package feast.ingestion.transform.specs;
 
-import feast.common.models.Store;
+import feast.common.models.SubscriptionMatcher;
 import feast.proto.core.FeatureSetProto;
 import feast.proto.core.SourceProto;
 import feast.proto.core.StoreProto;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.beam.sdk.transforms.ProcessFunction;
 import org.apache.beam.sdk.values.KV;
 
@@ -30,23 +31,24 @@ import org.apache.beam.sdk.values.KV;
  */
 public class FilterRelevantFunction
     implements ProcessFunction<KV<String, FeatureSetProto.FeatureSetSpec>, Boolean> {
-  private final List<StoreProto.Store> stores;
+  private final List<SubscriptionMatcher> subscriptionMatchers;
   private final SourceProto.Source source;
 
   public FilterRelevantFunction(SourceProto.Source source, List<StoreProto.Store> stores) {
     this.source = source;
-    this.stores = stores;
+    this.subscriptionMatchers =
+        stores.stream()
+            .map(s -> new SubscriptionMatcher(s.getSubscriptionsList()))
+            .collect(Collectors.toList());
   }
 
   @Override
   public Boolean apply(KV<String, FeatureSetProto.FeatureSetSpec> input) throws Exception {
-    return stores.stream()
+    return subscriptionMatchers.stream()
             .anyMatch(
-                s ->
-                    Store.isSubscribedToFeatureSet(
-                        s.getSubscriptionsList(),
-                        input.getValue().getProject(),
-                        input.getValue().getName()))
+                m ->
+                    m.isSubscribedToFeatureSet(
+                        input.getValue().getProject(), input.getValue().getName()))
         && input.getValue().getSource().equals(source);
   }
 }
@@ -0,0 +1,66 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.utils;
+
+import feast.ingestion.deadletter.FileDeadletterSink;
+import feast.ingestion.deadletter.KafkaDeadletterSink;
+import feast.ingestion.options.ImportOptions;
+import feast.storage.api.writer.DeadletterSink;
+import feast.storage.connectors.bigquery.writer.BigQueryDeadletterSink;
+import javax.annotation.Nullable;
+
+public class DeadletterUtil {
+
+  /**
+   * Get the sink of the deadletter type configured in the import options.
+   *
+   * @param options Import options
+   * @return deadletter sink, or null if failed elements are not written to any deadletter
+   * @throws IllegalArgumentException if the deadletter type is not supported, or its destination is
+   *     not configured
+   */
+  @Nullable
+  public static DeadletterSink getDeadletterSink(ImportOptions options) {
+    switch (options.getDeadLetterType()) {
+      case "bigquery":
+        // For backward compatibility, failed elements are only written if a table is configured
+        if (options.getDeadLetterTableSpec() == null) {
+          return null;
+        }
+        return new BigQueryDeadletterSink(options.getDeadLetterTableSpec());
+      case "kafka":
+        if (options.getDeadLetterKafkaBootstrapServers() == null
+            || options.getDeadLetterKafkaTopic() == null) {
+          throw new IllegalArgumentException(
+              "deadLetterKafkaBootstrapServers and deadLetterKafkaTopic are required for the kafka deadletter type.");
+        }
+        return new KafkaDeadletterSink(
+            options.getDeadLetterKafkaBootstrapServers(), options.getDeadLetterKafkaTopic());
+      case "file":
+        if (options.getDeadLetterFilePathPrefix() == null) {
+          throw new IllegalArgumentException(
+              "deadLetterFilePathPrefix is required for the file deadletter type.");
+        }
+        return new FileDeadletterSink(options.getDeadLetterFilePathPrefix());
+      case "none":
+        return null;
+      default:
+        throw new IllegalArgumentException(
+            String.format("Unsupported deadletter type '%s'.", options.getDeadLetterType()));
+    }
+  }
+}
@@ -55,6 +55,17 @@ public class SpecUtil {
     return stores;
   }
 
+  public static List<FeatureSetSpec> parseFeatureSetSpecJsonList(List<String> jsonList)
+      throws InvalidProtocolBufferException {
+    List<FeatureSetSpec> featureSetSpecs = new ArrayList<>();
+    for (String json : jsonList) {
+      FeatureSetSpec.Builder builder = FeatureSetSpec.newBuilder();
+      JsonFormat.parser().merge(json, builder);
+      featureSetSpecs.add(builder.build());
+    }
+    return featureSetSpecs;
+  }
+
   public static Source parseSourceJson(String jsonSource) throws InvalidProtocolBufferException {
     Source.Builder builder = Source.newBuilder();
     JsonFormat.parser().merge(jsonSource, builder);
@@ -21,13 +21,20 @@ import static feast.common.models.FeatureSet.getFeatureSetStringRef;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.Durations;
 import com.google.protobuf.util.JsonFormat;
+import com.google.protobuf.util.Timestamps;
+import feast.ingestion.options.BZip2Compressor;
 import feast.ingestion.options.ImportOptions;
 import feast.proto.core.FeatureSetProto.EntitySpec;
 import feast.proto.core.FeatureSetProto.FeatureSet;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.FeatureSetProto.WindowedAggregation;
+import feast.proto.core.FeatureSetProto.WindowedAggregation.AggregationType;
 import feast.proto.core.IngestionJobProto;
+import feast.proto.core.SourceProto.FileSourceConfig;
+import feast.proto.core.SourceProto.FileSourceConfig.FileFormat;
 import feast.proto.core.SourceProto.KafkaSourceConfig;
 import feast.proto.core.SourceProto.Source;
 import feast.proto.core.SourceProto.SourceType;
@@ -38,6 +45,7 @@ import feast.proto.core.StoreProto.Store.Subscription;
 import feast.proto.storage.RedisProto.RedisKey;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.proto.types.FieldProto;
+import feast.proto.types.ValueProto.Value;
 import feast.proto.types.ValueProto.ValueType.Enum;
 import feast.test.TestUtil;
 import feast.test.TestUtil.LocalKafka;
@@ -47,6 +55,7 @@ import io.lettuce.core.RedisURI;
 import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.api.sync.RedisCommands;
 import io.lettuce.core.codec.ByteArrayCodec;
+import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -56,6 +65,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.beam.repackaged.core.org.apache.commons.lang3.tuple.Pair;
 import org.apache.beam.sdk.PipelineResult;
 import org.apache.beam.sdk.PipelineResult.State;
@@ -65,7 +80,9 @@ import org.joda.time.Duration;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -102,6 +119,8 @@ public class ImportJobTest {
   // Max duration to wait until the import job finishes writing to Store.
   private static final int IMPORT_JOB_MAX_RUN_DURATION_SEC = 300;
 
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
   @BeforeClass
   public static void setup() throws IOException, InterruptedException {
     LocalKafka.start(
@@ -195,6 +214,9 @@ public class ImportJobTest {
         JsonFormat.printer().print(specsStreamingUpdateConfig));
     options.setSourceJson(JsonFormat.printer().print(featureSource));
     options.setStoreJson(Collections.singletonList(JsonFormat.printer().print(redis)));
+    options.setFeatureSetJson(
+        new BZip2Compressor<String>(String::getBytes)
+            .compress(JsonFormat.printer().omittingInsignificantWhitespace().print(spec)));
     options.setDefaultFeastProject("myproject");
     options.setProject("");
     options.setBlockOnRun(false);
@@ -291,4 +313,109 @@ public class ImportJobTest {
         });
     redisClient.shutdown();
   }
+
+  @Test
+  public void runPipeline_ShouldWriteLatestFeaturesWithAggregationsToRedis()
+      throws IOException, InterruptedException {
+    long startMillis = 1590000000000L;
+    Schema schema =
+        SchemaBuilder.record("driver")
+            .fields()
+            .requiredLong("driver_id")
+            .requiredLong("trips")
+            .requiredLong("event_timestamp")
+            .endRecord();
+    File sourceFile = folder.newFile("driver.avro");
+    try (DataFileWriter<GenericRecord> writer =
+        new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+      writer.create(schema, sourceFile);
+      long[][] rows = {{1, 2}, {4, 3}, {12, 5}};
+      for (long[] row : rows) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("driver_id", 1L);
+        record.put("trips", row[1]);
+        record.put("event_timestamp", startMillis + row[0] * 60000L);
+        writer.append(record);
+      }
+    }
+
+    Source featureSource =
+        Source.newBuilder()
+            .setType(SourceType.FILE)
+            .setFileSourceConfig(
+                FileSourceConfig.newBuilder()
+                    .setFilePattern(sourceFile.getPath())
+                    .setFormat(FileFormat.AVRO)
+                    .setFeatureSet("driver")
+                    .setEventTimestampColumn("event_timestamp"))
+            .build();
+    FeatureSetSpec spec =
+        FeatureSetSpec.newBuilder()
+            .setName("driver")
+            .setProject("myproject")
+            .addEntities(EntitySpec.newBuilder().setName("driver_id").setValueType(Enum.INT64))
+            .addFeatures(FeatureSpec.newBuilder().setName("trips").setValueType(Enum.INT64))
+            .addFeatures(
+                FeatureSpec.newBuilder()
+                    .setName("trips_count")
+                    .setValueType(Enum.INT64)
+                    .setAggregation(
+                        WindowedAggregation.newBuilder()
+                            .setType(AggregationType.COUNT)
+                            .setSourceFeature("trips")
+                            .setWindow(Durations.fromSeconds(600))))
+            .setSource(featureSource)
+            .build();
+    Store redis =
+        Store.newBuilder()
+            .setName(StoreType.REDIS.toString())
+            .setType(StoreType.REDIS)
+            .setRedisConfig(
+                RedisConfig.newBuilder().setHost(REDIS_HOST).setPort(REDIS_PORT).build())
+            .addSubscriptions(
+                Subscription.newBuilder()
+                    .setProject(spec.getProject())
+                    .setName(spec.getName())
+                    .build())
+            .build();
+
+    ImportOptions options = PipelineOptionsFactory.create().as(ImportOptions.class);
+    options.setSpecsStreamingUpdateConfigJson("{}");
+    options.setSourceJson(JsonFormat.printer().print(featureSource));
+    options.setStoreJson(Collections.singletonList(JsonFormat.printer().print(redis)));
+    options.setFeatureSetJson(
+        new BZip2Compressor<String>(String::getBytes)
+            .compress(JsonFormat.printer().omittingInsignificantWhitespace().print(spec)));
+    options.setDefaultFeastProject("myproject");
+    options.setProject("");
+    options.setBlockOnRun(false);
+
+    ImportJob.runPipeline(options).waitUntilFinish();
+
+    // Rows are counted in the windows ending at minutes 10 and 20, as no row is left in the window
+    // ending at minute 30. Raw rows are written with the latest aggregations, and the aggregated
+    // row of the last window with the latest raw features, so that neither clears the other.
+    RedisKey redisKey =
+        RedisKey.newBuilder()
+            .setFeatureSet("myproject/driver")
+            .addEntities(
+                FieldProto.Field.newBuilder()
+                    .setName("driver_id")
+                    .setValue(Value.newBuilder().setInt64Val(1)))
+            .build();
+    FeatureRow expected =
+        FeatureRow.newBuilder()
+            .setEventTimestamp(Timestamps.fromMillis(startMillis + 20 * 60000L))
+            .addFields(FieldProto.Field.newBuilder().setValue(Value.newBuilder().setInt64Val(5)))
+            .addFields(FieldProto.Field.newBuilder().setValue(Value.newBuilder().setInt64Val(1)))
+            .build();
+    RedisClient redisClient =
+        RedisClient.create(new RedisURI(REDIS_HOST, REDIS_PORT, java.time.Duration.ofMillis(2000)));
+    StatefulRedisConnection<byte[], byte[]> connection = redisClient.connect(new ByteArrayCodec());
+    byte[] actual = connection.sync().get(redisKey.toByteArray());
+    redisClient.shutdown();
+
+    Assert.assertNotNull("Missing key in Redis.", actual);
+    Assert.assertEquals(expected, FeatureRow.parseFrom(actual));
+  }
 }
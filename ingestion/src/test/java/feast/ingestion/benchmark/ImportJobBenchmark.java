@@ -0,0 +1,455 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.benchmark;
+
+import static feast.common.models.FeatureSet.getFeatureSetStringRef;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.google.protobuf.util.JsonFormat;
+import feast.ingestion.ImportJob;
+import feast.ingestion.coders.FeatureRowCoder;
+import feast.ingestion.options.BZip2Compressor;
+import feast.ingestion.options.ImportOptions;
+import feast.ingestion.transform.ValidateAndAllocateFeatureRows;
+import feast.ingestion.transform.metrics.WriteSuccessMetricsTransform;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.IngestionJobProto.SpecsStreamingUpdateConfig;
+import feast.proto.core.SourceProto.KafkaSourceConfig;
+import feast.proto.core.SourceProto.Source;
+import feast.proto.core.SourceProto.SourceType;
+import feast.proto.core.StoreProto.Store;
+import feast.proto.core.StoreProto.Store.RedisConfig;
+import feast.proto.core.StoreProto.Store.StoreType;
+import feast.proto.core.StoreProto.Store.Subscription;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.ValueProto.ValueType;
+import feast.storage.api.specs.CompiledSpecRegistry;
+import feast.storage.api.writer.FailedElement;
+import feast.storage.connectors.redis.writer.RedisFeatureSink;
+import feast.test.TestUtil;
+import feast.test.TestUtil.LocalKafka;
+import feast.test.TestUtil.LocalRedis;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import org.apache.beam.repackaged.core.org.apache.commons.lang3.tuple.Pair;
+import org.apache.beam.runners.direct.DirectOptions;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.PipelineResult;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.metrics.MetricNameFilter;
+import org.apache.beam.sdk.metrics.MetricQueryResults;
+import org.apache.beam.sdk.metrics.MetricResult;
+import org.apache.beam.sdk.metrics.MetricsFilter;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.joda.time.Duration;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark of the ingestion throughput on the DirectRunner, with an embedded Kafka broker and an
+ * embedded Redis server standing in for the source and the online store.
+ *
+ * <p>Synthetic {@link FeatureRow}s are generated for feature sets of the configured shape, and the
+ * benchmark reports:
+ *
+ * <ul>
+ *   <li>Per-stage timing, by running bounded pipelines with an in-memory source that stop after
+ *       each stage of the import job, i.e. creating the rows, validating and allocating them to the
+ *       store, and writing them to Redis. The time of a stage is the difference between the time of
+ *       the pipelines with and without it, using the best of the configured iterations.
+ *   <li>Bytes shuffled, i.e. the size of the rows allocated to the store once encoded with the
+ *       coder of the import job, since the Redis writer groups them into batches. The size of the
+ *       rows encoded as protobuf is reported as well, for comparison.
+ *   <li>End-to-end throughput of {@link ImportJob#runPipeline(ImportOptions)}, from the time the
+ *       first row is published to Kafka until every row is written to Redis.
+ * </ul>
+ *
+ * <p>The benchmark is not run with the unit tests. Run it with e.g. {@code mvn test -pl ingestion
+ * -Dtest=ImportJobBenchmark -DfailIfNoTests=false -Dbenchmark.rows=200000}. Shapes are configured
+ * with the following system properties:
+ *
+ * <ul>
+ *   <li>{@code benchmark.rows}: number of rows, 100000 by default
+ *   <li>{@code benchmark.featureSets}: number of feature sets the rows are spread over, 1 by
+ *       default
+ *   <li>{@code benchmark.entities}: number of INT64 entities of every feature set, 2 by default
+ *   <li>{@code benchmark.features}: number of features of every feature set, 10 by default
+ *   <li>{@code benchmark.featureTypes}: comma separated value types the features cycle through,
+ *       {@code INT64,DOUBLE,STRING,FLOAT_LIST} by default
+ *   <li>{@code benchmark.stringSize}: number of characters of string and bytes values, 8 by default
+ *   <li>{@code benchmark.iterations}: number of runs of every staged pipeline, 3 by default
+ *   <li>{@code benchmark.endToEnd}: whether to run the end-to-end benchmark with Kafka, true by
+ *       default
+ * </ul>
+ */
+public class ImportJobBenchmark {
+
+  private static final Logger log = LoggerFactory.getLogger(ImportJobBenchmark.class);
+
+  private static final String PROJECT = "benchmark";
+
+  private static final TupleTag<FailedElement> FAILURE_TAG = new TupleTag<FailedElement>() {};
+
+  private static final String KAFKA_HOST = "localhost";
+  private static final int KAFKA_PORT = 19093;
+  private static final String KAFKA_BOOTSTRAP_SERVERS = KAFKA_HOST + ":" + KAFKA_PORT;
+  private static final String KAFKA_TOPIC = "benchmark_rows";
+  private static final String KAFKA_SPECS_TOPIC = "benchmark_specs";
+  private static final String KAFKA_SPECS_ACK_TOPIC = "benchmark_specs_ack";
+  private static final String ZOOKEEPER_HOST = "localhost";
+  private static final int ZOOKEEPER_PORT = 2183;
+
+  private static final String REDIS_HOST = "localhost";
+  private static final int REDIS_PORT = 6381;
+
+  // Expected time taken for the import job to be ready to receive Feature Row input.
+  private static final Duration IMPORT_JOB_READY_DURATION = Duration.standardSeconds(10);
+  private static final Duration IMPORT_JOB_CHECK_INTERVAL = Duration.millis(200);
+  private static final Duration IMPORT_JOB_MAX_RUN_DURATION = Duration.standardMinutes(30);
+
+  /** Stages of the import job, in order. Every staged pipeline includes the previous stages. */
+  enum Stage {
+    CREATE_ROWS,
+    VALIDATE_AND_ALLOCATE,
+    WRITE_TO_REDIS
+  }
+
+  private final int rowCount = Integer.getInteger("benchmark.rows", 100000);
+  private final int featureSetCount = Integer.getInteger("benchmark.featureSets", 1);
+  private final int entityCount = Integer.getInteger("benchmark.entities", 2);
+  private final int featureCount = Integer.getInteger("benchmark.features", 10);
+  private final List<ValueType.Enum> featureTypes =
+      Arrays.stream(
+              System.getProperty("benchmark.featureTypes", "INT64,DOUBLE,STRING,FLOAT_LIST")
+                  .split(","))
+          .map(type -> ValueType.Enum.valueOf(type.trim()))
+          .collect(Collectors.toList());
+  private final int stringSize = Integer.getInteger("benchmark.stringSize", 8);
+  private final int iterations = Integer.getInteger("benchmark.iterations", 3);
+  private final boolean endToEnd =
+      Boolean.parseBoolean(System.getProperty("benchmark.endToEnd", "true"));
+
+  @Test
+  public void benchmark() throws Exception {
+    List<FeatureSetSpec> specs = createFeatureSetSpecs();
+    log.info("Generating {} feature rows of {} feature set(s) ...", rowCount, specs.size());
+    List<FeatureRow> featureRows = new ArrayList<>(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      featureRows.add(TestUtil.createRandomFeatureRow(specs.get(i % specs.size()), stringSize));
+    }
+    Store store = createStore(specs);
+
+    StringBuilder report = new StringBuilder();
+    report.append(
+        String.format(
+            "%nImport job benchmark: %d rows, %d feature set(s) of %d entities and %d features %s%n",
+            rowCount, specs.size(), entityCount, featureCount, featureTypes));
+    reportBytes(report, specs, featureRows);
+
+    LocalRedis.start(REDIS_PORT);
+    try {
+      reportStages(report, specs, store, featureRows);
+      if (endToEnd) {
+        reportEndToEnd(report, specs, store, featureRows);
+      }
+    } finally {
+      LocalRedis.stop();
+    }
+    log.info(report.toString());
+  }
+
+  private List<FeatureSetSpec> createFeatureSetSpecs() {
+    List<FeatureSetSpec> specs = new ArrayList<>();
+    for (int i = 0; i < featureSetCount; i++) {
+      FeatureSetSpec.Builder spec =
+          FeatureSetSpec.newBuilder()
+              .setProject(PROJECT)
+              .setName("feature_set_" + i)
+              .setVersion(1)
+              .setSource(
+                  Source.newBuilder()
+                      .setType(SourceType.KAFKA)
+                      .setKafkaSourceConfig(
+                          KafkaSourceConfig.newBuilder()
+                              .setBootstrapServers(KAFKA_BOOTSTRAP_SERVERS)
+                              .setTopic(KAFKA_TOPIC)));
+      for (int entity = 0; entity < entityCount; entity++) {
+        spec.addEntities(
+            EntitySpec.newBuilder().setName("entity_" + entity).setValueType(ValueType.Enum.INT64));
+      }
+      for (int feature = 0; feature < featureCount; feature++) {
+        spec.addFeatures(
+            FeatureSpec.newBuilder()
+                .setName("feature_" + feature)
+                .setValueType(featureTypes.get(feature % featureTypes.size())));
+      }
+      specs.add(spec.build());
+    }
+    return specs;
+  }
+
+  private static Store createStore(List<FeatureSetSpec> specs) {
+    Store.Builder store =
+        Store.newBuilder()
+            .setName("benchmark_redis")
+            .setType(StoreType.REDIS)
+            .setRedisConfig(RedisConfig.newBuilder().setHost(REDIS_HOST).setPort(REDIS_PORT));
+    for (FeatureSetSpec spec : specs) {
+      store.addSubscriptions(
+          Subscription.newBuilder().setProject(spec.getProject()).setName(spec.getName()));
+    }
+    return store.build();
+  }
+
+  private void reportBytes(
+      StringBuilder report, List<FeatureSetSpec> specs, List<FeatureRow> featureRows)
+      throws CoderException {
+    ProtoCoder<FeatureRow> protoCoder = ProtoCoder.of(FeatureRow.class);
+    FeatureRowCoder featureRowCoder = FeatureRowCoder.of(specs);
+    long protoBytes = 0;
+    long shuffledBytes = 0;
+    for (FeatureRow featureRow : featureRows) {
+      protoBytes += CoderUtils.encodeToByteArray(protoCoder, featureRow).length;
+      shuffledBytes += CoderUtils.encodeToByteArray(featureRowCoder, featureRow).length;
+    }
+    report.append(
+        String.format(
+            "Bytes shuffled: %d (%.1f per row), %d (%.1f per row) encoded as protobuf%n",
+            shuffledBytes,
+            (double) shuffledBytes / rowCount,
+            protoBytes,
+            (double) protoBytes / rowCount));
+  }
+
+  private void reportStages(
+      StringBuilder report, List<FeatureSetSpec> specs, Store store, List<FeatureRow> featureRows) {
+    long previousMillis = 0;
+    for (Stage stage : Stage.values()) {
+      long bestMillis = Long.MAX_VALUE;
+      for (int i = 0; i < iterations; i++) {
+        log.info("Running pipeline until stage {}, iteration {} ...", stage, i + 1);
+        bestMillis = Math.min(bestMillis, runStages(stage, specs, store, featureRows));
+      }
+      long stageMillis = Math.max(bestMillis - previousMillis, 0);
+      report.append(
+          String.format(
+              "Stage %-21s %8d ms (cumulative %8d ms, %10.0f rows/s)%n",
+              stage, stageMillis, bestMillis, rowCount * 1000.0 / Math.max(bestMillis, 1)));
+      previousMillis = bestMillis;
+    }
+  }
+
+  /**
+   * The checks of the DirectRunner that elements are not mutated and can be encoded are disabled,
+   * since they are not performed by other runners and would otherwise dominate the timings.
+   */
+  private static ImportOptions createOptions() {
+    ImportOptions options = PipelineOptionsFactory.create().as(ImportOptions.class);
+    options.setJobName("import-job-benchmark");
+    options.as(DirectOptions.class).setEnforceImmutability(false);
+    options.as(DirectOptions.class).setEnforceEncodability(false);
+    return options;
+  }
+
+  /** @return duration in milliseconds of a bounded pipeline running up to the given stage */
+  private long runStages(
+      Stage lastStage, List<FeatureSetSpec> specs, Store store, List<FeatureRow> featureRows) {
+    ImportOptions options = createOptions();
+    Pipeline pipeline = Pipeline.create(options);
+
+    PCollection<KV<String, FeatureSetSpec>> featureSetSpecs =
+        pipeline.apply(
+            "CreateFeatureSetSpecs",
+            Create.of(
+                    specs.stream()
+                        .map(spec -> KV.of(getFeatureSetStringRef(spec), spec))
+                        .collect(Collectors.toList()))
+                .withCoder(KvCoder.of(StringUtf8Coder.of(), ProtoCoder.of(FeatureSetSpec.class))));
+    PCollection<FeatureRow> rows =
+        pipeline.apply(
+            "CreateFeatureRows", Create.of(featureRows).withCoder(ProtoCoder.of(FeatureRow.class)));
+
+    if (lastStage.compareTo(Stage.VALIDATE_AND_ALLOCATE) >= 0) {
+      PCollectionView<CompiledSpecRegistry> specsView =
+          featureSetSpecs.apply("GlobalSpecView", CompiledSpecRegistry.asSingletonView());
+      TupleTag<FeatureRow> storeTag = new TupleTag<>();
+      PCollectionTuple allocatedRows =
+          rows.apply(
+              ValidateAndAllocateFeatureRows.newBuilder()
+                  .setDefaultProject(PROJECT)
+                  .setFeatureSetSpecs(specsView)
+                  .setStores(Collections.singletonList(store))
+                  .setStoreTags(Collections.singletonMap(store, storeTag))
+                  .setFailureTag(FAILURE_TAG)
+                  .setFeatureRowCoder(FeatureRowCoder.of(specs))
+                  .build());
+
+      if (lastStage.compareTo(Stage.WRITE_TO_REDIS) >= 0) {
+        allocatedRows
+            .get(storeTag)
+            .apply(
+                "WriteFeatureRowToStore",
+                RedisFeatureSink.fromConfig(store.getRedisConfig(), featureSetSpecs).writer());
+      }
+    }
+
+    long startMillis = System.currentTimeMillis();
+    pipeline.run().waitUntilFinish();
+    return System.currentTimeMillis() - startMillis;
+  }
+
+  private void reportEndToEnd(
+      StringBuilder report, List<FeatureSetSpec> specs, Store store, List<FeatureRow> featureRows)
+      throws IOException, InterruptedException {
+    LocalKafka.start(
+        KAFKA_HOST,
+        KAFKA_PORT,
+        (short) 1,
+        true,
+        ZOOKEEPER_HOST,
+        ZOOKEEPER_PORT,
+        Files.createTempDir().getAbsolutePath());
+    try {
+      Source source = specs.get(0).getSource();
+      SpecsStreamingUpdateConfig specsStreamingUpdateConfig =
+          SpecsStreamingUpdateConfig.newBuilder()
+              .setSource(
+                  KafkaSourceConfig.newBuilder()
+                      .setBootstrapServers(KAFKA_BOOTSTRAP_SERVERS)
+                      .setTopic(KAFKA_SPECS_TOPIC))
+              .setAck(
+                  KafkaSourceConfig.newBuilder()
+                      .setBootstrapServers(KAFKA_BOOTSTRAP_SERVERS)
+                      .setTopic(KAFKA_SPECS_ACK_TOPIC))
+              .build();
+      StringBuilder featureSetJson = new StringBuilder();
+      for (FeatureSetSpec spec : specs) {
+        featureSetJson
+            .append(JsonFormat.printer().omittingInsignificantWhitespace().print(spec))
+            .append('\n');
+      }
+
+      ImportOptions options = createOptions();
+      options.setSpecsStreamingUpdateConfigJson(
+          JsonFormat.printer().print(specsStreamingUpdateConfig));
+      options.setSourceJson(JsonFormat.printer().print(source));
+      options.setStoreJson(Collections.singletonList(JsonFormat.printer().print(store)));
+      options.setFeatureSetJson(
+          new BZip2Compressor<String>(String::getBytes).compress(featureSetJson.toString()));
+      options.setDefaultFeastProject(PROJECT);
+      options.setProject("");
+      options.setBlockOnRun(false);
+
+      log.info("Starting import job ...");
+      PipelineResult pipelineResult = ImportJob.runPipeline(options);
+      Thread.sleep(IMPORT_JOB_READY_DURATION.getMillis());
+      TestUtil.publishToKafka(
+          KAFKA_BOOTSTRAP_SERVERS,
+          KAFKA_SPECS_TOPIC,
+          specs.stream()
+              .map(spec -> Pair.of(getFeatureSetStringRef(spec), spec))
+              .collect(ImmutableList.toImmutableList()),
+          ByteArraySerializer.class,
+          10);
+      Thread.sleep(IMPORT_JOB_READY_DURATION.getMillis());
+
+      log.info("Publishing {} feature rows to Kafka ...", featureRows.size());
+      long startMillis = System.currentTimeMillis();
+      publishFeatureRows(featureRows);
+      long publishedMillis = System.currentTimeMillis();
+      long written = waitUntilRowsAreWritten(pipelineResult, featureRows.size());
+      long endMillis = System.currentTimeMillis();
+      pipelineResult.cancel();
+
+      report.append(
+          String.format(
+              "End-to-end: %d of %d rows written in %d ms (%.0f rows/s), published in %d ms%n",
+              written,
+              featureRows.size(),
+              endMillis - startMillis,
+              written * 1000.0 / Math.max(endMillis - startMillis, 1),
+              publishedMillis - startMillis));
+    } finally {
+      LocalKafka.stop();
+    }
+  }
+
+  /** Publishes rows without waiting for every acknowledgement, unlike TestUtil#publishToKafka. */
+  private static void publishFeatureRows(List<FeatureRow> featureRows) {
+    Properties properties = new Properties();
+    properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, KAFKA_BOOTSTRAP_SERVERS);
+    properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+    properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+    properties.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+    try (Producer<String, byte[]> producer = new KafkaProducer<>(properties)) {
+      for (FeatureRow featureRow : featureRows) {
+        producer.send(new ProducerRecord<>(KAFKA_TOPIC, "", featureRow.toByteArray()));
+      }
+      producer.flush();
+    }
+  }
+
+  /** @return number of rows written to the store, once all rows are written or on timeout */
+  private static long waitUntilRowsAreWritten(PipelineResult pipelineResult, long rows)
+      throws InterruptedException {
+    long deadlineMillis = System.currentTimeMillis() + IMPORT_JOB_MAX_RUN_DURATION.getMillis();
+    long written = 0;
+    while (written < rows && System.currentTimeMillis() < deadlineMillis) {
+      Thread.sleep(IMPORT_JOB_CHECK_INTERVAL.getMillis());
+      MetricQueryResults metrics =
+          pipelineResult
+              .metrics()
+              .queryMetrics(
+                  MetricsFilter.builder()
+                      .addNameFilter(
+                          MetricNameFilter.named(
+                              WriteSuccessMetricsTransform.METRIC_NAMESPACE,
+                              WriteSuccessMetricsTransform.ELEMENTS_WRITTEN_METRIC))
+                      .build());
+      written = 0;
+      for (MetricResult<Long> counter : metrics.getCounters()) {
+        written += counter.getAttempted();
+      }
+    }
+    return written;
+  }
+}
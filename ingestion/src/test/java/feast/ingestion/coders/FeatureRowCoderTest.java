@@ -0,0 +1,110 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.coders;
+
+import static org.junit.Assert.*;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.StringList;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType;
+import java.util.Collections;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.SerializableUtils;
+import org.junit.Test;
+
+public class FeatureRowCoderTest {
+
+  private FeatureRowCoder coder =
+      FeatureRowCoder.of(
+          Collections.singletonList(
+              FeatureSetSpec.newBuilder()
+                  .setProject("project")
+                  .setName("feature_set")
+                  .addEntities(
+                      EntitySpec.newBuilder().setName("entity").setValueType(ValueType.Enum.INT64))
+                  .addFeatures(
+                      FeatureSpec.newBuilder()
+                          .setName("feature1")
+                          .setValueType(ValueType.Enum.STRING_LIST))
+                  .addFeatures(
+                      FeatureSpec.newBuilder()
+                          .setName("feature2")
+                          .setValueType(ValueType.Enum.BYTES))
+                  .build()));
+
+  private FeatureRow.Builder row =
+      FeatureRow.newBuilder()
+          .setFeatureSet("project/feature_set")
+          .setEventTimestamp(Timestamp.newBuilder().setSeconds(1590000000).setNanos(12345))
+          .setIngestionId("ingestion")
+          .addFields(
+              Field.newBuilder()
+                  .setName("feature2")
+                  .setValue(Value.newBuilder().setBytesVal(ByteString.copyFromUtf8("b"))))
+          .addFields(Field.newBuilder().setName("feature1"))
+          .addFields(
+              Field.newBuilder()
+                  .setName("feature1")
+                  .setValue(
+                      Value.newBuilder()
+                          .setStringListVal(StringList.newBuilder().addVal("a").addVal("b"))))
+          .addFields(
+              Field.newBuilder().setName("entity").setValue(Value.newBuilder().setInt64Val(-1)));
+
+  @Test
+  public void shouldEncodeRowsOfKnownFeatureSetCompactly() throws Exception {
+    FeatureRow featureRow = row.build();
+
+    CoderProperties.coderDecodeEncodeEqual(coder, featureRow);
+    assertTrue(
+        CoderUtils.encodeToByteArray(coder, featureRow).length
+            < CoderUtils.encodeToByteArray(ProtoCoder.of(FeatureRow.class), featureRow).length);
+  }
+
+  @Test
+  public void shouldFallbackToProtoEncodingForUnknownSpecs() throws Exception {
+    CoderProperties.coderDecodeEncodeEqual(
+        coder, row.clone().setFeatureSet("project/other_feature_set").build());
+    CoderProperties.coderDecodeEncodeEqual(
+        coder,
+        row.clone()
+            .addFields(
+                Field.newBuilder().setName("unknown").setValue(Value.newBuilder().setInt32Val(1)))
+            .build());
+    CoderProperties.coderDecodeEncodeEqual(coder, FeatureRow.getDefaultInstance());
+  }
+
+  @Test
+  public void shouldDecodeWithDeserializedCoder() throws Exception {
+    FeatureRow featureRow = row.build();
+    FeatureRowCoder deserializedCoder = SerializableUtils.clone(coder);
+
+    assertEquals(
+        featureRow,
+        CoderUtils.decodeFromByteArray(
+            deserializedCoder, CoderUtils.encodeToByteArray(coder, featureRow)));
+  }
+}
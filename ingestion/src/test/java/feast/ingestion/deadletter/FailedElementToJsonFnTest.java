@@ -0,0 +1,66 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.deadletter;
+
+import static org.junit.Assert.assertEquals;
+
+import feast.storage.api.writer.FailedElement;
+import org.joda.time.Instant;
+import org.junit.Test;
+
+public class FailedElementToJsonFnTest {
+
+  private FailedElementToJsonFn fn = new FailedElementToJsonFn();
+
+  @Test
+  public void shouldConvertFailedElementToSingleLineJson() {
+    FailedElement element =
+        FailedElement.newBuilder()
+            .setTimestamp(new Instant(1590000000000L))
+            .setJobName("job")
+            .setProjectName("project")
+            .setFeatureSetName("driver")
+            .setTransformName("ValidateFeatureRow")
+            .setPayload("payload")
+            .setErrorMessage("Invalid \"trips\"")
+            .setStackTrace("java.lang.IllegalArgumentException\n\tat Foo.bar(Foo.java:1)")
+            .build();
+
+    assertEquals(
+        "{\"timestamp\":\"2020-05-20T18:40:00.000Z\",\"job_name\":\"job\","
+            + "\"project_name\":\"project\",\"feature_set_name\":\"driver\","
+            + "\"transform_name\":\"ValidateFeatureRow\",\"payload\":\"payload\","
+            + "\"error_message\":\"Invalid \\\"trips\\\"\","
+            + "\"stack_trace\":\"java.lang.IllegalArgumentException\\n\\tat Foo.bar(Foo.java:1)\"}",
+        fn.apply(element));
+  }
+
+  @Test
+  public void shouldOmitFieldsWithoutValue() {
+    FailedElement element =
+        FailedElement.newBuilder()
+            .setTimestamp(new Instant(1590000000000L))
+            .setTransformName("KafkaRecordToFeatureRow")
+            .setErrorMessage("Invalid record")
+            .build();
+
+    assertEquals(
+        "{\"timestamp\":\"2020-05-20T18:40:00.000Z\","
+            + "\"transform_name\":\"KafkaRecordToFeatureRow\",\"error_message\":\"Invalid record\"}",
+        fn.apply(element));
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.deadletter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.endsWith;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import feast.storage.api.writer.FailedElement;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileDeadletterSinkTest {
+
+  // Start of a window of one minute
+  private static final long START_MILLIS = 1590000000000L;
+
+  @Rule public transient TestPipeline p = TestPipeline.create();
+
+  @Rule public transient TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void shouldWriteFailedElementsOfEachWindowToOneFile() throws IOException {
+    FileDeadletterSink sink = new FileDeadletterSink(folder.getRoot().getPath() + "/deadletter");
+    sink.prepareWrite();
+
+    p.apply(
+            Create.timestamped(
+                TimestampedValue.of(failedElement("first"), new Instant(START_MILLIS)),
+                TimestampedValue.of(failedElement("second"), new Instant(START_MILLIS + 59999)),
+                TimestampedValue.of(failedElement("third"), new Instant(START_MILLIS + 60000))))
+        .apply(sink.write());
+    p.run();
+
+    Gson gson = new Gson();
+    List<List<String>> errorMessagesPerFile = new ArrayList<>();
+    for (File file : folder.getRoot().listFiles((dir, name) -> name.startsWith("deadletter"))) {
+      assertThat(file.getName(), endsWith(".json"));
+      errorMessagesPerFile.add(
+          Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).stream()
+              .map(line -> gson.fromJson(line, JsonObject.class))
+              .map(json -> json.get("error_message").getAsString())
+              .sorted()
+              .collect(Collectors.toList()));
+    }
+    assertThat(
+        errorMessagesPerFile,
+        containsInAnyOrder(Arrays.asList("first", "second"), Arrays.asList("third")));
+  }
+
+  private static FailedElement failedElement(String errorMessage) {
+    return FailedElement.newBuilder()
+        .setTimestamp(new Instant(START_MILLIS))
+        .setTransformName("ValidateFeatureRow")
+        .setErrorMessage(errorMessage)
+        .build();
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.deadletter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import feast.storage.api.writer.FailedElement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.beam.runners.direct.DirectOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.values.PCollection;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class SampleFailedElementsTest {
+
+  private static final Pattern DROPPED_COUNT = Pattern.compile("^(\\d+) failed elements");
+
+  @Rule
+  public transient TestPipeline p =
+      TestPipeline.fromOptions(
+          PipelineOptionsFactory.fromArgs("--targetParallelism=1").as(DirectOptions.class));
+
+  @Test
+  public void shouldClassifyErrorsByTransformFeatureSetAndExceptionType() {
+    FailedElement.Builder element =
+        FailedElement.newBuilder()
+            .setTransformName("ValidateFeatureRow")
+            .setProjectName("project")
+            .setFeatureSetName("driver")
+            .setErrorMessage("Field 'trips' has value 1 of the wrong type");
+
+    assertThat(
+        SampleFailedElements.getErrorClass(
+            element
+                .setStackTrace(
+                    "java.lang.IllegalArgumentException: message\n\tat Foo.bar(Foo.java:1)")
+                .build()),
+        equalTo("ValidateFeatureRow/project/driver/java.lang.IllegalArgumentException"));
+    assertThat(
+        SampleFailedElements.getErrorClass(element.setStackTrace(null).build()),
+        equalTo("ValidateFeatureRow/project/driver/"));
+  }
+
+  @Test
+  public void shouldDropAndCountElementsOverTheRateLimit() {
+    List<FailedElement> elements = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      elements.add(
+          FailedElement.newBuilder()
+              .setTransformName("ValidateFeatureRow")
+              .setProjectName("project")
+              .setFeatureSetName("driver")
+              .setErrorMessage(String.format("Invalid row %d", i))
+              .build());
+    }
+
+    PCollection<FailedElement> output =
+        p.apply(Create.of(elements)).apply(SampleFailedElements.create(2));
+
+    PAssert.that(output)
+        .satisfies(
+            sampled -> {
+              long passed = 0;
+              long dropped = 0;
+              for (FailedElement element : sampled) {
+                Matcher matcher = DROPPED_COUNT.matcher(element.getErrorMessage());
+                if (matcher.find()) {
+                  dropped += Long.parseLong(matcher.group(1));
+                } else {
+                  passed++;
+                }
+              }
+              // At most two minutes can start while the elements are processed
+              assertThat(passed, lessThanOrEqualTo(4L));
+              assertThat(passed + dropped, equalTo(20L));
+              return null;
+            });
+    p.run();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps exported metrics in memory, shared by all the exporters of the JVM, so tests can inspect
+ * them without a collector.
+ */
+public class InMemoryMetricsExporter extends MetricsExporter {
+
+  private static final List<Metric> exportedMetrics = new ArrayList<>();
+
+  @Override
+  protected void export(List<Metric> metrics) {
+    synchronized (exportedMetrics) {
+      exportedMetrics.addAll(metrics);
+    }
+  }
+
+  /** @return copy of the metrics exported so far, in the order they were exported */
+  public static List<Metric> getExportedMetrics() {
+    synchronized (exportedMetrics) {
+      return new ArrayList<>(exportedMetrics);
+    }
+  }
+
+  /** Discard the metrics exported so far. */
+  public static void clear() {
+    synchronized (exportedMetrics) {
+      exportedMetrics.clear();
+    }
+  }
+}
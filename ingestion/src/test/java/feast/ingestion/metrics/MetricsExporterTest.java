@@ -0,0 +1,105 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.*;
+
+import com.google.common.io.CharStreams;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsExporterTest {
+
+  private static final int PROMETHEUS_PORT = 19091;
+
+  @Before
+  public void setUp() {
+    InMemoryMetricsExporter.clear();
+  }
+
+  @Test
+  public void shouldOnlyExportMetricsOnFlush() {
+    MetricsExporter exporter = new InMemoryMetricsExporter();
+    exporter.gauge("gauge", 1.5, "feast_store:store");
+    assertTrue(InMemoryMetricsExporter.getExportedMetrics().isEmpty());
+
+    exporter.flush();
+    assertEquals(
+        Collections.singletonList(
+            Metric.of(Metric.Type.GAUGE, "gauge", 1.5, Arrays.asList("feast_store:store"))),
+        InMemoryMetricsExporter.getExportedMetrics());
+  }
+
+  @Test
+  public void shouldSumIncrementsOfTheSameCounterUntilFlush() {
+    MetricsExporter exporter = new InMemoryMetricsExporter();
+    exporter.count("counter", 1, "feast_store:a");
+    exporter.count("counter", 2, "feast_store:b");
+    exporter.count("counter", 3, "feast_store:a");
+    exporter.close();
+
+    assertEquals(
+        Arrays.asList(
+            Metric.of(Metric.Type.COUNT, "counter", 4, Arrays.asList("feast_store:a")),
+            Metric.of(Metric.Type.COUNT, "counter", 2, Arrays.asList("feast_store:b"))),
+        InMemoryMetricsExporter.getExportedMetrics());
+  }
+
+  @Test
+  public void shouldServeMetricsToPrometheus() throws IOException {
+    MetricsExporter exporter = MetricsExporterFactory.prometheus(PROMETHEUS_PORT).create();
+    exporter.gauge("feature_value_min", -2, "feast_store:store", "ingestion_job_name:job:1");
+    exporter.count("feature_row_ingested_count", 3, "feast_store:store");
+    exporter.count("feature_row_ingested_count", 4, "feast_store:store");
+    exporter.flush();
+
+    String metrics;
+    try (Reader reader =
+        new InputStreamReader(
+            new URL("http://localhost:" + PROMETHEUS_PORT + "/metrics").openStream(),
+            StandardCharsets.UTF_8)) {
+      metrics = CharStreams.toString(reader);
+    }
+    assertThat(
+        metrics,
+        containsString(
+            "feast_ingestion_feature_value_min{feast_store=\"store\",ingestion_job_name=\"job:1\",} -2.0"));
+    assertThat(
+        metrics,
+        containsString("feast_ingestion_feature_row_ingested_count{feast_store=\"store\",} 7.0"));
+    exporter.close();
+  }
+
+  @Test
+  public void shouldKeepServingPrometheusEndpointWhenExportersAreClosed() throws IOException {
+    MetricsExporter exporter = MetricsExporterFactory.prometheus(PROMETHEUS_PORT).create();
+    MetricsExporter otherExporter = MetricsExporterFactory.prometheus(PROMETHEUS_PORT).create();
+    exporter.close();
+    otherExporter.close();
+
+    new URL("http://localhost:" + PROMETHEUS_PORT + "/metrics").openStream().close();
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform;
+
+import com.google.protobuf.util.Durations;
+import com.google.protobuf.util.Timestamps;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.FeatureSetProto.WindowedAggregation;
+import feast.proto.core.FeatureSetProto.WindowedAggregation.AggregationType;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType;
+import feast.storage.api.specs.CompiledSpecRegistry;
+import java.util.Arrays;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.testing.TestStream;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ComputeWindowedAggregationsTest {
+
+  // Multiple of the periods of the aggregations
+  private static final long START_MILLIS = 1590000000000L;
+
+  @Rule public transient TestPipeline p = TestPipeline.create();
+
+  @Test
+  public void shouldEmitAggregationsAtWindowBoundaries() {
+    FeatureSetSpec spec = driverSpec();
+    FeatureSetSpec otherSpec =
+        FeatureSetSpec.newBuilder()
+            .setProject("project")
+            .setName("other")
+            .addEntities(
+                EntitySpec.newBuilder().setName("driver_id").setValueType(ValueType.Enum.INT64))
+            .addFeatures(
+                FeatureSpec.newBuilder().setName("trips").setValueType(ValueType.Enum.INT64))
+            .build();
+
+    PCollectionView<CompiledSpecRegistry> specView =
+        p.apply(
+                "CreateSpecs",
+                Create.of(KV.of("project/driver", spec), KV.of("project/other", otherSpec))
+                    .withCoder(
+                        KvCoder.of(StringUtf8Coder.of(), ProtoCoder.of(FeatureSetSpec.class))))
+            .apply(CompiledSpecRegistry.asSingletonView());
+
+    PCollection<FeatureRow> output =
+        p.apply(
+                "CreateRows",
+                Create.timestamped(
+                        Arrays.asList(
+                            timestamped(row("driver", 1, 1, 2)),
+                            timestamped(row("driver", 1, 4, 3)),
+                            timestamped(row("driver", 1, 12, 5)),
+                            timestamped(row("driver", 2, 5, 7)),
+                            timestamped(row("driver", 3, 1, 1)),
+                            timestamped(row("driver", 3, 40, 4)),
+                            timestamped(row("project/other", 1, 1, 1))))
+                    .withCoder(ProtoCoder.of(FeatureRow.class)))
+            .apply(
+                ComputeWindowedAggregations.newBuilder()
+                    .setFeatureSetSpecs(specView)
+                    .setDefaultProject("project")
+                    .build());
+
+    PAssert.that(output)
+        .containsInAnyOrder(
+            aggregatedRow(1, 5, 2, 5, 3),
+            aggregatedRow(1, 10, 2, 5, 3),
+            aggregatedRow(1, 15, 1, 5, 5),
+            aggregatedRow(1, 20, 1, 5, 5),
+            aggregatedRow(2, 5, 1, 7, 7),
+            aggregatedRow(2, 10, 1, 7, 7),
+            aggregatedRow(3, 5, 1, 1, 1),
+            aggregatedRow(3, 10, 1, 1, 1),
+            aggregatedRow(3, 40, 1, 4, 4),
+            aggregatedRow(3, 45, 1, 4, 4));
+    p.run();
+  }
+
+  @Test
+  public void shouldEmitInputRowsWithLatestAggregations() {
+    PCollectionView<CompiledSpecRegistry> specView =
+        p.apply(
+                "CreateSpecs",
+                Create.of(KV.of("project/driver", driverSpec()))
+                    .withCoder(
+                        KvCoder.of(StringUtf8Coder.of(), ProtoCoder.of(FeatureSetSpec.class))))
+            .apply(CompiledSpecRegistry.asSingletonView());
+
+    PCollection<FeatureRow> output =
+        p.apply(
+                "CreateRows",
+                TestStream.create(ProtoCoder.of(FeatureRow.class))
+                    .addElements(
+                        timestamped(row("driver", 1, 1, 2)), timestamped(row("driver", 1, 4, 3)))
+                    .advanceWatermarkTo(new Instant(START_MILLIS + 6 * 60000L))
+                    .addElements(timestamped(row("driver", 1, 7, 5)))
+                    .advanceWatermarkToInfinity())
+            .apply(
+                ComputeWindowedAggregations.newBuilder()
+                    .setFeatureSetSpecs(specView)
+                    .setDefaultProject("project")
+                    .setEmitInputRows(true)
+                    .build());
+
+    // Input rows carry the aggregations emitted before they are processed
+    PAssert.that(output)
+        .containsInAnyOrder(
+            row("project/driver", 1, 1, 2),
+            row("project/driver", 1, 4, 3),
+            aggregatedRow(1, 5, 2, 5, 3),
+            row("project/driver", 1, 7, 5)
+                .toBuilder()
+                .addFields(
+                    Field.newBuilder()
+                        .setName("trips_count")
+                        .setValue(Value.newBuilder().setInt64Val(2)))
+                .addFields(
+                    Field.newBuilder()
+                        .setName("trips_sum")
+                        .setValue(Value.newBuilder().setDoubleVal(5)))
+                .build(),
+            aggregatedRow(1, 10, 3, 10, 5),
+            aggregatedRow(1, 15, 1, 5, 5));
+    p.run();
+  }
+
+  private static FeatureSetSpec driverSpec() {
+    return FeatureSetSpec.newBuilder()
+        .setProject("project")
+        .setName("driver")
+        .addEntities(
+            EntitySpec.newBuilder().setName("driver_id").setValueType(ValueType.Enum.INT64))
+        .addFeatures(FeatureSpec.newBuilder().setName("trips").setValueType(ValueType.Enum.INT64))
+        .addFeatures(
+            FeatureSpec.newBuilder()
+                .setName("trips_count")
+                .setValueType(ValueType.Enum.INT64)
+                .setAggregation(
+                    WindowedAggregation.newBuilder()
+                        .setType(AggregationType.COUNT)
+                        .setSourceFeature("trips")
+                        .setWindow(Durations.fromSeconds(600))))
+        .addFeatures(
+            FeatureSpec.newBuilder()
+                .setName("trips_sum")
+                .setValueType(ValueType.Enum.DOUBLE)
+                .setAggregation(
+                    WindowedAggregation.newBuilder()
+                        .setType(AggregationType.SUM)
+                        .setSourceFeature("trips")
+                        .setWindow(Durations.fromSeconds(600))
+                        .setPeriod(Durations.fromSeconds(300))))
+        .build();
+  }
+
+  private static TimestampedValue<FeatureRow> timestamped(FeatureRow featureRow) {
+    return TimestampedValue.of(
+        featureRow, new Instant(Timestamps.toMillis(featureRow.getEventTimestamp())));
+  }
+
+  private static FeatureRow row(String featureSet, long driverId, int minutes, long trips) {
+    return FeatureRow.newBuilder()
+        .setFeatureSet(featureSet)
+        .setEventTimestamp(Timestamps.fromMillis(START_MILLIS + minutes * 60000L))
+        .addFields(
+            Field.newBuilder()
+                .setName("driver_id")
+                .setValue(Value.newBuilder().setInt64Val(driverId)))
+        .addFields(
+            Field.newBuilder().setName("trips").setValue(Value.newBuilder().setInt64Val(trips)))
+        .build();
+  }
+
+  private static FeatureRow aggregatedRow(
+      long driverId, int minutes, long tripsCount, double tripsSum, long trips) {
+    return FeatureRow.newBuilder()
+        .setFeatureSet("project/driver")
+        .setEventTimestamp(Timestamps.fromMillis(START_MILLIS + minutes * 60000L))
+        .addFields(
+            Field.newBuilder()
+                .setName("trips_count")
+                .setValue(Value.newBuilder().setInt64Val(tripsCount)))
+        .addFields(
+            Field.newBuilder()
+                .setName("trips_sum")
+                .setValue(Value.newBuilder().setDoubleVal(tripsSum)))
+        .addFields(
+            Field.newBuilder()
+                .setName("driver_id")
+                .setValue(Value.newBuilder().setInt64Val(driverId)))
+        .addFields(
+            Field.newBuilder().setName("trips").setValue(Value.newBuilder().setInt64Val(trips)))
+        .build();
+  }
+}
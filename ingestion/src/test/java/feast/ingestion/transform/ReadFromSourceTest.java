@@ -0,0 +1,158 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.util.Timestamps;
+import feast.ingestion.transform.ReadFromSource.FeatureRowEventTimestampFn;
+import feast.proto.core.SourceProto.FileSourceConfig;
+import feast.proto.core.SourceProto.FileSourceConfig.FileFormat;
+import feast.proto.core.SourceProto.KafkaConsumerConfig;
+import feast.proto.core.SourceProto.Source;
+import feast.proto.core.SourceProto.SourceType;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.storage.api.writer.FailedElement;
+import java.io.IOException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.io.kafka.KafkaRecord;
+import org.apache.beam.sdk.io.kafka.KafkaTimestampType;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.joda.time.Instant;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReadFromSourceTest {
+
+  private static final TupleTag<FeatureRow> SUCCESS_TAG = new TupleTag<FeatureRow>() {};
+  private static final TupleTag<FailedElement> FAILURE_TAG = new TupleTag<FailedElement>() {};
+
+  @Rule public transient TestPipeline p = TestPipeline.create();
+
+  @Rule public transient TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void shouldReadFeatureRowsFromAvroFiles() throws IOException {
+    Schema schema =
+        SchemaBuilder.record("driver")
+            .fields()
+            .requiredLong("driver_id")
+            .requiredString("event_timestamp")
+            .endRecord();
+    for (int file = 0; file < 2; file++) {
+      try (DataFileWriter<GenericRecord> writer =
+          new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+        writer.create(schema, folder.newFile(String.format("driver-%d.avro", file)));
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("driver_id", (long) file);
+        record.put("event_timestamp", file == 0 ? "2020-05-20T18:40:00Z" : "not a timestamp");
+        writer.append(record);
+      }
+    }
+
+    PCollectionTuple output =
+        p.apply(
+            ReadFromSource.newBuilder()
+                .setSource(
+                    Source.newBuilder()
+                        .setType(SourceType.FILE)
+                        .setFileSourceConfig(
+                            FileSourceConfig.newBuilder()
+                                .setFilePattern(folder.getRoot().getPath() + "/*.avro")
+                                .setFormat(FileFormat.AVRO)
+                                .setFeatureSet("driver")
+                                .setEventTimestampColumn("event_timestamp"))
+                        .build())
+                .setSuccessTag(SUCCESS_TAG)
+                .setFailureTag(FAILURE_TAG)
+                .setDefaultProject("project")
+                .build());
+
+    PAssert.that(output.get(SUCCESS_TAG))
+        .containsInAnyOrder(
+            FeatureRow.newBuilder()
+                .setFeatureSet("project/driver")
+                .setEventTimestamp(Timestamps.fromSeconds(1590000000))
+                .addFields(
+                    Field.newBuilder()
+                        .setName("driver_id")
+                        .setValue(Value.newBuilder().setInt64Val(0)))
+                .build());
+    PAssert.that(output.get(FAILURE_TAG).apply(Count.globally())).containsInAnyOrder(1L);
+    p.run();
+  }
+
+  @Test
+  public void shouldOnlyOverrideConsumerConfigThatIsSet() {
+    KafkaConsumerConfig consumerConfig =
+        KafkaConsumerConfig.newBuilder().setMaxPollRecords(5000).setFetchMinBytes(65536).build();
+
+    assertThat(
+        ReadFromSource.getConsumerConfigUpdates(consumerConfig, "group"),
+        equalTo(
+            ImmutableMap.of(
+                "group.id", "group", "max.poll.records", 5000, "fetch.min.bytes", 65536)));
+  }
+
+  @Test
+  public void shouldExtractEventTimestampOfFeatureRow() {
+    FeatureRow featureRow =
+        FeatureRow.newBuilder()
+            .setFeatureSet("project/feature_set")
+            .addFields(
+                Field.newBuilder().setName("feature").setValue(Value.newBuilder().setInt64Val(1)))
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(1590000000).setNanos(500000000))
+            .build();
+    FeatureRowEventTimestampFn timestampFn = new FeatureRowEventTimestampFn();
+
+    assertThat(
+        timestampFn.apply(record(featureRow.toByteArray())), equalTo(new Instant(1590000000500L)));
+    assertThat(
+        timestampFn.apply(
+            record(featureRow.toBuilder().clearEventTimestamp().build().toByteArray())),
+        equalTo(new Instant(1000L)));
+    assertThat(timestampFn.apply(record(new byte[] {1, 2, 3})), equalTo(new Instant(1000L)));
+  }
+
+  private static KafkaRecord<byte[], byte[]> record(byte[] value) {
+    return new KafkaRecord<>(
+        "topic",
+        0,
+        0,
+        1000L,
+        KafkaTimestampType.CREATE_TIME,
+        new RecordHeaders(),
+        new byte[0],
+        value);
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2019 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.StoreProto;
+import feast.proto.core.StoreProto.Store.Subscription;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType.Enum;
+import feast.storage.api.specs.CompiledSpecRegistry;
+import feast.storage.api.writer.FailedElement;
+import feast.test.TestUtil;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ValidateAndAllocateFeatureRowsTest {
+
+  @Rule public transient TestPipeline p = TestPipeline.create();
+
+  private static final TupleTag<FailedElement> FAILURE_TAG = new TupleTag<FailedElement>() {};
+
+  private FeatureSetSpec newFeatureSetSpec(String name) {
+    return FeatureSetSpec.newBuilder()
+        .setName(name)
+        .setProject("myproject")
+        .addEntities(EntitySpec.newBuilder().setName("entity_id").setValueType(Enum.INT32))
+        .addFeatures(FeatureSpec.newBuilder().setName("feature_1").setValueType(Enum.STRING))
+        .addFeatures(FeatureSpec.newBuilder().setName("feature_2").setValueType(Enum.INT64))
+        .build();
+  }
+
+  private StoreProto.Store newStore(String featureSetName) {
+    return StoreProto.Store.newBuilder()
+        .setName(featureSetName + "_store")
+        .addSubscriptions(
+            Subscription.newBuilder().setProject("myproject").setName(featureSetName).build())
+        .build();
+  }
+
+  @Test
+  public void shouldValidateAndAllocateRowsToSubscribedStores() {
+    FeatureSetSpec fs1 = newFeatureSetSpec("fs_1");
+    FeatureSetSpec fs2 = newFeatureSetSpec("fs_2");
+
+    Map<String, FeatureSetSpec> featureSetSpecs = new HashMap<>();
+    featureSetSpecs.put("myproject/fs_1", fs1);
+    featureSetSpecs.put("myproject/fs_2", fs2);
+
+    StoreProto.Store fs1Store = newStore("fs_1");
+    StoreProto.Store allStore = newStore("*");
+    Map<StoreProto.Store, TupleTag<FeatureRow>> storeTags =
+        ImmutableMap.of(fs1Store, new TupleTag<>(), allStore, new TupleTag<>());
+
+    FeatureRow fs1Row = TestUtil.createRandomFeatureRow(fs1);
+    FeatureRow fs2Row = TestUtil.createRandomFeatureRow(fs2);
+    // Unversioned reference without project, normalized before validation
+    FeatureRow fs2RowWithoutProject = fs2Row.toBuilder().setFeatureSet("fs_2:1").build();
+    FeatureRow invalidRow = FeatureRow.newBuilder().setFeatureSet("myproject/invalid").build();
+
+    PCollectionView<CompiledSpecRegistry> specsView =
+        p.apply("StaticSpecs", Create.of(featureSetSpecs))
+            .apply(CompiledSpecRegistry.asSingletonView());
+
+    PCollectionTuple output =
+        p.apply(Create.of(fs1Row, fs2RowWithoutProject, invalidRow))
+            .setCoder(ProtoCoder.of(FeatureRow.class))
+            .apply(
+                ValidateAndAllocateFeatureRows.newBuilder()
+                    .setDefaultProject("myproject")
+                    .setFeatureSetSpecs(specsView)
+                    .setStores(ImmutableList.of(fs1Store, allStore))
+                    .setStoreTags(storeTags)
+                    .setFailureTag(FAILURE_TAG)
+                    .build());
+
+    PAssert.that(output.get(storeTags.get(fs1Store))).containsInAnyOrder(fs1Row);
+    PAssert.that(output.get(storeTags.get(allStore))).containsInAnyOrder(fs1Row, fs2Row);
+    PAssert.that(output.get(FAILURE_TAG).apply(Count.globally())).containsInAnyOrder(1L);
+
+    p.run();
+  }
+
+  @Test
+  public void shouldExcludeUnregisteredFields() {
+    FeatureSetSpec fs1 = newFeatureSetSpec("fs_1");
+    StoreProto.Store fs1Store = newStore("fs_1");
+    Map<StoreProto.Store, TupleTag<FeatureRow>> storeTags =
+        ImmutableMap.of(fs1Store, new TupleTag<>());
+
+    FeatureRow fs1Row = TestUtil.createRandomFeatureRow(fs1);
+    FeatureRow rowWithExtraField =
+        fs1Row
+            .toBuilder()
+            .addFields(
+                Field.newBuilder()
+                    .setName("extra")
+                    .setValue(Value.newBuilder().setStringVal("hello")))
+            .build();
+
+    PCollectionView<CompiledSpecRegistry> specsView =
+        p.apply("StaticSpecs", Create.of(ImmutableMap.of("myproject/fs_1", fs1)))
+            .apply(CompiledSpecRegistry.asSingletonView());
+
+    PCollectionTuple output =
+        p.apply(Create.of(rowWithExtraField))
+            .setCoder(ProtoCoder.of(FeatureRow.class))
+            .apply(
+                ValidateAndAllocateFeatureRows.newBuilder()
+                    .setDefaultProject("myproject")
+                    .setFeatureSetSpecs(specsView)
+                    .setStores(ImmutableList.of(fs1Store))
+                    .setStoreTags(storeTags)
+                    .setFailureTag(FAILURE_TAG)
+                    .build());
+
+    PAssert.that(output.get(storeTags.get(fs1Store))).containsInAnyOrder(fs1Row);
+
+    p.run();
+  }
+
+  @Test
+  public void shouldNotAllocateRowsToStoresExcludingTheirFeatureSet() {
+    FeatureSetSpec fs1 = newFeatureSetSpec("fs_1");
+    FeatureSetSpec fs2 = newFeatureSetSpec("fs_2");
+    Map<String, FeatureSetSpec> featureSetSpecs =
+        ImmutableMap.of("myproject/fs_1", fs1, "myproject/fs_2", fs2);
+
+    StoreProto.Store excludingStore =
+        StoreProto.Store.newBuilder()
+            .setName("excluding_store")
+            .addSubscriptions(Subscription.newBuilder().setProject("*").setName("*"))
+            .addSubscriptions(
+                Subscription.newBuilder().setProject("myproject").setName("fs_1").setExclude(true))
+            .build();
+    Map<StoreProto.Store, TupleTag<FeatureRow>> storeTags =
+        ImmutableMap.of(excludingStore, new TupleTag<>());
+
+    FeatureRow fs1Row = TestUtil.createRandomFeatureRow(fs1);
+    FeatureRow fs2Row = TestUtil.createRandomFeatureRow(fs2);
+
+    PCollectionView<CompiledSpecRegistry> specsView =
+        p.apply("StaticSpecs", Create.of(featureSetSpecs))
+            .apply(CompiledSpecRegistry.asSingletonView());
+
+    PCollectionTuple output =
+        p.apply(Create.of(fs1Row, fs2Row))
+            .setCoder(ProtoCoder.of(FeatureRow.class))
+            .apply(
+                ValidateAndAllocateFeatureRows.newBuilder()
+                    .setDefaultProject("myproject")
+                    .setFeatureSetSpecs(specsView)
+                    .setStores(ImmutableList.of(excludingStore))
+                    .setStoreTags(storeTags)
+                    .setFailureTag(FAILURE_TAG)
+                    .build());
+
+    PAssert.that(output.get(storeTags.get(excludingStore))).containsInAnyOrder(fs2Row);
+
+    p.run();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import static org.junit.Assert.*;
+
+import com.google.protobuf.util.Timestamps;
+import feast.ingestion.values.FailsafeFeatureRow;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.DoubleList;
+import feast.proto.types.ValueProto.Value;
+import java.util.Arrays;
+import java.util.HashMap;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+
+public class AvroRecordToFeatureRowFnTest {
+
+  private static final Schema SCHEMA =
+      SchemaBuilder.record("driver")
+          .fields()
+          .requiredLong("driver_id")
+          .requiredLong("event_timestamp")
+          .optionalString("city")
+          .optionalDouble("rating")
+          .name("trips")
+          .type()
+          .array()
+          .items()
+          .doubleType()
+          .noDefault()
+          .endRecord();
+
+  private AvroRecordToFeatureRowFn fn =
+      new AvroRecordToFeatureRowFn("project/driver", "event_timestamp");
+
+  @Test
+  public void shouldConvertRecordToFeatureRow() {
+    GenericRecord record = new GenericData.Record(SCHEMA);
+    record.put("driver_id", 1001L);
+    record.put("event_timestamp", 1590000000000L);
+    record.put("city", "SG");
+    record.put("trips", Arrays.asList(1.5, 2.5));
+
+    FailsafeFeatureRow<String, FeatureRow> row = fn.apply(record);
+
+    assertNull(row.getErrorMessage());
+    assertEquals(
+        FeatureRow.newBuilder()
+            .setFeatureSet("project/driver")
+            .setEventTimestamp(Timestamps.fromMillis(1590000000000L))
+            .addFields(
+                Field.newBuilder()
+                    .setName("driver_id")
+                    .setValue(Value.newBuilder().setInt64Val(1001L)))
+            .addFields(
+                Field.newBuilder().setName("city").setValue(Value.newBuilder().setStringVal("SG")))
+            .addFields(Field.newBuilder().setName("rating"))
+            .addFields(
+                Field.newBuilder()
+                    .setName("trips")
+                    .setValue(
+                        Value.newBuilder()
+                            .setDoubleListVal(DoubleList.newBuilder().addVal(1.5).addVal(2.5))))
+            .build(),
+        row.getPayload());
+  }
+
+  @Test
+  public void shouldReturnErrorForUnsupportedColumn() {
+    Schema schema =
+        SchemaBuilder.record("driver")
+            .fields()
+            .requiredLong("event_timestamp")
+            .name("location")
+            .type()
+            .map()
+            .values()
+            .doubleType()
+            .noDefault()
+            .endRecord();
+    GenericRecord record = new GenericData.Record(schema);
+    record.put("event_timestamp", 1590000000000L);
+    record.put("location", new HashMap<String, Double>());
+
+    FailsafeFeatureRow<String, FeatureRow> row = fn.apply(record);
+
+    assertNull(row.getPayload());
+    assertEquals("Column 'location' has unsupported type: MAP", row.getErrorMessage());
+    assertEquals(record.toString(), row.getOriginalPayload());
+  }
+}
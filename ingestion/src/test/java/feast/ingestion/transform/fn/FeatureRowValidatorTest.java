@@ -0,0 +1,105 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import static org.junit.Assert.*;
+
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType;
+import org.junit.Test;
+
+public class FeatureRowValidatorTest {
+
+  private FeatureSetSpec spec =
+      FeatureSetSpec.newBuilder()
+          .setProject("project")
+          .setName("feature_set")
+          .setVersion(2)
+          .addEntities(EntitySpec.newBuilder().setName("entity").setValueType(ValueType.Enum.INT64))
+          .addFeatures(
+              FeatureSpec.newBuilder().setName("feature1").setValueType(ValueType.Enum.STRING))
+          .addFeatures(
+              FeatureSpec.newBuilder().setName("feature2").setValueType(ValueType.Enum.FLOAT))
+          .build();
+
+  private FeatureRow.Builder row =
+      FeatureRow.newBuilder()
+          .setFeatureSet("project/feature_set")
+          .addFields(
+              Field.newBuilder().setName("entity").setValue(Value.newBuilder().setInt64Val(1)))
+          .addFields(
+              Field.newBuilder().setName("feature1").setValue(Value.newBuilder().setStringVal("a")))
+          .addFields(Field.newBuilder().setName("feature2"));
+
+  @Test
+  public void shouldCarrySpecVersionAndName() {
+    FeatureRowValidator validator = new FeatureRowValidator(spec);
+    assertEquals(2, validator.getVersion());
+    assertEquals("project", validator.getProject());
+    assertEquals("feature_set", validator.getName());
+  }
+
+  @Test
+  public void shouldReturnSameRowIfAlreadyValid() {
+    FeatureRowValidator validator = new FeatureRowValidator(spec);
+    FeatureRow featureRow = row.build();
+
+    assertNull(validator.validate(featureRow));
+    assertSame(featureRow, validator.retainValidFields(featureRow));
+  }
+
+  @Test
+  public void shouldRejectFieldsWithUnexpectedType() {
+    FeatureRow featureRow =
+        row.setFields(
+                2,
+                Field.newBuilder().setName("feature2").setValue(Value.newBuilder().setInt32Val(1)))
+            .build();
+
+    assertNotNull(new FeatureRowValidator(spec).validate(featureRow));
+  }
+
+  @Test
+  public void shouldDropUnknownAndDuplicatedFields() {
+    Field conflicting =
+        Field.newBuilder()
+            .setName("feature1")
+            .setValue(Value.newBuilder().setStringVal("b"))
+            .build();
+    FeatureRow featureRow =
+        row.addFields(
+                Field.newBuilder().setName("unknown").setValue(Value.newBuilder().setInt32Val(1)))
+            .addFields(row.getFields(0))
+            .addFields(conflicting)
+            .build();
+
+    FeatureRowValidator validator = new FeatureRowValidator(spec);
+    assertNull(validator.validate(featureRow));
+    assertEquals(
+        row.clear()
+            .setFeatureSet("project/feature_set")
+            .addAllFields(featureRow.getFieldsList().subList(0, 3))
+            .addFields(conflicting)
+            .build(),
+        validator.retainValidFields(featureRow));
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FeatureSetReferenceNormalizerTest {
+
+  private FeatureSetReferenceNormalizer normalizer = new FeatureSetReferenceNormalizer("default");
+
+  @Test
+  public void shouldApplyDefaultProjectToBareName() {
+    assertEquals("default/driver", normalizer.normalize("driver"));
+  }
+
+  @Test
+  public void shouldKeepProjectOfQualifiedReference() {
+    assertEquals("project/driver", normalizer.normalize("project/driver"));
+  }
+
+  @Test
+  public void shouldStripVersionOfVersionedReference() {
+    assertEquals("project/driver", normalizer.normalize("project/driver:2"));
+    assertEquals("default/driver", normalizer.normalize("driver:2"));
+  }
+
+  @Test
+  public void shouldReturnSameReferenceWhenCached() {
+    assertEquals("project/driver", normalizer.normalize("project/driver:2"));
+    assertEquals("project/driver", normalizer.normalize("project/driver:2"));
+    assertEquals("default/driver", normalizer.normalize("driver"));
+  }
+}
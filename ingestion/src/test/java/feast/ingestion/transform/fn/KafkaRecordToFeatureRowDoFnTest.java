@@ -0,0 +1,168 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import feast.ingestion.transform.ValidateAndAllocateFeatureRows;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.StoreProto.Store;
+import feast.proto.core.StoreProto.Store.Subscription;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.ValueProto.ValueType.Enum;
+import feast.storage.api.specs.CompiledSpecRegistry;
+import feast.storage.api.writer.FailedElement;
+import feast.test.TestUtil;
+import java.util.Map;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.io.kafka.KafkaRecord;
+import org.apache.beam.sdk.io.kafka.KafkaRecordCoder;
+import org.apache.beam.sdk.io.kafka.KafkaTimestampType;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class KafkaRecordToFeatureRowDoFnTest {
+
+  @Rule public transient TestPipeline p = TestPipeline.create();
+
+  private static final TupleTag<FeatureRow> SUCCESS_TAG = new TupleTag<FeatureRow>() {};
+  private static final TupleTag<FailedElement> FAILURE_TAG = new TupleTag<FailedElement>() {};
+
+  @Test
+  public void shouldDecodeRecordsWithNormalizedReferences() {
+    FeatureSetSpec spec = newFeatureSetSpec("myproject", "driver");
+    FeatureRow row = TestUtil.createRandomFeatureRow(spec);
+
+    PCollectionTuple output =
+        p.apply(
+                Create.of(
+                        record(row.toBuilder().setFeatureSet("driver").build().toByteArray()),
+                        record(row.toBuilder().setFeatureSet("driver:1").build().toByteArray()),
+                        record(row.toByteArray()),
+                        record(new byte[] {1, 2, 3}))
+                    .withCoder(KafkaRecordCoder.of(ByteArrayCoder.of(), ByteArrayCoder.of())))
+            .apply(
+                ParDo.of(
+                        KafkaRecordToFeatureRowDoFn.newBuilder()
+                            .setSuccessTag(SUCCESS_TAG)
+                            .setFailureTag(FAILURE_TAG)
+                            .setDefaultProject("myproject")
+                            .build())
+                    .withOutputTags(SUCCESS_TAG, TupleTagList.of(FAILURE_TAG)));
+
+    PAssert.that(output.get(SUCCESS_TAG)).containsInAnyOrder(row, row, row);
+    PAssert.that(output.get(FAILURE_TAG).apply(Count.globally())).containsInAnyOrder(1L);
+
+    p.run();
+  }
+
+  @Test
+  public void shouldRouteDecodedRowsToSpecOfNormalizedReference() {
+    FeatureSetSpec defaultSpec = newFeatureSetSpec("myproject", "driver");
+    FeatureSetSpec otherSpec = newFeatureSetSpec("other", "driver");
+    Map<String, FeatureSetSpec> specs =
+        ImmutableMap.of("myproject/driver", defaultSpec, "other/driver", otherSpec);
+    Store defaultStore = newStore("myproject");
+    Store otherStore = newStore("other");
+    Map<Store, TupleTag<FeatureRow>> storeTags =
+        ImmutableMap.of(defaultStore, new TupleTag<>(), otherStore, new TupleTag<>());
+
+    FeatureRow defaultRow = TestUtil.createRandomFeatureRow(defaultSpec);
+    FeatureRow otherRow = TestUtil.createRandomFeatureRow(otherSpec);
+
+    PCollectionView<CompiledSpecRegistry> specsView =
+        p.apply("StaticSpecs", Create.of(specs)).apply(CompiledSpecRegistry.asSingletonView());
+
+    PCollectionTuple allocatedRows =
+        p.apply(
+                Create.of(
+                        record(
+                            defaultRow.toBuilder().setFeatureSet("driver:2").build().toByteArray()),
+                        record(
+                            otherRow
+                                .toBuilder()
+                                .setFeatureSet("other/driver:2")
+                                .build()
+                                .toByteArray()))
+                    .withCoder(KafkaRecordCoder.of(ByteArrayCoder.of(), ByteArrayCoder.of())))
+            .apply(
+                ParDo.of(
+                        KafkaRecordToFeatureRowDoFn.newBuilder()
+                            .setSuccessTag(SUCCESS_TAG)
+                            .setFailureTag(FAILURE_TAG)
+                            .setDefaultProject("myproject")
+                            .build())
+                    .withOutputTags(SUCCESS_TAG, TupleTagList.of(FAILURE_TAG)))
+            .get(SUCCESS_TAG)
+            .setCoder(ProtoCoder.of(FeatureRow.class))
+            .apply(
+                ValidateAndAllocateFeatureRows.newBuilder()
+                    .setDefaultProject("myproject")
+                    .setFeatureSetSpecs(specsView)
+                    .setStores(ImmutableList.of(defaultStore, otherStore))
+                    .setStoreTags(storeTags)
+                    .setFailureTag(FAILURE_TAG)
+                    .build());
+
+    PAssert.that(allocatedRows.get(storeTags.get(defaultStore))).containsInAnyOrder(defaultRow);
+    PAssert.that(allocatedRows.get(storeTags.get(otherStore))).containsInAnyOrder(otherRow);
+    PAssert.that(allocatedRows.get(FAILURE_TAG)).empty();
+
+    p.run();
+  }
+
+  static FeatureSetSpec newFeatureSetSpec(String project, String name) {
+    return FeatureSetSpec.newBuilder()
+        .setProject(project)
+        .setName(name)
+        .addEntities(EntitySpec.newBuilder().setName("driver_id").setValueType(Enum.INT64))
+        .addFeatures(FeatureSpec.newBuilder().setName("trips").setValueType(Enum.INT64))
+        .build();
+  }
+
+  static Store newStore(String project) {
+    return Store.newBuilder()
+        .setName(project + "_store")
+        .addSubscriptions(Subscription.newBuilder().setProject(project).setName("*"))
+        .build();
+  }
+
+  private static KafkaRecord<byte[], byte[]> record(byte[] value) {
+    return new KafkaRecord<>(
+        "topic",
+        0,
+        0,
+        1000L,
+        KafkaTimestampType.CREATE_TIME,
+        new RecordHeaders(),
+        new byte[0],
+        value);
+  }
+}
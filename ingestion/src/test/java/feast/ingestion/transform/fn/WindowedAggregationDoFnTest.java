@@ -0,0 +1,87 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.transform.fn;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.protobuf.Duration;
+import com.google.protobuf.util.Durations;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.FeatureSetProto.WindowedAggregation;
+import feast.proto.core.FeatureSetProto.WindowedAggregation.AggregationType;
+import feast.proto.types.ValueProto.ValueType;
+import org.junit.Test;
+
+public class WindowedAggregationDoFnTest {
+
+  @Test
+  public void shouldGetNextBoundaryOfShortestPeriod() {
+    FeatureSetSpec spec =
+        spec(aggregation("trips_count", Durations.fromSeconds(600), Durations.fromSeconds(300)))
+            .toBuilder()
+            .addFeatures(aggregation("trips_count_1h", Durations.fromSeconds(3600), null))
+            .build();
+
+    assertEquals(300000L, WindowedAggregationDoFn.getNextBoundary(spec, 0));
+    assertEquals(600000L, WindowedAggregationDoFn.getNextBoundary(spec, 300000));
+  }
+
+  @Test
+  public void shouldIgnoreAggregationsWithoutPositivePeriod() {
+    FeatureSetSpec spec =
+        spec(aggregation("trips_count", Durations.fromSeconds(600), Durations.fromMillis(0)))
+            .toBuilder()
+            .addFeatures(
+                aggregation(
+                    "trips_count_fast", Durations.fromSeconds(600), Durations.fromNanos(500000)))
+            .build();
+
+    assertEquals(Long.MAX_VALUE, WindowedAggregationDoFn.getNextBoundary(spec, 1000));
+
+    FeatureSetSpec specWithValidAggregation =
+        spec.toBuilder()
+            .addFeatures(aggregation("trips_count_1h", Durations.fromSeconds(3600), null))
+            .build();
+    assertEquals(3600000L, WindowedAggregationDoFn.getNextBoundary(specWithValidAggregation, 1000));
+  }
+
+  private static FeatureSetSpec spec(FeatureSpec.Builder feature) {
+    return FeatureSetSpec.newBuilder()
+        .setProject("project")
+        .setName("driver")
+        .addFeatures(FeatureSpec.newBuilder().setName("trips").setValueType(ValueType.Enum.INT64))
+        .addFeatures(feature)
+        .build();
+  }
+
+  /** @param period period of the aggregation, or null if it is not set */
+  private static FeatureSpec.Builder aggregation(String name, Duration window, Duration period) {
+    WindowedAggregation.Builder aggregation =
+        WindowedAggregation.newBuilder()
+            .setType(AggregationType.COUNT)
+            .setSourceFeature("trips")
+            .setWindow(window);
+    if (period != null) {
+      aggregation.setPeriod(period);
+    }
+    return FeatureSpec.newBuilder()
+        .setName(name)
+        .setValueType(ValueType.Enum.INT64)
+        .setAggregation(aggregation);
+  }
+}
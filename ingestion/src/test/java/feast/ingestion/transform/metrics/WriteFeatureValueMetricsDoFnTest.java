@@ -21,6 +21,7 @@ import static org.junit.Assert.fail;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Timestamp;
 import com.google.protobuf.util.Timestamps;
+import feast.ingestion.metrics.MetricsExporterFactory;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.proto.types.FeatureRowProto.FeatureRow.Builder;
 import feast.proto.types.FieldProto.Field;
@@ -49,7 +50,6 @@ import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.Create;
-import org.apache.beam.sdk.transforms.ParDo;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -69,16 +69,18 @@ public class WriteFeatureValueMetricsDoFnTest {
     List<String> expectedLines =
         readTestOutput("feast/ingestion/transform/WriteFeatureValueMetricsDoFnTest.output");
 
+    List<FeatureRow> rows = new ArrayList<>();
+    input.values().forEach(featureRows -> featureRows.forEach(rows::add));
+
     pipeline
-        .apply(Create.of(input))
+        .apply(Create.of(rows))
         .apply(
-            ParDo.of(
-                WriteFeatureValueMetricsDoFn.newBuilder()
-                    .setStatsdHost("localhost")
-                    .setStatsdPort(STATSD_SERVER_PORT)
-                    .setStoreName("store")
-                    .setMetricsNamespace("test")
-                    .build()));
+            WriteFeatureValueMetrics.newBuilder()
+                .setMetricsExporterFactory(
+                    MetricsExporterFactory.statsd("localhost", STATSD_SERVER_PORT))
+                .setStoreName("store")
+                .setMetricsNamespace("test")
+                .build());
     pipeline.run(pipelineOptions).waitUntilFinish();
     // Wait until StatsD has finished processed all messages, 3 sec is a reasonable duration
     // based on empirical testing.
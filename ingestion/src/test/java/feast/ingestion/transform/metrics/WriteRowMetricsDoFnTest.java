@@ -20,19 +20,20 @@ import static feast.ingestion.transform.metrics.WriteFeatureValueMetricsDoFnTest
 import static feast.ingestion.transform.metrics.WriteFeatureValueMetricsDoFnTest.readTestOutput;
 import static org.junit.Assert.fail;
 
+import feast.ingestion.metrics.MetricsExporterFactory;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.test.TestUtil.DummyStatsDServer;
 import java.io.IOException;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.Create;
-import org.apache.beam.sdk.transforms.ParDo;
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -51,17 +52,19 @@ public class WriteRowMetricsDoFnTest {
     List<String> expectedLines =
         readTestOutput("feast/ingestion/transform/WriteRowMetricsDoFnTest.output");
 
+    List<FeatureRow> rows = new ArrayList<>();
+    input.values().forEach(featureRows -> featureRows.forEach(rows::add));
+
     pipeline
-        .apply(Create.of(input))
+        .apply(Create.of(rows))
         .apply(
-            ParDo.of(
-                WriteRowMetricsDoFn.newBuilder()
-                    .setStatsdHost("localhost")
-                    .setStatsdPort(STATSD_SERVER_PORT)
-                    .setStoreName("store")
-                    .setClock(Clock.fixed(Instant.ofEpochSecond(1585548645), ZoneId.of("UTC")))
-                    .setMetricsNamespace("test")
-                    .build()));
+            WriteRowMetrics.newBuilder()
+                .setMetricsExporterFactory(
+                    MetricsExporterFactory.statsd("localhost", STATSD_SERVER_PORT))
+                .setStoreName("store")
+                .setClock(Clock.fixed(Instant.ofEpochSecond(1585548645), ZoneId.of("UTC")))
+                .setMetricsNamespace("test")
+                .build());
     pipeline.run(pipelineOptions).waitUntilFinish();
     // Wait until StatsD has finished processed all messages, 3 sec is a reasonable duration
     // based on empirical testing.
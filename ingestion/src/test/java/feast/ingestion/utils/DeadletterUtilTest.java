@@ -0,0 +1,94 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.ingestion.utils;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+
+import feast.ingestion.deadletter.FileDeadletterSink;
+import feast.ingestion.deadletter.KafkaDeadletterSink;
+import feast.ingestion.options.ImportOptions;
+import feast.storage.connectors.bigquery.writer.BigQueryDeadletterSink;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeadletterUtilTest {
+
+  private ImportOptions options;
+
+  @Before
+  public void setUp() {
+    options = PipelineOptionsFactory.create().as(ImportOptions.class);
+  }
+
+  @Test
+  public void shouldUseBigQuerySinkByDefaultIfTableIsConfigured() {
+    assertThat(DeadletterUtil.getDeadletterSink(options), nullValue());
+
+    options.setDeadLetterTableSpec("project:dataset.deadletter");
+    assertThat(DeadletterUtil.getDeadletterSink(options), instanceOf(BigQueryDeadletterSink.class));
+  }
+
+  @Test
+  public void shouldUseKafkaSink() {
+    options.setDeadLetterType("kafka");
+    options.setDeadLetterKafkaBootstrapServers("localhost:9092");
+    options.setDeadLetterKafkaTopic("deadletter");
+
+    assertThat(DeadletterUtil.getDeadletterSink(options), instanceOf(KafkaDeadletterSink.class));
+  }
+
+  @Test
+  public void shouldUseFileSink() {
+    options.setDeadLetterType("file");
+    options.setDeadLetterFilePathPrefix("/tmp/deadletter");
+
+    assertThat(DeadletterUtil.getDeadletterSink(options), instanceOf(FileDeadletterSink.class));
+  }
+
+  @Test
+  public void shouldNotUseAnySinkForNoneType() {
+    options.setDeadLetterType("none");
+    options.setDeadLetterTableSpec("project:dataset.deadletter");
+
+    assertThat(DeadletterUtil.getDeadletterSink(options), nullValue());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowIfKafkaTopicIsMissing() {
+    options.setDeadLetterType("kafka");
+    options.setDeadLetterKafkaBootstrapServers("localhost:9092");
+
+    DeadletterUtil.getDeadletterSink(options);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowIfFilePathPrefixIsMissing() {
+    options.setDeadLetterType("file");
+
+    DeadletterUtil.getDeadletterSink(options);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowForUnsupportedType() {
+    options.setDeadLetterType("pubsub");
+
+    DeadletterUtil.getDeadletterSink(options);
+  }
+}
@@ -30,6 +30,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 import org.apache.logging.log4j.core.config.plugins.validation.constraints.ValidHost;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -99,6 +100,9 @@ public class FeastProperties {
   /* Metric tracing properties. */
   private TracingProperties tracing;
 
+  /* Historical retrieval scheduling properties. */
+  private HistoricalRetrievalProperties historicalRetrieval = new HistoricalRetrievalProperties();
+
   /**
    * Gets Serving store configuration as a list of {@link Store}.
    *
@@ -262,6 +266,10 @@ public class FeastProperties {
               StoreProto.Store.CassandraConfig.newBuilder();
           JsonFormat.parser().merge(jsonWriter.writeValueAsString(config), cassandraConfig);
           return storeProtoBuilder.setCassandraConfig(cassandraConfig.build()).build();
+        case FILE:
+          StoreProto.Store.FileConfig.Builder fileConfig = StoreProto.Store.FileConfig.newBuilder();
+          JsonFormat.parser().merge(jsonWriter.writeValueAsString(config), fileConfig);
+          return storeProtoBuilder.setFileConfig(fileConfig.build()).build();
         default:
           throw new InvalidProtocolBufferException("Invalid store set");
       }
@@ -427,6 +435,24 @@ public class FeastProperties {
     this.tracing = tracing;
   }
 
+  /**
+   * Gets historical retrieval scheduling properties.
+   *
+   * @return historical retrieval scheduling properties
+   */
+  public HistoricalRetrievalProperties getHistoricalRetrieval() {
+    return historicalRetrieval;
+  }
+
+  /**
+   * Sets historical retrieval scheduling properties.
+   *
+   * @param historicalRetrieval historical retrieval scheduling properties
+   */
+  public void setHistoricalRetrieval(HistoricalRetrievalProperties historicalRetrieval) {
+    this.historicalRetrieval = historicalRetrieval;
+  }
+
   /** The type Job store properties. */
   public static class JobStoreProperties {
 
@@ -539,4 +565,92 @@ public class FeastProperties {
       this.serviceName = serviceName;
     }
   }
+
+  /** Historical retrieval scheduling properties */
+  public static class HistoricalRetrievalProperties {
+
+    /** Maximum number of historical retrieval jobs running at once */
+    @Positive private int maxConcurrentJobs = 8;
+
+    /** Maximum number of historical retrieval jobs running at once for a single project */
+    @Positive private int maxConcurrentJobsPerProject = 4;
+
+    /** Maximum number of historical retrieval jobs waiting to be started */
+    @PositiveOrZero private int queueCapacity = 100;
+
+    /** Time during which results of identical retrievals are reused, 0 to disable reuse */
+    @PositiveOrZero private int resultCacheRetentionSeconds = 0;
+
+    /**
+     * Gets the maximum number of historical retrieval jobs running at once.
+     *
+     * @return the maximum number of running jobs
+     */
+    public int getMaxConcurrentJobs() {
+      return maxConcurrentJobs;
+    }
+
+    /**
+     * Sets the maximum number of historical retrieval jobs running at once.
+     *
+     * @param maxConcurrentJobs the maximum number of running jobs
+     */
+    public void setMaxConcurrentJobs(int maxConcurrentJobs) {
+      this.maxConcurrentJobs = maxConcurrentJobs;
+    }
+
+    /**
+     * Gets the maximum number of historical retrieval jobs running at once for a single project.
+     *
+     * @return the maximum number of running jobs per project
+     */
+    public int getMaxConcurrentJobsPerProject() {
+      return maxConcurrentJobsPerProject;
+    }
+
+    /**
+     * Sets the maximum number of historical retrieval jobs running at once for a single project.
+     *
+     * @param maxConcurrentJobsPerProject the maximum number of running jobs per project
+     */
+    public void setMaxConcurrentJobsPerProject(int maxConcurrentJobsPerProject) {
+      this.maxConcurrentJobsPerProject = maxConcurrentJobsPerProject;
+    }
+
+    /**
+     * Gets the maximum number of historical retrieval jobs waiting to be started.
+     *
+     * @return the queue capacity
+     */
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of historical retrieval jobs waiting to be started.
+     *
+     * @param queueCapacity the queue capacity
+     */
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Gets the time during which results of identical retrievals are reused.
+     *
+     * @return the result cache retention in seconds, 0 if results are not reused
+     */
+    public int getResultCacheRetentionSeconds() {
+      return resultCacheRetentionSeconds;
+    }
+
+    /**
+     * Sets the time during which results of identical retrievals are reused.
+     *
+     * @param resultCacheRetentionSeconds the result cache retention in seconds, 0 to disable reuse
+     */
+    public void setResultCacheRetentionSeconds(int resultCacheRetentionSeconds) {
+      this.resultCacheRetentionSeconds = resultCacheRetentionSeconds;
+    }
+  }
 }
@@ -19,6 +19,7 @@ package feast.serving.config;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.protobuf.InvalidProtocolBufferException;
 import feast.proto.core.StoreProto;
+import feast.serving.service.HistoricalRetrievalScheduler;
 import feast.serving.service.HistoricalServingService;
 import feast.serving.service.JobService;
 import feast.serving.service.NoopJobService;
@@ -28,6 +29,7 @@ import feast.serving.specs.CachedSpecService;
 import feast.storage.api.retriever.HistoricalRetriever;
 import feast.storage.api.retriever.OnlineRetriever;
 import feast.storage.connectors.bigquery.retriever.BigQueryHistoricalRetriever;
+import feast.storage.connectors.file.retriever.FileHistoricalRetriever;
 import feast.storage.connectors.redis.retriever.RedisClusterOnlineRetriever;
 import feast.storage.connectors.redis.retriever.RedisOnlineRetriever;
 import io.opentracing.Tracer;
@@ -41,11 +43,24 @@ public class ServingServiceConfig {
 
   private static final Logger log = org.slf4j.LoggerFactory.getLogger(ServingServiceConfig.class);
 
+  /** Scheduler of historical retrievals, whose retrievals are interrupted on shutdown. */
+  @Bean(destroyMethod = "shutdown")
+  public HistoricalRetrievalScheduler historicalRetrievalScheduler(
+      FeastProperties feastProperties) {
+    FeastProperties.HistoricalRetrievalProperties retrievalProperties =
+        feastProperties.getHistoricalRetrieval();
+    return new HistoricalRetrievalScheduler(
+        retrievalProperties.getMaxConcurrentJobs(),
+        retrievalProperties.getMaxConcurrentJobsPerProject(),
+        retrievalProperties.getQueueCapacity());
+  }
+
   @Bean
   public ServingService servingService(
       FeastProperties feastProperties,
       CachedSpecService specService,
       JobService jobService,
+      HistoricalRetrievalScheduler scheduler,
       Tracer tracer)
       throws InvalidProtocolBufferException, JsonProcessingException {
     ServingService servingService = null;
@@ -63,12 +78,24 @@ public class ServingServiceConfig {
         servingService = new OnlineServingService(redisRetriever, specService, tracer);
         break;
       case BIGQUERY:
+      case FILE:
         if (jobService.getClass() == NoopJobService.class) {
           throw new IllegalArgumentException(
-              "Unable to instantiate JobService which is required by BigQueryHistoricalRetriever.");
+              String.format(
+                  "Unable to instantiate JobService which is required by store type '%s'.",
+                  storeType));
         }
-        HistoricalRetriever bqRetriever = BigQueryHistoricalRetriever.create(config);
-        servingService = new HistoricalServingService(bqRetriever, specService, jobService);
+        HistoricalRetriever historicalRetriever =
+            storeType == StoreProto.Store.StoreType.BIGQUERY
+                ? BigQueryHistoricalRetriever.create(config)
+                : FileHistoricalRetriever.create(config);
+        servingService =
+            new HistoricalServingService(
+                historicalRetriever,
+                specService,
+                jobService,
+                scheduler,
+                feastProperties.getHistoricalRetrieval().getResultCacheRetentionSeconds());
         break;
       case CASSANDRA:
       case UNRECOGNIZED:
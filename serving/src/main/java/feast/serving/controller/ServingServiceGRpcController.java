@@ -16,8 +16,10 @@
  */
 package feast.serving.controller;
 
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesFromStreamRequest;
 import feast.proto.serving.ServingAPIProto.GetBatchFeaturesRequest;
 import feast.proto.serving.ServingAPIProto.GetBatchFeaturesResponse;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesStreamResponse;
 import feast.proto.serving.ServingAPIProto.GetFeastServingInfoRequest;
 import feast.proto.serving.ServingAPIProto.GetFeastServingInfoResponse;
 import feast.proto.serving.ServingAPIProto.GetJobRequest;
@@ -28,6 +30,7 @@ import feast.proto.serving.ServingServiceGrpc.ServingServiceImplBase;
 import feast.serving.config.FeastProperties;
 import feast.serving.exception.SpecRetrievalException;
 import feast.serving.interceptors.GrpcMonitoringInterceptor;
+import feast.serving.service.EntityRowStream;
 import feast.serving.service.ServingService;
 import feast.serving.util.RequestHelper;
 import io.grpc.Status;
@@ -105,6 +108,98 @@ public class ServingServiceGRpcController extends ServingServiceImplBase {
     }
   }
 
+  /**
+   * Receive the entity rows of a batch retrieval from the client. The features of the request are
+   * read from the first message, and the rows of every message are written to the store as they
+   * arrive. The retrieval job is started once the client completes the stream.
+   */
+  @Override
+  public StreamObserver<GetBatchFeaturesFromStreamRequest> getBatchFeaturesFromStream(
+      StreamObserver<GetBatchFeaturesResponse> responseObserver) {
+    return new StreamObserver<GetBatchFeaturesFromStreamRequest>() {
+      private EntityRowStream entityRowStream;
+      private boolean failed = false;
+
+      @Override
+      public void onNext(GetBatchFeaturesFromStreamRequest request) {
+        if (failed) {
+          return;
+        }
+        try {
+          if (entityRowStream == null) {
+            RequestHelper.validateBatchStreamRequest(request);
+            entityRowStream = servingService.getBatchFeaturesFromStream(request.getFeaturesList());
+          }
+          entityRowStream.write(request.getEntityRowsList());
+        } catch (Exception e) {
+          fail(e);
+        }
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        log.warn("Client failed to stream entity rows", t);
+        if (!failed && entityRowStream != null) {
+          entityRowStream.abort();
+        }
+        failed = true;
+      }
+
+      @Override
+      public void onCompleted() {
+        if (failed) {
+          return;
+        }
+        if (entityRowStream == null) {
+          fail(
+              Status.INVALID_ARGUMENT
+                  .withDescription("Features must be provided in the first message of the stream")
+                  .asRuntimeException());
+          return;
+        }
+        try {
+          responseObserver.onNext(entityRowStream.complete());
+          responseObserver.onCompleted();
+        } catch (Exception e) {
+          log.warn("Failed to get Batch Features", e);
+          responseObserver.onError(e);
+        }
+      }
+
+      private void fail(Exception e) {
+        failed = true;
+        if (entityRowStream != null) {
+          entityRowStream.abort();
+        }
+        if (e instanceof SpecRetrievalException) {
+          log.error("Failed to retrieve specs in SpecService", e);
+          responseObserver.onError(
+              Status.NOT_FOUND.withDescription(e.getMessage()).withCause(e).asException());
+        } else {
+          log.warn("Failed to get Batch Features", e);
+          responseObserver.onError(e);
+        }
+      }
+    };
+  }
+
+  @Override
+  public void getBatchFeaturesAsStream(
+      GetBatchFeaturesRequest request,
+      StreamObserver<GetBatchFeaturesStreamResponse> responseObserver) {
+    try {
+      RequestHelper.validateBatchRequest(request);
+      servingService.getBatchFeaturesAsStream(request, responseObserver);
+    } catch (SpecRetrievalException e) {
+      log.error("Failed to retrieve specs in SpecService", e);
+      responseObserver.onError(
+          Status.NOT_FOUND.withDescription(e.getMessage()).withCause(e).asException());
+    } catch (Exception e) {
+      log.warn("Failed to get Batch Features", e);
+      responseObserver.onError(e);
+    }
+  }
+
   @Override
   public void getJob(GetJobRequest request, StreamObserver<GetJobResponse> responseObserver) {
     try {
@@ -0,0 +1,47 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.service;
+
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesResponse;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import java.util.List;
+
+/**
+ * Entity rows of a batch retrieval, streamed by the client. The retrieval job is started once the
+ * client has sent all the rows.
+ */
+public interface EntityRowStream {
+
+  /**
+   * Write entity rows received from the client to the serving store.
+   *
+   * @param entityRows entity rows of a message of the client stream
+   */
+  void write(List<EntityRow> entityRows);
+
+  /**
+   * Start the retrieval of the features of the rows written so far, once the client has completed
+   * the stream.
+   *
+   * @return {@link GetBatchFeaturesResponse} containing reference to a retrieval {@link
+   *     feast.proto.serving.ServingAPIProto.Job}.
+   */
+  GetBatchFeaturesResponse complete();
+
+  /** Discard the rows written so far, when the client stream failed. */
+  void abort();
+}
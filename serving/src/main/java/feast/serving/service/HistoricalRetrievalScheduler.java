@@ -0,0 +1,226 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.service;
+
+import feast.serving.util.Metrics;
+import io.grpc.Status;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+
+/**
+ * Schedules historical retrievals on a bounded pool of threads shared by all requests. Retrievals
+ * are queued in submission order, and started as soon as the number of running retrievals is below
+ * the global limit, and below the per project limit for every project of the retrieval. Queued
+ * retrievals of other projects may overtake a retrieval waiting for its project.
+ *
+ * <p>Retrievals can be cancelled while queued or running. Running retrievals are cancelled by
+ * interrupting their thread. Cancellation only applies to the retrievals scheduled by this instance
+ * of Feast Serving.
+ */
+public class HistoricalRetrievalScheduler {
+
+  private static final Logger log =
+      org.slf4j.LoggerFactory.getLogger(HistoricalRetrievalScheduler.class);
+
+  private final int maxConcurrentJobs;
+  private final int maxConcurrentJobsPerProject;
+  private final int queueCapacity;
+  private final ExecutorService executor;
+
+  private final Deque<ScheduledRetrieval> queued = new ArrayDeque<>();
+  private final Map<String, ScheduledRetrieval> active = new HashMap<>();
+  private final Map<String, Integer> runningPerProject = new HashMap<>();
+  private int running = 0;
+
+  public HistoricalRetrievalScheduler(
+      int maxConcurrentJobs, int maxConcurrentJobsPerProject, int queueCapacity) {
+    if (maxConcurrentJobs <= 0 || maxConcurrentJobsPerProject <= 0 || queueCapacity < 0) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid historical retrieval limits: max concurrent jobs %d, max concurrent jobs per project %d, queue capacity %d",
+              maxConcurrentJobs, maxConcurrentJobsPerProject, queueCapacity));
+    }
+    this.maxConcurrentJobs = maxConcurrentJobs;
+    this.maxConcurrentJobsPerProject = maxConcurrentJobsPerProject;
+    this.queueCapacity = queueCapacity;
+    this.executor = Executors.newFixedThreadPool(maxConcurrentJobs, new RetrievalThreadFactory());
+  }
+
+  /**
+   * Queue a retrieval.
+   *
+   * @param id id of the retrieval job
+   * @param projects projects of the feature sets retrieved
+   * @param retrieval retrieval to run
+   * @throws io.grpc.StatusRuntimeException with status RESOURCE_EXHAUSTED if the queue is full
+   */
+  public synchronized void submit(String id, Set<String> projects, Runnable retrieval) {
+    if (queued.size() >= queueCapacity && !canStart(projects)) {
+      throw Status.RESOURCE_EXHAUSTED
+          .withDescription(
+              String.format(
+                  "Too many historical retrieval jobs queued (%d), try again later", queued.size()))
+          .asRuntimeException();
+    }
+    ScheduledRetrieval scheduledRetrieval = new ScheduledRetrieval(id, projects, retrieval);
+    queued.add(scheduledRetrieval);
+    active.put(id, scheduledRetrieval);
+    dispatch();
+  }
+
+  /**
+   * Cancel a queued or running retrieval.
+   *
+   * @param id id of the retrieval job
+   * @return true if the retrieval was cancelled, false if it is unknown or already finished
+   */
+  public synchronized boolean cancel(String id) {
+    ScheduledRetrieval scheduledRetrieval = active.remove(id);
+    if (scheduledRetrieval == null) {
+      return false;
+    }
+    scheduledRetrieval.cancelled = true;
+    if (queued.remove(scheduledRetrieval)) {
+      updateGauges();
+    } else if (scheduledRetrieval.thread != null) {
+      scheduledRetrieval.thread.interrupt();
+    }
+    log.info("Cancelled historical retrieval job {}", id);
+    return true;
+  }
+
+  /**
+   * Mark a retrieval as finished, before its result is published. Retrievals that are finished can
+   * no longer be cancelled.
+   *
+   * @param id id of the retrieval job
+   * @return true if the retrieval was finished, false if it was cancelled
+   */
+  public synchronized boolean finish(String id) {
+    return active.remove(id) != null;
+  }
+
+  /** Interrupt running retrievals and discard queued retrievals. */
+  public synchronized void shutdown() {
+    queued.clear();
+    active.clear();
+    executor.shutdownNow();
+  }
+
+  private boolean canStart(Set<String> projects) {
+    return running < maxConcurrentJobs
+        && projects.stream()
+            .allMatch(
+                project ->
+                    runningPerProject.getOrDefault(project, 0) < maxConcurrentJobsPerProject);
+  }
+
+  private void dispatch() {
+    Iterator<ScheduledRetrieval> iterator = queued.iterator();
+    while (running < maxConcurrentJobs && iterator.hasNext()) {
+      ScheduledRetrieval scheduledRetrieval = iterator.next();
+      if (canStart(scheduledRetrieval.projects)) {
+        iterator.remove();
+        start(scheduledRetrieval);
+      }
+    }
+    updateGauges();
+  }
+
+  private void start(ScheduledRetrieval scheduledRetrieval) {
+    running++;
+    scheduledRetrieval.projects.forEach(
+        project -> runningPerProject.merge(project, 1, Integer::sum));
+    Metrics.historicalRetrievalQueueLatency.observe(
+        (System.nanoTime() - scheduledRetrieval.submitNanos) / 1e9);
+    executor.execute(() -> run(scheduledRetrieval));
+  }
+
+  private void run(ScheduledRetrieval scheduledRetrieval) {
+    long startNanos = System.nanoTime();
+    try {
+      synchronized (this) {
+        if (scheduledRetrieval.cancelled) {
+          return;
+        }
+        scheduledRetrieval.thread = Thread.currentThread();
+      }
+      scheduledRetrieval.retrieval.run();
+    } catch (RuntimeException e) {
+      log.error("Historical retrieval job {} failed", scheduledRetrieval.id, e);
+    } finally {
+      synchronized (this) {
+        scheduledRetrieval.thread = null;
+        // Clear the interruption of a cancelled retrieval before the thread is reused
+        Thread.interrupted();
+        complete(scheduledRetrieval);
+      }
+      Metrics.historicalRetrievalLatency.observe((System.nanoTime() - startNanos) / 1e9);
+    }
+  }
+
+  private void complete(ScheduledRetrieval scheduledRetrieval) {
+    running--;
+    scheduledRetrieval.projects.forEach(
+        project -> runningPerProject.computeIfPresent(project, (key, count) -> count - 1));
+    runningPerProject.values().removeIf(count -> count == 0);
+    active.remove(scheduledRetrieval.id, scheduledRetrieval);
+    dispatch();
+  }
+
+  private void updateGauges() {
+    Metrics.historicalRetrievalQueuedJobs.set(queued.size());
+    Metrics.historicalRetrievalRunningJobs.set(running);
+  }
+
+  private static class ScheduledRetrieval {
+
+    private final String id;
+    private final Set<String> projects;
+    private final Runnable retrieval;
+    private final long submitNanos = System.nanoTime();
+    private boolean cancelled = false;
+    private Thread thread;
+
+    ScheduledRetrieval(String id, Set<String> projects, Runnable retrieval) {
+      this.id = id;
+      this.projects = projects;
+      this.retrieval = retrieval;
+    }
+  }
+
+  private static class RetrievalThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "historical-retrieval-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -18,15 +18,25 @@ package feast.serving.service;
 
 import feast.proto.serving.ServingAPIProto;
 import feast.proto.serving.ServingAPIProto.*;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
 import feast.proto.serving.ServingAPIProto.Job.Builder;
 import feast.serving.specs.CachedSpecService;
+import feast.serving.util.Metrics;
 import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.api.retriever.HistoricalRetrievalResult;
 import feast.storage.api.retriever.HistoricalRetriever;
+import feast.storage.api.retriever.StreamedEntityRetrieval;
 import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 
 public class HistoricalServingService implements ServingService {
@@ -37,12 +47,24 @@ public class HistoricalServingService implements ServingService {
   private final HistoricalRetriever retriever;
   private final CachedSpecService specService;
   private final JobService jobService;
+  private final HistoricalRetrievalScheduler scheduler;
+  private final int resultCacheRetentionSeconds;
 
+  /**
+   * @param resultCacheRetentionSeconds time during which the results of a retrieval are reused by
+   *     retrievals with the same fingerprint, 0 to never reuse results
+   */
   public HistoricalServingService(
-      HistoricalRetriever retriever, CachedSpecService specService, JobService jobService) {
+      HistoricalRetriever retriever,
+      CachedSpecService specService,
+      JobService jobService,
+      HistoricalRetrievalScheduler scheduler,
+      int resultCacheRetentionSeconds) {
     this.retriever = retriever;
     this.specService = specService;
     this.jobService = jobService;
+    this.scheduler = scheduler;
+    this.resultCacheRetentionSeconds = resultCacheRetentionSeconds;
   }
 
   /** {@inheritDoc} */
@@ -67,6 +89,202 @@ public class HistoricalServingService implements ServingService {
     List<FeatureSetRequest> featureSetRequests =
         specService.getFeatureSets(getFeaturesRequest.getFeaturesList());
     String retrievalId = UUID.randomUUID().toString();
+
+    Optional<String> fingerprint =
+        resultCacheRetentionSeconds > 0
+            ? retriever.getFingerprint(getFeaturesRequest.getDatasetSource(), featureSetRequests)
+            : Optional.empty();
+    if (fingerprint.isPresent()) {
+      Optional<Job> cachedJob = jobService.getCachedResult(fingerprint.get());
+      Metrics.historicalRetrievalCacheRequestCount
+          .labels(cachedJob.isPresent() ? "hit" : "miss")
+          .inc();
+      if (cachedJob.isPresent()) {
+        Job doneJob = cachedJob.get().toBuilder().setId(retrievalId).build();
+        jobService.upsert(doneJob);
+        return GetBatchFeaturesResponse.newBuilder().setJob(doneJob).build();
+      }
+    }
+
+    return submitRetrieval(
+        retrievalId,
+        featureSetRequests,
+        () ->
+            retriever.getHistoricalFeatures(
+                retrievalId, getFeaturesRequest.getDatasetSource(), featureSetRequests),
+        fingerprint);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public EntityRowStream getBatchFeaturesFromStream(List<FeatureReference> features) {
+    List<FeatureSetRequest> featureSetRequests = specService.getFeatureSets(features);
+    String retrievalId = UUID.randomUUID().toString();
+
+    if (!retriever.supportsStreamedEntities()) {
+      throw Status.UNIMPLEMENTED
+          .withDescription("Streamed entity rows are not supported by this store")
+          .asRuntimeException();
+    }
+    StreamedEntityRetrieval retrieval =
+        retriever.startStreamedEntityRetrieval(retrievalId, featureSetRequests);
+
+    return new EntityRowStream() {
+      @Override
+      public void write(List<EntityRow> entityRows) {
+        retrieval.write(entityRows);
+      }
+
+      @Override
+      public GetBatchFeaturesResponse complete() {
+        try {
+          return submitRetrieval(
+              retrievalId, featureSetRequests, retrieval::retrieve, Optional.empty());
+        } catch (StatusRuntimeException e) {
+          retrieval.abort();
+          throw e;
+        }
+      }
+
+      @Override
+      public void abort() {
+        retrieval.abort();
+      }
+    };
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void getBatchFeaturesAsStream(
+      GetBatchFeaturesRequest getFeaturesRequest,
+      StreamObserver<GetBatchFeaturesStreamResponse> responseObserver) {
+    if (!retriever.supportsStreamedResults()) {
+      throw Status.UNIMPLEMENTED
+          .withDescription("Streamed results are not supported by this store")
+          .asRuntimeException();
+    }
+    List<FeatureSetRequest> featureSetRequests =
+        specService.getFeatureSets(getFeaturesRequest.getFeaturesList());
+    String retrievalId = UUID.randomUUID().toString();
+
+    if (responseObserver instanceof ServerCallStreamObserver) {
+      ((ServerCallStreamObserver<GetBatchFeaturesStreamResponse>) responseObserver)
+          .setOnCancelHandler(() -> scheduler.cancel(retrievalId));
+    }
+    SerializedResponseObserver batchConsumer = new SerializedResponseObserver(responseObserver);
+    scheduler.submit(
+        retrievalId,
+        getProjects(featureSetRequests),
+        () -> {
+          try {
+            retriever.getHistoricalFeaturesAsStream(
+                retrievalId,
+                getFeaturesRequest.getDatasetSource(),
+                featureSetRequests,
+                batchConsumer);
+            // The call of a cancelled retrieval is already closed
+            if (scheduler.finish(retrievalId)) {
+              batchConsumer.onCompleted();
+            }
+          } catch (RuntimeException e) {
+            if (scheduler.finish(retrievalId)) {
+              log.warn("Streamed historical retrieval {} failed", retrievalId, e);
+              batchConsumer.onError(
+                  e instanceof StatusRuntimeException
+                      ? e
+                      : Status.INTERNAL
+                          .withDescription(e.getMessage())
+                          .withCause(e)
+                          .asRuntimeException());
+            }
+          }
+        });
+  }
+
+  /**
+   * Consumer of streamed batches that serializes all the calls to the response observer, since
+   * batches are read by several threads and stream observers are not thread-safe.
+   *
+   * <p>On server calls, batches are only sent once the client is ready for them. The readers of the
+   * retrieval are blocked meanwhile, so batches aren't buffered by serving when the client receives
+   * them slower than they are read from the store.
+   */
+  private static class SerializedResponseObserver
+      implements Consumer<GetBatchFeaturesStreamResponse> {
+
+    private final StreamObserver<GetBatchFeaturesStreamResponse> responseObserver;
+    private final Object lock = new Object();
+    private boolean closed = false;
+
+    SerializedResponseObserver(StreamObserver<GetBatchFeaturesStreamResponse> responseObserver) {
+      this.responseObserver = responseObserver;
+      if (responseObserver instanceof ServerCallStreamObserver) {
+        ((ServerCallStreamObserver<GetBatchFeaturesStreamResponse>) responseObserver)
+            .setOnReadyHandler(this::onReady);
+      }
+    }
+
+    private void onReady() {
+      synchronized (lock) {
+        lock.notifyAll();
+      }
+    }
+
+    private boolean isReady() {
+      return !(responseObserver instanceof ServerCallStreamObserver)
+          || ((ServerCallStreamObserver<GetBatchFeaturesStreamResponse>) responseObserver)
+              .isReady();
+    }
+
+    @Override
+    public void accept(GetBatchFeaturesStreamResponse batch) {
+      synchronized (lock) {
+        // Cancelled calls are never ready again, their retrieval is interrupted instead
+        while (!closed && !isReady()) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Status.CANCELLED
+                .withDescription("Streamed historical retrieval was cancelled")
+                .withCause(e)
+                .asRuntimeException();
+          }
+        }
+        // Batches of readers still running when the call failed are dropped
+        if (!closed) {
+          responseObserver.onNext(batch);
+        }
+      }
+    }
+
+    void onCompleted() {
+      synchronized (lock) {
+        closed = true;
+        responseObserver.onCompleted();
+        lock.notifyAll();
+      }
+    }
+
+    void onError(Throwable error) {
+      synchronized (lock) {
+        closed = true;
+        responseObserver.onError(error);
+        lock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Schedule a retrieval, and record its job as running until the retrieval is done.
+   *
+   * @param fingerprint fingerprint under which the result of the retrieval is cached, if any
+   */
+  private GetBatchFeaturesResponse submitRetrieval(
+      String retrievalId,
+      List<FeatureSetRequest> featureSetRequests,
+      Supplier<HistoricalRetrievalResult> retrieval,
+      Optional<String> fingerprint) {
     Job runningJob =
         Job.newBuilder()
             .setId(retrievalId)
@@ -74,18 +292,40 @@ public class HistoricalServingService implements ServingService {
             .setStatus(JobStatus.JOB_STATUS_RUNNING)
             .build();
     jobService.upsert(runningJob);
-    Thread thread =
-        new Thread(
-            new Runnable() {
-              @Override
-              public void run() {
-                HistoricalRetrievalResult result =
-                    retriever.getHistoricalFeatures(
-                        retrievalId, getFeaturesRequest.getDatasetSource(), featureSetRequests);
-                jobService.upsert(resultToJob(result));
+    try {
+      scheduler.submit(
+          retrievalId,
+          getProjects(featureSetRequests),
+          () -> {
+            HistoricalRetrievalResult result;
+            try {
+              result = retrieval.get();
+            } catch (RuntimeException e) {
+              log.error("Historical retrieval job {} failed", retrievalId, e);
+              result =
+                  HistoricalRetrievalResult.error(
+                      retrievalId,
+                      new RuntimeException(
+                          String.format("Historical retrieval failed: %s", e.getMessage()), e));
+            }
+            // The job of a cancelled retrieval has already been marked as done
+            if (scheduler.finish(retrievalId)) {
+              Job doneJob = resultToJob(result);
+              jobService.upsert(doneJob);
+              if (fingerprint.isPresent() && !result.hasError()) {
+                jobService.cacheResult(fingerprint.get(), doneJob, resultCacheRetentionSeconds);
               }
-            });
-    thread.start();
+            }
+          });
+    } catch (StatusRuntimeException e) {
+      jobService.upsert(
+          runningJob
+              .toBuilder()
+              .setStatus(JobStatus.JOB_STATUS_DONE)
+              .setError(e.getStatus().getDescription())
+              .build());
+      throw e;
+    }
 
     return GetBatchFeaturesResponse.newBuilder().setJob(runningJob).build();
   }
@@ -99,9 +339,25 @@ public class HistoricalServingService implements ServingService {
           .withDescription(String.format("Job not found: %s", getJobRequest.getJob().getId()))
           .asRuntimeException();
     }
+    if (getJobRequest.getCancel() && scheduler.cancel(job.get().getId())) {
+      Job cancelledJob =
+          job.get()
+              .toBuilder()
+              .setStatus(JobStatus.JOB_STATUS_DONE)
+              .setError("Job cancelled")
+              .build();
+      jobService.upsert(cancelledJob);
+      return GetJobResponse.newBuilder().setJob(cancelledJob).build();
+    }
     return GetJobResponse.newBuilder().setJob(job.get()).build();
   }
 
+  private static Set<String> getProjects(List<FeatureSetRequest> featureSetRequests) {
+    return featureSetRequests.stream()
+        .map(featureSetRequest -> featureSetRequest.getSpec().getProject())
+        .collect(Collectors.toSet());
+  }
+
   private Job resultToJob(HistoricalRetrievalResult result) {
     Builder builder =
         Job.newBuilder()
@@ -37,4 +37,21 @@ public interface JobService {
    * @param job feast.serving.ServingAPIProto.Job
    */
   void upsert(Job job);
+
+  /**
+   * Get the job whose results were cached for a retrieval fingerprint.
+   *
+   * @param fingerprint fingerprint of the retrieval
+   * @return feast.serving.ServingAPIProto.Job
+   */
+  Optional<Job> getCachedResult(String fingerprint);
+
+  /**
+   * Cache the results of a completed job for a retrieval fingerprint.
+   *
+   * @param fingerprint fingerprint of the retrieval
+   * @param job feast.serving.ServingAPIProto.Job
+   * @param retentionSeconds time after which the cached results are no longer reused
+   */
+  void cacheResult(String fingerprint, Job job, int retentionSeconds);
 }
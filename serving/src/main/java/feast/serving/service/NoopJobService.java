@@ -29,4 +29,12 @@ public class NoopJobService implements JobService {
 
   @Override
   public void upsert(Job job) {}
+
+  @Override
+  public Optional<Job> getCachedResult(String fingerprint) {
+    return Optional.empty();
+  }
+
+  @Override
+  public void cacheResult(String fingerprint, Job job, int retentionSeconds) {}
 }
@@ -32,6 +32,7 @@ import feast.serving.util.Metrics;
 import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.api.retriever.OnlineRetriever;
 import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
 import io.opentracing.Scope;
 import io.opentracing.Tracer;
 import java.util.*;
@@ -315,6 +316,18 @@ public class OnlineServingService implements ServingService {
     throw Status.UNIMPLEMENTED.withDescription("Method not implemented").asRuntimeException();
   }
 
+  @Override
+  public EntityRowStream getBatchFeaturesFromStream(List<FeatureReference> features) {
+    throw Status.UNIMPLEMENTED.withDescription("Method not implemented").asRuntimeException();
+  }
+
+  @Override
+  public void getBatchFeaturesAsStream(
+      GetBatchFeaturesRequest getFeaturesRequest,
+      StreamObserver<GetBatchFeaturesStreamResponse> responseObserver) {
+    throw Status.UNIMPLEMENTED.withDescription("Method not implemented").asRuntimeException();
+  }
+
   @Override
   public GetJobResponse getJob(GetJobRequest getJobRequest) {
     throw Status.UNIMPLEMENTED.withDescription("Method not implemented").asRuntimeException();
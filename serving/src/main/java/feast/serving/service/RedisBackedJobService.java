@@ -41,6 +41,7 @@ public class RedisBackedJobService implements JobService {
   // Remove job state info after "defaultExpirySeconds" to prevent filling up Redis memory
   // and since users normally don't require info about relatively old jobs.
   private final int defaultExpirySeconds = (int) Duration.standardDays(1).getStandardSeconds();
+  private static final String CACHED_RESULT_KEY_PREFIX = "cached_result:";
 
   public RedisBackedJobService(FeastProperties.JobStoreProperties jobStoreProperties) {
     RedisURI uri =
@@ -58,12 +59,32 @@ public class RedisBackedJobService implements JobService {
 
   @Override
   public Optional<Job> get(String id) {
+    return getJob(id);
+  }
+
+  @Override
+  public void upsert(Job job) {
+    setJob(job.getId(), job, defaultExpirySeconds);
+  }
+
+  @Override
+  public Optional<Job> getCachedResult(String fingerprint) {
+    return getJob(CACHED_RESULT_KEY_PREFIX + fingerprint);
+  }
+
+  @Override
+  public void cacheResult(String fingerprint, Job job, int retentionSeconds) {
+    setJob(CACHED_RESULT_KEY_PREFIX + fingerprint, job, retentionSeconds);
+  }
+
+  private Optional<Job> getJob(String key) {
     Job job = null;
     try {
-      String json = new String(syncCommand.get(id.getBytes()));
-      if (json.isEmpty()) {
+      byte[] value = syncCommand.get(key.getBytes());
+      if (value == null || value.length == 0) {
         return Optional.empty();
       }
+      String json = new String(value);
       Builder builder = Job.newBuilder();
       JsonFormat.parser().merge(json, builder);
       job = builder.build();
@@ -73,13 +94,12 @@ public class RedisBackedJobService implements JobService {
     return Optional.ofNullable(job);
   }
 
-  @Override
-  public void upsert(Job job) {
+  private void setJob(String key, Job job, int expirySeconds) {
     try {
       syncCommand.set(
-          job.getId().getBytes(),
+          key.getBytes(),
           JsonFormat.printer().omittingInsignificantWhitespace().print(job).getBytes());
-      syncCommand.expire(job.getId().getBytes(), defaultExpirySeconds);
+      syncCommand.expire(key.getBytes(), expirySeconds);
     } catch (Exception e) {
       log.error(String.format("Failed to upsert job: %s", e.getMessage()));
     }
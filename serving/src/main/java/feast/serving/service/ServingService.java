@@ -16,14 +16,18 @@
  */
 package feast.serving.service;
 
+import feast.proto.serving.ServingAPIProto.FeatureReference;
 import feast.proto.serving.ServingAPIProto.GetBatchFeaturesRequest;
 import feast.proto.serving.ServingAPIProto.GetBatchFeaturesResponse;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesStreamResponse;
 import feast.proto.serving.ServingAPIProto.GetFeastServingInfoRequest;
 import feast.proto.serving.ServingAPIProto.GetFeastServingInfoResponse;
 import feast.proto.serving.ServingAPIProto.GetJobRequest;
 import feast.proto.serving.ServingAPIProto.GetJobResponse;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse;
+import io.grpc.stub.StreamObserver;
+import java.util.List;
 
 public interface ServingService {
   /**
@@ -81,6 +85,36 @@ public interface ServingService {
    */
   GetBatchFeaturesResponse getBatchFeatures(GetBatchFeaturesRequest getFeaturesRequest);
 
+  /**
+   * Start a batch retrieval of a list of {@link FeatureReference}s, for entity rows streamed by the
+   * client instead of a dataset staged in a remote location. The rows are written to the batch
+   * serving store as they are received, and the retrieval job is started when the stream is
+   * completed.
+   *
+   * @param features list of {@link FeatureReference}s to retrieve
+   * @return {@link EntityRowStream} to write the entity rows to
+   */
+  EntityRowStream getBatchFeaturesFromStream(List<FeatureReference> features);
+
+  /**
+   * Get features from a batch serving store like {@link
+   * #getBatchFeatures(GetBatchFeaturesRequest)}, but stream the retrieved rows back in batches of
+   * columns instead of exporting them to the staging location.
+   *
+   * <p>The retrieval is queued like a retrieval job, and the response observer is completed, or
+   * failed, once it is done. No job is created, and the retrieval is cancelled if the call is
+   * cancelled.
+   *
+   * @param getFeaturesRequest {@link GetBatchFeaturesRequest} containing a list of {@link
+   *     feast.proto.serving.ServingAPIProto.FeatureReference}s to retrieve, and {@link
+   *     feast.proto.serving.ServingAPIProto.DatasetSource} pointing to remote location of dataset
+   *     to join retrieved features to.
+   * @param responseObserver observer receiving the {@link GetBatchFeaturesStreamResponse} batches
+   */
+  void getBatchFeaturesAsStream(
+      GetBatchFeaturesRequest getFeaturesRequest,
+      StreamObserver<GetBatchFeaturesStreamResponse> responseObserver);
+
   /**
    * Get the status of a retrieval job from a batch serving store.
    *
@@ -17,6 +17,7 @@
 package feast.serving.util;
 
 import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
 import io.prometheus.client.Histogram;
 
 public class Metrics {
@@ -69,4 +70,42 @@ public class Metrics {
           .help("number of grpc requests served")
           .labelNames("method", "status_code")
           .register();
+
+  public static final Gauge historicalRetrievalQueuedJobs =
+      Gauge.build()
+          .name("historical_retrieval_queued_jobs")
+          .subsystem("feast_serving")
+          .help("number of historical retrieval jobs waiting to be started")
+          .register();
+
+  public static final Gauge historicalRetrievalRunningJobs =
+      Gauge.build()
+          .name("historical_retrieval_running_jobs")
+          .subsystem("feast_serving")
+          .help("number of historical retrieval jobs running")
+          .register();
+
+  public static final Counter historicalRetrievalCacheRequestCount =
+      Counter.build()
+          .name("historical_retrieval_cache_request_count")
+          .subsystem("feast_serving")
+          .help("number of historical retrievals looked up in the result cache")
+          .labelNames("result")
+          .register();
+
+  public static final Histogram historicalRetrievalQueueLatency =
+      Histogram.build()
+          .buckets(0.1, 1, 5, 10, 30, 60, 120, 300, 600, 1800, 3600)
+          .name("historical_retrieval_queue_latency_seconds")
+          .subsystem("feast_serving")
+          .help("Time historical retrieval jobs spend queued in seconds")
+          .register();
+
+  public static final Histogram historicalRetrievalLatency =
+      Histogram.build()
+          .buckets(1, 5, 10, 30, 60, 120, 300, 600, 1800, 3600, 7200)
+          .name("historical_retrieval_latency_seconds")
+          .subsystem("feast_serving")
+          .help("Time historical retrieval jobs spend running in seconds")
+          .register();
 }
@@ -17,9 +17,11 @@
 package feast.serving.util;
 
 import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesFromStreamRequest;
 import feast.proto.serving.ServingAPIProto.GetBatchFeaturesRequest;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest;
 import io.grpc.Status;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -47,11 +49,26 @@ public class RequestHelper {
           .asRuntimeException();
     }
 
+    validateUniqueFeatureNames(getFeaturesRequest.getFeaturesList());
+  }
+
+  /**
+   * Validate the first message of a stream of entity rows, which holds the features of the request.
+   */
+  public static void validateBatchStreamRequest(GetBatchFeaturesFromStreamRequest firstRequest) {
+    if (firstRequest.getFeaturesCount() == 0) {
+      throw Status.INVALID_ARGUMENT
+          .withDescription("Features must be provided in the first message of the stream")
+          .asRuntimeException();
+    }
+
+    validateUniqueFeatureNames(firstRequest.getFeaturesList());
+  }
+
+  private static void validateUniqueFeatureNames(List<FeatureReference> features) {
     Set<String> uniqueFeatureNames =
-        getFeaturesRequest.getFeaturesList().stream()
-            .map(FeatureReference::getName)
-            .collect(Collectors.toSet());
-    if (uniqueFeatureNames.size() != getFeaturesRequest.getFeaturesList().size()) {
+        features.stream().map(FeatureReference::getName).collect(Collectors.toSet());
+    if (uniqueFeatureNames.size() != features.size()) {
       throw Status.INVALID_ARGUMENT
           .withDescription("Feature names must be unique within the request")
           .asRuntimeException();
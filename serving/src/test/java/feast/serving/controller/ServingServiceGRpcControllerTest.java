@@ -20,11 +20,14 @@ import static org.mockito.MockitoAnnotations.initMocks;
 
 import com.google.protobuf.Timestamp;
 import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesFromStreamRequest;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesResponse;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
 import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesResponse;
 import feast.proto.types.ValueProto.Value;
 import feast.serving.config.FeastProperties;
+import feast.serving.service.EntityRowStream;
 import feast.serving.service.ServingService;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
@@ -78,4 +81,68 @@ public class ServingServiceGRpcControllerTest {
     service.getOnlineFeatures(missingEntityName, mockStreamObserver);
     Mockito.verify(mockStreamObserver).onError(Mockito.any(StatusRuntimeException.class));
   }
+
+  @Test
+  public void shouldStartRetrievalOfStreamedEntityRowsOnCompletion() {
+    EntityRowStream entityRowStream = Mockito.mock(EntityRowStream.class);
+    GetBatchFeaturesResponse response = GetBatchFeaturesResponse.getDefaultInstance();
+    Mockito.when(mockServingService.getBatchFeaturesFromStream(validRequest.getFeaturesList()))
+        .thenReturn(entityRowStream);
+    Mockito.when(entityRowStream.complete()).thenReturn(response);
+    StreamObserver<GetBatchFeaturesResponse> responseObserver = Mockito.mock(StreamObserver.class);
+
+    StreamObserver<GetBatchFeaturesFromStreamRequest> requestObserver =
+        service.getBatchFeaturesFromStream(responseObserver);
+    requestObserver.onNext(
+        GetBatchFeaturesFromStreamRequest.newBuilder()
+            .addAllFeatures(validRequest.getFeaturesList())
+            .addAllEntityRows(validRequest.getEntityRowsList())
+            .build());
+    requestObserver.onNext(
+        GetBatchFeaturesFromStreamRequest.newBuilder()
+            .addAllEntityRows(validRequest.getEntityRowsList())
+            .build());
+    requestObserver.onCompleted();
+
+    Mockito.verify(mockServingService).getBatchFeaturesFromStream(validRequest.getFeaturesList());
+    Mockito.verify(entityRowStream, Mockito.times(2)).write(validRequest.getEntityRowsList());
+    Mockito.verify(responseObserver).onNext(response);
+    Mockito.verify(responseObserver).onCompleted();
+  }
+
+  @Test
+  public void shouldAbortStreamedEntityRowsOnClientError() {
+    EntityRowStream entityRowStream = Mockito.mock(EntityRowStream.class);
+    Mockito.when(mockServingService.getBatchFeaturesFromStream(validRequest.getFeaturesList()))
+        .thenReturn(entityRowStream);
+    StreamObserver<GetBatchFeaturesResponse> responseObserver = Mockito.mock(StreamObserver.class);
+
+    StreamObserver<GetBatchFeaturesFromStreamRequest> requestObserver =
+        service.getBatchFeaturesFromStream(responseObserver);
+    requestObserver.onNext(
+        GetBatchFeaturesFromStreamRequest.newBuilder()
+            .addAllFeatures(validRequest.getFeaturesList())
+            .addAllEntityRows(validRequest.getEntityRowsList())
+            .build());
+    requestObserver.onError(new RuntimeException("cancelled"));
+
+    Mockito.verify(entityRowStream).abort();
+    Mockito.verify(entityRowStream, Mockito.never()).complete();
+  }
+
+  @Test
+  public void shouldCallOnErrorIfStreamHasNoFeatures() {
+    StreamObserver<GetBatchFeaturesResponse> responseObserver = Mockito.mock(StreamObserver.class);
+
+    StreamObserver<GetBatchFeaturesFromStreamRequest> requestObserver =
+        service.getBatchFeaturesFromStream(responseObserver);
+    requestObserver.onNext(
+        GetBatchFeaturesFromStreamRequest.newBuilder()
+            .addAllEntityRows(validRequest.getEntityRowsList())
+            .build());
+    requestObserver.onCompleted();
+
+    Mockito.verify(responseObserver).onError(Mockito.any(StatusRuntimeException.class));
+    Mockito.verify(responseObserver, Mockito.never()).onCompleted();
+  }
 }
@@ -0,0 +1,133 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableSet;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class HistoricalRetrievalSchedulerTest {
+
+  private HistoricalRetrievalScheduler scheduler;
+  private final List<String> started = new CopyOnWriteArrayList<>();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    scheduler.shutdown();
+  }
+
+  @Test
+  public void shouldLimitConcurrentJobsPerProject() throws InterruptedException {
+    scheduler = new HistoricalRetrievalScheduler(3, 1, 10);
+    CountDownLatch finished = new CountDownLatch(3);
+
+    scheduler.submit("1", ImmutableSet.of("project_a"), blockingRetrieval("1", finished));
+    scheduler.submit("2", ImmutableSet.of("project_a"), blockingRetrieval("2", finished));
+    scheduler.submit("3", ImmutableSet.of("project_b"), blockingRetrieval("3", finished));
+    waitForStarted(2);
+    assertThat(started, containsInAnyOrder("1", "3"));
+
+    release.countDown();
+    assertTrue(finished.await(10, TimeUnit.SECONDS));
+    assertThat(started.get(2), equalTo("2"));
+  }
+
+  @Test
+  public void shouldRejectJobsWhenQueueIsFull() throws InterruptedException {
+    scheduler = new HistoricalRetrievalScheduler(1, 1, 1);
+    CountDownLatch finished = new CountDownLatch(2);
+
+    scheduler.submit("1", ImmutableSet.of("project"), blockingRetrieval("1", finished));
+    scheduler.submit("2", ImmutableSet.of("project"), blockingRetrieval("2", finished));
+    try {
+      scheduler.submit("3", ImmutableSet.of("project"), blockingRetrieval("3", finished));
+      throw new AssertionError("Expected the job to be rejected");
+    } catch (StatusRuntimeException e) {
+      assertThat(e.getStatus().getCode(), equalTo(Status.Code.RESOURCE_EXHAUSTED));
+    }
+
+    release.countDown();
+    assertTrue(finished.await(10, TimeUnit.SECONDS));
+    assertThat(started, contains("1", "2"));
+  }
+
+  @Test
+  public void shouldCancelQueuedAndRunningJobs() throws InterruptedException {
+    scheduler = new HistoricalRetrievalScheduler(1, 1, 10);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    CountDownLatch finished = new CountDownLatch(1);
+
+    scheduler.submit(
+        "1",
+        ImmutableSet.of("project"),
+        () -> {
+          started.add("1");
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            interrupted.countDown();
+          }
+        });
+    scheduler.submit("2", ImmutableSet.of("project"), blockingRetrieval("2", finished));
+    scheduler.submit("3", ImmutableSet.of("project"), blockingRetrieval("3", finished));
+    waitForStarted(1);
+
+    assertTrue(scheduler.cancel("2"));
+    assertTrue(scheduler.cancel("1"));
+    assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    assertFalse(scheduler.cancel("1"));
+
+    release.countDown();
+    assertTrue(finished.await(10, TimeUnit.SECONDS));
+    assertThat(started, contains("1", "3"));
+  }
+
+  private Runnable blockingRetrieval(String id, CountDownLatch finished) {
+    return () -> {
+      started.add(id);
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      finished.countDown();
+    };
+  }
+
+  private void waitForStarted(int count) throws InterruptedException {
+    for (int i = 0; i < 100 && started.size() < count; i++) {
+      Thread.sleep(50);
+    }
+    // Give the scheduler time to start any job it should not have started
+    Thread.sleep(100);
+  }
+}
@@ -0,0 +1,413 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.serving.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.serving.ServingAPIProto.DataFormat;
+import feast.proto.serving.ServingAPIProto.DatasetSource;
+import feast.proto.serving.ServingAPIProto.DatasetSource.FileSource;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesRequest;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesStreamResponse;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.serving.ServingAPIProto.Job;
+import feast.proto.serving.ServingAPIProto.JobStatus;
+import feast.proto.serving.ServingAPIProto.JobType;
+import feast.proto.types.ValueProto.Value;
+import feast.serving.specs.CachedSpecService;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.HistoricalRetrievalResult;
+import feast.storage.api.retriever.HistoricalRetriever;
+import feast.storage.api.retriever.StreamedEntityRetrieval;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+public class HistoricalServingServiceTest {
+
+  private static final int RETENTION_SECONDS = 3600;
+
+  @Mock HistoricalRetriever retriever;
+
+  @Mock CachedSpecService specService;
+
+  @Mock JobService jobService;
+
+  private HistoricalRetrievalScheduler scheduler;
+  private HistoricalServingService historicalServingService;
+  private GetBatchFeaturesRequest request;
+
+  @Before
+  public void setUp() {
+    initMocks(this);
+    scheduler = new HistoricalRetrievalScheduler(1, 1, 10);
+    historicalServingService =
+        new HistoricalServingService(
+            retriever, specService, jobService, scheduler, RETENTION_SECONDS);
+
+    FeatureReference featureReference =
+        FeatureReference.newBuilder().setProject("project").setName("feature").build();
+    request =
+        GetBatchFeaturesRequest.newBuilder()
+            .addFeatures(featureReference)
+            .setDatasetSource(
+                DatasetSource.newBuilder()
+                    .setFileSource(
+                        FileSource.newBuilder()
+                            .addFileUris("gs://bucket/entities.avro")
+                            .setDataFormat(DataFormat.DATA_FORMAT_AVRO)))
+            .build();
+    List<FeatureSetRequest> featureSetRequests =
+        Collections.singletonList(
+            FeatureSetRequest.newBuilder()
+                .setSpec(FeatureSetSpec.newBuilder().setProject("project").setName("fs").build())
+                .addFeatureReference(featureReference)
+                .build());
+    when(specService.getFeatureSets(request.getFeaturesList())).thenReturn(featureSetRequests);
+    when(retriever.getFingerprint(request.getDatasetSource(), featureSetRequests))
+        .thenReturn(Optional.of("fingerprint"));
+  }
+
+  @After
+  public void tearDown() {
+    scheduler.shutdown();
+  }
+
+  @Test
+  public void shouldReuseCachedResults() {
+    Job cachedJob =
+        Job.newBuilder()
+            .setId("previous")
+            .setType(JobType.JOB_TYPE_DOWNLOAD)
+            .setStatus(JobStatus.JOB_STATUS_DONE)
+            .addFileUris("gs://staging/previous/0.avro")
+            .setDataFormat(DataFormat.DATA_FORMAT_AVRO)
+            .build();
+    when(jobService.getCachedResult("fingerprint")).thenReturn(Optional.of(cachedJob));
+
+    Job job = historicalServingService.getBatchFeatures(request).getJob();
+
+    assertThat(job.getId(), not(equalTo("previous")));
+    assertThat(job.getStatus(), equalTo(JobStatus.JOB_STATUS_DONE));
+    assertThat(job.getFileUrisList(), contains("gs://staging/previous/0.avro"));
+    verify(jobService).upsert(job);
+    verify(retriever, never()).getHistoricalFeatures(anyString(), any(), anyList());
+  }
+
+  @Test
+  public void shouldCacheResultsOfSuccessfulRetrievals() {
+    when(jobService.getCachedResult("fingerprint")).thenReturn(Optional.empty());
+    when(retriever.getHistoricalFeatures(anyString(), any(), anyList()))
+        .thenAnswer(
+            invocation ->
+                HistoricalRetrievalResult.success(
+                    invocation.getArgument(0),
+                    Collections.singletonList("gs://staging/0.avro"),
+                    DataFormat.DATA_FORMAT_AVRO));
+
+    Job job = historicalServingService.getBatchFeatures(request).getJob();
+
+    assertThat(job.getStatus(), equalTo(JobStatus.JOB_STATUS_RUNNING));
+    Job doneJob =
+        job.toBuilder()
+            .setStatus(JobStatus.JOB_STATUS_DONE)
+            .addFileUris("gs://staging/0.avro")
+            .setDataFormat(DataFormat.DATA_FORMAT_AVRO)
+            .build();
+    verify(jobService, timeout(5000)).cacheResult("fingerprint", doneJob, RETENTION_SECONDS);
+  }
+
+  @Test
+  public void shouldNotCacheFailedRetrievals() {
+    when(jobService.getCachedResult("fingerprint")).thenReturn(Optional.empty());
+    when(retriever.getHistoricalFeatures(anyString(), any(), anyList()))
+        .thenAnswer(
+            invocation ->
+                HistoricalRetrievalResult.error(
+                    invocation.getArgument(0), new RuntimeException("failed")));
+
+    Job job = historicalServingService.getBatchFeatures(request).getJob();
+
+    verify(jobService, timeout(5000))
+        .upsert(job.toBuilder().setStatus(JobStatus.JOB_STATUS_DONE).setError("failed").build());
+    verify(jobService, never()).cacheResult(anyString(), any(), eq(RETENTION_SECONDS));
+  }
+
+  @Test
+  public void shouldMarkJobsOfThrowingRetrievalsAsDone() {
+    when(jobService.getCachedResult("fingerprint")).thenReturn(Optional.empty());
+    when(retriever.getHistoricalFeatures(anyString(), any(), anyList()))
+        .thenThrow(new IllegalStateException("unavailable"));
+
+    Job job = historicalServingService.getBatchFeatures(request).getJob();
+
+    verify(jobService, timeout(5000))
+        .upsert(
+            job.toBuilder()
+                .setStatus(JobStatus.JOB_STATUS_DONE)
+                .setError("Historical retrieval failed: unavailable")
+                .build());
+    verify(jobService, never()).cacheResult(anyString(), any(), eq(RETENTION_SECONDS));
+  }
+
+  @Test
+  public void shouldRetrieveFeaturesOfStreamedEntityRows() {
+    StreamedEntityRetrieval retrieval = mock(StreamedEntityRetrieval.class);
+    when(retriever.supportsStreamedEntities()).thenReturn(true);
+    when(retriever.startStreamedEntityRetrieval(anyString(), anyList())).thenReturn(retrieval);
+    when(retrieval.retrieve())
+        .thenReturn(
+            HistoricalRetrievalResult.success(
+                "unused",
+                Collections.singletonList("gs://staging/0.avro"),
+                DataFormat.DATA_FORMAT_AVRO));
+    List<EntityRow> entityRows =
+        Collections.singletonList(
+            EntityRow.newBuilder()
+                .putFields("entity", Value.newBuilder().setInt64Val(1).build())
+                .build());
+
+    EntityRowStream entityRowStream =
+        historicalServingService.getBatchFeaturesFromStream(request.getFeaturesList());
+    entityRowStream.write(entityRows);
+    Job job = entityRowStream.complete().getJob();
+
+    assertThat(job.getStatus(), equalTo(JobStatus.JOB_STATUS_RUNNING));
+    verify(retrieval).write(entityRows);
+    verify(retrieval, timeout(5000)).retrieve();
+    verify(jobService, never()).cacheResult(anyString(), any(), eq(RETENTION_SECONDS));
+  }
+
+  @Test
+  public void shouldRejectStreamedEntityRowsIfUnsupportedByStore() {
+    when(retriever.supportsStreamedEntities()).thenReturn(false);
+
+    try {
+      historicalServingService.getBatchFeaturesFromStream(request.getFeaturesList());
+      fail("Streamed entity rows were accepted");
+    } catch (StatusRuntimeException e) {
+      assertThat(e.getStatus().getCode(), equalTo(Status.Code.UNIMPLEMENTED));
+    }
+    verify(retriever, never()).startStreamedEntityRetrieval(anyString(), anyList());
+  }
+
+  @Test
+  public void shouldNotMaskUnsupportedOperationsOfStreamedEntityRetrievals() {
+    when(retriever.supportsStreamedEntities()).thenReturn(true);
+    when(retriever.startStreamedEntityRetrieval(anyString(), anyList()))
+        .thenThrow(new UnsupportedOperationException("unsupported entity type"));
+
+    try {
+      historicalServingService.getBatchFeaturesFromStream(request.getFeaturesList());
+      fail("Failed streamed entity retrieval was started");
+    } catch (UnsupportedOperationException e) {
+      assertThat(e.getMessage(), equalTo("unsupported entity type"));
+    }
+  }
+
+  @Test
+  public void shouldStreamRetrievedBatches() {
+    GetBatchFeaturesStreamResponse batch =
+        GetBatchFeaturesStreamResponse.newBuilder().setRowCount(1).build();
+    when(retriever.supportsStreamedResults()).thenReturn(true);
+    doAnswer(
+            invocation -> {
+              Consumer<GetBatchFeaturesStreamResponse> consumer = invocation.getArgument(3);
+              consumer.accept(batch);
+              return null;
+            })
+        .when(retriever)
+        .getHistoricalFeaturesAsStream(anyString(), any(), anyList(), any());
+    StreamObserver<GetBatchFeaturesStreamResponse> responseObserver = mock(StreamObserver.class);
+
+    historicalServingService.getBatchFeaturesAsStream(request, responseObserver);
+
+    verify(responseObserver, timeout(5000)).onCompleted();
+    verify(responseObserver).onNext(batch);
+    verify(jobService, never()).upsert(any());
+  }
+
+  @Test
+  public void shouldSerializeBatchesOfConcurrentReaders() {
+    when(retriever.supportsStreamedResults()).thenReturn(true);
+    doAnswer(
+            invocation -> {
+              Consumer<GetBatchFeaturesStreamResponse> consumer = invocation.getArgument(3);
+              List<Thread> readers = new ArrayList<>();
+              for (int i = 0; i < 4; i++) {
+                Thread reader =
+                    new Thread(
+                        () -> {
+                          for (int j = 0; j < 10; j++) {
+                            consumer.accept(GetBatchFeaturesStreamResponse.getDefaultInstance());
+                          }
+                        });
+                reader.start();
+                readers.add(reader);
+              }
+              for (Thread reader : readers) {
+                reader.join();
+              }
+              return null;
+            })
+        .when(retriever)
+        .getHistoricalFeaturesAsStream(anyString(), any(), anyList(), any());
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    StreamObserver<GetBatchFeaturesStreamResponse> responseObserver = mock(StreamObserver.class);
+    doAnswer(
+            invocation -> {
+              maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+              Thread.sleep(1);
+              inFlight.decrementAndGet();
+              return null;
+            })
+        .when(responseObserver)
+        .onNext(any());
+
+    historicalServingService.getBatchFeaturesAsStream(request, responseObserver);
+
+    verify(responseObserver, timeout(5000)).onCompleted();
+    verify(responseObserver, times(40)).onNext(any());
+    assertThat(maxInFlight.get(), equalTo(1));
+  }
+
+  @Test
+  public void shouldWaitForClientToBeReadyBeforeStreamingBatches() {
+    GetBatchFeaturesStreamResponse batch =
+        GetBatchFeaturesStreamResponse.newBuilder().setRowCount(1).build();
+    when(retriever.supportsStreamedResults()).thenReturn(true);
+    doAnswer(
+            invocation -> {
+              Consumer<GetBatchFeaturesStreamResponse> consumer = invocation.getArgument(3);
+              consumer.accept(batch);
+              return null;
+            })
+        .when(retriever)
+        .getHistoricalFeaturesAsStream(anyString(), any(), anyList(), any());
+    AtomicBoolean ready = new AtomicBoolean(false);
+    ServerCallStreamObserver<GetBatchFeaturesStreamResponse> responseObserver =
+        mock(ServerCallStreamObserver.class);
+    when(responseObserver.isReady()).thenAnswer(invocation -> ready.get());
+
+    historicalServingService.getBatchFeaturesAsStream(request, responseObserver);
+
+    ArgumentCaptor<Runnable> onReadyHandler = ArgumentCaptor.forClass(Runnable.class);
+    verify(responseObserver).setOnReadyHandler(onReadyHandler.capture());
+    verify(responseObserver, after(500).never()).onNext(any());
+
+    ready.set(true);
+    onReadyHandler.getValue().run();
+
+    verify(responseObserver, timeout(5000)).onCompleted();
+    verify(responseObserver).onNext(batch);
+  }
+
+  @Test
+  public void shouldStopWaitingForClientWhenStreamIsCancelled() {
+    when(retriever.supportsStreamedResults()).thenReturn(true);
+    doAnswer(
+            invocation -> {
+              Consumer<GetBatchFeaturesStreamResponse> consumer = invocation.getArgument(3);
+              consumer.accept(GetBatchFeaturesStreamResponse.getDefaultInstance());
+              return null;
+            })
+        .when(retriever)
+        .getHistoricalFeaturesAsStream(anyString(), any(), anyList(), any());
+    ServerCallStreamObserver<GetBatchFeaturesStreamResponse> responseObserver =
+        mock(ServerCallStreamObserver.class);
+    when(responseObserver.isReady()).thenReturn(false);
+
+    historicalServingService.getBatchFeaturesAsStream(request, responseObserver);
+
+    verify(retriever, timeout(5000))
+        .getHistoricalFeaturesAsStream(anyString(), any(), anyList(), any());
+    ArgumentCaptor<Runnable> onCancelHandler = ArgumentCaptor.forClass(Runnable.class);
+    verify(responseObserver).setOnCancelHandler(onCancelHandler.capture());
+    onCancelHandler.getValue().run();
+
+    // Another retrieval can run on the single retrieval thread once the cancelled one is stopped
+    historicalServingService.getBatchFeaturesAsStream(request, mock(StreamObserver.class));
+    verify(retriever, timeout(5000).times(2))
+        .getHistoricalFeaturesAsStream(anyString(), any(), anyList(), any());
+    verify(responseObserver, never()).onNext(any());
+    verify(responseObserver, never()).onError(any());
+  }
+
+  @Test
+  public void shouldRejectStreamIfUnsupportedByStore() {
+    when(retriever.supportsStreamedResults()).thenReturn(false);
+    StreamObserver<GetBatchFeaturesStreamResponse> responseObserver = mock(StreamObserver.class);
+
+    try {
+      historicalServingService.getBatchFeaturesAsStream(request, responseObserver);
+      fail("Streamed results were accepted");
+    } catch (StatusRuntimeException e) {
+      assertThat(e.getStatus().getCode(), equalTo(Status.Code.UNIMPLEMENTED));
+    }
+    verify(retriever, never()).getHistoricalFeaturesAsStream(anyString(), any(), anyList(), any());
+  }
+
+  @Test
+  public void shouldFailStreamWithInternalErrorsOfStore() {
+    when(retriever.supportsStreamedResults()).thenReturn(true);
+    doThrow(new UnsupportedOperationException("unsupported column type"))
+        .when(retriever)
+        .getHistoricalFeaturesAsStream(anyString(), any(), anyList(), any());
+    StreamObserver<GetBatchFeaturesStreamResponse> responseObserver = mock(StreamObserver.class);
+
+    historicalServingService.getBatchFeaturesAsStream(request, responseObserver);
+
+    ArgumentCaptor<Throwable> error = ArgumentCaptor.forClass(Throwable.class);
+    verify(responseObserver, timeout(5000)).onError(error.capture());
+    assertThat(Status.fromThrowable(error.getValue()).getCode(), equalTo(Status.Code.INTERNAL));
+    verify(responseObserver, never()).onCompleted();
+  }
+}
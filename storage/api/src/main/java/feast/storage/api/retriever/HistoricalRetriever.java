@@ -17,7 +17,10 @@
 package feast.storage.api.retriever;
 
 import feast.proto.serving.ServingAPIProto.DatasetSource;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesStreamResponse;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * A historical retriever is a feature retriever that retrieves feature data corresponding to
@@ -46,4 +49,80 @@ public interface HistoricalRetriever {
    */
   HistoricalRetrievalResult getHistoricalFeatures(
       String retrievalId, DatasetSource datasetSource, List<FeatureSetRequest> featureSetRequests);
+
+  /**
+   * Whether the store can pass retrieved rows to a consumer, with {@link
+   * #getHistoricalFeaturesAsStream(String, DatasetSource, List, Consumer)}.
+   *
+   * @return true if streamed results are supported
+   */
+  default boolean supportsStreamedResults() {
+    return false;
+  }
+
+  /**
+   * Get all features corresponding to the provided batch features request, and pass the retrieved
+   * rows to a consumer in batches of columns, instead of exporting them to the staging location.
+   * Blocks until all the rows have been consumed. Only called on stores that {@link
+   * #supportsStreamedResults()}.
+   *
+   * @param retrievalId String that uniquely identifies this retrieval request.
+   * @param datasetSource {@link DatasetSource} containing source to load the dataset containing
+   *     entity columns.
+   * @param featureSetRequests List of {@link FeatureSetRequest} to feature references in the
+   *     request tied to that feature set.
+   * @param batchConsumer consumer of the batches of rows, called by one thread at a time. May block
+   *     until the client is ready for more rows, reads should be held back meanwhile.
+   * @throws UnsupportedOperationException if the store doesn't support streamed results
+   * @throws io.grpc.StatusRuntimeException if the retrieval failed
+   */
+  default void getHistoricalFeaturesAsStream(
+      String retrievalId,
+      DatasetSource datasetSource,
+      List<FeatureSetRequest> featureSetRequests,
+      Consumer<GetBatchFeaturesStreamResponse> batchConsumer) {
+    throw new UnsupportedOperationException("Streamed results are not supported by this store");
+  }
+
+  /**
+   * Whether the store can receive entity rows streamed by the client, with {@link
+   * #startStreamedEntityRetrieval(String, List)}.
+   *
+   * @return true if streamed entity rows are supported
+   */
+  default boolean supportsStreamedEntities() {
+    return false;
+  }
+
+  /**
+   * Start a retrieval whose entity rows are streamed by the client, instead of being loaded from
+   * staged files. Only called on stores that {@link #supportsStreamedEntities()}.
+   *
+   * @param retrievalId String that uniquely identifies this retrieval request.
+   * @param featureSetRequests List of {@link FeatureSetRequest} to feature references in the
+   *     request tied to that feature set.
+   * @return {@link StreamedEntityRetrieval} to write the entity rows to
+   * @throws UnsupportedOperationException if the store doesn't support streamed entity rows
+   */
+  default StreamedEntityRetrieval startStreamedEntityRetrieval(
+      String retrievalId, List<FeatureSetRequest> featureSetRequests) {
+    throw new UnsupportedOperationException("Streamed entity rows are not supported by this store");
+  }
+
+  /**
+   * Get a fingerprint of the data read by a retrieval. The fingerprint changes whenever the entity
+   * dataset, the requested features or the feature data change, so the results of retrievals with
+   * the same fingerprint can be reused. Stores that can't fingerprint retrievals return an empty
+   * fingerprint, and their results are never reused.
+   *
+   * @param datasetSource {@link DatasetSource} containing source to load the dataset containing
+   *     entity columns.
+   * @param featureSetRequests List of {@link FeatureSetRequest} to feature references in the
+   *     request tied to that feature set.
+   * @return fingerprint of the retrieval, if available
+   */
+  default Optional<String> getFingerprint(
+      DatasetSource datasetSource, List<FeatureSetRequest> featureSetRequests) {
+    return Optional.empty();
+  }
 }
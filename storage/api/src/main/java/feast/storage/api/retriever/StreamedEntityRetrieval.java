@@ -0,0 +1,48 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.api.retriever;
+
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import java.util.List;
+
+/**
+ * A historical retrieval whose entity rows are streamed by the client, instead of being loaded from
+ * staged files. Rows are written to the store as they are received, and features are retrieved once
+ * all the rows have been written.
+ */
+public interface StreamedEntityRetrieval {
+
+  /**
+   * Write entity rows to the store. Called for each batch of rows received from the client, before
+   * {@link #retrieve()}.
+   *
+   * @param entityRows entity rows, holding their entity values and timestamp
+   */
+  void write(List<EntityRow> entityRows);
+
+  /**
+   * Complete the entity dataset with the rows written so far, and retrieve the features of the
+   * rows.
+   *
+   * @return {@link HistoricalRetrievalResult} if successful, contains the location of the results,
+   *     else contains the error to be returned to the user.
+   */
+  HistoricalRetrievalResult retrieve();
+
+  /** Discard the rows written so far, when the client stream failed. */
+  void abort();
+}
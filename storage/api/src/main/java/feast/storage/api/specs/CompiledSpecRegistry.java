@@ -0,0 +1,278 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.api.specs;
+
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.MapCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+
+/**
+ * Immutable registry of the latest {@link FeatureSetSpec} of every feature set, together with the
+ * artifacts compiled from these specs by the transforms that use them, e.g. row validators or
+ * encoders.
+ *
+ * <p>The registry is meant to be used as a singleton side input, created with {@link
+ * #asSingletonView()} from the stream of specs. Every registry has a version, which is a
+ * fingerprint of its specs, and workers keep the registry of the latest version of every view with
+ * {@link #intern(PCollectionView, CompiledSpecRegistry)}, so that specs are looked up in constant
+ * time and artifacts are compiled once per spec update rather than per bundle. Artifacts of specs
+ * that are unchanged are carried over to the registries of later versions.
+ */
+public class CompiledSpecRegistry {
+
+  // Registry of the worker for each view, by view tag, since a worker may run steps of different
+  // pipelines or read different views of specs
+  private static final Map<String, CompiledSpecRegistry> workerRegistries =
+      new ConcurrentHashMap<>();
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final long version;
+  private final Map<String, FeatureSetSpec> specs;
+  private final Map<Class<?>, Map<String, CompiledSpec<?>>> compiledSpecs =
+      new ConcurrentHashMap<>();
+
+  private CompiledSpecRegistry(long version, Map<String, FeatureSetSpec> specs) {
+    this.version = version;
+    this.specs = Collections.unmodifiableMap(specs);
+  }
+
+  /**
+   * @param specs latest spec of every feature set, by feature set reference
+   * @return registry of the specs
+   */
+  public static CompiledSpecRegistry of(Map<String, FeatureSetSpec> specs) {
+    // Specs are sorted so that the fingerprint does not depend on the order of the map
+    Map<String, FeatureSetSpec> sortedSpecs = new TreeMap<>(specs);
+    long fingerprint = FNV_OFFSET_BASIS;
+    for (Map.Entry<String, FeatureSetSpec> spec : sortedSpecs.entrySet()) {
+      fingerprint = fingerprint(fingerprint, spec.getKey().getBytes(StandardCharsets.UTF_8));
+      fingerprint = fingerprint(fingerprint, spec.getValue().toByteArray());
+    }
+    return new CompiledSpecRegistry(fingerprint, new HashMap<>(specs));
+  }
+
+  /**
+   * Get the registry of the worker for a view with the version of the given registry, so that
+   * artifacts compiled by previous bundles are reused. The registry becomes the registry of the
+   * worker for the view if its version is different.
+   *
+   * @param view view the registry is read from
+   * @param registry registry read from the side input
+   * @return registry of the worker with the same specs
+   */
+  public static CompiledSpecRegistry intern(
+      PCollectionView<CompiledSpecRegistry> view, CompiledSpecRegistry registry) {
+    return workerRegistries.compute(
+        view.getTagInternal().getId(),
+        (tag, current) -> {
+          if (current != null && current.version == registry.version) {
+            return current;
+          }
+          if (current != null) {
+            registry.carryOver(current);
+          }
+          return registry;
+        });
+  }
+
+  /** @return PTransform creating a singleton view of the registry of the latest specs */
+  public static AsSingletonView asSingletonView() {
+    return new AsSingletonView();
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public Map<String, FeatureSetSpec> getSpecs() {
+    return specs;
+  }
+
+  /**
+   * @param featureSetRef reference of the feature set, in the form {@code <project>/<name>}
+   * @return latest spec of the feature set, or null if the feature set is unknown
+   */
+  @Nullable
+  public FeatureSetSpec getSpec(String featureSetRef) {
+    return specs.get(featureSetRef);
+  }
+
+  /**
+   * Get the artifact of the given type compiled from the spec of a feature set, compiling it if it
+   * has not been compiled from this spec yet.
+   *
+   * @param featureSetRef reference of the feature set, in the form {@code <project>/<name>}
+   * @param type type of the artifact, which identifies the compiler
+   * @param compiler function compiling the artifact from the spec
+   * @param <T> type of the artifact
+   * @return compiled artifact, or null if the feature set is unknown
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public <T> T getCompiled(
+      String featureSetRef, Class<T> type, Function<FeatureSetSpec, T> compiler) {
+    FeatureSetSpec spec = specs.get(featureSetRef);
+    if (spec == null) {
+      return null;
+    }
+    CompiledSpec<?> compiledSpec =
+        compiledSpecs
+            .computeIfAbsent(type, t -> new ConcurrentHashMap<>())
+            .computeIfAbsent(
+                featureSetRef, ref -> new CompiledSpec<T>(spec.getVersion(), compiler.apply(spec)));
+    return (T) compiledSpec.artifact;
+  }
+
+  private void carryOver(CompiledSpecRegistry previous) {
+    for (Map.Entry<Class<?>, Map<String, CompiledSpec<?>>> artifacts :
+        previous.compiledSpecs.entrySet()) {
+      Map<String, CompiledSpec<?>> carriedOver = new ConcurrentHashMap<>();
+      for (Map.Entry<String, CompiledSpec<?>> artifact : artifacts.getValue().entrySet()) {
+        FeatureSetSpec spec = specs.get(artifact.getKey());
+        if (spec != null && spec.getVersion() == artifact.getValue().specVersion) {
+          carriedOver.put(artifact.getKey(), artifact.getValue());
+        }
+      }
+      compiledSpecs.put(artifacts.getKey(), carriedOver);
+    }
+  }
+
+  private static long fingerprint(long fingerprint, byte[] bytes) {
+    for (byte b : bytes) {
+      fingerprint = (fingerprint ^ (b & 0xff)) * FNV_PRIME;
+    }
+    // Separates consecutive byte arrays
+    return (fingerprint ^ 0xff) * FNV_PRIME;
+  }
+
+  private static class CompiledSpec<T> {
+    private final int specVersion;
+    private final T artifact;
+
+    private CompiledSpec(int specVersion, T artifact) {
+      this.specVersion = specVersion;
+      this.artifact = artifact;
+    }
+  }
+
+  /**
+   * Combines a stream of specs keyed by feature set reference into a singleton view of the registry
+   * of the latest version of every spec. Each firing of the input updates the view.
+   */
+  public static class AsSingletonView
+      extends PTransform<
+          PCollection<KV<String, FeatureSetSpec>>, PCollectionView<CompiledSpecRegistry>> {
+
+    @Override
+    public PCollectionView<CompiledSpecRegistry> expand(
+        PCollection<KV<String, FeatureSetSpec>> input) {
+      return input.apply(
+          "CombineLatestSpecs", Combine.globally(new LatestSpecsFn()).asSingletonView());
+    }
+  }
+
+  static class LatestSpecsFn
+      extends CombineFn<
+          KV<String, FeatureSetSpec>, Map<String, FeatureSetSpec>, CompiledSpecRegistry> {
+
+    @Override
+    public Map<String, FeatureSetSpec> createAccumulator() {
+      return new HashMap<>();
+    }
+
+    @Override
+    public Map<String, FeatureSetSpec> addInput(
+        Map<String, FeatureSetSpec> accumulator, KV<String, FeatureSetSpec> input) {
+      accumulator.merge(input.getKey(), input.getValue(), LatestSpecsFn::latest);
+      return accumulator;
+    }
+
+    @Override
+    public Map<String, FeatureSetSpec> mergeAccumulators(
+        Iterable<Map<String, FeatureSetSpec>> accumulators) {
+      Map<String, FeatureSetSpec> merged = new HashMap<>();
+      for (Map<String, FeatureSetSpec> accumulator : accumulators) {
+        accumulator.forEach((ref, spec) -> merged.merge(ref, spec, LatestSpecsFn::latest));
+      }
+      return merged;
+    }
+
+    @Override
+    public CompiledSpecRegistry extractOutput(Map<String, FeatureSetSpec> accumulator) {
+      return CompiledSpecRegistry.of(accumulator);
+    }
+
+    @Override
+    public Coder<Map<String, FeatureSetSpec>> getAccumulatorCoder(
+        CoderRegistry registry, Coder<KV<String, FeatureSetSpec>> inputCoder) {
+      return MapCoder.of(StringUtf8Coder.of(), ProtoCoder.of(FeatureSetSpec.class));
+    }
+
+    @Override
+    public Coder<CompiledSpecRegistry> getDefaultOutputCoder(
+        CoderRegistry registry, Coder<KV<String, FeatureSetSpec>> inputCoder) {
+      return new CompiledSpecRegistryCoder();
+    }
+
+    private static FeatureSetSpec latest(FeatureSetSpec spec, FeatureSetSpec other) {
+      return other.getVersion() > spec.getVersion() ? other : spec;
+    }
+  }
+
+  /** Encodes the version and specs of registries. Compiled artifacts are not encoded. */
+  public static class CompiledSpecRegistryCoder extends CustomCoder<CompiledSpecRegistry> {
+
+    private static final Coder<Map<String, FeatureSetSpec>> SPECS_CODER =
+        MapCoder.of(StringUtf8Coder.of(), ProtoCoder.of(FeatureSetSpec.class));
+
+    @Override
+    public void encode(CompiledSpecRegistry value, OutputStream outStream) throws IOException {
+      VarLongCoder.of().encode(value.version, outStream);
+      SPECS_CODER.encode(value.specs, outStream);
+    }
+
+    @Override
+    public CompiledSpecRegistry decode(InputStream inStream) throws IOException {
+      long version = VarLongCoder.of().decode(inStream);
+      return new CompiledSpecRegistry(version, SPECS_CODER.decode(inStream));
+    }
+  }
+}
@@ -17,6 +17,8 @@
 package feast.storage.api.writer;
 
 import com.google.auto.value.AutoValue;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import java.util.Base64;
 import javax.annotation.Nullable;
 import org.apache.beam.sdk.schemas.AutoValueSchema;
 import org.apache.beam.sdk.schemas.annotations.DefaultSchema;
@@ -69,6 +71,17 @@ public abstract class FailedElement {
 
     public abstract Builder setPayload(String payload);
 
+    /**
+     * Set the payload to the Base64 encoded binary protobuf encoding of a {@link FeatureRow}, which
+     * is much smaller than its text format and can be parsed back into the original row.
+     *
+     * @param featureRow row that failed to be processed
+     * @return this builder
+     */
+    public Builder setFeatureRowPayload(FeatureRow featureRow) {
+      return setPayload(Base64.getEncoder().encodeToString(featureRow.toByteArray()));
+    }
+
     public abstract Builder setErrorMessage(String errorMessage);
 
     public abstract Builder setStackTrace(String stackTrace);
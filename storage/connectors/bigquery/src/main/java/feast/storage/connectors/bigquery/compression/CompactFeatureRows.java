@@ -32,9 +32,9 @@ import org.apache.beam.sdk.values.PCollection;
  *
  * <p>List&lt;FeatureRow&gt; -&gt;
  *
- * <p>- Feature1 List&lt;Integer&gt; - all values from all rows in one list
+ * <p>- Feature1 long[] - all values from all rows in one typed vector
  *
- * <p>- Feature2 List&lt;String&gt;
+ * <p>- Feature2 byte[] - all strings from all rows concatenated, with their lengths
  *
  * <p>- ...
  *
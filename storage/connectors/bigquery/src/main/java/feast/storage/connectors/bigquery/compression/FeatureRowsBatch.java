@@ -16,141 +16,81 @@
  */
 package feast.storage.connectors.bigquery.compression;
 
-import static feast.proto.types.ValueProto.Value.ValCase.*;
-import static feast.storage.connectors.bigquery.common.TypeUtil.*;
-
 import feast.proto.types.FeatureRowProto;
 import feast.proto.types.FieldProto;
 import feast.proto.types.ValueProto;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
-import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import org.apache.beam.sdk.coders.*;
-import org.apache.beam.sdk.schemas.Schema;
-import org.apache.beam.sdk.values.Row;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.coders.NullableCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.util.VarInt;
 
 /**
  * Based on list of featureRows this class infers common schema (with all found features) and then
  * transpose list of rows into list of values format (column-oriented).
  *
+ * <p>Every field is stored in a {@link FeatureRowsColumn}, which keeps the values in typed vectors
+ * and records which rows have the field and which have a value set, so rows without a field are
+ * restored without it, and fields without a value set are restored without a value.
+ *
  * <p>getFeatureRows provides reverse transformation
  */
 public class FeatureRowsBatch implements Serializable {
-  private final Schema schema;
   private String featureSetReference;
-  private List<Object> values = new ArrayList<>();
-
-  public static Map<ValueProto.Value.ValCase, Schema.FieldType> protoToSchemaTypes =
-      new HashMap<>();
-  public static Map<Schema.FieldType, ValueProto.Value.ValCase> schemaToProtoTypes;
-  public static Map<String, Object> defaultValues = new HashMap<>();
-
-  static {
-    protoToSchemaTypes.put(BYTES_VAL, Schema.FieldType.BYTES);
-    protoToSchemaTypes.put(STRING_VAL, Schema.FieldType.STRING);
-    protoToSchemaTypes.put(INT32_VAL, Schema.FieldType.INT32);
-    protoToSchemaTypes.put(INT64_VAL, Schema.FieldType.INT64);
-    protoToSchemaTypes.put(DOUBLE_VAL, Schema.FieldType.DOUBLE);
-    protoToSchemaTypes.put(FLOAT_VAL, Schema.FieldType.FLOAT);
-    protoToSchemaTypes.put(BOOL_VAL, Schema.FieldType.BOOLEAN);
-    protoToSchemaTypes.put(BYTES_LIST_VAL, Schema.FieldType.array(Schema.FieldType.BYTES));
-    protoToSchemaTypes.put(STRING_LIST_VAL, Schema.FieldType.array(Schema.FieldType.STRING));
-    protoToSchemaTypes.put(INT32_LIST_VAL, Schema.FieldType.array(Schema.FieldType.INT32));
-    protoToSchemaTypes.put(INT64_LIST_VAL, Schema.FieldType.array(Schema.FieldType.INT64));
-    protoToSchemaTypes.put(FLOAT_LIST_VAL, Schema.FieldType.array(Schema.FieldType.FLOAT));
-    protoToSchemaTypes.put(BOOL_LIST_VAL, Schema.FieldType.array(Schema.FieldType.BOOLEAN));
-    protoToSchemaTypes.put(DOUBLE_LIST_VAL, Schema.FieldType.array(Schema.FieldType.DOUBLE));
-
-    schemaToProtoTypes =
-        protoToSchemaTypes.entrySet().stream()
-            .collect(Collectors.toMap(Map.Entry::getValue, Map.Entry::getKey));
-  }
+  private final int rowCount;
+  private final List<FeatureRowsColumn> columns;
 
   public FeatureRowsBatch(Iterable<FeatureRowProto.FeatureRow> featureRows) {
-    this.schema = this.inferCommonSchema(featureRows);
-    this.initValues();
-    this.toColumnar(featureRows);
-  }
-
-  FeatureRowsBatch(Schema schema, List<Object> values) {
-    this.schema = schema;
-    this.values = values;
-  }
-
-  private Schema inferCommonSchema(Iterable<FeatureRowProto.FeatureRow> featureRows) {
-    Map<String, Schema.FieldType> types = new HashMap<>();
-    List<Schema.Field> fieldsInOrder = new ArrayList<>();
-
-    featureRows.forEach(
-        row ->
-            row.getFieldsList()
-                .forEach(
-                    f -> {
-                      Schema.FieldType fieldType =
-                          protoToSchemaTypes.get(f.getValue().getValCase());
-                      if (types.containsKey(f.getName())) {
-                        if (!types.get(f.getName()).equals(fieldType)) {
-                          throw new RuntimeException("schema cannot be inferred");
-                        }
-
-                        return;
-                      }
-
-                      if (!defaultValues.containsKey(f.getName())) {
-                        defaultValues.put(
-                            f.getName(), getDefaultProtoValue(f.getValue().getValCase()));
-                      }
-
-                      Schema.Field column =
-                          Schema.Field.of(f.getName(), Schema.FieldType.array(fieldType));
-
-                      types.put(f.getName(), fieldType);
-                      fieldsInOrder.add(column);
-
-                      if (featureSetReference == null) {
-                        featureSetReference = row.getFeatureSet();
-                      }
-                    }));
-    Schema schema = Schema.builder().addFields(fieldsInOrder).build();
-    schema.setUUID(UUID.randomUUID());
-    return schema;
-  }
-
-  private void initValues() {
-    IntStream.range(0, schema.getFieldCount())
-        .forEach(
-            idx -> {
-              values.add(new ArrayList<>());
-            });
+    Map<String, FeatureRowsColumn> columnsByName = new HashMap<>();
+    List<FeatureRowsColumn> columnsInOrder = new ArrayList<>();
+    int row = 0;
+    for (FeatureRowProto.FeatureRow featureRow : featureRows) {
+      if (featureSetReference == null) {
+        featureSetReference = featureRow.getFeatureSet();
+      }
+      for (FieldProto.Field field : featureRow.getFieldsList()) {
+        FeatureRowsColumn column = columnsByName.get(field.getName());
+        if (column == null) {
+          column = new FeatureRowsColumn(field.getName());
+          columnsByName.put(field.getName(), column);
+          columnsInOrder.add(column);
+        }
+        // Fields without a value set are compatible with any type
+        ValueProto.Value.ValCase valCase = field.getValue().getValCase();
+        if (valCase != ValueProto.Value.ValCase.VAL_NOT_SET
+            && column.getValCase() != ValueProto.Value.ValCase.VAL_NOT_SET
+            && column.getValCase() != valCase) {
+          throw new RuntimeException("schema cannot be inferred");
+        }
+        column.add(row, field.getValue());
+      }
+      row++;
+    }
+    this.rowCount = row;
+    this.columns = columnsInOrder;
   }
 
-  private void toColumnar(Iterable<FeatureRowProto.FeatureRow> featureRows) {
-    featureRows.forEach(
-        row -> {
-          Map<String, ValueProto.Value> rowValues =
-              row.getFieldsList().stream()
-                  .collect(Collectors.toMap(FieldProto.Field::getName, FieldProto.Field::getValue));
-
-          IntStream.range(0, schema.getFieldCount())
-              .forEach(
-                  idx -> {
-                    Schema.Field field = schema.getField(idx);
-                    if (rowValues.containsKey(field.getName())) {
-                      ((List<Object>) values.get(idx))
-                          .add(protoValueToObject(rowValues.get(field.getName())));
-                    } else {
-                      ((List<Object>) values.get(idx)).add(defaultValues.get(field.getName()));
-                    }
-                  });
-        });
+  private FeatureRowsBatch(
+      String featureSetReference, int rowCount, List<FeatureRowsColumn> columns) {
+    this.featureSetReference = featureSetReference;
+    this.rowCount = rowCount;
+    this.columns = columns;
   }
 
-  public Schema getSchema() {
-    return this.schema;
+  public int getRowCount() {
+    return this.rowCount;
   }
 
   public String getFeatureSetReference() {
@@ -162,67 +102,80 @@ public class FeatureRowsBatch implements Serializable {
     return this;
   }
 
-  public Row toRow() {
-    return Row.withSchema(schema).attachValues(values).build();
-  }
-
-  public static FeatureRowsBatch fromRow(Row row) {
-    return new FeatureRowsBatch(row.getSchema(), row.getValues());
-  }
-
   public Iterator<FeatureRowProto.FeatureRow> getFeatureRows() {
-    return IntStream.range(0, ((List<Object>) values.get(0)).size())
-        .parallel()
-        .mapToObj(
-            rowIdx ->
-                FeatureRowProto.FeatureRow.newBuilder()
-                    .setFeatureSet(getFeatureSetReference())
-                    .addAllFields(
-                        IntStream.range(0, schema.getFieldCount())
-                            .mapToObj(
-                                fieldIdx ->
-                                    FieldProto.Field.newBuilder()
-                                        .setName(schema.getField(fieldIdx).getName())
-                                        .setValue(
-                                            objectToProtoValue(
-                                                ((List<Object>) values.get(fieldIdx)).get(rowIdx),
-                                                schemaToProtoTypes.get(
-                                                    schema
-                                                        .getField(fieldIdx)
-                                                        .getType()
-                                                        .getCollectionElementType())))
-                                        .build())
-                            .collect(Collectors.toList()))
-                    .build())
-        .iterator();
+    List<FeatureRowsColumn.Reader> readers = new ArrayList<>(columns.size());
+    for (FeatureRowsColumn column : columns) {
+      readers.add(column.reader());
+    }
+
+    return new Iterator<FeatureRowProto.FeatureRow>() {
+      private int row = 0;
+
+      @Override
+      public boolean hasNext() {
+        return row < rowCount;
+      }
+
+      @Override
+      public FeatureRowProto.FeatureRow next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        FeatureRowProto.FeatureRow.Builder featureRow =
+            FeatureRowProto.FeatureRow.newBuilder().setFeatureSet(getFeatureSetReference());
+        for (int i = 0; i < columns.size(); i++) {
+          FeatureRowsColumn column = columns.get(i);
+          if (!column.isPresent(row)) {
+            continue;
+          }
+          FieldProto.Field.Builder field = FieldProto.Field.newBuilder().setName(column.getName());
+          if (column.hasValue(row)) {
+            field.setValue(readers.get(i).next());
+          }
+          featureRow.addFields(field);
+        }
+        row++;
+        return featureRow.build();
+      }
+    };
   }
 
+  /**
+   * Encodes the columns of the batch one after the other, each with its null bitmap followed by its
+   * values, so that similar values are next to each other.
+   */
   public static class FeatureRowsCoder extends CustomCoder<FeatureRowsBatch> {
-    private final Coder<Schema> schemaCoder = SerializableCoder.of(Schema.class);
-    private final Coder<String> referenceCoder = StringUtf8Coder.of();
+    private static final NullableCoder<String> referenceCoder =
+        NullableCoder.of(StringUtf8Coder.of());
 
     public static FeatureRowsCoder of() {
       return new FeatureRowsCoder();
     }
 
-    private Coder<Row> getDelegateCoder(Schema schema) {
-      return RowCoderGenerator.generate(schema);
-    }
-
     @Override
     public void encode(FeatureRowsBatch value, OutputStream outStream)
         throws CoderException, IOException {
-      schemaCoder.encode(value.getSchema(), outStream);
       referenceCoder.encode(value.getFeatureSetReference(), outStream);
-      getDelegateCoder(value.getSchema()).encode(value.toRow(), outStream);
+      VarInt.encode(value.rowCount, outStream);
+      VarInt.encode(value.columns.size(), outStream);
+      DataOutputStream out = new DataOutputStream(outStream);
+      for (FeatureRowsColumn column : value.columns) {
+        column.encode(out);
+      }
+      out.flush();
     }
 
     @Override
     public FeatureRowsBatch decode(InputStream inStream) throws CoderException, IOException {
-      Schema schema = schemaCoder.decode(inStream);
       String reference = referenceCoder.decode(inStream);
-      return FeatureRowsBatch.fromRow(getDelegateCoder(schema).decode(inStream))
-          .withFeatureSetReference(reference);
+      int rowCount = VarInt.decodeInt(inStream);
+      int columnCount = VarInt.decodeInt(inStream);
+      DataInputStream in = new DataInputStream(inStream);
+      List<FeatureRowsColumn> columns = new ArrayList<>(columnCount);
+      for (int i = 0; i < columnCount; i++) {
+        columns.add(FeatureRowsColumn.decode(in));
+      }
+      return new FeatureRowsBatch(reference, rowCount, columns);
     }
   }
 }
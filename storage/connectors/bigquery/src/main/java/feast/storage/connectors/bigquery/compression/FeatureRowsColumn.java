@@ -0,0 +1,528 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.bigquery.compression;
+
+import com.google.protobuf.ByteString;
+import feast.proto.types.ValueProto.BoolList;
+import feast.proto.types.ValueProto.BytesList;
+import feast.proto.types.ValueProto.DoubleList;
+import feast.proto.types.ValueProto.FloatList;
+import feast.proto.types.ValueProto.Int32List;
+import feast.proto.types.ValueProto.Int64List;
+import feast.proto.types.ValueProto.StringList;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.Value.ValCase;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.util.VarInt;
+
+/**
+ * Column of a {@link FeatureRowsBatch}, holding the values of a single field of every row in typed
+ * vectors rather than boxed objects.
+ *
+ * <p>A null bitmap records which rows have the field, and a second bitmap which of these rows have
+ * a value set. Only the values that are set are stored, in row order, so fields without a value set
+ * do not constrain the type of the column, which is the type of the first value set. Scalar values
+ * are stored in a primitive array of their type, booleans in a bit set, and strings and bytes are
+ * concatenated into a single byte array together with their lengths. The elements of list values
+ * are flattened into the same vectors, and the length of every list is stored separately.
+ */
+class FeatureRowsColumn implements Serializable {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final String name;
+  private ValCase valCase;
+  private ValCase elementCase;
+  private boolean isList;
+
+  // Rows that have the field
+  private final BitSet present;
+  // Rows that have a value set for the field
+  private final BitSet valued;
+  private int valueCount;
+  // Number of elements of every list value
+  private int[] listLengths;
+  private int elementCount;
+
+  // Only the vector of the element type of the column is allocated
+  private int[] ints;
+  private long[] longs;
+  private float[] floats;
+  private double[] doubles;
+  private BitSet bools;
+  private int[] byteLengths;
+  private byte[] bytes;
+  private int byteCount;
+
+  FeatureRowsColumn(String name) {
+    this(name, ValCase.VAL_NOT_SET, new BitSet(), new BitSet());
+  }
+
+  private FeatureRowsColumn(String name, ValCase valCase, BitSet present, BitSet valued) {
+    this.name = name;
+    this.present = present;
+    this.valued = valued;
+    setValCase(valCase);
+  }
+
+  private void setValCase(ValCase valCase) {
+    this.valCase = valCase;
+    this.elementCase = getElementCase(valCase);
+    this.isList = elementCase != valCase;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  /** @return type of the values of the column, or VAL_NOT_SET if no value is set */
+  ValCase getValCase() {
+    return valCase;
+  }
+
+  boolean isPresent(int row) {
+    return present.get(row);
+  }
+
+  boolean hasValue(int row) {
+    return valued.get(row);
+  }
+
+  /**
+   * Append the value of a row. Rows must be appended in order.
+   *
+   * @param row index of the row in the batch
+   * @param value value of the field, which must be unset or of the type of the column
+   */
+  void add(int row, Value value) {
+    present.set(row);
+    if (value.getValCase() == ValCase.VAL_NOT_SET) {
+      return;
+    }
+    if (valCase == ValCase.VAL_NOT_SET) {
+      setValCase(value.getValCase());
+      allocate(INITIAL_CAPACITY, INITIAL_CAPACITY, INITIAL_CAPACITY * 8);
+    }
+    valued.set(row);
+    if (isList) {
+      listLengths = grow(listLengths, valueCount + 1);
+      listLengths[valueCount] = addListElements(value);
+    } else {
+      addScalar(value);
+    }
+    valueCount++;
+  }
+
+  /** @return reader of the values of the column, in row order */
+  Reader reader() {
+    return new Reader();
+  }
+
+  private int addListElements(Value value) {
+    switch (valCase) {
+      case BYTES_LIST_VAL:
+        value.getBytesListVal().getValList().forEach(this::addBytes);
+        return value.getBytesListVal().getValCount();
+      case STRING_LIST_VAL:
+        for (String element : value.getStringListVal().getValList()) {
+          addBytes(element.getBytes(StandardCharsets.UTF_8));
+        }
+        return value.getStringListVal().getValCount();
+      case INT32_LIST_VAL:
+        value.getInt32ListVal().getValList().forEach(this::addInt);
+        return value.getInt32ListVal().getValCount();
+      case INT64_LIST_VAL:
+        value.getInt64ListVal().getValList().forEach(this::addLong);
+        return value.getInt64ListVal().getValCount();
+      case FLOAT_LIST_VAL:
+        value.getFloatListVal().getValList().forEach(this::addFloat);
+        return value.getFloatListVal().getValCount();
+      case DOUBLE_LIST_VAL:
+        value.getDoubleListVal().getValList().forEach(this::addDouble);
+        return value.getDoubleListVal().getValCount();
+      case BOOL_LIST_VAL:
+        value.getBoolListVal().getValList().forEach(this::addBool);
+        return value.getBoolListVal().getValCount();
+      default:
+        throw new IllegalArgumentException(String.format("Unsupported list type: %s", valCase));
+    }
+  }
+
+  private void addScalar(Value value) {
+    switch (valCase) {
+      case BYTES_VAL:
+        addBytes(value.getBytesVal());
+        break;
+      case STRING_VAL:
+        addBytes(value.getStringVal().getBytes(StandardCharsets.UTF_8));
+        break;
+      case INT32_VAL:
+        addInt(value.getInt32Val());
+        break;
+      case INT64_VAL:
+        addLong(value.getInt64Val());
+        break;
+      case FLOAT_VAL:
+        addFloat(value.getFloatVal());
+        break;
+      case DOUBLE_VAL:
+        addDouble(value.getDoubleVal());
+        break;
+      case BOOL_VAL:
+        addBool(value.getBoolVal());
+        break;
+      default:
+        throw new IllegalArgumentException(String.format("Unsupported type: %s", valCase));
+    }
+  }
+
+  private void addInt(int value) {
+    if (elementCount == ints.length) {
+      ints = Arrays.copyOf(ints, ints.length * 2);
+    }
+    ints[elementCount++] = value;
+  }
+
+  private void addLong(long value) {
+    if (elementCount == longs.length) {
+      longs = Arrays.copyOf(longs, longs.length * 2);
+    }
+    longs[elementCount++] = value;
+  }
+
+  private void addFloat(float value) {
+    if (elementCount == floats.length) {
+      floats = Arrays.copyOf(floats, floats.length * 2);
+    }
+    floats[elementCount++] = value;
+  }
+
+  private void addDouble(double value) {
+    if (elementCount == doubles.length) {
+      doubles = Arrays.copyOf(doubles, doubles.length * 2);
+    }
+    doubles[elementCount++] = value;
+  }
+
+  private void addBool(boolean value) {
+    bools.set(elementCount++, value);
+  }
+
+  private void addBytes(ByteString value) {
+    byteLengths = grow(byteLengths, elementCount + 1);
+    byteLengths[elementCount++] = value.size();
+    if (byteCount + value.size() > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, byteCount + value.size()));
+    }
+    value.copyTo(bytes, byteCount);
+    byteCount += value.size();
+  }
+
+  private void addBytes(byte[] value) {
+    byteLengths = grow(byteLengths, elementCount + 1);
+    byteLengths[elementCount++] = value.length;
+    if (byteCount + value.length > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, byteCount + value.length));
+    }
+    System.arraycopy(value, 0, bytes, byteCount, value.length);
+    byteCount += value.length;
+  }
+
+  private static int[] grow(int[] array, int minCapacity) {
+    if (minCapacity > array.length) {
+      return Arrays.copyOf(array, Math.max(array.length * 2, minCapacity));
+    }
+    return array;
+  }
+
+  /** Allocate the vector of the element type of the column with the given capacities. */
+  private void allocate(int valueCapacity, int elementCapacity, int byteCapacity) {
+    if (isList) {
+      listLengths = new int[valueCapacity];
+    }
+    switch (elementCase) {
+      case BYTES_VAL:
+      case STRING_VAL:
+        byteLengths = new int[elementCapacity];
+        bytes = new byte[byteCapacity];
+        break;
+      case INT32_VAL:
+        ints = new int[elementCapacity];
+        break;
+      case INT64_VAL:
+        longs = new long[elementCapacity];
+        break;
+      case FLOAT_VAL:
+        floats = new float[elementCapacity];
+        break;
+      case DOUBLE_VAL:
+        doubles = new double[elementCapacity];
+        break;
+      case BOOL_VAL:
+        bools = new BitSet(elementCapacity);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Encode the column. Lengths are encoded as variable length integers, and elements with the fixed
+   * width of their type, so that the values of a column compress well.
+   *
+   * @param out stream to write the column to
+   * @throws IOException if the column cannot be written
+   */
+  void encode(DataOutputStream out) throws IOException {
+    out.writeUTF(name);
+    VarInt.encode(valCase.getNumber(), out);
+    writeBytes(present.toByteArray(), out);
+    writeBytes(valued.toByteArray(), out);
+    VarInt.encode(valueCount, out);
+    VarInt.encode(elementCount, out);
+    if (isList) {
+      for (int i = 0; i < valueCount; i++) {
+        VarInt.encode(listLengths[i], out);
+      }
+    }
+    switch (elementCase) {
+      case BYTES_VAL:
+      case STRING_VAL:
+        for (int i = 0; i < elementCount; i++) {
+          VarInt.encode(byteLengths[i], out);
+        }
+        out.write(bytes, 0, byteCount);
+        break;
+      case INT32_VAL:
+        for (int i = 0; i < elementCount; i++) {
+          out.writeInt(ints[i]);
+        }
+        break;
+      case INT64_VAL:
+        for (int i = 0; i < elementCount; i++) {
+          out.writeLong(longs[i]);
+        }
+        break;
+      case FLOAT_VAL:
+        for (int i = 0; i < elementCount; i++) {
+          out.writeFloat(floats[i]);
+        }
+        break;
+      case DOUBLE_VAL:
+        for (int i = 0; i < elementCount; i++) {
+          out.writeDouble(doubles[i]);
+        }
+        break;
+      case BOOL_VAL:
+        writeBytes(bools.toByteArray(), out);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Decode a column encoded with {@link #encode(DataOutputStream)}.
+   *
+   * @param in stream to read the column from
+   * @return decoded column
+   * @throws IOException if the column cannot be read
+   */
+  static FeatureRowsColumn decode(DataInputStream in) throws IOException {
+    String name = in.readUTF();
+    ValCase valCase = ValCase.forNumber(VarInt.decodeInt(in));
+    if (valCase == null) {
+      throw new CoderException(String.format("Unknown type of column %s", name));
+    }
+    FeatureRowsColumn column =
+        new FeatureRowsColumn(
+            name, valCase, BitSet.valueOf(readBytes(in)), BitSet.valueOf(readBytes(in)));
+    column.valueCount = VarInt.decodeInt(in);
+    column.elementCount = VarInt.decodeInt(in);
+    column.allocate(column.valueCount, column.elementCount, 0);
+    if (column.isList) {
+      for (int i = 0; i < column.valueCount; i++) {
+        column.listLengths[i] = VarInt.decodeInt(in);
+      }
+    }
+    switch (column.elementCase) {
+      case BYTES_VAL:
+      case STRING_VAL:
+        for (int i = 0; i < column.elementCount; i++) {
+          column.byteLengths[i] = VarInt.decodeInt(in);
+          column.byteCount += column.byteLengths[i];
+        }
+        column.bytes = new byte[column.byteCount];
+        in.readFully(column.bytes);
+        break;
+      case INT32_VAL:
+        for (int i = 0; i < column.elementCount; i++) {
+          column.ints[i] = in.readInt();
+        }
+        break;
+      case INT64_VAL:
+        for (int i = 0; i < column.elementCount; i++) {
+          column.longs[i] = in.readLong();
+        }
+        break;
+      case FLOAT_VAL:
+        for (int i = 0; i < column.elementCount; i++) {
+          column.floats[i] = in.readFloat();
+        }
+        break;
+      case DOUBLE_VAL:
+        for (int i = 0; i < column.elementCount; i++) {
+          column.doubles[i] = in.readDouble();
+        }
+        break;
+      case BOOL_VAL:
+        column.bools = BitSet.valueOf(readBytes(in));
+        break;
+      default:
+        break;
+    }
+    return column;
+  }
+
+  private static void writeBytes(byte[] bytes, DataOutputStream out) throws IOException {
+    VarInt.encode(bytes.length, out);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[VarInt.decodeInt(in)];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  /** @return type of the elements of list values, or the given type for scalar values */
+  private static ValCase getElementCase(ValCase valCase) {
+    switch (valCase) {
+      case BYTES_LIST_VAL:
+        return ValCase.BYTES_VAL;
+      case STRING_LIST_VAL:
+        return ValCase.STRING_VAL;
+      case INT32_LIST_VAL:
+        return ValCase.INT32_VAL;
+      case INT64_LIST_VAL:
+        return ValCase.INT64_VAL;
+      case FLOAT_LIST_VAL:
+        return ValCase.FLOAT_VAL;
+      case DOUBLE_LIST_VAL:
+        return ValCase.DOUBLE_VAL;
+      case BOOL_LIST_VAL:
+        return ValCase.BOOL_VAL;
+      default:
+        return valCase;
+    }
+  }
+
+  /** Reads the values of the rows that have a value set for the field, in row order. */
+  class Reader {
+    private int valueIndex;
+    private int elementIndex;
+    private int byteOffset;
+
+    /** @return value of the next row that has a value set for the field */
+    Value next() {
+      Value.Builder value = Value.newBuilder();
+      if (!isList) {
+        valueIndex++;
+        switch (valCase) {
+          case BYTES_VAL:
+            return value.setBytesVal(nextBytes()).build();
+          case STRING_VAL:
+            return value.setStringVal(nextBytes().toStringUtf8()).build();
+          case INT32_VAL:
+            return value.setInt32Val(ints[elementIndex++]).build();
+          case INT64_VAL:
+            return value.setInt64Val(longs[elementIndex++]).build();
+          case FLOAT_VAL:
+            return value.setFloatVal(floats[elementIndex++]).build();
+          case DOUBLE_VAL:
+            return value.setDoubleVal(doubles[elementIndex++]).build();
+          case BOOL_VAL:
+            return value.setBoolVal(bools.get(elementIndex++)).build();
+          default:
+            return value.build();
+        }
+      }
+
+      int length = listLengths[valueIndex++];
+      switch (valCase) {
+        case BYTES_LIST_VAL:
+          BytesList.Builder bytesList = BytesList.newBuilder();
+          for (int i = 0; i < length; i++) {
+            bytesList.addVal(nextBytes());
+          }
+          return value.setBytesListVal(bytesList).build();
+        case STRING_LIST_VAL:
+          StringList.Builder stringList = StringList.newBuilder();
+          for (int i = 0; i < length; i++) {
+            stringList.addVal(nextBytes().toStringUtf8());
+          }
+          return value.setStringListVal(stringList).build();
+        case INT32_LIST_VAL:
+          Int32List.Builder int32List = Int32List.newBuilder();
+          for (int i = 0; i < length; i++) {
+            int32List.addVal(ints[elementIndex++]);
+          }
+          return value.setInt32ListVal(int32List).build();
+        case INT64_LIST_VAL:
+          Int64List.Builder int64List = Int64List.newBuilder();
+          for (int i = 0; i < length; i++) {
+            int64List.addVal(longs[elementIndex++]);
+          }
+          return value.setInt64ListVal(int64List).build();
+        case FLOAT_LIST_VAL:
+          FloatList.Builder floatList = FloatList.newBuilder();
+          for (int i = 0; i < length; i++) {
+            floatList.addVal(floats[elementIndex++]);
+          }
+          return value.setFloatListVal(floatList).build();
+        case DOUBLE_LIST_VAL:
+          DoubleList.Builder doubleList = DoubleList.newBuilder();
+          for (int i = 0; i < length; i++) {
+            doubleList.addVal(doubles[elementIndex++]);
+          }
+          return value.setDoubleListVal(doubleList).build();
+        case BOOL_LIST_VAL:
+          BoolList.Builder boolList = BoolList.newBuilder();
+          for (int i = 0; i < length; i++) {
+            boolList.addVal(bools.get(elementIndex++));
+          }
+          return value.setBoolListVal(boolList).build();
+        default:
+          return value.build();
+      }
+    }
+
+    private ByteString nextBytes() {
+      int length = byteLengths[elementIndex++];
+      ByteString value = ByteString.copyFrom(bytes, byteOffset, length);
+      byteOffset += length;
+      return value;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.bigquery.retriever;
+
+import com.google.cloud.bigquery.storage.v1beta1.AvroProto.AvroRows;
+import com.google.protobuf.ByteString;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesStreamResponse;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesStreamResponse.Column;
+import feast.proto.types.ValueProto.BoolList;
+import feast.proto.types.ValueProto.BytesList;
+import feast.proto.types.ValueProto.DoubleList;
+import feast.proto.types.ValueProto.FloatList;
+import feast.proto.types.ValueProto.Int32List;
+import feast.proto.types.ValueProto.Int64List;
+import feast.proto.types.ValueProto.StringList;
+import feast.proto.types.ValueProto.Value;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+
+/**
+ * Decodes the blocks of Avro rows read from a BigQuery Storage API stream into batches of columns.
+ * Nullable columns are unions with null, and repeated columns are arrays. Timestamps are longs of
+ * microseconds since epoch, and are kept as such.
+ *
+ * <p>A decoder reuses its record and binary decoder between blocks, so every read stream should
+ * have its own decoder.
+ */
+class AvroRowsDecoder {
+
+  private final List<Schema.Field> fields;
+  private final GenericDatumReader<GenericRecord> reader;
+  private BinaryDecoder decoder;
+  private GenericRecord record;
+
+  AvroRowsDecoder(String avroSchema) {
+    Schema schema = new Schema.Parser().parse(avroSchema);
+    this.fields = schema.getFields();
+    this.reader = new GenericDatumReader<>(schema);
+  }
+
+  /**
+   * Decode a block of rows.
+   *
+   * @param avroRows serialized rows of a read rows response
+   * @return batch holding a column for every field of the schema
+   * @throws IOException if the rows don't match the schema
+   */
+  GetBatchFeaturesStreamResponse decode(AvroRows avroRows) throws IOException {
+    List<Column.Builder> columns = new ArrayList<>(fields.size());
+    for (Schema.Field field : fields) {
+      columns.add(Column.newBuilder().setName(field.name()));
+    }
+
+    decoder =
+        DecoderFactory.get().binaryDecoder(avroRows.getSerializedBinaryRows().newInput(), decoder);
+    for (long row = 0; row < avroRows.getRowCount(); row++) {
+      record = reader.read(record, decoder);
+      for (int i = 0; i < fields.size(); i++) {
+        columns.get(i).addValues(toValue(fields.get(i).schema(), record.get(i)));
+      }
+    }
+
+    GetBatchFeaturesStreamResponse.Builder batch =
+        GetBatchFeaturesStreamResponse.newBuilder().setRowCount(avroRows.getRowCount());
+    columns.forEach(batch::addColumns);
+    return batch.build();
+  }
+
+  private static Value toValue(Schema schema, Object value) {
+    if (value == null) {
+      return Value.getDefaultInstance();
+    }
+    switch (schema.getType()) {
+      case UNION:
+        for (Schema type : schema.getTypes()) {
+          if (type.getType() != Schema.Type.NULL) {
+            return toValue(type, value);
+          }
+        }
+        return Value.getDefaultInstance();
+      case STRING:
+        return Value.newBuilder().setStringVal(value.toString()).build();
+      case LONG:
+        return Value.newBuilder().setInt64Val((Long) value).build();
+      case INT:
+        return Value.newBuilder().setInt32Val((Integer) value).build();
+      case DOUBLE:
+        return Value.newBuilder().setDoubleVal((Double) value).build();
+      case FLOAT:
+        return Value.newBuilder().setFloatVal((Float) value).build();
+      case BOOLEAN:
+        return Value.newBuilder().setBoolVal((Boolean) value).build();
+      case BYTES:
+        return Value.newBuilder().setBytesVal(toByteString(value)).build();
+      case ARRAY:
+        return toListValue(schema.getElementType(), (List<?>) value);
+      default:
+        throw new IllegalArgumentException(
+            String.format("Unsupported Avro type %s of result column", schema.getType()));
+    }
+  }
+
+  private static Value toListValue(Schema elementSchema, List<?> values) {
+    Value.Builder value = Value.newBuilder();
+    switch (elementSchema.getType()) {
+      case STRING:
+        StringList.Builder strings = StringList.newBuilder();
+        values.forEach(element -> strings.addVal(element.toString()));
+        return value.setStringListVal(strings).build();
+      case LONG:
+        Int64List.Builder longs = Int64List.newBuilder();
+        values.forEach(element -> longs.addVal((Long) element));
+        return value.setInt64ListVal(longs).build();
+      case INT:
+        Int32List.Builder ints = Int32List.newBuilder();
+        values.forEach(element -> ints.addVal((Integer) element));
+        return value.setInt32ListVal(ints).build();
+      case DOUBLE:
+        DoubleList.Builder doubles = DoubleList.newBuilder();
+        values.forEach(element -> doubles.addVal((Double) element));
+        return value.setDoubleListVal(doubles).build();
+      case FLOAT:
+        FloatList.Builder floats = FloatList.newBuilder();
+        values.forEach(element -> floats.addVal((Float) element));
+        return value.setFloatListVal(floats).build();
+      case BOOLEAN:
+        BoolList.Builder bools = BoolList.newBuilder();
+        values.forEach(element -> bools.addVal((Boolean) element));
+        return value.setBoolListVal(bools).build();
+      case BYTES:
+        BytesList.Builder bytes = BytesList.newBuilder();
+        values.forEach(element -> bytes.addVal(toByteString(element)));
+        return value.setBytesListVal(bytes).build();
+      default:
+        throw new IllegalArgumentException(
+            String.format(
+                "Unsupported Avro element type %s of result column", elementSchema.getType()));
+    }
+  }
+
+  private static ByteString toByteString(Object value) {
+    return ByteString.copyFrom(((ByteBuffer) value).duplicate());
+  }
+}
@@ -19,24 +19,61 @@ package feast.storage.connectors.bigquery.retriever;
 import static feast.storage.connectors.bigquery.retriever.QueryTemplater.createEntityTableUUIDQuery;
 import static feast.storage.connectors.bigquery.retriever.QueryTemplater.createTimestampLimitQuery;
 
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.gax.rpc.ServerStream;
+import com.google.api.services.bigquery.model.TableRow;
 import com.google.auto.value.AutoValue;
 import com.google.cloud.RetryOption;
 import com.google.cloud.bigquery.*;
+import com.google.cloud.bigquery.storage.v1beta1.BigQueryStorageClient;
+import com.google.cloud.bigquery.storage.v1beta1.Storage.CreateReadSessionRequest;
+import com.google.cloud.bigquery.storage.v1beta1.Storage.DataFormat;
+import com.google.cloud.bigquery.storage.v1beta1.Storage.ReadRowsRequest;
+import com.google.cloud.bigquery.storage.v1beta1.Storage.ReadRowsResponse;
+import com.google.cloud.bigquery.storage.v1beta1.Storage.ReadSession;
+import com.google.cloud.bigquery.storage.v1beta1.Storage.Stream;
+import com.google.cloud.bigquery.storage.v1beta1.Storage.StreamPosition;
+import com.google.cloud.bigquery.storage.v1beta1.TableReferenceProto.TableReference;
 import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
+import com.google.common.base.Suppliers;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.TextFormat;
+import com.google.protobuf.util.Timestamps;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.serving.ServingAPIProto;
 import feast.proto.serving.ServingAPIProto.DatasetSource;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesStreamResponse;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.types.ValueProto.Value;
 import feast.storage.api.retriever.FeatureSetRequest;
 import feast.storage.api.retriever.HistoricalRetrievalResult;
 import feast.storage.api.retriever.HistoricalRetriever;
+import feast.storage.api.retriever.StreamedEntityRetrieval;
+import feast.storage.connectors.bigquery.common.TypeUtil;
 import io.grpc.Status;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.threeten.bp.Duration;
@@ -49,11 +86,26 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
 
   public static final long TEMP_TABLE_EXPIRY_DURATION_MS = Duration.ofDays(1).toMillis();
   private static final long SUBQUERY_TIMEOUT_SECS = 900; // 15 minutes
+  private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
 
   public static HistoricalRetriever create(Map<String, String> config) {
 
     BigQuery bigquery = BigQueryOptions.getDefaultInstance().getService();
     Storage storage = StorageOptions.getDefaultInstance().getService();
+    // Only streamed retrievals read with the BigQuery Storage API, so its client, and the channels
+    // it opens, are created on the first of them
+    Supplier<BigQueryStorageClient> bigqueryStorage =
+        Suppliers.memoize(
+            () -> {
+              try {
+                return BigQueryStorageClient.create();
+              } catch (IOException e) {
+                throw Status.UNAVAILABLE
+                    .withDescription("Unable to create BigQuery Storage API client")
+                    .withCause(e)
+                    .asRuntimeException();
+              }
+            });
 
     String jobStagingLocation = config.get("staging_location");
     if (!jobStagingLocation.contains("://")) {
@@ -69,6 +121,19 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
               + jobStagingLocation);
     }
 
+    // Read streams of all streamed retrievals share a bounded pool of threads
+    int streamReadThreads = Integer.parseInt(config.getOrDefault("stream_read_threads", "0"));
+    if (streamReadThreads <= 0) {
+      streamReadThreads = Runtime.getRuntime().availableProcessors();
+    }
+    ExecutorService streamReadExecutor =
+        Executors.newFixedThreadPool(
+            streamReadThreads,
+            new ThreadFactoryBuilder()
+                .setNameFormat("bigquery-stream-read-%d")
+                .setDaemon(true)
+                .build());
+
     return builder()
         .setBigquery(bigquery)
         .setDatasetId(config.get("dataset_id"))
@@ -77,6 +142,10 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
         .setInitialRetryDelaySecs(Integer.parseInt(config.get("initial_retry_delay_seconds")))
         .setTotalTimeoutSecs(Integer.parseInt(config.get("total_timeout_seconds")))
         .setStorage(storage)
+        .setBigqueryStorage(bigqueryStorage)
+        .setStreamReadExecutor(streamReadExecutor)
+        .setSingleQueryRetrieval(
+            Boolean.parseBoolean(config.getOrDefault("single_query_retrieval", "false")))
         .build();
   }
 
@@ -94,8 +163,21 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
 
   public abstract Storage storage();
 
+  /** Client of the BigQuery Storage API, reading the results of streamed retrievals. */
+  public abstract Supplier<BigQueryStorageClient> bigqueryStorage();
+
+  /** Executor reading the streams of the result tables of streamed retrievals. */
+  public abstract ExecutorService streamReadExecutor();
+
+  /**
+   * Whether all the feature sets are joined to the entity dataset by a single script that exports
+   * the result directly, instead of one query per feature set followed by a join query and an
+   * extract job.
+   */
+  public abstract boolean singleQueryRetrieval();
+
   public static Builder builder() {
-    return new AutoValue_BigQueryHistoricalRetriever.Builder();
+    return new AutoValue_BigQueryHistoricalRetriever.Builder().setSingleQueryRetrieval(false);
   }
 
   @AutoValue.Builder
@@ -114,6 +196,12 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
 
     public abstract Builder setStorage(Storage storage);
 
+    public abstract Builder setBigqueryStorage(Supplier<BigQueryStorageClient> bigqueryStorage);
+
+    public abstract Builder setStreamReadExecutor(ExecutorService streamReadExecutor);
+
+    public abstract Builder setSingleQueryRetrieval(boolean singleQueryRetrieval);
+
     public abstract BigQueryHistoricalRetriever build();
   }
 
@@ -128,6 +216,10 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
     List<FeatureSetQueryInfo> featureSetQueryInfos =
         QueryTemplater.getFeatureSetInfos(featureSetRequests);
 
+    if (singleQueryRetrieval()) {
+      return getHistoricalFeaturesInSingleQuery(retrievalId, datasetSource, featureSetQueryInfos);
+    }
+
     // 1. load entity table
     Table entityTable;
     String entityTableName;
@@ -143,36 +235,31 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
               String.format("Unable to load entity table to BigQuery: %s", e.toString())));
     }
 
-    Schema entityTableSchema = entityTable.getDefinition().getSchema();
-    List<String> entityTableColumnNames =
-        entityTableSchema.getFields().stream()
-            .map(Field::getName)
-            .filter(name -> !name.equals("event_timestamp"))
-            .collect(Collectors.toList());
+    List<String> entityTableColumnNames = getEntityTableColumnNames(entityTable);
 
-    // 2. Retrieve the temporal bounds of the entity dataset provided
-    FieldValueList timestampLimits = getTimestampLimits(entityTableName);
-
-    // 3. Generate the subqueries
-    List<String> featureSetQueries =
-        generateQueries(entityTableName, timestampLimits, featureSetQueryInfos);
-
-    QueryJobConfiguration queryConfig;
+    return retrieveFeatures(
+        retrievalId, entityTableName, entityTableColumnNames, featureSetQueryInfos);
+  }
 
+  /**
+   * Join the feature sets to an entity table holding the UUIDs of its rows, with one query per
+   * feature set followed by a join query, and export the result to the staging location.
+   */
+  private HistoricalRetrievalResult retrieveFeatures(
+      String retrievalId,
+      String entityTableName,
+      List<String> entityTableColumnNames,
+      List<FeatureSetQueryInfo> featureSetQueryInfos) {
     try {
-      // 4. Run the subqueries in parallel then collect the outputs
-      Job queryJob =
-          runBatchQuery(
-              entityTableName, entityTableColumnNames, featureSetQueryInfos, featureSetQueries);
-      queryConfig = queryJob.getConfiguration();
+      TableId resultTable =
+          joinFeatureSets(entityTableName, entityTableColumnNames, featureSetQueryInfos);
       String exportTableDestinationUri =
           String.format("%s/%s/*.avro", jobStagingLocation(), retrievalId);
 
       // 5. Export the table
       // Hardcode the format to Avro for now
       ExtractJobConfiguration extractConfig =
-          ExtractJobConfiguration.of(
-              queryConfig.getDestinationTable(), exportTableDestinationUri, "Avro");
+          ExtractJobConfiguration.of(resultTable, exportTableDestinationUri, "Avro");
       Job extractJob = bigquery().create(JobInfo.of(extractConfig));
       waitForJob(extractJob);
 
@@ -186,6 +273,431 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
         retrievalId, fileUris, ServingAPIProto.DataFormat.DATA_FORMAT_AVRO);
   }
 
+  /**
+   * Join the feature sets to an entity table holding the UUIDs of its rows, with one query per
+   * feature set followed by a join query.
+   *
+   * @return temporary table holding the result of the join
+   */
+  private TableId joinFeatureSets(
+      String entityTableName,
+      List<String> entityTableColumnNames,
+      List<FeatureSetQueryInfo> featureSetQueryInfos)
+      throws InterruptedException, IOException {
+    // 2. Retrieve the temporal bounds of the entity dataset provided
+    FieldValueList timestampLimits = getTimestampLimits(entityTableName);
+
+    // 3. Generate the subqueries
+    List<String> featureSetQueries =
+        generateQueries(entityTableName, timestampLimits, featureSetQueryInfos);
+
+    // 4. Run the subqueries in parallel then collect the outputs
+    Job queryJob =
+        runBatchQuery(
+            entityTableName, entityTableColumnNames, featureSetQueryInfos, featureSetQueries);
+    QueryJobConfiguration queryConfig = queryJob.getConfiguration();
+    return queryConfig.getDestinationTable();
+  }
+
+  /**
+   * Retrieve historical features with a single script, which generates the entity row UUIDs,
+   * computes the temporal bounds of the entity dataset, joins all the feature sets and exports the
+   * result. Only the entity dataset load and the script job are run.
+   */
+  private HistoricalRetrievalResult getHistoricalFeaturesInSingleQuery(
+      String retrievalId,
+      DatasetSource datasetSource,
+      List<FeatureSetQueryInfo> featureSetQueryInfos) {
+    // 1. load entity table
+    Table entityTable;
+    try {
+      entityTable = loadEntities(datasetSource);
+    } catch (Exception e) {
+      return HistoricalRetrievalResult.error(
+          retrievalId,
+          new RuntimeException(
+              String.format("Unable to load entity table to BigQuery: %s", e.toString())));
+    }
+
+    return retrieveFeaturesInSingleQuery(
+        retrievalId,
+        entityTable.getTableId(),
+        getEntityTableColumnNames(entityTable),
+        featureSetQueryInfos);
+  }
+
+  /**
+   * Join the feature sets to an entity table without UUIDs with a single script, and export the
+   * result to the staging location.
+   */
+  private HistoricalRetrievalResult retrieveFeaturesInSingleQuery(
+      String retrievalId,
+      TableId entityTableId,
+      List<String> entityTableColumnNames,
+      List<FeatureSetQueryInfo> featureSetQueryInfos) {
+    try {
+      // 2. Join the feature sets and export the result
+      String script =
+          QueryTemplater.createSingleQueryPointInTimeScript(
+              featureSetQueryInfos,
+              entityTableColumnNames,
+              projectId(),
+              datasetId(),
+              generateFullTableName(entityTableId),
+              String.format("%s/%s/*.avro", jobStagingLocation(), retrievalId));
+      Job scriptJob = bigquery().create(JobInfo.of(QueryJobConfiguration.of(script)));
+      waitForJob(scriptJob);
+    } catch (BigQueryException | InterruptedException | IOException e) {
+      return HistoricalRetrievalResult.error(retrievalId, e);
+    } catch (Exception e) {
+      return HistoricalRetrievalResult.error(
+          retrievalId,
+          new RuntimeException(
+              String.format("Unable to retrieve historical features: %s", e.toString())));
+    }
+
+    List<String> fileUris = parseOutputFileURIs(retrievalId);
+
+    return HistoricalRetrievalResult.success(
+        retrievalId, fileUris, ServingAPIProto.DataFormat.DATA_FORMAT_AVRO);
+  }
+
+  @Override
+  public boolean supportsStreamedResults() {
+    return true;
+  }
+
+  /**
+   * Retrieve historical features into a temporary table instead of exporting them, and read the
+   * table back with the BigQuery Storage API. The table is split into several read streams that are
+   * read in parallel, and every block of rows read is passed to the consumer as a batch of columns.
+   */
+  @Override
+  public void getHistoricalFeaturesAsStream(
+      String retrievalId,
+      DatasetSource datasetSource,
+      List<FeatureSetRequest> featureSetRequests,
+      Consumer<GetBatchFeaturesStreamResponse> batchConsumer) {
+    List<FeatureSetQueryInfo> featureSetQueryInfos =
+        QueryTemplater.getFeatureSetInfos(featureSetRequests);
+
+    // 1. load entity table
+    Table entityTable = loadEntities(datasetSource);
+    List<String> entityTableColumnNames = getEntityTableColumnNames(entityTable);
+
+    try {
+      TableId resultTable;
+      if (singleQueryRetrieval()) {
+        // 2. Join the feature sets into the result table
+        resultTable = TableId.of(projectId(), datasetId(), createTempTableName());
+        String script =
+            QueryTemplater.createSingleQueryPointInTimeTableScript(
+                featureSetQueryInfos,
+                entityTableColumnNames,
+                projectId(),
+                datasetId(),
+                generateFullTableName(entityTable.getTableId()),
+                generateFullTableName(resultTable));
+        waitForJob(bigquery().create(JobInfo.of(QueryJobConfiguration.of(script))));
+      } else {
+        TableId entityTableWithUUIDs = generateUUIDs(entityTable);
+        resultTable =
+            joinFeatureSets(
+                generateFullTableName(entityTableWithUUIDs),
+                entityTableColumnNames,
+                featureSetQueryInfos);
+      }
+
+      // 5. Read the result table
+      readTable(resultTable, batchConsumer);
+    } catch (BigQueryException | IOException e) {
+      throw Status.INTERNAL
+          .withDescription("Unable to retrieve historical features: " + e.getMessage())
+          .withCause(e)
+          .asRuntimeException();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Status.CANCELLED
+          .withDescription("Historical retrieval was interrupted")
+          .withCause(e)
+          .asRuntimeException();
+    }
+  }
+
+  private void readTable(TableId tableId, Consumer<GetBatchFeaturesStreamResponse> batchConsumer)
+      throws InterruptedException {
+    ReadSession session =
+        bigqueryStorage()
+            .get()
+            .createReadSession(
+                CreateReadSessionRequest.newBuilder()
+                    .setParent("projects/" + projectId())
+                    .setTableReference(
+                        TableReference.newBuilder()
+                            .setProjectId(tableId.getProject())
+                            .setDatasetId(tableId.getDataset())
+                            .setTableId(tableId.getTable()))
+                    .setRequestedStreams(Runtime.getRuntime().availableProcessors())
+                    .setFormat(DataFormat.AVRO)
+                    .build());
+    // The session of an empty table has no stream
+    if (session.getStreamsCount() == 0) {
+      return;
+    }
+
+    List<Future<?>> reads = new ArrayList<>();
+    try {
+      for (Stream stream : session.getStreamsList()) {
+        reads.add(
+            streamReadExecutor()
+                .submit(
+                    () -> {
+                      readStream(session, stream, batchConsumer);
+                      return null;
+                    }));
+      }
+      for (Future<?> read : reads) {
+        try {
+          read.get();
+        } catch (ExecutionException e) {
+          throw Status.INTERNAL
+              .withDescription("Unable to read result table: " + e.getCause().getMessage())
+              .withCause(e.getCause())
+              .asRuntimeException();
+        }
+      }
+    } finally {
+      // Stop the other reads if one of them failed, or if the retrieval was cancelled
+      for (Future<?> read : reads) {
+        read.cancel(true);
+      }
+    }
+  }
+
+  private void readStream(
+      ReadSession session, Stream stream, Consumer<GetBatchFeaturesStreamResponse> batchConsumer)
+      throws IOException {
+    AvroRowsDecoder decoder = new AvroRowsDecoder(session.getAvroSchema().getSchema());
+    ServerStream<ReadRowsResponse> responses =
+        bigqueryStorage()
+            .get()
+            .readRowsCallable()
+            .call(
+                ReadRowsRequest.newBuilder()
+                    .setReadPosition(StreamPosition.newBuilder().setStream(stream))
+                    .build());
+    for (ReadRowsResponse response : responses) {
+      if (Thread.currentThread().isInterrupted()) {
+        responses.cancel();
+        return;
+      }
+      if (response.getAvroRows().getRowCount() == 0) {
+        continue;
+      }
+      GetBatchFeaturesStreamResponse batch = decoder.decode(response.getAvroRows());
+      // The next rows are only requested from the read stream once the consumer returns, so a
+      // consumer waiting for the client to be ready holds back the reads of all streams
+      synchronized (batchConsumer) {
+        batchConsumer.accept(batch);
+      }
+    }
+  }
+
+  @Override
+  public boolean supportsStreamedEntities() {
+    return true;
+  }
+
+  /**
+   * Start a retrieval whose entity rows are written to a temporary table by a load job, through a
+   * write channel that uploads the rows while they are streamed by the client. The UUIDs of the
+   * rows are assigned as they are written, so neither staged entity files nor a UUID query are
+   * needed.
+   */
+  @Override
+  public StreamedEntityRetrieval startStreamedEntityRetrieval(
+      String retrievalId, List<FeatureSetRequest> featureSetRequests) {
+    List<FeatureSetQueryInfo> featureSetQueryInfos =
+        QueryTemplater.getFeatureSetInfos(featureSetRequests);
+
+    Map<String, StandardSQLTypeName> entityTypes = new LinkedHashMap<>();
+    for (FeatureSetRequest featureSetRequest : featureSetRequests) {
+      for (EntitySpec entitySpec : featureSetRequest.getSpec().getEntitiesList()) {
+        entityTypes.putIfAbsent(
+            entitySpec.getName(), TypeUtil.toStandardSqlType(entitySpec.getValueType()));
+      }
+    }
+
+    // The single query script generates the UUIDs of the rows itself
+    boolean withUUIDs = !singleQueryRetrieval();
+    List<Field> fields = new ArrayList<>();
+    if (withUUIDs) {
+      fields.add(Field.newBuilder("uuid", StandardSQLTypeName.STRING).build());
+    }
+    fields.add(Field.newBuilder("event_timestamp", StandardSQLTypeName.TIMESTAMP).build());
+    entityTypes.forEach((name, type) -> fields.add(Field.newBuilder(name, type).build()));
+
+    TableId tableId = TableId.of(projectId(), datasetId(), createTempTableName());
+    log.info("Streaming entity rows to: {}.{}.{}", projectId(), datasetId(), tableId.getTable());
+    try {
+      bigquery()
+          .create(
+              TableInfo.newBuilder(tableId, StandardTableDefinition.of(Schema.of(fields)))
+                  .setExpirationTime(System.currentTimeMillis() + TEMP_TABLE_EXPIRY_DURATION_MS)
+                  .build());
+      TableDataWriteChannel writer =
+          bigquery()
+              .writer(
+                  WriteChannelConfiguration.newBuilder(tableId)
+                      .setFormatOptions(FormatOptions.json())
+                      .setCreateDisposition(JobInfo.CreateDisposition.CREATE_NEVER)
+                      .setWriteDisposition(JobInfo.WriteDisposition.WRITE_APPEND)
+                      .build());
+      return new StreamedEntities(
+          retrievalId,
+          featureSetQueryInfos,
+          tableId,
+          new ArrayList<>(entityTypes.keySet()),
+          withUUIDs,
+          writer);
+    } catch (BigQueryException e) {
+      throw Status.INTERNAL
+          .withDescription("Failed to create entity dataset table: " + e.getMessage())
+          .withCause(e)
+          .asRuntimeException();
+    }
+  }
+
+  /**
+   * Fingerprint a retrieval from the metadata of the entity files and feature set tables, without
+   * reading them. Entity files are identified by their generation and checksum, and feature set
+   * tables by their last modification time and row count. Only entity files in Google Cloud Storage
+   * can be fingerprinted, and only tables without a streaming buffer, whose row count is only an
+   * estimate that may not change when rows are streamed.
+   */
+  @Override
+  public Optional<String> getFingerprint(
+      DatasetSource datasetSource, List<FeatureSetRequest> featureSetRequests) {
+    if (datasetSource.getDatasetSourceCase() != DatasetSource.DatasetSourceCase.FILE_SOURCE) {
+      return Optional.empty();
+    }
+    try {
+      List<String> parts = new ArrayList<>();
+      parts.add(datasetSource.getFileSource().getDataFormat().name());
+      for (String fileUri : datasetSource.getFileSource().getFileUrisList()) {
+        List<String> fileVersions = getFileVersions(fileUri);
+        if (fileVersions.isEmpty()) {
+          return Optional.empty();
+        }
+        parts.add(fileUri);
+        parts.addAll(fileVersions);
+      }
+
+      List<FeatureSetRequest> sortedRequests = new ArrayList<>(featureSetRequests);
+      sortedRequests.sort(
+          Comparator.comparing((FeatureSetRequest request) -> request.getSpec().getProject())
+              .thenComparing(request -> request.getSpec().getName()));
+      for (FeatureSetRequest featureSetRequest : sortedRequests) {
+        FeatureSetSpec spec = featureSetRequest.getSpec();
+        parts.add(TextFormat.shortDebugString(spec));
+        featureSetRequest.getFeatureReferences().stream()
+            .map(TextFormat::shortDebugString)
+            .sorted()
+            .forEach(parts::add);
+        Optional<String> tableVersion = getTableVersion(spec);
+        if (!tableVersion.isPresent()) {
+          return Optional.empty();
+        }
+        parts.add(tableVersion.get());
+      }
+      return Optional.of(
+          Hashing.sha256().hashString(String.join("\n", parts), StandardCharsets.UTF_8).toString());
+    } catch (RuntimeException e) {
+      log.warn("Unable to fingerprint historical retrieval, its results will not be reused", e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Get the name, generation and checksum of the objects matched by a Google Cloud Storage URI,
+   * which may contain a wildcard.
+   *
+   * @param fileUri URI of the entity files
+   * @return versions of the matched objects, or an empty list if the URI matches no object
+   */
+  private List<String> getFileVersions(String fileUri) {
+    if (!fileUri.startsWith("gs://")) {
+      return Collections.emptyList();
+    }
+    String path = fileUri.substring("gs://".length());
+    String bucket = path.split("/", 2)[0];
+    String name = path.substring(bucket.length() + 1);
+
+    List<Blob> blobs = new ArrayList<>();
+    int wildcard = name.indexOf('*');
+    if (wildcard < 0) {
+      Blob blob = storage().get(BlobId.of(bucket, name));
+      if (blob != null) {
+        blobs.add(blob);
+      }
+    } else {
+      Pattern pattern =
+          Pattern.compile(
+              Arrays.stream(name.split("\\*", -1))
+                  .map(Pattern::quote)
+                  .collect(Collectors.joining(".*")));
+      for (Blob blob :
+          storage()
+              .list(bucket, Storage.BlobListOption.prefix(name.substring(0, wildcard)))
+              .iterateAll()) {
+        if (pattern.matcher(blob.getName()).matches()) {
+          blobs.add(blob);
+        }
+      }
+    }
+    return blobs.stream()
+        .map(
+            blob ->
+                String.format("%s:%d:%s", blob.getName(), blob.getGeneration(), blob.getCrc32c()))
+        .sorted()
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Get the last modification time and row count of the table of a feature set.
+   *
+   * @param spec spec of the feature set
+   * @return version of the table, or empty if the table has a streaming buffer
+   */
+  private Optional<String> getTableVersion(FeatureSetSpec spec) {
+    Table table =
+        bigquery()
+            .getTable(
+                TableId.of(
+                    projectId(),
+                    datasetId(),
+                    String.format("%s_%s", spec.getProject(), spec.getName())));
+    if (table == null) {
+      return Optional.of("");
+    }
+    StringBuilder version = new StringBuilder().append(table.getLastModifiedTime());
+    if (table.getDefinition() instanceof StandardTableDefinition) {
+      StandardTableDefinition definition = table.getDefinition();
+      if (definition.getStreamingBuffer() != null) {
+        return Optional.empty();
+      }
+      version.append(':').append(definition.getNumRows());
+    }
+    return Optional.of(version.toString());
+  }
+
+  private List<String> getEntityTableColumnNames(Table entityTable) {
+    return entityTable.getDefinition().getSchema().getFields().stream()
+        .map(Field::getName)
+        .filter(name -> !name.equals("event_timestamp"))
+        .collect(Collectors.toList());
+  }
+
   private TableId generateUUIDs(Table loadedEntityTable) {
     try {
       String uuidQuery =
@@ -334,39 +846,52 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
     ExecutorService executorService = Executors.newFixedThreadPool(featureSetQueries.size());
     ExecutorCompletionService<FeatureSetQueryInfo> executorCompletionService =
         new ExecutorCompletionService<>(executorService);
-
-    // For each of the feature sets requested, start an async job joining the features in that
-    // feature set to the provided entity table
-    for (int i = 0; i < featureSetQueries.size(); i++) {
-      QueryJobConfiguration queryJobConfig =
-          QueryJobConfiguration.newBuilder(featureSetQueries.get(i))
-              .setDestinationTable(TableId.of(projectId(), datasetId(), createTempTableName()))
-              .build();
-      Job subqueryJob = bigquery().create(JobInfo.of(queryJobConfig));
-      executorCompletionService.submit(
-          SubqueryCallable.builder()
-              .setBigquery(bigquery())
-              .setFeatureSetInfo(featureSetQueryInfos.get(i))
-              .setSubqueryJob(subqueryJob)
-              .build());
-    }
-
     List<FeatureSetQueryInfo> completedFeatureSetQueryInfos = new ArrayList<>();
+    List<Job> subqueryJobs = new ArrayList<>();
 
-    for (int i = 0; i < featureSetQueries.size(); i++) {
-      try {
-        // Try to retrieve the outputs of all the jobs. The timeout here is a formality;
-        // a stricter timeout is implemented in the actual SubqueryCallable.
-        FeatureSetQueryInfo featureSetInfo =
-            executorCompletionService.take().get(SUBQUERY_TIMEOUT_SECS, TimeUnit.SECONDS);
-        completedFeatureSetQueryInfos.add(featureSetInfo);
-      } catch (InterruptedException | ExecutionException | TimeoutException e) {
-        executorService.shutdownNow();
-        throw Status.INTERNAL
-            .withDescription("Error running batch query")
-            .withCause(e)
-            .asRuntimeException();
+    try {
+      // For each of the feature sets requested, start an async job joining the features in that
+      // feature set to the provided entity table
+      for (int i = 0; i < featureSetQueries.size(); i++) {
+        QueryJobConfiguration queryJobConfig =
+            QueryJobConfiguration.newBuilder(featureSetQueries.get(i))
+                .setDestinationTable(TableId.of(projectId(), datasetId(), createTempTableName()))
+                .build();
+        Job subqueryJob = bigquery().create(JobInfo.of(queryJobConfig));
+        subqueryJobs.add(subqueryJob);
+        executorCompletionService.submit(
+            SubqueryCallable.builder()
+                .setBigquery(bigquery())
+                .setFeatureSetInfo(featureSetQueryInfos.get(i))
+                .setSubqueryJob(subqueryJob)
+                .build());
+      }
+
+      for (int i = 0; i < featureSetQueries.size(); i++) {
+        try {
+          // Try to retrieve the outputs of all the jobs. The timeout here is a formality;
+          // a stricter timeout is implemented in the actual SubqueryCallable.
+          FeatureSetQueryInfo featureSetInfo =
+              executorCompletionService.take().get(SUBQUERY_TIMEOUT_SECS, TimeUnit.SECONDS);
+          completedFeatureSetQueryInfos.add(featureSetInfo);
+        } catch (InterruptedException e) {
+          cancelJobs(subqueryJobs);
+          Thread.currentThread().interrupt();
+          throw Status.CANCELLED
+              .withDescription("Batch query was cancelled")
+              .withCause(e)
+              .asRuntimeException();
+        } catch (ExecutionException | TimeoutException e) {
+          cancelJobs(subqueryJobs);
+          throw Status.INTERNAL
+              .withDescription("Error running batch query")
+              .withCause(e)
+              .asRuntimeException();
+        }
       }
+    } finally {
+      // Release the subquery threads, interrupting those still waiting if the request failed
+      executorService.shutdownNow();
     }
 
     // Generate and run a join query to collect the outputs of all the
@@ -392,6 +917,16 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
     return completedQueryJob;
   }
 
+  /**
+   * Cancel the subqueries of a failed or cancelled batch query. Cancelling a job that already
+   * completed has no effect.
+   */
+  private void cancelJobs(List<Job> jobs) {
+    for (Job job : jobs) {
+      cancelJob(bigquery(), job.getJobId());
+    }
+  }
+
   private List<String> parseOutputFileURIs(String feastJobId) {
     String scheme = jobStagingLocation().substring(0, jobStagingLocation().indexOf("://"));
     String stagingLocationNoScheme =
@@ -413,10 +948,17 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
   }
 
   private Job waitForJob(Job queryJob) throws InterruptedException {
-    Job completedJob =
-        queryJob.waitFor(
-            RetryOption.initialRetryDelay(Duration.ofSeconds(initialRetryDelaySecs())),
-            RetryOption.totalTimeout(Duration.ofSeconds(totalTimeoutSecs())));
+    Job completedJob;
+    try {
+      completedJob =
+          queryJob.waitFor(
+              RetryOption.initialRetryDelay(Duration.ofSeconds(initialRetryDelaySecs())),
+              RetryOption.totalTimeout(Duration.ofSeconds(totalTimeoutSecs())));
+    } catch (InterruptedException e) {
+      // The retrieval was cancelled, the job would otherwise keep running in BigQuery
+      cancelJob(bigquery(), queryJob.getJobId());
+      throw e;
+    }
     if (completedJob == null) {
       throw Status.INTERNAL.withDescription("Job no longer exists").asRuntimeException();
     } else if (completedJob.getStatus().getError() != null) {
@@ -427,6 +969,27 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
     return completedJob;
   }
 
+  /**
+   * Cancel a BigQuery job of an interrupted retrieval. The interrupt status of the calling thread
+   * is cleared while the cancel request is sent, and restored afterwards.
+   *
+   * @param bigquery BigQuery client
+   * @param jobId id of the job to cancel
+   */
+  static void cancelJob(BigQuery bigquery, JobId jobId) {
+    boolean interrupted = Thread.interrupted();
+    try {
+      bigquery.cancel(jobId);
+      log.info("Cancelled BigQuery job {}", jobId);
+    } catch (BigQueryException e) {
+      log.warn("Unable to cancel BigQuery job {}: {}", jobId, e.getMessage());
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
   public String generateFullTableName(TableId tableId) {
     return String.format(
         "%s.%s.%s", tableId.getProject(), tableId.getDataset(), tableId.getTable());
@@ -435,4 +998,148 @@ public abstract class BigQueryHistoricalRetriever implements HistoricalRetriever
   public String createTempTableName() {
     return "_" + UUID.randomUUID().toString().replace("-", "");
   }
+
+  /**
+   * Entity rows streamed to a temporary table, as newline delimited JSON. The write channel buffers
+   * the rows and uploads them in chunks, and the load job completes when the channel is closed.
+   */
+  class StreamedEntities implements StreamedEntityRetrieval {
+
+    private final String retrievalId;
+    private final List<FeatureSetQueryInfo> featureSetQueryInfos;
+    private final TableId tableId;
+    private final List<String> entityNames;
+    private final boolean withUUIDs;
+    private final TableDataWriteChannel writer;
+    private long rowCount = 0;
+
+    StreamedEntities(
+        String retrievalId,
+        List<FeatureSetQueryInfo> featureSetQueryInfos,
+        TableId tableId,
+        List<String> entityNames,
+        boolean withUUIDs,
+        TableDataWriteChannel writer) {
+      this.retrievalId = retrievalId;
+      this.featureSetQueryInfos = featureSetQueryInfos;
+      this.tableId = tableId;
+      this.entityNames = entityNames;
+      this.withUUIDs = withUUIDs;
+      this.writer = writer;
+    }
+
+    @Override
+    public void write(List<EntityRow> entityRows) {
+      StringBuilder lines = new StringBuilder();
+      for (EntityRow entityRow : entityRows) {
+        if (!entityRow.hasEntityTimestamp()) {
+          throw Status.INVALID_ARGUMENT
+              .withDescription("Entity row is missing its entity timestamp")
+              .asRuntimeException();
+        }
+        TableRow tableRow = new TableRow();
+        if (withUUIDs) {
+          tableRow.set("uuid", UUID.randomUUID().toString());
+        }
+        tableRow.set("event_timestamp", Timestamps.toString(entityRow.getEntityTimestamp()));
+        for (String entityName : entityNames) {
+          tableRow.set(entityName, toJsonValue(entityName, entityRow.getFieldsMap()));
+        }
+        try {
+          lines.append(JSON_FACTORY.toString(tableRow)).append('\n');
+        } catch (IOException e) {
+          throw Status.INTERNAL
+              .withDescription("Unable to serialize entity row")
+              .withCause(e)
+              .asRuntimeException();
+        }
+      }
+
+      try {
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+          writer.write(buffer);
+        }
+      } catch (IOException e) {
+        throw Status.INTERNAL
+            .withDescription("Failed to write entity rows into store")
+            .withCause(e)
+            .asRuntimeException();
+      }
+      rowCount += entityRows.size();
+    }
+
+    @Override
+    public HistoricalRetrievalResult retrieve() {
+      if (rowCount == 0) {
+        abort();
+        return HistoricalRetrievalResult.error(
+            retrievalId,
+            Status.INVALID_ARGUMENT
+                .withDescription("No entity rows were received")
+                .asRuntimeException());
+      }
+
+      // 1. complete the load of the entity table
+      try {
+        writer.close();
+        waitForJob(writer.getJob());
+      } catch (Exception e) {
+        return HistoricalRetrievalResult.error(
+            retrievalId,
+            new RuntimeException(
+                String.format("Unable to load entity table to BigQuery: %s", e.toString())));
+      }
+
+      if (!withUUIDs) {
+        return retrieveFeaturesInSingleQuery(
+            retrievalId, tableId, entityNames, featureSetQueryInfos);
+      }
+      return retrieveFeatures(
+          retrievalId, generateFullTableName(tableId), entityNames, featureSetQueryInfos);
+    }
+
+    @Override
+    public void abort() {
+      // The upload is never committed, so only the empty table is left to delete
+      try {
+        bigquery().delete(tableId);
+      } catch (BigQueryException e) {
+        log.warn("Unable to delete entity table {}, it will expire", tableId.getTable(), e);
+      }
+    }
+
+    private Object toJsonValue(String entityName, Map<String, Value> fields) {
+      Value value = fields.get(entityName);
+      if (value == null) {
+        throw Status.INVALID_ARGUMENT
+            .withDescription(String.format("Entity row is missing entity %s", entityName))
+            .asRuntimeException();
+      }
+      switch (value.getValCase()) {
+        case BYTES_VAL:
+          return Base64.getEncoder().encodeToString(value.getBytesVal().toByteArray());
+        case STRING_VAL:
+          return value.getStringVal();
+        case INT32_VAL:
+          return value.getInt32Val();
+        case INT64_VAL:
+          return value.getInt64Val();
+        case DOUBLE_VAL:
+          return value.getDoubleVal();
+        case FLOAT_VAL:
+          return value.getFloatVal();
+        case BOOL_VAL:
+          return value.getBoolVal();
+        case VAL_NOT_SET:
+          return null;
+        default:
+          throw Status.INVALID_ARGUMENT
+              .withDescription(
+                  String.format(
+                      "Entity %s has unsupported value type %s", entityName, value.getValCase()))
+              .asRuntimeException();
+      }
+    }
+  }
 }
@@ -27,6 +27,8 @@ import feast.storage.api.retriever.FeatureSetRequest;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -38,6 +40,7 @@ public class QueryTemplater {
   private static final PebbleEngine engine = new PebbleEngine.Builder().build();
   private static final String FEATURESET_TEMPLATE_NAME = "templates/single_featureset_pit_join.sql";
   private static final String JOIN_TEMPLATE_NAME = "templates/join_featuresets.sql";
+  private static final String SINGLE_QUERY_TEMPLATE_NAME = "templates/single_query_pit_join.sql";
 
   /**
    * Get the query for retrieving the earliest and latest timestamps in the entity dataset.
@@ -89,7 +92,10 @@ public class QueryTemplater {
 
   /**
    * Generate the query for point in time correctness join of data for a single feature set to the
-   * entity dataset.
+   * entity dataset. Feature set tables are partitioned by event timestamp, and the rows of the
+   * feature set are bounded by constant timestamps, so that BigQuery only scans the partitions
+   * between the earliest timestamp less the max age of the feature set, and the latest timestamp.
+   * Feature sets without max age are only bounded by the latest timestamp.
    *
    * @param featureSetInfo Information about the feature set necessary for the query templating
    * @param projectId google project ID
@@ -115,6 +121,9 @@ public class QueryTemplater {
     context.put("datasetId", datasetId);
     context.put("minTimestamp", minTimestamp);
     context.put("maxTimestamp", maxTimestamp);
+    context.put(
+        "partitionStartTimestamp",
+        getPartitionStartTimestamp(minTimestamp, featureSetInfo.getMaxAge()));
     context.put("leftTableName", leftTableName);
 
     Writer writer = new StringWriter();
@@ -122,6 +131,22 @@ public class QueryTemplater {
     return writer.toString();
   }
 
+  /**
+   * Get the earliest event timestamp of feature rows that can be joined to the entity dataset.
+   *
+   * @param minTimestamp earliest timestamp of the entity dataset, as a BigQuery DATETIME
+   * @param maxAge max age of the feature set in seconds
+   * @return earliest event timestamp of the feature rows, or null if the max age is unbounded
+   */
+  static String getPartitionStartTimestamp(String minTimestamp, long maxAge) {
+    if (maxAge == 0) {
+      return null;
+    }
+    return LocalDateTime.parse(minTimestamp.replace(' ', 'T'))
+        .minusSeconds(maxAge)
+        .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+  }
+
   /**
    * @param featureSetInfos List of FeatureSetInfos containing information about the feature set
    *     necessary for the query templating
@@ -145,6 +170,94 @@ public class QueryTemplater {
     return writer.toString();
   }
 
+  /**
+   * Generate the script for point in time correctness join of all the requested feature sets to the
+   * entity dataset in a single job. The latest feature row of each feature set is selected per
+   * entity row with ARRAY_AGG, and the result is exported to the given URI, so no intermediate
+   * tables or extract job are needed.
+   *
+   * @param featureSetInfos List of FeatureSetInfos containing information about the feature set
+   *     necessary for the query templating
+   * @param entityTableColumnNames list of column names in entity table
+   * @param projectId google project ID
+   * @param datasetId feast bigquery dataset ID
+   * @param leftTableName entity dataset name
+   * @param exportUri wildcard URI of the exported Avro files
+   * @return BQ SQL script joining the feature sets to the entity dataset and exporting the result
+   */
+  public static String createSingleQueryPointInTimeScript(
+      List<FeatureSetQueryInfo> featureSetInfos,
+      List<String> entityTableColumnNames,
+      String projectId,
+      String datasetId,
+      String leftTableName,
+      String exportUri)
+      throws IOException {
+    return createSingleQueryPointInTimeScript(
+        featureSetInfos,
+        entityTableColumnNames,
+        projectId,
+        datasetId,
+        leftTableName,
+        exportUri,
+        null);
+  }
+
+  /**
+   * Generate the script of {@link #createSingleQueryPointInTimeScript(List, List, String, String,
+   * String, String)}, writing the result to a table instead of exporting it. The table expires
+   * after a day.
+   *
+   * @param featureSetInfos information about feature sets to join to the entity dataset
+   * @param entityTableColumnNames column names of the entity dataset
+   * @param projectId feast bigquery project ID
+   * @param datasetId feast bigquery dataset ID
+   * @param leftTableName entity dataset name
+   * @param resultTableName full name of the table to create with the result
+   * @return BQ SQL script joining the feature sets to the entity dataset into the result table
+   */
+  public static String createSingleQueryPointInTimeTableScript(
+      List<FeatureSetQueryInfo> featureSetInfos,
+      List<String> entityTableColumnNames,
+      String projectId,
+      String datasetId,
+      String leftTableName,
+      String resultTableName)
+      throws IOException {
+    return createSingleQueryPointInTimeScript(
+        featureSetInfos,
+        entityTableColumnNames,
+        projectId,
+        datasetId,
+        leftTableName,
+        null,
+        resultTableName);
+  }
+
+  private static String createSingleQueryPointInTimeScript(
+      List<FeatureSetQueryInfo> featureSetInfos,
+      List<String> entityTableColumnNames,
+      String projectId,
+      String datasetId,
+      String leftTableName,
+      String exportUri,
+      String resultTableName)
+      throws IOException {
+    PebbleTemplate template = engine.getTemplate(SINGLE_QUERY_TEMPLATE_NAME);
+    Map<String, Object> context = new HashMap<>();
+    context.put("featureSets", featureSetInfos);
+    context.put("entities", entityTableColumnNames);
+    context.put("projectId", projectId);
+    context.put("datasetId", datasetId);
+    context.put("leftTableName", leftTableName);
+    context.put("exportUri", exportUri);
+    context.put("resultTableName", resultTableName);
+
+    Writer writer = new StringWriter();
+    template.evaluate(writer, context);
+    return writer.toString();
+  }
+
   public static String generateFullTableName(TableId tableId) {
     return String.format(
         "%s.%s.%s", tableId.getProject(), tableId.getDataset(), tableId.getTable());
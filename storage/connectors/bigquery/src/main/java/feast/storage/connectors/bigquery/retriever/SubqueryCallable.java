@@ -17,6 +17,7 @@
 package feast.storage.connectors.bigquery.retriever;
 
 import static feast.storage.connectors.bigquery.retriever.BigQueryHistoricalRetriever.TEMP_TABLE_EXPIRY_DURATION_MS;
+import static feast.storage.connectors.bigquery.retriever.BigQueryHistoricalRetriever.cancelJob;
 import static feast.storage.connectors.bigquery.retriever.QueryTemplater.generateFullTableName;
 
 import com.google.auto.value.AutoValue;
@@ -25,7 +26,8 @@ import java.util.concurrent.Callable;
 
 /**
  * Waits for a point-in-time correctness join to complete. On completion, returns a featureSetInfo
- * updated with the reference to the table containing the results of the query.
+ * updated with the reference to the table containing the results of the query. If interrupted while
+ * waiting, the query job is cancelled.
  */
 @AutoValue
 public abstract class SubqueryCallable implements Callable<FeatureSetQueryInfo> {
@@ -55,7 +57,13 @@ public abstract class SubqueryCallable implements Callable<FeatureSetQueryInfo>
   @Override
   public FeatureSetQueryInfo call() throws BigQueryException, InterruptedException {
     QueryJobConfiguration subqueryConfig;
-    subqueryJob().waitFor();
+    try {
+      subqueryJob().waitFor();
+    } catch (InterruptedException e) {
+      // Interrupted when the batch query fails or is cancelled, stop the job in BigQuery as well
+      cancelJob(bigquery(), subqueryJob().getJobId());
+      throw e;
+    }
     subqueryConfig = subqueryJob().getConfiguration();
     TableId destinationTable = subqueryConfig.getDestinationTable();
 
@@ -21,6 +21,7 @@ import com.google.auto.value.AutoValue;
 import com.google.cloud.bigquery.*;
 import feast.proto.core.FeatureSetProto;
 import feast.proto.core.StoreProto.Store.BigQueryConfig;
+import feast.proto.core.StoreProto.Store.BigQueryConfig.WriteMethod;
 import feast.proto.types.FeatureRowProto;
 import feast.storage.api.writer.FeatureSink;
 import feast.storage.api.writer.WriteResult;
@@ -46,6 +47,8 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
 
   public abstract Duration getTriggeringFrequency();
 
+  public abstract WriteMethod getWriteMethod();
+
   @Nullable
   public abstract BigQueryServices getBQTestServices();
 
@@ -85,11 +88,12 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
             })
         .setTriggeringFrequency(
             Duration.standardSeconds(config.getWriteTriggeringFrequencySeconds()))
+        .setWriteMethod(config.getWriteMethod())
         .build();
   }
 
   public static Builder builder() {
-    return new AutoValue_BigQueryFeatureSink.Builder();
+    return new AutoValue_BigQueryFeatureSink.Builder().setWriteMethod(WriteMethod.FILE_LOADS);
   }
 
   @AutoValue.Builder
@@ -101,6 +105,8 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
 
     public abstract Builder setTriggeringFrequency(Duration triggeringFrequency);
 
+    public abstract Builder setWriteMethod(WriteMethod writeMethod);
+
     public abstract Builder setBQTestServices(BigQueryServices bigQueryServices);
 
     public abstract Builder setBQClient(ValueProvider<BigQuery> bigQueryOptions);
@@ -129,6 +135,7 @@ public abstract class BigQueryFeatureSink implements FeatureSink {
 
     return new BigQueryWrite(DatasetId.of(getProjectId(), getDatasetId()), schemasView)
         .withTriggeringFrequency(getTriggeringFrequency())
-        .withTestServices(getBQTestServices());
+        .withTestServices(getBQTestServices())
+        .withWriteMethod(getWriteMethod());
   }
 }
@@ -21,6 +21,8 @@ import com.google.cloud.bigquery.DatasetId;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
+import com.google.common.hash.Hashing;
+import feast.proto.core.StoreProto.Store.BigQueryConfig.WriteMethod;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.storage.api.writer.FailedElement;
 import feast.storage.api.writer.WriteResult;
@@ -30,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
 import org.apache.beam.sdk.io.gcp.bigquery.*;
 import org.apache.beam.sdk.transforms.*;
 import org.apache.beam.sdk.transforms.join.CoGbkResult;
@@ -43,8 +46,10 @@ import org.slf4j.Logger;
 
 /**
  * A {@link PTransform} that writes {@link FeatureRow FeatureRows} to the specified BigQuery
- * dataset, and returns a {@link WriteResult} containing the unsuccessful writes. Since Bigquery
- * does not output failed writes, we cannot emit those.
+ * dataset, and returns a {@link WriteResult} containing the successful writes. With the {@link
+ * WriteMethod#FILE_LOADS} write method, BigQuery does not output failed writes, so we cannot emit
+ * those. With {@link WriteMethod#STREAMING_INSERTS}, rows rejected by BigQuery are emitted as
+ * failed elements.
  */
 public class BigQueryWrite extends PTransform<PCollection<FeatureRow>, WriteResult> {
   private static final Logger log = org.slf4j.LoggerFactory.getLogger(BigQueryWrite.class);
@@ -56,6 +61,10 @@ public class BigQueryWrite extends PTransform<PCollection<FeatureRow>, WriteResu
   private static final int BIGQUERY_MAX_JOB_RETRIES = 20;
   private static final int DEFAULT_COMPACTION_BATCH_SIZE = 10000;
 
+  private static final TupleTag<FeatureRow> STREAMING_SUCCESS_TAG = new TupleTag<FeatureRow>() {};
+  private static final TupleTag<KV<FeatureRow, String>> STREAMING_FAILURE_TAG =
+      new TupleTag<KV<FeatureRow, String>>() {};
+
   private DatasetId destination;
   private PCollectionView<Map<String, Iterable<TableSchema>>> schemas;
 
@@ -63,6 +72,7 @@ public class BigQueryWrite extends PTransform<PCollection<FeatureRow>, WriteResu
   private Duration expectingResultTime = BIGQUERY_JOB_MAX_EXPECTING_RESULT_TIME;
   private BigQueryServices testServices;
   private int compactionBatchSize = DEFAULT_COMPACTION_BATCH_SIZE;
+  private WriteMethod writeMethod = WriteMethod.FILE_LOADS;
 
   public BigQueryWrite(
       DatasetId destination, PCollectionView<Map<String, Iterable<TableSchema>>> schemas) {
@@ -90,12 +100,19 @@ public class BigQueryWrite extends PTransform<PCollection<FeatureRow>, WriteResu
     return this;
   }
 
+  public BigQueryWrite withWriteMethod(WriteMethod writeMethod) {
+    this.writeMethod = writeMethod;
+    return this;
+  }
+
   /**
-   * BigQuery writer 1. choose destination based on featureSetName {@link
-   * FeatureDynamicDestinations} 2. dynamically pull destination's schema from schemas' view 3.
-   * convert {@link FeatureRow} into {@link TableRow} 4. group input into fixed windows (configured
-   * with setTriggeringFrequency) 5. write to bq (via BATCH FILE LOADING) {@link
-   * BatchLoadsWithResult} 6. join bq job output with input to produce successful inserts
+   * BigQuery writer with the {@link WriteMethod#FILE_LOADS} write method 1. choose destination
+   * based on featureSetName {@link FeatureDynamicDestinations} 2. dynamically pull destination's
+   * schema from schemas' view 3. group input into fixed windows (configured with
+   * setTriggeringFrequency) 4. write {@link FeatureRow} directly into Avro files of the schema
+   * derived from the destination's schema {@link FeatureRowToAvroRecord} 5. load the files into bq
+   * (via BATCH FILE LOADING) {@link BatchLoadsWithResult} 6. join bq job output with input to
+   * produce successful inserts
    *
    * @param input stream of FeatureRows to write
    * @return stream of successfully inserted FeatureRows
@@ -104,15 +121,23 @@ public class BigQueryWrite extends PTransform<PCollection<FeatureRow>, WriteResu
   public WriteResult expand(PCollection<FeatureRow> input) {
     String jobName = input.getPipeline().getOptions().getJobName();
 
+    if (writeMethod == WriteMethod.STREAMING_INSERTS) {
+      return expandStreamingInserts(input, jobName);
+    }
+
     FeatureDynamicDestinations dynamicDestinations = new FeatureDynamicDestinations();
 
-    BatchLoadsWithResult.Builder<String> writerBuilder =
-        BatchLoadsWithResult.<String>create()
+    BatchLoadsWithResult.Builder<String, FeatureRow> writerBuilder =
+        BatchLoadsWithResult.<String, FeatureRow>create()
             .setWriteDisposition(BigQueryIO.Write.WriteDisposition.WRITE_APPEND)
             .setCreateDisposition(BigQueryIO.Write.CreateDisposition.CREATE_IF_NEEDED)
             .setDynamicDestinations(dynamicDestinations)
             .setDestinationCoder(StringUtf8Coder.of())
-            .setElementCoder(TableRowJsonCoder.of())
+            .setElementCoder(ProtoCoder.of(FeatureRow.class))
+            .setAvroFormatFunction(
+                new FeatureRowToAvroRecord(jobName),
+                new TableSchemaToAvroSchema(),
+                dynamicDestinations)
             .setTriggeringFrequency(triggeringFrequency)
             .setMaxRetryJobs(BIGQUERY_MAX_JOB_RETRIES)
             .setSchemaUpdateOptions(
@@ -133,9 +158,9 @@ public class BigQueryWrite extends PTransform<PCollection<FeatureRow>, WriteResu
         inputInFixedWindow
             .apply(
                 "PrepareWrite",
-                new PrepareWrite<>(dynamicDestinations, new FeatureRowToTableRow(jobName)))
-            .setCoder(KvCoder.of(StringUtf8Coder.of(), TableRowJsonCoder.of()))
-            .apply("WriteTableRowToBigQuery", writerBuilder.build());
+                new PrepareWrite<>(dynamicDestinations, SerializableFunctions.identity()))
+            .setCoder(KvCoder.of(StringUtf8Coder.of(), ProtoCoder.of(FeatureRow.class)))
+            .apply("WriteFeatureRowToBigQuery", writerBuilder.build());
 
     PCollection<FeatureRow> successfulInserts =
         mergeInputWithResult(inputInFixedWindow, insertionResult);
@@ -157,6 +182,69 @@ public class BigQueryWrite extends PTransform<PCollection<FeatureRow>, WriteResu
     return WriteResult.in(input.getPipeline(), successfulInserts, failedElements);
   }
 
+  /**
+   * BigQuery writer with the {@link WriteMethod#STREAMING_INSERTS} write method. Rows are streamed
+   * into the tables of their feature sets as they arrive, so they are available for retrieval
+   * within seconds rather than after the next triggering of load jobs. Rows are only written once
+   * the schemas are available, since tables are created when the schemas are computed.
+   *
+   * @param input stream of FeatureRows to write
+   * @param jobName name of the ingestion job, written to the job id column
+   * @return successfully inserted FeatureRows, and rows rejected by BigQuery
+   */
+  private WriteResult expandStreamingInserts(PCollection<FeatureRow> input, String jobName) {
+    StreamingInsertsWithResult.Builder<FeatureRow> writerBuilder =
+        StreamingInsertsWithResult.<FeatureRow>create()
+            .setFormatFunction(new FeatureRowToTableRow(jobName))
+            .setInsertIdFunction(new FeatureRowInsertIdFn())
+            .setElementCoder(ProtoCoder.of(FeatureRow.class))
+            .setSuccessTag(STREAMING_SUCCESS_TAG)
+            .setFailureTag(STREAMING_FAILURE_TAG);
+
+    if (testServices != null) {
+      writerBuilder.setBigQueryServices(testServices);
+    }
+
+    PCollectionTuple insertionResult =
+        input
+            .apply(
+                "KeyByTable",
+                ParDo.of(
+                        new DoFn<FeatureRow, KV<String, FeatureRow>>() {
+                          @ProcessElement
+                          public void process(ProcessContext c) {
+                            FeatureRow element = c.element();
+                            c.output(
+                                KV.of(
+                                    BigQuerySinkHelpers.getTableDestination(
+                                            destination, element.getFeatureSet())
+                                        .getTableSpec(),
+                                    element));
+                          }
+                        })
+                    .withSideInputs(schemas))
+            .setCoder(KvCoder.of(StringUtf8Coder.of(), ProtoCoder.of(FeatureRow.class)))
+            .apply("StreamFeatureRowsToBigQuery", writerBuilder.build());
+
+    PCollection<FailedElement> failedElements =
+        insertionResult
+            .get(STREAMING_FAILURE_TAG)
+            .apply(
+                "ToFailedElement",
+                MapElements.into(TypeDescriptor.of(FailedElement.class))
+                    .via(
+                        failure ->
+                            FailedElement.newBuilder()
+                                .setJobName(jobName)
+                                .setTransformName("StreamFeatureRowsToBigQuery")
+                                .setFeatureRowPayload(failure.getKey())
+                                .setErrorMessage(failure.getValue())
+                                .build()));
+
+    return WriteResult.in(
+        input.getPipeline(), insertionResult.get(STREAMING_SUCCESS_TAG), failedElements);
+  }
+
   /**
    * Join input stream of FeatureRows with output stream from write jobs to produce rows that was
    * successfully inserted.
@@ -267,4 +355,15 @@ public class BigQueryWrite extends PTransform<PCollection<FeatureRow>, WriteResu
       return Iterators.getLast(schemasIt.iterator());
     }
   }
+
+  /**
+   * Derives the insert id of a {@link FeatureRow} from its content, so that retries and replays of
+   * the same row are deduplicated by BigQuery.
+   */
+  static class FeatureRowInsertIdFn implements SerializableFunction<FeatureRow, String> {
+    @Override
+    public String apply(FeatureRow featureRow) {
+      return Hashing.sha256().hashBytes(featureRow.toByteArray()).toString();
+    }
+  }
 }
@@ -0,0 +1,231 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.bigquery.writer;
+
+import static feast.storage.connectors.bigquery.writer.FeatureSetSpecToTableSchema.CREATED_TIMESTAMP_COLUMN;
+import static feast.storage.connectors.bigquery.writer.FeatureSetSpecToTableSchema.EVENT_TIMESTAMP_COLUMN;
+import static feast.storage.connectors.bigquery.writer.FeatureSetSpecToTableSchema.INGESTION_ID_COLUMN;
+import static feast.storage.connectors.bigquery.writer.FeatureSetSpecToTableSchema.JOB_ID_COLUMN;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.util.Timestamps;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.io.gcp.bigquery.AvroWriteRequest;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+
+/**
+ * Converts a {@link FeatureRow} into an Avro record of the schema of its BigQuery table, derived
+ * from the table schema by {@link TableSchemaToAvroSchema}. Fields that are not columns of the
+ * table, or whose value does not match the type of their column, are left unset, and the mismatched
+ * values are counted in the {@link #MISMATCHED_VALUES_METRIC} counter.
+ *
+ * <p>The position and type of the columns are resolved once per schema, and cached for the lifetime
+ * of the function.
+ */
+public class FeatureRowToAvroRecord
+    implements SerializableFunction<AvroWriteRequest<FeatureRow>, GenericRecord> {
+
+  public static final String METRIC_NAMESPACE = "FeatureRowToAvroRecord";
+  public static final String MISMATCHED_VALUES_METRIC = "mismatched_values";
+  private static final Counter mismatchedValues =
+      Metrics.counter(METRIC_NAMESPACE, MISMATCHED_VALUES_METRIC);
+
+  private final String jobId;
+  private transient Map<Schema, Columns> columnsBySchema;
+
+  public FeatureRowToAvroRecord(String jobId) {
+    this.jobId = jobId;
+  }
+
+  @Override
+  public GenericRecord apply(AvroWriteRequest<FeatureRow> request) {
+    FeatureRow featureRow = request.getElement();
+    Schema schema = request.getSchema();
+    Columns columns = getColumns(schema);
+    GenericRecord record = new GenericData.Record(schema);
+    // Repeated columns are not nullable
+    for (int position : columns.repeatedPositions) {
+      record.put(position, Collections.emptyList());
+    }
+
+    for (Field field : featureRow.getFieldsList()) {
+      Column column = columns.byName.get(field.getName());
+      if (column == null || field.getValue().getValCase() == Value.ValCase.VAL_NOT_SET) {
+        continue;
+      }
+      if (column.accepts(field.getValue().getValCase())) {
+        record.put(column.position, toAvroValue(field.getValue()));
+      } else {
+        mismatchedValues.inc();
+      }
+    }
+    put(
+        record,
+        columns,
+        EVENT_TIMESTAMP_COLUMN,
+        Timestamps.toMicros(featureRow.getEventTimestamp()));
+    put(record, columns, CREATED_TIMESTAMP_COLUMN, System.currentTimeMillis() * 1000);
+    put(record, columns, INGESTION_ID_COLUMN, featureRow.getIngestionId());
+    put(record, columns, JOB_ID_COLUMN, jobId);
+    return record;
+  }
+
+  private Columns getColumns(Schema schema) {
+    if (columnsBySchema == null) {
+      columnsBySchema = new HashMap<>();
+    }
+    return columnsBySchema.computeIfAbsent(schema, Columns::new);
+  }
+
+  private static void put(GenericRecord record, Columns columns, String name, Object value) {
+    Column column = columns.byName.get(name);
+    if (column != null) {
+      record.put(column.position, value);
+    }
+  }
+
+  private static Object toAvroValue(Value value) {
+    switch (value.getValCase()) {
+      case BYTES_VAL:
+        return ByteBuffer.wrap(value.getBytesVal().toByteArray());
+      case STRING_VAL:
+        return value.getStringVal();
+      case INT32_VAL:
+        return (long) value.getInt32Val();
+      case INT64_VAL:
+        return value.getInt64Val();
+      case DOUBLE_VAL:
+        return value.getDoubleVal();
+      case FLOAT_VAL:
+        return (double) value.getFloatVal();
+      case BOOL_VAL:
+        return value.getBoolVal();
+      case BYTES_LIST_VAL:
+        return toList(value.getBytesListVal().getValList(), FeatureRowToAvroRecord::toByteBuffer);
+      case STRING_LIST_VAL:
+        return value.getStringListVal().getValList();
+      case INT32_LIST_VAL:
+        return toList(value.getInt32ListVal().getValList(), Integer::longValue);
+      case INT64_LIST_VAL:
+        return value.getInt64ListVal().getValList();
+      case DOUBLE_LIST_VAL:
+        return value.getDoubleListVal().getValList();
+      case FLOAT_LIST_VAL:
+        return toList(value.getFloatListVal().getValList(), Float::doubleValue);
+      case BOOL_LIST_VAL:
+        return value.getBoolListVal().getValList();
+      default:
+        return null;
+    }
+  }
+
+  private static ByteBuffer toByteBuffer(ByteString bytes) {
+    return ByteBuffer.wrap(bytes.toByteArray());
+  }
+
+  private static <T, R> List<R> toList(List<T> values, Function<T, R> converter) {
+    return values.stream().map(converter).collect(Collectors.toList());
+  }
+
+  /** Columns of a schema, by name, and the positions of its repeated columns. */
+  private static class Columns {
+
+    private final Map<String, Column> byName = new HashMap<>();
+    private final int[] repeatedPositions;
+
+    Columns(Schema schema) {
+      List<Integer> repeated = new ArrayList<>();
+      for (Schema.Field field : schema.getFields()) {
+        Column column = new Column(field);
+        byName.put(field.name(), column);
+        if (column.repeated) {
+          repeated.add(field.pos());
+        }
+      }
+      repeatedPositions = repeated.stream().mapToInt(Integer::intValue).toArray();
+    }
+  }
+
+  /** Position of a column, and the Avro type of its values. */
+  private static class Column {
+
+    private final int position;
+    private final boolean repeated;
+    private final Schema.Type type;
+
+    Column(Schema.Field field) {
+      Schema schema = field.schema();
+      if (schema.getType() == Schema.Type.UNION) {
+        // Nullable columns are unions of null and their type
+        schema =
+            schema.getTypes().stream()
+                .filter(type -> type.getType() != Schema.Type.NULL)
+                .findFirst()
+                .orElse(schema);
+      }
+      this.position = field.pos();
+      this.repeated = schema.getType() == Schema.Type.ARRAY;
+      this.type = repeated ? schema.getElementType().getType() : schema.getType();
+    }
+
+    boolean accepts(Value.ValCase valCase) {
+      switch (valCase) {
+        case BYTES_VAL:
+          return !repeated && type == Schema.Type.BYTES;
+        case STRING_VAL:
+          return !repeated && type == Schema.Type.STRING;
+        case INT32_VAL:
+        case INT64_VAL:
+          return !repeated && type == Schema.Type.LONG;
+        case DOUBLE_VAL:
+        case FLOAT_VAL:
+          return !repeated && type == Schema.Type.DOUBLE;
+        case BOOL_VAL:
+          return !repeated && type == Schema.Type.BOOLEAN;
+        case BYTES_LIST_VAL:
+          return repeated && type == Schema.Type.BYTES;
+        case STRING_LIST_VAL:
+          return repeated && type == Schema.Type.STRING;
+        case INT32_LIST_VAL:
+        case INT64_LIST_VAL:
+          return repeated && type == Schema.Type.LONG;
+        case DOUBLE_LIST_VAL:
+        case FLOAT_LIST_VAL:
+          return repeated && type == Schema.Type.DOUBLE;
+        case BOOL_LIST_VAL:
+          return repeated && type == Schema.Type.BOOLEAN;
+        default:
+          return false;
+      }
+    }
+  }
+}
@@ -22,7 +22,9 @@ import com.google.api.services.bigquery.model.TableSchema;
 import com.google.cloud.bigquery.*;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import feast.proto.core.FeatureSetProto;
+import feast.proto.types.ValueProto.ValueType;
 import feast.storage.connectors.bigquery.common.TypeUtil;
 import java.io.IOException;
 import java.io.InputStream;
@@ -30,6 +32,7 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.beam.repackaged.core.org.apache.commons.lang3.tuple.Pair;
 import org.apache.beam.sdk.coders.Coder;
@@ -48,7 +51,9 @@ import org.slf4j.Logger;
  * with new ones.
  *
  * <p>As a side effect this Operation may create bq table (if it doesn't exist) to make
- * bootstrapping faster
+ * bootstrapping faster. Tables are partitioned by day of event timestamp and clustered by entities,
+ * so that point in time joins only scan the partitions within the requested time range. Existing
+ * tables are updated with new fields and clustering, but cannot be partitioned in place.
  */
 public class FeatureSetSpecToTableSchema
     extends DoFn<KV<String, FeatureSetProto.FeatureSetSpec>, KV<String, TableSchema>> {
@@ -59,6 +64,14 @@ public class FeatureSetSpecToTableSchema
   private static final Logger log =
       org.slf4j.LoggerFactory.getLogger(FeatureSetSpecToTableSchema.class);
 
+  // Maximum number of clustering columns of a BigQuery table
+  private static final int MAX_CLUSTERING_FIELDS = 4;
+
+  // Entity types whose columns can be clustered
+  private static final Set<ValueType.Enum> CLUSTERING_TYPES =
+      ImmutableSet.of(
+          ValueType.Enum.STRING, ValueType.Enum.INT32, ValueType.Enum.INT64, ValueType.Enum.BOOL);
+
   // Reserved columns
   public static final String EVENT_TIMESTAMP_COLUMN = "event_timestamp";
   public static final String CREATED_TIMESTAMP_COLUMN = "created_timestamp";
@@ -94,9 +107,12 @@ public class FeatureSetSpecToTableSchema
 
     Table existingTable = getExistingTable(specKey);
     Schema schema = createSchemaFromSpec(element.getValue(), specKey, existingTable);
+    Clustering clustering = createClusteringFromSpec(element.getValue());
 
     if (existingTable == null) {
-      createTable(specKey, schema);
+      createTable(specKey, schema, clustering);
+    } else {
+      migrateTable(specKey, existingTable, schema, clustering);
     }
 
     output.output(KV.of(specKey, serializeSchema(schema)));
@@ -113,7 +129,7 @@ public class FeatureSetSpecToTableSchema
     return bqService.getTable(generateTableId(specKey));
   }
 
-  private void createTable(String specKey, Schema schema) {
+  private void createTable(String specKey, Schema schema, Clustering clustering) {
     TimePartitioning timePartitioning =
         TimePartitioning.newBuilder(TimePartitioning.Type.DAY)
             .setField(EVENT_TIMESTAMP_COLUMN)
@@ -122,6 +138,7 @@ public class FeatureSetSpecToTableSchema
     StandardTableDefinition tableDefinition =
         StandardTableDefinition.newBuilder()
             .setTimePartitioning(timePartitioning)
+            .setClustering(clustering)
             .setSchema(schema)
             .build();
 
@@ -130,6 +147,68 @@ public class FeatureSetSpecToTableSchema
     bqService.create(tableInfo);
   }
 
+  /**
+   * Adds new fields and clustering to an existing table. Unlike load jobs, streaming inserts do not
+   * add new fields to the table. Clustering only applies to data written after the update, and
+   * tables cannot be partitioned after they are created.
+   */
+  private void migrateTable(
+      String specKey, Table existingTable, Schema schema, Clustering clustering) {
+    StandardTableDefinition tableDefinition = existingTable.getDefinition();
+    if (tableDefinition.getTimePartitioning() == null) {
+      log.warn(
+          "Table {} is not partitioned by {}, so historical retrieval scans the whole table. "
+              + "Recreate the table to partition it.",
+          specKey,
+          EVENT_TIMESTAMP_COLUMN);
+    }
+
+    boolean hasNewFields = hasNewFields(tableDefinition, schema);
+    boolean isUnclustered = tableDefinition.getClustering() == null && clustering != null;
+    if (!hasNewFields && !isUnclustered) {
+      return;
+    }
+
+    StandardTableDefinition.Builder updatedDefinition = tableDefinition.toBuilder();
+    if (hasNewFields) {
+      updatedDefinition.setSchema(schema);
+    }
+    if (isUnclustered) {
+      updatedDefinition.setClustering(clustering);
+    }
+    bqService.update(existingTable.toBuilder().setDefinition(updatedDefinition.build()).build());
+  }
+
+  private boolean hasNewFields(StandardTableDefinition tableDefinition, Schema schema) {
+    Set<String> existingFieldNames =
+        tableDefinition.getSchema().getFields().stream()
+            .map(Field::getName)
+            .collect(Collectors.toSet());
+    return schema.getFields().stream()
+        .anyMatch(field -> !existingFieldNames.contains(field.getName()));
+  }
+
+  /**
+   * Clusters tables by the entities of the feature set, in the order of the spec, so that the rows
+   * of the same entities are stored together. BigQuery only clusters columns of scalar types other
+   * than FLOAT64 and BYTES, so entities of other types are left out.
+   *
+   * @param spec FeatureSet spec that this table is for
+   * @return {@link Clustering} of the table, or null if no entity can be clustered
+   */
+  static Clustering createClusteringFromSpec(FeatureSetProto.FeatureSetSpec spec) {
+    List<String> clusteringFields =
+        spec.getEntitiesList().stream()
+            .filter(entitySpec -> CLUSTERING_TYPES.contains(entitySpec.getValueType()))
+            .map(FeatureSetProto.EntitySpec::getName)
+            .limit(MAX_CLUSTERING_FIELDS)
+            .collect(Collectors.toList());
+    if (clusteringFields.isEmpty()) {
+      return null;
+    }
+    return Clustering.newBuilder().setFields(clusteringFields).build();
+  }
+
   /**
    * Creates a BigQuery {@link Schema} based on the provided FeatureSetSpec and the existing table,
    * if any. If a table already exists, existing fields will be retained, and new fields present in
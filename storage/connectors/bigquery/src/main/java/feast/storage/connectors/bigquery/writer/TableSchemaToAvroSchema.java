@@ -0,0 +1,89 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.bigquery.writer;
+
+import com.google.api.services.bigquery.model.TableFieldSchema;
+import com.google.api.services.bigquery.model.TableSchema;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.avro.JsonProperties;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+
+/**
+ * Derives the Avro schema of the files loaded into a BigQuery table from the {@link TableSchema}
+ * computed by {@link FeatureSetSpecToTableSchema}. Timestamps are encoded as timestamp-micros, so
+ * load jobs must enable Avro logical types for them to be loaded into TIMESTAMP columns.
+ */
+public class TableSchemaToAvroSchema implements SerializableFunction<TableSchema, Schema> {
+
+  private static final String RECORD_NAME = "FeatureRow";
+
+  @Override
+  public Schema apply(TableSchema tableSchema) {
+    List<Schema.Field> fields =
+        tableSchema.getFields().stream()
+            .map(TableSchemaToAvroSchema::toAvroField)
+            .collect(Collectors.toList());
+    return Schema.createRecord(RECORD_NAME, null, null, false, fields);
+  }
+
+  private static Schema.Field toAvroField(TableFieldSchema field) {
+    Schema type = toAvroType(field);
+    String mode = field.getMode() == null ? "NULLABLE" : field.getMode();
+    switch (mode) {
+      case "REPEATED":
+        return new Schema.Field(
+            field.getName(), Schema.createArray(type), field.getDescription(), (Object) null);
+      case "REQUIRED":
+        return new Schema.Field(field.getName(), type, field.getDescription(), (Object) null);
+      default:
+        return new Schema.Field(
+            field.getName(),
+            Schema.createUnion(Arrays.asList(Schema.create(Schema.Type.NULL), type)),
+            field.getDescription(),
+            JsonProperties.NULL_VALUE);
+    }
+  }
+
+  private static Schema toAvroType(TableFieldSchema field) {
+    switch (field.getType()) {
+      case "INTEGER":
+      case "INT64":
+        return Schema.create(Schema.Type.LONG);
+      case "FLOAT":
+      case "FLOAT64":
+        return Schema.create(Schema.Type.DOUBLE);
+      case "BOOLEAN":
+      case "BOOL":
+        return Schema.create(Schema.Type.BOOLEAN);
+      case "STRING":
+        return Schema.create(Schema.Type.STRING);
+      case "BYTES":
+        return Schema.create(Schema.Type.BYTES);
+      case "TIMESTAMP":
+        return LogicalTypes.timestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+      default:
+        throw new IllegalArgumentException(
+            String.format(
+                "Column %s has type %s, which is not supported in Avro file loads.",
+                field.getName(), field.getType()));
+    }
+  }
+}
@@ -3,14 +3,24 @@ package org.apache.beam.sdk.io.gcp.bigquery;
 import static org.apache.beam.sdk.io.gcp.bigquery.BigQueryHelpers.resolveTempLocation;
 import static org.apache.beam.vendor.grpc.v1p21p0.com.google.common.base.Preconditions.checkArgument;
 
-import com.google.api.services.bigquery.model.TableRow;
+import com.google.api.services.bigquery.model.Job;
+import com.google.api.services.bigquery.model.JobConfigurationExtract;
+import com.google.api.services.bigquery.model.JobConfigurationLoad;
+import com.google.api.services.bigquery.model.JobConfigurationQuery;
+import com.google.api.services.bigquery.model.JobConfigurationTableCopy;
+import com.google.api.services.bigquery.model.JobReference;
+import com.google.api.services.bigquery.model.JobStatistics;
+import com.google.api.services.bigquery.model.TableSchema;
 import com.google.auto.value.AutoValue;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
 
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.beam.sdk.coders.*;
 import org.apache.beam.sdk.options.ValueProvider;
 import org.apache.beam.sdk.state.StateSpec;
@@ -26,9 +36,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @AutoValue
-public abstract class BatchLoadsWithResult<DestinationT>
+public abstract class BatchLoadsWithResult<DestinationT, ElementT>
     extends PTransform<
-    PCollection<KV<DestinationT, TableRow>>, PCollection<KV<TableDestination, String>>> {
+    PCollection<KV<DestinationT, ElementT>>, PCollection<KV<TableDestination, String>>> {
   static final Logger LOG = LoggerFactory.getLogger(BatchLoadsWithResult.class);
 
   @VisibleForTesting
@@ -69,9 +79,9 @@ public abstract class BatchLoadsWithResult<DestinationT>
   @Nullable
   abstract ValueProvider<String> getLoadJobProjectId();
 
-  abstract Coder<TableRow> getElementCoder();
+  abstract Coder<ElementT> getElementCoder();
 
-  abstract RowWriterFactory<TableRow, DestinationT> getRowWriterFactory();
+  abstract RowWriterFactory<ElementT, DestinationT> getRowWriterFactory();
 
   @Nullable
   abstract String getKmsKey();
@@ -79,56 +89,73 @@ public abstract class BatchLoadsWithResult<DestinationT>
   abstract int getMaxRetryJobs();
 
   @AutoValue.Builder
-  public abstract static class Builder<DestinationT> {
-    public abstract Builder<DestinationT> setBigQueryServices(BigQueryServices bigQueryServices);
+  public abstract static class Builder<DestinationT, ElementT> {
+    public abstract Builder<DestinationT, ElementT> setBigQueryServices(BigQueryServices bigQueryServices);
 
-    public abstract Builder<DestinationT> setIgnoreUnknownValues(boolean ignoreUnknownValues);
+    public abstract Builder<DestinationT, ElementT> setIgnoreUnknownValues(boolean ignoreUnknownValues);
 
-    public abstract Builder<DestinationT> setWriteDisposition(
+    public abstract Builder<DestinationT, ElementT> setWriteDisposition(
         BigQueryIO.Write.WriteDisposition writeDisposition);
 
-    public abstract Builder<DestinationT> setCreateDisposition(
+    public abstract Builder<DestinationT, ElementT> setCreateDisposition(
         BigQueryIO.Write.CreateDisposition createDisposition);
 
-    public abstract Builder<DestinationT> setSchemaUpdateOptions(
+    public abstract Builder<DestinationT, ElementT> setSchemaUpdateOptions(
         Set<BigQueryIO.Write.SchemaUpdateOption> schemaUpdateOptions);
 
-    public abstract Builder<DestinationT> setDynamicDestinations(
+    public abstract Builder<DestinationT, ElementT> setDynamicDestinations(
         DynamicDestinations<?, DestinationT> dynamicDestinations);
 
-    public abstract Builder<DestinationT> setDestinationCoder(Coder<DestinationT> destinationCoder);
+    public abstract Builder<DestinationT, ElementT> setDestinationCoder(Coder<DestinationT> destinationCoder);
 
-    public abstract Builder<DestinationT> setTriggeringFrequency(Duration triggeringFrequency);
+    public abstract Builder<DestinationT, ElementT> setTriggeringFrequency(Duration triggeringFrequency);
 
-    public abstract Builder<DestinationT> setCustomGcsTempLocation(
+    public abstract Builder<DestinationT, ElementT> setCustomGcsTempLocation(
         @Nullable ValueProvider<String> customGcsTempLocation);
 
-    public abstract Builder<DestinationT> setLoadJobProjectId(
+    public abstract Builder<DestinationT, ElementT> setLoadJobProjectId(
         @Nullable ValueProvider<String> loadJobProjectId);
 
-    public abstract Builder<DestinationT> setElementCoder(Coder<TableRow> elementCoder);
-
-    public abstract Builder<DestinationT> setRowWriterFactory(
-        RowWriterFactory<TableRow, DestinationT> rowWriterFactory);
-
-    public abstract Builder<DestinationT> setKmsKey(@Nullable String kmsKey);
-
-    public abstract Builder<DestinationT> setMaxRetryJobs(int maxRetryJobs);
-
-    public abstract BatchLoadsWithResult<DestinationT> build();
+    public abstract Builder<DestinationT, ElementT> setElementCoder(Coder<ElementT> elementCoder);
+
+    public abstract Builder<DestinationT, ElementT> setRowWriterFactory(
+        RowWriterFactory<ElementT, DestinationT> rowWriterFactory);
+
+    public abstract Builder<DestinationT, ElementT> setKmsKey(@Nullable String kmsKey);
+
+    public abstract Builder<DestinationT, ElementT> setMaxRetryJobs(int maxRetryJobs);
+
+    /**
+     * Writes elements to Avro files rather than newline delimited JSON, which are smaller, cheaper
+     * to serialize and faster to load. Avro logical types are enabled in load jobs, so that
+     * timestamps encoded as timestamp-micros are loaded into TIMESTAMP columns.
+     *
+     * @param formatFunction converts elements into records of the Avro schema of the destination
+     * @param avroSchemaFactory derives the Avro schema of a destination from its table schema
+     * @param dynamicDestinations destinations of the elements, providing the table schemas
+     * @return this builder
+     */
+    public Builder<DestinationT, ElementT> setAvroFormatFunction(
+        SerializableFunction<AvroWriteRequest<ElementT>, GenericRecord> formatFunction,
+        SerializableFunction<TableSchema, Schema> avroSchemaFactory,
+        DynamicDestinations<?, DestinationT> dynamicDestinations) {
+      return setRowWriterFactory(
+          RowWriterFactory.avroRecords(formatFunction, avroSchemaFactory, dynamicDestinations));
+    }
+
+    public abstract BatchLoadsWithResult<DestinationT, ElementT> build();
   }
 
-  public static <DestinationT> Builder<DestinationT> create() {
-    return new AutoValue_BatchLoadsWithResult.Builder<DestinationT>()
+  public static <DestinationT, ElementT> Builder<DestinationT, ElementT> create() {
+    return new AutoValue_BatchLoadsWithResult.Builder<DestinationT, ElementT>()
         .setIgnoreUnknownValues(false)
         .setBigQueryServices(new BigQueryServicesImpl())
-        .setRowWriterFactory(RowWriterFactory.tableRows(SerializableFunctions.identity()))
         .setSchemaUpdateOptions(Collections.emptySet())
         .setMaxRetryJobs(DEFAULT_MAX_RETRY_JOBS);
   }
 
   public PCollection<KV<TableDestination, String>> expand(
-      PCollection<KV<DestinationT, TableRow>> input) {
+      PCollection<KV<DestinationT, ElementT>> input) {
 
     // we assume that input must be already windowed and we allow only fixed window
     // so our internal generator (JobIdPrefix) would be compatible (hence, joinable)
@@ -139,11 +166,14 @@ public abstract class BatchLoadsWithResult<DestinationT>
     final PCollection<String> loadJobIdPrefixView = createLoadJobIdPrefixView(input);
     final PCollectionView<String> tempFilePrefixView =
         createTempFilePrefixView(loadJobIdPrefixView);
+    // Avro row writers look up the schemas of the destinations, which may be side inputs
+    List<PCollectionView<?>> writeSideInputs = Lists.newArrayList(tempFilePrefixView);
+    writeSideInputs.addAll(getDynamicDestinations().getSideInputs());
 
     PCollection<WriteBundlesToFiles.Result<DestinationT>> results =
         input
             .apply("WindowWithTrigger",
-                Window.<KV<DestinationT, TableRow>>configure()
+                Window.<KV<DestinationT, ElementT>>configure()
                     .triggering(
                         Repeatedly.forever(
                             AfterPane.elementCountAtLeast(FILE_TRIGGERING_RECORD_COUNT)))
@@ -151,7 +181,7 @@ public abstract class BatchLoadsWithResult<DestinationT>
             .apply(
                 "PutAllRowsInSingleShard",
                 ParDo.of(
-                    new DoFn<KV<DestinationT, TableRow>, KV<ShardedKey<DestinationT>, TableRow>>() {
+                    new DoFn<KV<DestinationT, ElementT>, KV<ShardedKey<DestinationT>, ElementT>>() {
                       @ProcessElement
                       public void process(ProcessContext c) {
                         c.output(
@@ -163,9 +193,12 @@ public abstract class BatchLoadsWithResult<DestinationT>
             .apply(
                 "WriteGroupedRecords",
                 ParDo.of(
-                    new WriteGroupedRecordsToFiles<>(
-                        tempFilePrefixView, DEFAULT_MAX_FILE_SIZE, getRowWriterFactory()))
-                    .withSideInputs(tempFilePrefixView))
+                    new WriteGroupedRecordsToFilesWithSchemas<>(
+                        getDynamicDestinations(),
+                        tempFilePrefixView,
+                        DEFAULT_MAX_FILE_SIZE,
+                        getRowWriterFactory()))
+                    .withSideInputs(writeSideInputs))
             .setCoder(WriteBundlesToFiles.ResultCoder.of(getDestinationCoder()));
 
     TupleTag<KV<ShardedKey<DestinationT>, List<String>>> multiPartitionsTag =
@@ -213,7 +246,7 @@ public abstract class BatchLoadsWithResult<DestinationT>
   }
 
   private PCollection<String> createLoadJobIdPrefixView(
-      PCollection<KV<DestinationT, TableRow>> input) {
+      PCollection<KV<DestinationT, ElementT>> input) {
     // We generate new JobId per each (input) window
     // To keep BQ job's name unique
     // Windowing of this generator is expected to be synchronized with input window
@@ -222,16 +255,17 @@ public abstract class BatchLoadsWithResult<DestinationT>
         .apply(
             "EraseKey",
             ParDo.of(
-                new DoFn<KV<DestinationT, TableRow>, KV<Void, TableRow>>() {
+                new DoFn<KV<DestinationT, ElementT>, KV<Void, Void>>() {
                   @ProcessElement
                   public void process(ProcessContext c) {
-                    c.output(KV.of(null, c.element().getValue()));
+                    c.output(KV.of(null, null));
                   }
                 }))
+        .setCoder(KvCoder.of(VoidCoder.of(), VoidCoder.of()))
         .apply(
             "CreateJobId",
             ParDo.of(
-                new DoFn<KV<Void, TableRow>, String>() {
+                new DoFn<KV<Void, Void>, String>() {
                   @StateId("generatedForWindow")
                   private final StateSpec<ValueState<Boolean>> generatedForWindow = StateSpecs.value(BooleanCoder.of());
 
@@ -301,7 +335,9 @@ public abstract class BatchLoadsWithResult<DestinationT>
             "SinglePartitionWriteTables",
             new WriteTables<>(
                 false,
-                getBigQueryServices(),
+                getRowWriterFactory().getOutputType() == RowWriterFactory.OutputType.AvroGenericRecord
+                    ? new AvroLogicalTypesBigQueryServices(getBigQueryServices())
+                    : getBigQueryServices(),
                 loadJobIdPrefixView,
                 getWriteDisposition(),
                 getCreateDisposition(),
@@ -314,4 +350,129 @@ public abstract class BatchLoadsWithResult<DestinationT>
                 getRowWriterFactory().getSourceFormat(),
                 getSchemaUpdateOptions()));
   }
+
+  /**
+   * Same as {@link WriteGroupedRecordsToFiles}, but provides the side inputs of the dynamic
+   * destinations to the row writer factory, which needs the table schemas to create Avro writers.
+   */
+  private static class WriteGroupedRecordsToFilesWithSchemas<DestinationT, ElementT>
+      extends DoFn<KV<ShardedKey<DestinationT>, Iterable<ElementT>>, WriteBundlesToFiles.Result<DestinationT>> {
+
+    private final DynamicDestinations<?, DestinationT> dynamicDestinations;
+    private final PCollectionView<String> tempFilePrefix;
+    private final long maxFileSize;
+    private final RowWriterFactory<ElementT, DestinationT> rowWriterFactory;
+
+    WriteGroupedRecordsToFilesWithSchemas(
+        DynamicDestinations<?, DestinationT> dynamicDestinations,
+        PCollectionView<String> tempFilePrefix,
+        long maxFileSize,
+        RowWriterFactory<ElementT, DestinationT> rowWriterFactory) {
+      this.dynamicDestinations = dynamicDestinations;
+      this.tempFilePrefix = tempFilePrefix;
+      this.maxFileSize = maxFileSize;
+      this.rowWriterFactory = rowWriterFactory;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext c) throws Exception {
+      dynamicDestinations.setSideInputAccessorFromProcessContext(c);
+      String tempFilePrefix = c.sideInput(this.tempFilePrefix);
+      DestinationT destination = c.element().getKey().getKey();
+      BigQueryRowWriter<ElementT> writer =
+          rowWriterFactory.createRowWriter(tempFilePrefix, destination);
+      try {
+        for (ElementT element : c.element().getValue()) {
+          if (writer.getByteSize() > maxFileSize) {
+            writer.close();
+            output(c, writer.getResult(), destination);
+            writer = rowWriterFactory.createRowWriter(tempFilePrefix, destination);
+          }
+          writer.write(element);
+        }
+      } finally {
+        writer.close();
+      }
+      output(c, writer.getResult(), destination);
+    }
+
+    private void output(ProcessContext c, BigQueryRowWriter.Result result, DestinationT destination) {
+      c.output(
+          new WriteBundlesToFiles.Result<>(
+              result.resourceId.toString(), result.byteSize, destination));
+    }
+  }
+
+  /**
+   * {@link BigQueryServices} that enable Avro logical types in the load jobs of Avro files, which
+   * cannot be configured through {@link WriteTables}.
+   */
+  static class AvroLogicalTypesBigQueryServices implements BigQueryServices {
+
+    private final BigQueryServices delegate;
+
+    AvroLogicalTypesBigQueryServices(BigQueryServices delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public JobService getJobService(BigQueryOptions bqOptions) {
+      JobService jobService = delegate.getJobService(bqOptions);
+      return new JobService() {
+        @Override
+        public void startLoadJob(JobReference jobRef, JobConfigurationLoad loadConfig)
+            throws InterruptedException, IOException {
+          if ("AVRO".equals(loadConfig.getSourceFormat())) {
+            loadConfig.setUseAvroLogicalTypes(true);
+          }
+          jobService.startLoadJob(jobRef, loadConfig);
+        }
+
+        @Override
+        public void startExtractJob(JobReference jobRef, JobConfigurationExtract extractConfig)
+            throws InterruptedException, IOException {
+          jobService.startExtractJob(jobRef, extractConfig);
+        }
+
+        @Override
+        public void startQueryJob(JobReference jobRef, JobConfigurationQuery query)
+            throws IOException, InterruptedException {
+          jobService.startQueryJob(jobRef, query);
+        }
+
+        @Override
+        public void startCopyJob(JobReference jobRef, JobConfigurationTableCopy copyConfig)
+            throws IOException, InterruptedException {
+          jobService.startCopyJob(jobRef, copyConfig);
+        }
+
+        @Override
+        public Job pollJob(JobReference jobRef, int maxAttempts) throws InterruptedException {
+          return jobService.pollJob(jobRef, maxAttempts);
+        }
+
+        @Override
+        public JobStatistics dryRunQuery(
+            String projectId, JobConfigurationQuery queryConfig, String location)
+            throws InterruptedException, IOException {
+          return jobService.dryRunQuery(projectId, queryConfig, location);
+        }
+
+        @Override
+        public Job getJob(JobReference jobRef) throws IOException, InterruptedException {
+          return jobService.getJob(jobRef);
+        }
+      };
+    }
+
+    @Override
+    public DatasetService getDatasetService(BigQueryOptions bqOptions) {
+      return delegate.getDatasetService(bqOptions);
+    }
+
+    @Override
+    public StorageClient getStorageClient(BigQueryOptions bqOptions) throws IOException {
+      return delegate.getStorageClient(bqOptions);
+    }
+  }
 }
@@ -0,0 +1,200 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io.gcp.bigquery;
+
+import com.google.api.services.bigquery.model.TableRow;
+import com.google.auto.value.AutoValue;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
+import org.apache.beam.sdk.values.ValueInSingleWindow;
+
+/**
+ * Streams elements keyed by table spec into existing BigQuery tables with the insertAll API, and
+ * returns the elements that were inserted under the success tag, and the elements that were
+ * rejected, paired with the JSON encoded insert errors, under the failure tag. Unlike {@link
+ * BigQueryIO.Write.Method#STREAMING_INSERTS}, which only returns failed inserts, every element is
+ * accounted for.
+ *
+ * <p>Insert ids are computed from the elements by the insert id function rather than generated, so
+ * that BigQuery drops duplicates of elements that are retried after a failed bundle or replayed by
+ * the source. BigQuery only drops duplicates on a best effort basis, within about a minute.
+ *
+ * <p>Rows are buffered per table until the end of the bundle, as with Beam's streaming inserts, and
+ * inserted in batches of at most {@link BigQueryOptions#getMaxStreamingRowsToBatch()} rows.
+ * Transient errors are retried by the dataset service, and errors of the requests fail the bundle
+ * so that it is retried by the runner.
+ */
+@AutoValue
+public abstract class StreamingInsertsWithResult<ElementT>
+    extends PTransform<PCollection<KV<String, ElementT>>, PCollectionTuple> {
+
+  @Nullable
+  abstract BigQueryServices getBigQueryServices();
+
+  abstract SerializableFunction<ElementT, TableRow> getFormatFunction();
+
+  abstract SerializableFunction<ElementT, String> getInsertIdFunction();
+
+  abstract Coder<ElementT> getElementCoder();
+
+  abstract TupleTag<ElementT> getSuccessTag();
+
+  abstract TupleTag<KV<ElementT, String>> getFailureTag();
+
+  @AutoValue.Builder
+  public abstract static class Builder<ElementT> {
+    public abstract Builder<ElementT> setBigQueryServices(BigQueryServices bigQueryServices);
+
+    public abstract Builder<ElementT> setFormatFunction(
+        SerializableFunction<ElementT, TableRow> formatFunction);
+
+    public abstract Builder<ElementT> setInsertIdFunction(
+        SerializableFunction<ElementT, String> insertIdFunction);
+
+    public abstract Builder<ElementT> setElementCoder(Coder<ElementT> elementCoder);
+
+    public abstract Builder<ElementT> setSuccessTag(TupleTag<ElementT> successTag);
+
+    public abstract Builder<ElementT> setFailureTag(TupleTag<KV<ElementT, String>> failureTag);
+
+    public abstract StreamingInsertsWithResult<ElementT> build();
+  }
+
+  public static <ElementT> Builder<ElementT> create() {
+    return new AutoValue_StreamingInsertsWithResult.Builder<ElementT>()
+        .setBigQueryServices(new BigQueryServicesImpl());
+  }
+
+  @Override
+  public PCollectionTuple expand(PCollection<KV<String, ElementT>> input) {
+    PCollectionTuple result =
+        input.apply(
+            "StreamingInsert",
+            ParDo.of(new InsertFn<>(this))
+                .withOutputTags(getSuccessTag(), TupleTagList.of(getFailureTag())));
+    result.get(getSuccessTag()).setCoder(getElementCoder());
+    result.get(getFailureTag()).setCoder(KvCoder.of(getElementCoder(), StringUtf8Coder.of()));
+    return result;
+  }
+
+  private static class InsertFn<ElementT> extends DoFn<KV<String, ElementT>, ElementT> {
+
+    private final BigQueryServices bigQueryServices;
+    private final SerializableFunction<ElementT, TableRow> formatFunction;
+    private final SerializableFunction<ElementT, String> insertIdFunction;
+    private final TupleTag<ElementT> successTag;
+    private final TupleTag<KV<ElementT, String>> failureTag;
+
+    private transient BigQueryServices.DatasetService datasetService;
+    private transient Map<String, List<ValueInSingleWindow<ElementT>>> buffers;
+
+    InsertFn(StreamingInsertsWithResult<ElementT> spec) {
+      this.bigQueryServices = spec.getBigQueryServices();
+      this.formatFunction = spec.getFormatFunction();
+      this.insertIdFunction = spec.getInsertIdFunction();
+      this.successTag = spec.getSuccessTag();
+      this.failureTag = spec.getFailureTag();
+    }
+
+    @StartBundle
+    public void startBundle(StartBundleContext context) {
+      if (datasetService == null) {
+        datasetService =
+            bigQueryServices.getDatasetService(
+                context.getPipelineOptions().as(BigQueryOptions.class));
+      }
+      buffers = new HashMap<>();
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext context, BoundedWindow window) {
+      buffers
+          .computeIfAbsent(context.element().getKey(), tableSpec -> new ArrayList<>())
+          .add(
+              ValueInSingleWindow.of(
+                  context.element().getValue(), context.timestamp(), window, context.pane()));
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext context) throws IOException, InterruptedException {
+      for (Map.Entry<String, List<ValueInSingleWindow<ElementT>>> buffer : buffers.entrySet()) {
+        insert(buffer.getKey(), buffer.getValue(), context);
+      }
+      buffers = null;
+    }
+
+    private void insert(
+        String tableSpec, List<ValueInSingleWindow<ElementT>> elements, FinishBundleContext context)
+        throws IOException, InterruptedException {
+      List<ValueInSingleWindow<TableRow>> rows = new ArrayList<>(elements.size());
+      List<String> insertIds = new ArrayList<>(elements.size());
+      // Insert errors refer to the rows that were inserted, which map back to the elements
+      Map<TableRow, ValueInSingleWindow<ElementT>> elementsByRow = new IdentityHashMap<>();
+      for (ValueInSingleWindow<ElementT> element : elements) {
+        TableRow row = formatFunction.apply(element.getValue());
+        rows.add(
+            ValueInSingleWindow.of(
+                row, element.getTimestamp(), element.getWindow(), element.getPane()));
+        insertIds.add(insertIdFunction.apply(element.getValue()));
+        elementsByRow.put(row, element);
+      }
+
+      List<ValueInSingleWindow<BigQueryInsertError>> errors = new ArrayList<>();
+      datasetService.insertAll(
+          BigQueryHelpers.parseTableSpec(tableSpec),
+          rows,
+          insertIds,
+          InsertRetryPolicy.retryTransientErrors(),
+          errors,
+          ErrorContainer.BIG_QUERY_INSERT_ERROR_ERROR_CONTAINER,
+          false,
+          false);
+
+      for (ValueInSingleWindow<BigQueryInsertError> error : errors) {
+        ValueInSingleWindow<ElementT> element = elementsByRow.remove(error.getValue().getRow());
+        if (element != null) {
+          context.output(
+              failureTag,
+              KV.of(element.getValue(), error.getValue().getError().toString()),
+              element.getTimestamp(),
+              element.getWindow());
+        }
+      }
+      for (ValueInSingleWindow<ElementT> element : elementsByRow.values()) {
+        context.output(successTag, element.getValue(), element.getTimestamp(), element.getWindow());
+      }
+    }
+  }
+}
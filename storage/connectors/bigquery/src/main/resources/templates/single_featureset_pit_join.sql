@@ -29,8 +29,10 @@ SELECT
   created_timestamp,
   {{ featureSet.entities | join(', ')}},
   false AS is_entity_table
-FROM `{{projectId}}.{{datasetId}}.{{ featureSet.project }}_{{ featureSet.name }}` WHERE event_timestamp <= '{{maxTimestamp}}'
-{% if featureSet.maxAge == 0 %}{% else %}AND event_timestamp >= Timestamp_sub(TIMESTAMP '{{ minTimestamp }}', interval {{ featureSet.maxAge }} second){% endif %}
+FROM `{{projectId}}.{{datasetId}}.{{ featureSet.project }}_{{ featureSet.name }}`
+-- constant bounds on event_timestamp, the partitioning column, so that only partitions in range are scanned
+WHERE event_timestamp <= TIMESTAMP '{{ maxTimestamp }}'
+{% if partitionStartTimestamp is not null %}AND event_timestamp >= TIMESTAMP '{{ partitionStartTimestamp }}'{% endif %}
 ),
 /*
  2. Window the data in the unioned dataset, partitioning by entity and ordering by event_timestamp, as
@@ -73,8 +75,9 @@ SELECT
   {% for feature in featureSet.features %}
   {{ feature.name }} as {{ featureSet.project }}__{{ featureSet.name }}__{{ feature.name }}{% if loop.last %}{% else %}, {% endif %}
   {% endfor %}
-FROM `{{ projectId }}.{{ datasetId }}.{{ featureSet.project }}_{{ featureSet.name }}` WHERE event_timestamp <= '{{maxTimestamp}}'
-{% if featureSet.maxAge == 0 %}{% else %}AND event_timestamp >= Timestamp_sub(TIMESTAMP '{{ minTimestamp }}', interval {{ featureSet.maxAge }} second){% endif %}
+FROM `{{ projectId }}.{{ datasetId }}.{{ featureSet.project }}_{{ featureSet.name }}`
+WHERE event_timestamp <= TIMESTAMP '{{ maxTimestamp }}'
+{% if partitionStartTimestamp is not null %}AND event_timestamp >= TIMESTAMP '{{ partitionStartTimestamp }}'{% endif %}
 ) USING ({{ featureSet.project }}_{{ featureSet.name }}_feature_timestamp, created_timestamp, {{ featureSet.entities | join(', ')}})
 WHERE is_entity_table
 )
@@ -0,0 +1,71 @@
+/*
+ This script performs the point-in-time correctness join of all the requested feature sets to the
+ provided entity table in a single job, and exports the result to the staging location, or writes
+ it to a result table when no export URI is given.
+
+ 1. Copy the entity table to a temporary table with a unique identifier for each row, and compute
+ the temporal bounds of the entity dataset. The bounds are used to prune the partitions of the
+ feature set tables.
+ */
+DECLARE min_timestamp, max_timestamp TIMESTAMP;
+
+CREATE TEMP TABLE entities AS
+SELECT GENERATE_UUID() AS uuid, * FROM `{{ leftTableName }}`;
+
+SET (min_timestamp, max_timestamp) = (
+  SELECT AS STRUCT MIN(event_timestamp), MAX(event_timestamp) FROM entities
+);
+
+/*
+ 2. For each feature set, join the feature rows with the same entities to each entity row, and keep
+ the latest feature row that is no later than the entity row, and within the max age of the feature
+ set.
+ 3. Join the latest feature rows of all the feature sets to the entity rows, and export the result.
+ */
+{% if exportUri is not null %}
+EXPORT DATA OPTIONS (uri = '{{ exportUri | raw }}', format = 'AVRO', overwrite = true) AS
+{% else %}
+CREATE TABLE `{{ resultTableName }}`
+OPTIONS (expiration_timestamp = TIMESTAMP_ADD(CURRENT_TIMESTAMP(), INTERVAL 1 DAY)) AS
+{% endif %}
+WITH
+{% for featureSet in featureSets %}
+{{ featureSet.project }}_{{ featureSet.name }} AS (
+SELECT
+  entities.uuid,
+  ARRAY_AGG(
+    STRUCT(
+      {% for feature in featureSet.features %}
+      features.{{ feature.name }}{% if loop.last %}{% else %}, {% endif %}
+      {% endfor %}
+    )
+    ORDER BY features.event_timestamp DESC, features.created_timestamp DESC
+    LIMIT 1
+  )[OFFSET(0)] AS latest
+FROM entities
+LEFT JOIN (
+  SELECT * FROM `{{ projectId }}.{{ datasetId }}.{{ featureSet.project }}_{{ featureSet.name }}`
+  WHERE event_timestamp <= max_timestamp
+  {% if featureSet.maxAge == 0 %}{% else %}AND event_timestamp >= TIMESTAMP_SUB(min_timestamp, INTERVAL {{ featureSet.maxAge }} SECOND){% endif %}
+
+) features
+ON {% for entity in featureSet.entities %}features.{{ entity }} = entities.{{ entity }} AND {% endfor %}features.event_timestamp <= entities.event_timestamp
+{% if featureSet.maxAge == 0 %}{% else %}AND features.event_timestamp > TIMESTAMP_SUB(entities.event_timestamp, INTERVAL {{ featureSet.maxAge }} SECOND){% endif %}
+
+GROUP BY entities.uuid
+){% if loop.last %}{% else %},{% endif %}
+{% endfor %}
+SELECT
+  entities.event_timestamp
+  {% for entity in entities %}
+  , entities.{{ entity }}
+  {% endfor %}
+  {% for featureSet in featureSets %}
+  {% for feature in featureSet.features %}
+  , {{ featureSet.project }}_{{ featureSet.name }}.latest.{{ feature.name }} AS {% if feature.featureSet != "" %}{{ featureSet.name }}__{% endif %}{{ feature.name }}
+  {% endfor %}
+  {% endfor %}
+FROM entities
+{% for featureSet in featureSets %}
+LEFT JOIN {{ featureSet.project }}_{{ featureSet.name }} USING (uuid)
+{% endfor %}
@@ -0,0 +1,155 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.bigquery.compression;
+
+import static feast.storage.common.testing.TestUtil.createRandomValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.common.collect.Lists;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.BoolList;
+import feast.proto.types.ValueProto.StringList;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.junit.Test;
+
+public class FeatureRowsBatchTest {
+
+  @Test
+  public void shouldRestoreRowsOfEveryValueTypeAfterEncoding() throws CoderException {
+    List<FeatureRow> featureRows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      FeatureRow.Builder featureRow = FeatureRow.newBuilder().setFeatureSet("project/fs");
+      for (ValueType.Enum type : ValueType.Enum.values()) {
+        if (type == ValueType.Enum.INVALID || type == ValueType.Enum.UNRECOGNIZED) {
+          continue;
+        }
+        featureRow.addFields(
+            Field.newBuilder()
+                .setName(String.format("feature_%d", type.getNumber()))
+                .setValue(createRandomValue(type, i % 7)));
+      }
+      featureRows.add(featureRow.build());
+    }
+
+    assertThat(roundTrip(featureRows), equalTo(featureRows));
+  }
+
+  @Test
+  public void shouldRestoreRowsWithMissingFieldsAndVariableLengthLists() throws CoderException {
+    List<FeatureRow> featureRows =
+        Arrays.asList(
+            FeatureRow.newBuilder()
+                .setFeatureSet("project/fs")
+                .addFields(field("entity", Value.newBuilder().setInt64Val(1).build()))
+                .addFields(
+                    field(
+                        "strings",
+                        Value.newBuilder()
+                            .setStringListVal(StringList.newBuilder().addVal("a").addVal(""))
+                            .build()))
+                .build(),
+            FeatureRow.newBuilder()
+                .setFeatureSet("project/fs")
+                .addFields(field("entity", Value.newBuilder().setInt64Val(2).build()))
+                .addFields(
+                    field(
+                        "bools",
+                        Value.newBuilder()
+                            .setBoolListVal(BoolList.newBuilder().addVal(true).addVal(false))
+                            .build()))
+                .addFields(Field.newBuilder().setName("unset"))
+                .build(),
+            FeatureRow.newBuilder()
+                .setFeatureSet("project/fs")
+                .addFields(
+                    field(
+                        "strings",
+                        Value.newBuilder().setStringListVal(StringList.newBuilder()).build()))
+                .addFields(field("entity", Value.newBuilder().setInt64Val(3).build()))
+                .build());
+
+    assertThat(
+        roundTrip(featureRows),
+        equalTo(
+            Arrays.asList(
+                featureRows.get(0),
+                featureRows.get(1),
+                // Fields are restored in the order of the columns
+                FeatureRow.newBuilder()
+                    .setFeatureSet("project/fs")
+                    .addFields(featureRows.get(2).getFields(1))
+                    .addFields(featureRows.get(2).getFields(0))
+                    .build())));
+  }
+
+  @Test
+  public void shouldRestoreFieldsWithoutValueAlongsideSetValues() throws CoderException {
+    List<FeatureRow> featureRows =
+        Arrays.asList(
+            FeatureRow.newBuilder()
+                .setFeatureSet("project/fs")
+                .addFields(Field.newBuilder().setName("feature"))
+                .addFields(Field.newBuilder().setName("other"))
+                .build(),
+            FeatureRow.newBuilder()
+                .setFeatureSet("project/fs")
+                .addFields(field("feature", Value.newBuilder().setInt64Val(1).build()))
+                .addFields(field("other", Value.newBuilder().setStringVal("a").build()))
+                .build(),
+            FeatureRow.newBuilder()
+                .setFeatureSet("project/fs")
+                .addFields(Field.newBuilder().setName("feature"))
+                .addFields(field("other", Value.newBuilder().setStringVal("b").build()))
+                .build(),
+            FeatureRow.newBuilder()
+                .setFeatureSet("project/fs")
+                .addFields(field("feature", Value.newBuilder().setInt64Val(2).build()))
+                .build());
+
+    assertThat(roundTrip(featureRows), equalTo(featureRows));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void shouldRejectFieldsWithDifferentTypes() {
+    new FeatureRowsBatch(
+        Arrays.asList(
+            FeatureRow.newBuilder()
+                .addFields(field("feature", Value.newBuilder().setInt64Val(1).build()))
+                .build(),
+            FeatureRow.newBuilder()
+                .addFields(field("feature", Value.newBuilder().setStringVal("1").build()))
+                .build()));
+  }
+
+  private static Field field(String name, Value value) {
+    return Field.newBuilder().setName(name).setValue(value).build();
+  }
+
+  private static List<FeatureRow> roundTrip(List<FeatureRow> featureRows) throws CoderException {
+    FeatureRowsBatch batch =
+        CoderUtils.clone(FeatureRowsBatch.FeatureRowsCoder.of(), new FeatureRowsBatch(featureRows));
+    return Lists.newArrayList(batch.getFeatureRows());
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.bigquery.retriever;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.cloud.bigquery.storage.v1beta1.AvroProto.AvroRows;
+import com.google.protobuf.ByteString;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesStreamResponse;
+import feast.proto.serving.ServingAPIProto.GetBatchFeaturesStreamResponse.Column;
+import feast.proto.types.ValueProto.Int64List;
+import feast.proto.types.ValueProto.Value;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Test;
+
+public class AvroRowsDecoderTest {
+
+  // Schema of a result table, as returned by a BigQuery Storage API read session
+  private static final String SCHEMA =
+      "{\"type\":\"record\",\"name\":\"__root__\",\"fields\":["
+          + "{\"name\":\"event_timestamp\",\"type\":[\"null\","
+          + "{\"type\":\"long\",\"logicalType\":\"timestamp-micros\"}]},"
+          + "{\"name\":\"driver_id\",\"type\":[\"null\",\"long\"]},"
+          + "{\"name\":\"driver__rating\",\"type\":[\"null\",\"double\"]},"
+          + "{\"name\":\"driver__city\",\"type\":[\"null\",\"string\"]},"
+          + "{\"name\":\"driver__trips\",\"type\":{\"type\":\"array\",\"items\":\"long\"}}]}";
+
+  @Test
+  public void shouldDecodeRowsIntoColumns() throws IOException {
+    Schema schema = new Schema.Parser().parse(SCHEMA);
+    GenericRecord first = new GenericData.Record(schema);
+    first.put("event_timestamp", 1590000000000000L);
+    first.put("driver_id", 1L);
+    first.put("driver__rating", 4.5);
+    first.put("driver__city", "a");
+    first.put("driver__trips", Arrays.asList(1L, 2L));
+    GenericRecord second = new GenericData.Record(schema);
+    second.put("event_timestamp", 1590000001000000L);
+    second.put("driver_id", 2L);
+    second.put("driver__trips", Collections.emptyList());
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(output, null);
+    GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(schema);
+    writer.write(first, encoder);
+    writer.write(second, encoder);
+    encoder.flush();
+
+    GetBatchFeaturesStreamResponse batch =
+        new AvroRowsDecoder(SCHEMA)
+            .decode(
+                AvroRows.newBuilder()
+                    .setSerializedBinaryRows(ByteString.copyFrom(output.toByteArray()))
+                    .setRowCount(2)
+                    .build());
+
+    assertThat(batch.getRowCount(), equalTo(2L));
+    assertThat(
+        batch.getColumnsList().stream().map(Column::getName).collect(Collectors.toList()),
+        contains(
+            "event_timestamp", "driver_id", "driver__rating", "driver__city", "driver__trips"));
+    assertThat(
+        batch.getColumns(0).getValuesList(),
+        contains(int64(1590000000000000L), int64(1590000001000000L)));
+    assertThat(batch.getColumns(1).getValuesList(), contains(int64(1), int64(2)));
+    assertThat(
+        batch.getColumns(2).getValuesList(),
+        contains(Value.newBuilder().setDoubleVal(4.5).build(), Value.getDefaultInstance()));
+    assertThat(
+        batch.getColumns(3).getValuesList(),
+        contains(Value.newBuilder().setStringVal("a").build(), Value.getDefaultInstance()));
+    assertThat(
+        batch.getColumns(4).getValuesList(),
+        contains(
+            Value.newBuilder().setInt64ListVal(Int64List.newBuilder().addVal(1).addVal(2)).build(),
+            Value.newBuilder().setInt64ListVal(Int64List.getDefaultInstance()).build()));
+  }
+
+  private static Value int64(long value) {
+    return Value.newBuilder().setInt64Val(value).build();
+  }
+}
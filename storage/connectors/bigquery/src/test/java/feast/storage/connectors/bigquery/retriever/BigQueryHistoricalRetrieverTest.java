@@ -0,0 +1,250 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.bigquery.retriever;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobId;
+import com.google.cloud.bigquery.JobInfo;
+import com.google.cloud.bigquery.StandardSQLTypeName;
+import com.google.cloud.bigquery.StandardTableDefinition;
+import com.google.cloud.bigquery.TableDataWriteChannel;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.TableInfo;
+import com.google.cloud.bigquery.WriteChannelConfiguration;
+import com.google.cloud.bigquery.storage.v1beta1.BigQueryStorageClient;
+import com.google.cloud.storage.Storage;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.serving.ServingAPIProto.GetOnlineFeaturesRequest.EntityRow;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.HistoricalRetrievalResult;
+import feast.storage.api.retriever.StreamedEntityRetrieval;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class BigQueryHistoricalRetrieverTest {
+
+  private BigQuery bigquery;
+  private ByteArrayOutputStream written;
+  private TableDataWriteChannel writer;
+
+  @Before
+  public void setUp() throws Exception {
+    bigquery = mock(BigQuery.class);
+    written = new ByteArrayOutputStream();
+    writer = mock(TableDataWriteChannel.class);
+    when(writer.write(any()))
+        .thenAnswer(
+            invocation -> {
+              ByteBuffer buffer = invocation.getArgument(0);
+              int length = buffer.remaining();
+              byte[] bytes = new byte[length];
+              buffer.get(bytes);
+              written.write(bytes);
+              return length;
+            });
+    when(bigquery.writer(any(WriteChannelConfiguration.class))).thenReturn(writer);
+  }
+
+  @Test
+  public void shouldWriteStreamedEntityRowsWithUUIDs() {
+    StreamedEntityRetrieval retrieval =
+        retriever(false).startStreamedEntityRetrieval("retrieval", featureSetRequests());
+    retrieval.write(Arrays.asList(entityRow(1590000000, 1, "a"), entityRow(1590000001, 2, "b")));
+
+    ArgumentCaptor<TableInfo> tableInfo = ArgumentCaptor.forClass(TableInfo.class);
+    verify(bigquery).create(tableInfo.capture());
+    StandardTableDefinition definition = tableInfo.getValue().getDefinition();
+    assertThat(
+        definition.getSchema().getFields().stream()
+            .map(Field::getName)
+            .collect(Collectors.toList()),
+        equalTo(Arrays.asList("uuid", "event_timestamp", "driver_id", "city")));
+    assertThat(
+        definition.getSchema().getFields().get("driver_id").getType().getStandardType(),
+        equalTo(StandardSQLTypeName.INT64));
+
+    List<String> lines = lines();
+    assertThat(lines, hasSize(2));
+    assertTrue(
+        lines
+            .get(0)
+            .matches(
+                "\\{\"uuid\":\"[0-9a-f-]{36}\",\"event_timestamp\":\"2020-05-20T18:40:00Z\","
+                    + "\"driver_id\":1,\"city\":\"a\"}"));
+  }
+
+  @Test
+  public void shouldWriteStreamedEntityRowsWithoutUUIDsInSingleQuery() {
+    StreamedEntityRetrieval retrieval =
+        retriever(true).startStreamedEntityRetrieval("retrieval", featureSetRequests());
+    retrieval.write(Collections.singletonList(entityRow(1590000000, 1, "a")));
+
+    assertThat(
+        lines(),
+        equalTo(
+            Collections.singletonList(
+                "{\"event_timestamp\":\"2020-05-20T18:40:00Z\",\"driver_id\":1,\"city\":\"a\"}")));
+  }
+
+  @Test
+  public void shouldRejectEntityRowsWithMissingEntities() {
+    StreamedEntityRetrieval retrieval =
+        retriever(false).startStreamedEntityRetrieval("retrieval", featureSetRequests());
+    EntityRow entityRow = entityRow(1590000000, 1, "a").toBuilder().removeFields("city").build();
+
+    try {
+      retrieval.write(Collections.singletonList(entityRow));
+      fail("Entity row without all entities was written");
+    } catch (StatusRuntimeException e) {
+      assertThat(e.getStatus().getCode(), equalTo(Status.Code.INVALID_ARGUMENT));
+    }
+
+    retrieval.abort();
+    verify(bigquery).delete(any(TableId.class));
+  }
+
+  @Test
+  public void shouldCancelLoadJobWhenRetrievalIsInterrupted() throws Exception {
+    Job loadJob = job("load");
+    when(loadJob.waitFor(any(), any())).thenThrow(new InterruptedException());
+    when(writer.getJob()).thenReturn(loadJob);
+
+    StreamedEntityRetrieval retrieval =
+        retriever(false).startStreamedEntityRetrieval("retrieval", featureSetRequests());
+    retrieval.write(Collections.singletonList(entityRow(1590000000, 1, "a")));
+    HistoricalRetrievalResult result = retrieval.retrieve();
+
+    assertTrue(result.hasError());
+    verify(bigquery).cancel(JobId.of("load"));
+  }
+
+  @Test
+  public void shouldCancelSubqueryJobsWhenBatchQueryFails() throws Exception {
+    Job failedJob = job("failed");
+    when(failedJob.waitFor()).thenThrow(new BigQueryException(500, "Query failed"));
+    Job runningJob = job("running");
+    when(runningJob.waitFor())
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(60000);
+              return runningJob;
+            });
+    when(bigquery.create(any(JobInfo.class))).thenReturn(failedJob, runningJob);
+
+    try {
+      retriever(false)
+          .runBatchQuery(
+              "entities",
+              Arrays.asList("driver_id", "city"),
+              Arrays.asList(mock(FeatureSetQueryInfo.class), mock(FeatureSetQueryInfo.class)),
+              Arrays.asList("SELECT 1", "SELECT 2"));
+      fail("Batch query with a failed subquery succeeded");
+    } catch (StatusRuntimeException e) {
+      assertThat(e.getStatus().getCode(), equalTo(Status.Code.INTERNAL));
+    }
+
+    verify(bigquery, atLeastOnce()).cancel(JobId.of("failed"));
+    verify(bigquery, atLeastOnce()).cancel(JobId.of("running"));
+  }
+
+  private static Job job(String jobId) {
+    Job job = mock(Job.class);
+    when(job.getJobId()).thenReturn(JobId.of(jobId));
+    return job;
+  }
+
+  private BigQueryHistoricalRetriever retriever(boolean singleQueryRetrieval) {
+    return BigQueryHistoricalRetriever.builder()
+        .setProjectId("project")
+        .setDatasetId("dataset")
+        .setJobStagingLocation("gs://bucket/staging")
+        .setBigquery(bigquery)
+        .setStorage(mock(Storage.class))
+        .setBigqueryStorage(() -> mock(BigQueryStorageClient.class))
+        .setStreamReadExecutor(MoreExecutors.newDirectExecutorService())
+        .setInitialRetryDelaySecs(1)
+        .setTotalTimeoutSecs(10)
+        .setSingleQueryRetrieval(singleQueryRetrieval)
+        .build();
+  }
+
+  private List<String> lines() {
+    return Arrays.asList(new String(written.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+  }
+
+  private static List<FeatureSetRequest> featureSetRequests() {
+    return Arrays.asList(
+        featureSetRequest("driver", "driver_id"), featureSetRequest("trip", "driver_id", "city"));
+  }
+
+  private static FeatureSetRequest featureSetRequest(String name, String... entities) {
+    FeatureSetSpec.Builder spec = FeatureSetSpec.newBuilder().setProject("project").setName(name);
+    for (String entity : entities) {
+      spec.addEntities(
+          EntitySpec.newBuilder()
+              .setName(entity)
+              .setValueType(entity.equals("city") ? ValueType.Enum.STRING : ValueType.Enum.INT64));
+    }
+    return FeatureSetRequest.newBuilder()
+        .setSpec(spec.build())
+        .addFeatureReference(
+            FeatureReference.newBuilder()
+                .setProject("project")
+                .setFeatureSet(name)
+                .setName("f")
+                .build())
+        .build();
+  }
+
+  private static EntityRow entityRow(long seconds, long driverId, String city) {
+    return EntityRow.newBuilder()
+        .setEntityTimestamp(Timestamp.newBuilder().setSeconds(seconds))
+        .putFields("driver_id", Value.newBuilder().setInt64Val(driverId).build())
+        .putFields("city", Value.newBuilder().setStringVal(city).build())
+        .build();
+  }
+}
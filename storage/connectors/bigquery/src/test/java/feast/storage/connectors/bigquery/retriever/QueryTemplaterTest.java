@@ -0,0 +1,154 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.bigquery.retriever;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class QueryTemplaterTest {
+
+  @Test
+  public void shouldBoundFeatureRowsByMaxAge() throws IOException {
+    String query =
+        QueryTemplater.createFeatureSetPointInTimeQuery(
+            featureSetInfo(3600),
+            "project",
+            "dataset",
+            "entities",
+            "2020-05-20T00:30:00",
+            "2020-05-21T12:00:00");
+
+    assertThat(
+        query,
+        containsString(
+            "WHERE event_timestamp <= TIMESTAMP '2020-05-21T12:00:00'\n"
+                + "AND event_timestamp >= TIMESTAMP '2020-05-19T23:30:00'"));
+  }
+
+  @Test
+  public void shouldOnlyBoundFeatureRowsByMaxTimestampWithoutMaxAge() throws IOException {
+    String query =
+        QueryTemplater.createFeatureSetPointInTimeQuery(
+            featureSetInfo(0),
+            "project",
+            "dataset",
+            "entities",
+            "2020-05-20T00:30:00",
+            "2020-05-21T12:00:00");
+
+    assertThat(query, containsString("WHERE event_timestamp <= TIMESTAMP '2020-05-21T12:00:00'"));
+    assertThat(query, not(containsString("event_timestamp >= TIMESTAMP")));
+  }
+
+  @Test
+  public void shouldComputePartitionStartTimestamp() {
+    assertThat(
+        QueryTemplater.getPartitionStartTimestamp("2020-05-20 00:00:00.5", 86400),
+        equalTo("2020-05-19T00:00:00.5"));
+    assertThat(QueryTemplater.getPartitionStartTimestamp("2020-05-20T00:00:00", 0), nullValue());
+  }
+
+  @Test
+  public void shouldJoinAllFeatureSetsInSingleScript() throws IOException {
+    FeatureSetQueryInfo customerInfo =
+        new FeatureSetQueryInfo(
+            "project",
+            "customer",
+            0,
+            Collections.singletonList("customer_id"),
+            Collections.singletonList(
+                FeatureReference.newBuilder()
+                    .setProject("project")
+                    .setName("orders")
+                    .setFeatureSet("customer")
+                    .build()),
+            "");
+    String script =
+        QueryTemplater.createSingleQueryPointInTimeScript(
+            Arrays.asList(featureSetInfo(3600), customerInfo),
+            Arrays.asList("driver_id", "customer_id"),
+            "project",
+            "dataset",
+            "project.dataset.entities",
+            "gs://bucket/prefix/retrieval/*.avro");
+    String normalized = script.replaceAll("\\s+", " ");
+
+    assertThat(normalized, containsString("uri = 'gs://bucket/prefix/retrieval/*.avro'"));
+    assertThat(
+        normalized,
+        containsString(
+            "FROM `project.dataset.project_driver` WHERE event_timestamp <= max_timestamp AND"
+                + " event_timestamp >= TIMESTAMP_SUB(min_timestamp, INTERVAL 3600 SECOND) ) features"));
+    assertThat(
+        normalized,
+        containsString(
+            "ON features.driver_id = entities.driver_id AND features.event_timestamp <="
+                + " entities.event_timestamp AND features.event_timestamp >"
+                + " TIMESTAMP_SUB(entities.event_timestamp, INTERVAL 3600 SECOND) GROUP BY"));
+    assertThat(
+        normalized,
+        containsString(
+            "FROM `project.dataset.project_customer` WHERE event_timestamp <= max_timestamp )"));
+    assertThat(
+        normalized,
+        containsString(
+            "SELECT entities.event_timestamp , entities.driver_id , entities.customer_id ,"
+                + " project_driver.latest.trips AS trips ,"
+                + " project_customer.latest.orders AS customer__orders FROM entities"
+                + " LEFT JOIN project_driver USING (uuid) LEFT JOIN project_customer USING (uuid)"));
+  }
+
+  @Test
+  public void shouldWriteSingleScriptResultToTable() throws IOException {
+    String script =
+        QueryTemplater.createSingleQueryPointInTimeTableScript(
+            Collections.singletonList(featureSetInfo(3600)),
+            Collections.singletonList("driver_id"),
+            "project",
+            "dataset",
+            "project.dataset.entities",
+            "project.dataset.result");
+    String normalized = script.replaceAll("\\s+", " ");
+
+    assertThat(normalized, not(containsString("EXPORT DATA")));
+    assertThat(
+        normalized,
+        containsString(
+            "CREATE TABLE `project.dataset.result` OPTIONS (expiration_timestamp ="
+                + " TIMESTAMP_ADD(CURRENT_TIMESTAMP(), INTERVAL 1 DAY)) AS WITH"));
+  }
+
+  private static FeatureSetQueryInfo featureSetInfo(long maxAge) {
+    return new FeatureSetQueryInfo(
+        "project",
+        "driver",
+        maxAge,
+        Collections.singletonList("driver_id"),
+        Collections.singletonList(
+            FeatureReference.newBuilder().setProject("project").setName("trips").build()),
+        "");
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.bigquery.retriever;
+
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobId;
+import com.google.cloud.bigquery.TableInfo;
+import org.junit.Test;
+
+public class SubqueryCallableTest {
+
+  @Test
+  public void shouldCancelSubqueryJobWhenInterrupted() throws Exception {
+    BigQuery bigquery = mock(BigQuery.class);
+    Job subqueryJob = mock(Job.class);
+    when(subqueryJob.getJobId()).thenReturn(JobId.of("subquery"));
+    when(subqueryJob.waitFor()).thenThrow(new InterruptedException());
+
+    SubqueryCallable callable =
+        SubqueryCallable.builder()
+            .setBigquery(bigquery)
+            .setFeatureSetInfo(mock(FeatureSetQueryInfo.class))
+            .setSubqueryJob(subqueryJob)
+            .build();
+
+    try {
+      callable.call();
+      fail("Interrupted subquery completed");
+    } catch (InterruptedException e) {
+      verify(bigquery).cancel(JobId.of("subquery"));
+      verify(bigquery, never()).update(any(TableInfo.class));
+    }
+  }
+}
@@ -20,20 +20,24 @@ import static feast.storage.common.testing.TestUtil.createRandomValue;
 import static feast.storage.common.testing.TestUtil.field;
 import static feast.storage.connectors.bigquery.writer.FeatureSetSpecToTableSchema.*;
 import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import com.google.api.services.bigquery.model.Job;
 import com.google.api.services.bigquery.model.JobConfigurationLoad;
+import com.google.api.services.bigquery.model.JobReference;
 import com.google.api.services.bigquery.model.TableFieldSchema;
 import com.google.api.services.bigquery.model.TableReference;
+import com.google.api.services.bigquery.model.TableRow;
 import com.google.cloud.bigquery.*;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
 import feast.proto.core.FeatureSetProto.EntitySpec;
 import feast.proto.core.FeatureSetProto.FeatureSetSpec;
 import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.core.StoreProto.Store.BigQueryConfig.WriteMethod;
 import feast.proto.types.FeatureRowProto.FeatureRow;
 import feast.proto.types.FieldProto;
 import feast.proto.types.ValueProto;
@@ -41,6 +45,7 @@ import feast.storage.api.writer.FeatureSink;
 import feast.storage.api.writer.WriteResult;
 import feast.storage.connectors.bigquery.compression.CompactFeatureRows;
 import feast.storage.connectors.bigquery.compression.FeatureRowsBatch;
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
@@ -49,6 +54,12 @@ import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
@@ -86,7 +97,7 @@ public class BigQuerySinkTest {
   @Mock(serializable = true)
   private BigQuery bigQuery;
 
-  private FakeJobService jobService = new FakeJobService();
+  private FakeJobService jobService = new SchemaUpdatingFakeJobService();
   private FakeDatasetService datasetService = new FakeDatasetService();
   private Random rd = new Random();
 
@@ -178,6 +189,13 @@ public class BigQuerySinkTest {
 
   private FeatureSink makeSink(
       ValueProvider<BigQuery> bq, PCollection<KV<String, FeatureSetSpec>> specs) {
+    return makeSink(bq, specs, WriteMethod.FILE_LOADS);
+  }
+
+  private FeatureSink makeSink(
+      ValueProvider<BigQuery> bq,
+      PCollection<KV<String, FeatureSetSpec>> specs,
+      WriteMethod writeMethod) {
     return BigQueryFeatureSink.builder()
         .setDatasetId("test_dataset")
         .setProjectId("test-project")
@@ -188,11 +206,12 @@ public class BigQuerySinkTest {
                 .withDatasetService(datasetService))
         .setBQClient(bq)
         .setTriggeringFrequency(Duration.standardSeconds(5))
+        .setWriteMethod(writeMethod)
         .build();
   }
 
   @Test
-  public void simpleInsert() {
+  public void simpleInsert() throws IOException, InterruptedException {
     FeatureRow row1 = generateRow("myproject/fs");
     FeatureRow row2 = generateRow("myproject/fs");
 
@@ -235,6 +254,50 @@ public class BigQuerySinkTest {
                 .setDatasetId("test_dataset")
                 .setProjectId("test-project")
                 .setTableId("myproject_fs")));
+
+    assertThat(loadConfiguration.getSourceFormat(), is("AVRO"));
+    assertThat(loadConfiguration.getUseAvroLogicalTypes(), is(true));
+
+    List<TableRow> loadedRows =
+        datasetService.getAllRows("test-project", "test_dataset", "myproject_fs");
+    assertThat(
+        loadedRows.stream().map(row -> row.get("entity")).collect(Collectors.toList()),
+        containsInAnyOrder(
+            String.valueOf(row1.getFields(0).getValue().getInt64Val()),
+            String.valueOf(row2.getFields(0).getValue().getInt64Val())));
+  }
+
+  @Test
+  public void streamingInsert() throws IOException, InterruptedException {
+    datasetService.createTable(
+        new com.google.api.services.bigquery.model.Table()
+            .setTableReference(
+                new TableReference()
+                    .setProjectId("test-project")
+                    .setDatasetId("test_dataset")
+                    .setTableId("myproject_fs")));
+    FeatureRow row1 = generateRow("myproject/fs");
+    FeatureRow row2 = generateRow("myproject/fs");
+
+    FeatureSink sink =
+        makeSink(
+            ValueProvider.StaticValueProvider.of(bigQuery),
+            p.apply(
+                "Specs",
+                Create.of(
+                    ImmutableMap.of(
+                        String.format("%s/%s", spec.getProject(), spec.getName()), spec))),
+            WriteMethod.STREAMING_INSERTS);
+    WriteResult result =
+        p.apply("Rows", Create.of(row1, row2).withCoder(ProtoCoder.of(FeatureRow.class)))
+            .apply(sink.writer());
+    PAssert.that(result.getSuccessfulInserts()).containsInAnyOrder(row1, row2);
+    PAssert.that(result.getFailedInserts()).empty();
+    p.run();
+
+    assertThat(jobService.getAllJobs().size(), is(0));
+    assertThat(
+        datasetService.getAllRows("test-project", "test_dataset", "myproject_fs").size(), is(2));
   }
 
   @Test
@@ -411,6 +474,46 @@ public class BigQuerySinkTest {
     assertThat(loadConfiguration.getSchema().getFields(), is(expectedFields));
   }
 
+  /**
+   * Rewrites the Avro files of load jobs with the schema of the load before running them. Rows
+   * written while a spec update is in flight can miss the new columns, which BigQuery loads as
+   * nulls, but the fake job service fails on.
+   */
+  public static class SchemaUpdatingFakeJobService extends FakeJobService {
+
+    @Override
+    public void startLoadJob(JobReference jobRef, JobConfigurationLoad loadConfig)
+        throws IOException {
+      if ("AVRO".equals(loadConfig.getSourceFormat())) {
+        org.apache.avro.Schema schema = new TableSchemaToAvroSchema().apply(loadConfig.getSchema());
+        for (String sourceUri : loadConfig.getSourceUris()) {
+          rewriteAvroFile(new File(sourceUri), schema);
+        }
+      }
+      super.startLoadJob(jobRef, loadConfig);
+    }
+
+    private static void rewriteAvroFile(File file, org.apache.avro.Schema schema)
+        throws IOException {
+      List<GenericRecord> records = new ArrayList<>();
+      try (DataFileReader<GenericRecord> reader =
+          new DataFileReader<>(file, new GenericDatumReader<>())) {
+        for (GenericRecord record : reader) {
+          GenericRecord updated = new GenericData.Record(schema);
+          record.getSchema().getFields().forEach(f -> updated.put(f.name(), record.get(f.name())));
+          records.add(updated);
+        }
+      }
+      try (DataFileWriter<GenericRecord> writer =
+          new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+        writer.create(schema, file);
+        for (GenericRecord record : records) {
+          writer.append(record);
+        }
+      }
+    }
+  }
+
   public static class ExtractKV extends DoFn<FeatureRow, KV<String, FeatureRow>> {
     @ProcessElement
     public void process(ProcessContext c) {
@@ -0,0 +1,61 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.bigquery.writer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+
+import com.google.cloud.bigquery.Clustering;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.types.ValueProto.ValueType;
+import org.junit.Test;
+
+public class FeatureSetSpecToTableSchemaTest {
+
+  @Test
+  public void shouldClusterTablesByEntitiesOfClusterableTypes() {
+    FeatureSetSpec spec =
+        FeatureSetSpec.newBuilder()
+            .addEntities(entity("driver_id", ValueType.Enum.INT64))
+            .addEntities(entity("score", ValueType.Enum.DOUBLE))
+            .addEntities(entity("hash", ValueType.Enum.BYTES))
+            .addEntities(entity("cities", ValueType.Enum.STRING_LIST))
+            .addEntities(entity("city", ValueType.Enum.STRING))
+            .build();
+
+    Clustering clustering = FeatureSetSpecToTableSchema.createClusteringFromSpec(spec);
+
+    assertThat(clustering.getFields(), contains("driver_id", "city"));
+  }
+
+  @Test
+  public void shouldNotClusterTablesWithoutClusterableEntities() {
+    FeatureSetSpec spec =
+        FeatureSetSpec.newBuilder()
+            .addEntities(entity("latitude", ValueType.Enum.DOUBLE))
+            .addEntities(entity("rating", ValueType.Enum.FLOAT))
+            .build();
+
+    assertThat(FeatureSetSpecToTableSchema.createClusteringFromSpec(spec), nullValue());
+  }
+
+  private static EntitySpec entity(String name, ValueType.Enum valueType) {
+    return EntitySpec.newBuilder().setName(name).setValueType(valueType).build();
+  }
+}
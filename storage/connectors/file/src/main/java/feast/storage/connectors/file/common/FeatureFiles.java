@@ -0,0 +1,103 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.common;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+
+/**
+ * Layout and schema of the files of the file store. The rows of a feature set are written to {@code
+ * <path>/<project>/<feature set>/date=<yyyy-MM-dd>/}, partitioned by the UTC date of their event
+ * timestamp, as Avro records holding the timestamps of the row and the serialized row. The
+ * timestamps are columns of their own so that rows can be filtered without parsing them.
+ */
+public class FeatureFiles {
+
+  public static final String EVENT_TIMESTAMP_COLUMN = "event_timestamp";
+  public static final String CREATED_TIMESTAMP_COLUMN = "created_timestamp";
+  public static final String FEATURE_ROW_COLUMN = "feature_row";
+  public static final String FILE_SUFFIX = ".avro";
+
+  private static final String PARTITION_PREFIX = "date=";
+  private static final DateTimeFormatter PARTITION_DATE_FORMATTER =
+      DateTimeFormatter.ISO_LOCAL_DATE.withZone(ZoneOffset.UTC);
+
+  /** @return Avro schema of the records of the feature files */
+  public static Schema getSchema() {
+    Schema timestamp = LogicalTypes.timestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+    return SchemaBuilder.record("FeatureRow")
+        .namespace("feast.storage")
+        .fields()
+        .name(EVENT_TIMESTAMP_COLUMN)
+        .type(timestamp)
+        .noDefault()
+        .name(CREATED_TIMESTAMP_COLUMN)
+        .type(timestamp)
+        .noDefault()
+        .name(FEATURE_ROW_COLUMN)
+        .type()
+        .bytesType()
+        .noDefault()
+        .endRecord();
+  }
+
+  /**
+   * Get the directory holding the partitions of a feature set, relative to the path of the store.
+   *
+   * @param project project of the feature set
+   * @param name name of the feature set
+   * @return directory of the feature set
+   */
+  public static String getFeatureSetDirectory(String project, String name) {
+    return String.format("%s/%s", project, name);
+  }
+
+  /**
+   * Get the name of the partition directory of rows with the given event timestamp.
+   *
+   * @param eventTimestampMillis event timestamp of the row, in milliseconds since epoch
+   * @return name of the partition directory
+   */
+  public static String getPartition(long eventTimestampMillis) {
+    return PARTITION_PREFIX
+        + PARTITION_DATE_FORMATTER.format(Instant.ofEpochMilli(eventTimestampMillis));
+  }
+
+  /**
+   * Get the date of the rows of a partition directory.
+   *
+   * @param partition name of the partition directory
+   * @return date of the event timestamps of the rows of the partition, or null if the directory is
+   *     not a partition
+   */
+  public static LocalDate getPartitionDate(String partition) {
+    if (!partition.startsWith(PARTITION_PREFIX)) {
+      return null;
+    }
+    try {
+      return LocalDate.parse(partition.substring(PARTITION_PREFIX.length()));
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.common;
+
+import com.google.protobuf.ByteString;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.avro.Schema;
+
+/**
+ * Conversions between Feast values and the Avro values of entity datasets and retrieval results.
+ * Types are mapped as BigQuery maps them, so that the results of historical retrievals have the
+ * same schema in both stores.
+ */
+public class TypeUtil {
+
+  /**
+   * Get the nullable Avro schema of the column of a feature of the given type.
+   *
+   * @param valueType value type of the feature
+   * @return nullable Avro schema
+   */
+  public static Schema toAvroSchema(ValueType.Enum valueType) {
+    Schema type;
+    switch (valueType) {
+      case BYTES:
+        type = Schema.create(Schema.Type.BYTES);
+        break;
+      case STRING:
+        type = Schema.create(Schema.Type.STRING);
+        break;
+      case INT32:
+      case INT64:
+        type = Schema.create(Schema.Type.LONG);
+        break;
+      case DOUBLE:
+      case FLOAT:
+        type = Schema.create(Schema.Type.DOUBLE);
+        break;
+      case BOOL:
+        type = Schema.create(Schema.Type.BOOLEAN);
+        break;
+      case BYTES_LIST:
+        type = Schema.createArray(Schema.create(Schema.Type.BYTES));
+        break;
+      case STRING_LIST:
+        type = Schema.createArray(Schema.create(Schema.Type.STRING));
+        break;
+      case INT32_LIST:
+      case INT64_LIST:
+        type = Schema.createArray(Schema.create(Schema.Type.LONG));
+        break;
+      case DOUBLE_LIST:
+      case FLOAT_LIST:
+        type = Schema.createArray(Schema.create(Schema.Type.DOUBLE));
+        break;
+      case BOOL_LIST:
+        type = Schema.createArray(Schema.create(Schema.Type.BOOLEAN));
+        break;
+      default:
+        throw new IllegalArgumentException(
+            String.format("Value type '%s' is unsupported", valueType));
+    }
+    return Schema.createUnion(Arrays.asList(Schema.create(Schema.Type.NULL), type));
+  }
+
+  /**
+   * Converts a {@link Value} to an Avro value of the schema returned by {@link
+   * #toAvroSchema(ValueType.Enum)} for its type.
+   *
+   * @param value value to convert
+   * @return Avro value, or null if the value is unset
+   */
+  public static Object toAvroValue(Value value) {
+    switch (value.getValCase()) {
+      case BYTES_VAL:
+        return toByteBuffer(value.getBytesVal());
+      case STRING_VAL:
+        return value.getStringVal();
+      case INT32_VAL:
+        return (long) value.getInt32Val();
+      case INT64_VAL:
+        return value.getInt64Val();
+      case DOUBLE_VAL:
+        return value.getDoubleVal();
+      case FLOAT_VAL:
+        return (double) value.getFloatVal();
+      case BOOL_VAL:
+        return value.getBoolVal();
+      case BYTES_LIST_VAL:
+        return toList(value.getBytesListVal().getValList(), TypeUtil::toByteBuffer);
+      case STRING_LIST_VAL:
+        return value.getStringListVal().getValList();
+      case INT32_LIST_VAL:
+        return toList(value.getInt32ListVal().getValList(), Integer::longValue);
+      case INT64_LIST_VAL:
+        return value.getInt64ListVal().getValList();
+      case DOUBLE_LIST_VAL:
+        return value.getDoubleListVal().getValList();
+      case FLOAT_LIST_VAL:
+        return toList(value.getFloatListVal().getValList(), Float::doubleValue);
+      case BOOL_LIST_VAL:
+        return value.getBoolListVal().getValList();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Get the join key of an entity {@link Value}. Integers of any width have the same key, so that
+   * entities match whether the entity dataset holds them as Avro int or long.
+   *
+   * @param value entity value
+   * @return join key, or null if the value is unset or not a scalar
+   */
+  public static String toEntityKey(Value value) {
+    switch (value.getValCase()) {
+      case BYTES_VAL:
+        return Base64.getEncoder().encodeToString(value.getBytesVal().toByteArray());
+      case STRING_VAL:
+        return value.getStringVal();
+      case INT32_VAL:
+        return Long.toString(value.getInt32Val());
+      case INT64_VAL:
+        return Long.toString(value.getInt64Val());
+      case DOUBLE_VAL:
+        return Double.toString(value.getDoubleVal());
+      case FLOAT_VAL:
+        return Float.toString(value.getFloatVal());
+      case BOOL_VAL:
+        return Boolean.toString(value.getBoolVal());
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Get the join key of an entity value read from an Avro entity dataset, equal to the key returned
+   * by {@link #toEntityKey(Value)} for the same entity.
+   *
+   * @param value Avro value
+   * @return join key, or null if the value is null
+   */
+  public static String toEntityKey(Object value) {
+    if (value == null) {
+      return null;
+    }
+    if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      return Base64.getEncoder().encodeToString(bytes);
+    }
+    if (value instanceof Integer) {
+      return Long.toString((Integer) value);
+    }
+    return value.toString();
+  }
+
+  private static ByteBuffer toByteBuffer(ByteString bytes) {
+    return ByteBuffer.wrap(bytes.toByteArray());
+  }
+
+  private static <T, R> List<R> toList(List<T> values, Function<T, R> converter) {
+    return values.stream().map(converter).collect(Collectors.toList());
+  }
+}
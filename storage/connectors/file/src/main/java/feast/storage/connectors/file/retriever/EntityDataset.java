@@ -0,0 +1,176 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.retriever;
+
+import feast.proto.serving.ServingAPIProto.DataFormat;
+import feast.proto.serving.ServingAPIProto.DatasetSource;
+import feast.proto.serving.ServingAPIProto.DatasetSource.FileSource;
+import feast.storage.connectors.file.common.TypeUtil;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Rows of the entity dataset of a historical retrieval, read from local Avro files. Event
+ * timestamps of the rows are kept in microseconds since epoch, whether the dataset holds them as
+ * timestamp-millis or timestamp-micros.
+ */
+class EntityDataset {
+
+  static final String EVENT_TIMESTAMP_COLUMN = "event_timestamp";
+
+  private final Schema schema;
+  private final List<GenericRecord> rows;
+  private final long[] eventTimestamps;
+
+  private EntityDataset(Schema schema, List<GenericRecord> rows, long[] eventTimestamps) {
+    this.schema = schema;
+    this.rows = rows;
+    this.eventTimestamps = eventTimestamps;
+  }
+
+  /**
+   * Read the entity dataset of a retrieval.
+   *
+   * @param datasetSource source of the entity dataset, made of local Avro files
+   * @return rows of the entity dataset
+   * @throws IOException if the files can't be read
+   */
+  static EntityDataset read(DatasetSource datasetSource) throws IOException {
+    FileSource fileSource = datasetSource.getFileSource();
+    if (fileSource.getDataFormat() != DataFormat.DATA_FORMAT_AVRO) {
+      throw new IllegalArgumentException(
+          String.format("Data format '%s' is unsupported", fileSource.getDataFormat()));
+    }
+    if (fileSource.getFileUrisCount() == 0) {
+      throw new IllegalArgumentException("Entity dataset has no files");
+    }
+
+    Schema schema = null;
+    List<GenericRecord> rows = new ArrayList<>();
+    for (String fileUri : fileSource.getFileUrisList()) {
+      try (DataFileReader<GenericRecord> reader =
+          new DataFileReader<>(
+              FileHistoricalRetriever.toLocalPath(fileUri).toFile(), new GenericDatumReader<>())) {
+        if (schema == null) {
+          schema = reader.getSchema();
+        }
+        reader.forEach(rows::add);
+      }
+    }
+
+    long[] eventTimestamps = new long[rows.size()];
+    for (int i = 0; i < rows.size(); i++) {
+      eventTimestamps[i] = getEventTimestamp(rows.get(i));
+    }
+    return new EntityDataset(schema, rows, eventTimestamps);
+  }
+
+  Schema getSchema() {
+    return schema;
+  }
+
+  List<GenericRecord> getRows() {
+    return rows;
+  }
+
+  long[] getEventTimestamps() {
+    return eventTimestamps;
+  }
+
+  long getMinEventTimestamp() {
+    long min = Long.MAX_VALUE;
+    for (long eventTimestamp : eventTimestamps) {
+      min = Math.min(min, eventTimestamp);
+    }
+    return min;
+  }
+
+  long getMaxEventTimestamp() {
+    long max = Long.MIN_VALUE;
+    for (long eventTimestamp : eventTimestamps) {
+      max = Math.max(max, eventTimestamp);
+    }
+    return max;
+  }
+
+  /**
+   * Get the join keys of the rows for the given entities.
+   *
+   * @param entityNames names of the entities, in the order of the feature set spec
+   * @return join key of every row, or null for rows with a null entity
+   */
+  String[] getEntityKeys(List<String> entityNames) {
+    for (String entityName : entityNames) {
+      if (schema.getField(entityName) == null) {
+        throw new IllegalArgumentException(
+            String.format("Entity dataset has no column for entity '%s'", entityName));
+      }
+    }
+
+    String[] keys = new String[rows.size()];
+    for (int i = 0; i < rows.size(); i++) {
+      StringBuilder key = new StringBuilder();
+      for (String entityName : entityNames) {
+        String entityKey = TypeUtil.toEntityKey(rows.get(i).get(entityName));
+        if (entityKey == null) {
+          key = null;
+          break;
+        }
+        key.append('\u0000').append(entityKey);
+      }
+      keys[i] = key == null ? null : key.toString();
+    }
+    return keys;
+  }
+
+  private static long getEventTimestamp(GenericRecord row) {
+    Schema.Field field = row.getSchema().getField(EVENT_TIMESTAMP_COLUMN);
+    Object value = row.get(EVENT_TIMESTAMP_COLUMN);
+    if (field == null || !(value instanceof Long)) {
+      throw new IllegalArgumentException(
+          String.format("Entity dataset rows require a '%s' timestamp", EVENT_TIMESTAMP_COLUMN));
+    }
+    LogicalType logicalType = getNonNullType(field.schema()).getLogicalType();
+    if (logicalType instanceof LogicalTypes.TimestampMillis) {
+      return (Long) value * 1000;
+    }
+    if (logicalType instanceof LogicalTypes.TimestampMicros) {
+      return (Long) value;
+    }
+    throw new IllegalArgumentException(
+        String.format(
+            "Column '%s' of the entity dataset must be a timestamp-millis or timestamp-micros",
+            EVENT_TIMESTAMP_COLUMN));
+  }
+
+  private static Schema getNonNullType(Schema schema) {
+    if (schema.getType() != Schema.Type.UNION) {
+      return schema;
+    }
+    return schema.getTypes().stream()
+        .filter(type -> type.getType() != Schema.Type.NULL)
+        .findFirst()
+        .orElse(schema);
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.retriever;
+
+import static feast.storage.connectors.file.common.FeatureFiles.CREATED_TIMESTAMP_COLUMN;
+import static feast.storage.connectors.file.common.FeatureFiles.EVENT_TIMESTAMP_COLUMN;
+import static feast.storage.connectors.file.common.FeatureFiles.FEATURE_ROW_COLUMN;
+
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.storage.connectors.file.common.FeatureFiles;
+import feast.storage.connectors.file.common.TypeUtil;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Point-in-time join of the rows of a feature set to an entity dataset. For every entity row, the
+ * join finds the latest feature row of the same entities whose event timestamp is not after the
+ * event timestamp of the entity row, and within the max age of the feature set. Feature rows with
+ * the same event timestamp are ordered by created timestamp.
+ *
+ * <p>Files are read independently of each other by {@link #read(Path)}, so that they can be read in
+ * parallel, and only rows that can be joined to an entity row are kept in memory.
+ */
+class FeatureSetJoin {
+
+  private static final Comparator<FeatureRecord> RECORD_ORDER =
+      Comparator.comparingLong((FeatureRecord record) -> record.eventTimestamp)
+          .thenComparingLong(record -> record.createdTimestamp);
+
+  private final FeatureSetSpec spec;
+  private final List<String> entityNames;
+  private final long[] entityTimestamps;
+  private final String[] entityKeys;
+  private final Set<String> distinctEntityKeys;
+  private final long maxAgeMicros;
+  private final long minFeatureTimestamp;
+  private final long maxFeatureTimestamp;
+
+  FeatureSetJoin(FeatureSetSpec spec, EntityDataset entities) {
+    this.spec = spec;
+    this.entityNames =
+        spec.getEntitiesList().stream().map(EntitySpec::getName).collect(Collectors.toList());
+    this.entityTimestamps = entities.getEventTimestamps();
+    this.entityKeys = entities.getEntityKeys(entityNames);
+    this.distinctEntityKeys = new HashSet<>(Arrays.asList(entityKeys));
+    this.maxAgeMicros = TimeUnit.SECONDS.toMicros(spec.getMaxAge().getSeconds());
+    // Rows older than the max age of the earliest entity row can't be joined to any entity row
+    this.minFeatureTimestamp =
+        maxAgeMicros == 0 ? Long.MIN_VALUE : entities.getMinEventTimestamp() - maxAgeMicros;
+    this.maxFeatureTimestamp = entities.getMaxEventTimestamp();
+  }
+
+  FeatureSetSpec getSpec() {
+    return spec;
+  }
+
+  /**
+   * Get the files of the partitions of the feature set that may hold rows joined to the entity
+   * dataset.
+   *
+   * @param storePath path of the file store
+   * @return files to read
+   * @throws IOException if the partitions can't be listed
+   */
+  List<Path> getFiles(Path storePath) throws IOException {
+    Path featureSetPath =
+        storePath.resolve(FeatureFiles.getFeatureSetDirectory(spec.getProject(), spec.getName()));
+    if (!Files.isDirectory(featureSetPath) || entityKeys.length == 0) {
+      return new ArrayList<>();
+    }
+
+    List<Path> files = new ArrayList<>();
+    try (Stream<Path> partitions = Files.list(featureSetPath)) {
+      for (Path partition : partitions.collect(Collectors.toList())) {
+        LocalDate date = FeatureFiles.getPartitionDate(partition.getFileName().toString());
+        if (date == null || !Files.isDirectory(partition) || !isInRange(date)) {
+          continue;
+        }
+        try (Stream<Path> partitionFiles = Files.list(partition)) {
+          partitionFiles
+              .filter(file -> file.getFileName().toString().endsWith(FeatureFiles.FILE_SUFFIX))
+              .forEach(files::add);
+        }
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Read the rows of a feature file that may be joined to the entity dataset.
+   *
+   * @param file feature file
+   * @return rows of the file within the time range and entities of the entity dataset
+   * @throws IOException if the file can't be read
+   */
+  List<FeatureRecord> read(Path file) throws IOException {
+    List<FeatureRecord> records = new ArrayList<>();
+    try (DataFileReader<GenericRecord> reader =
+        new DataFileReader<>(file.toFile(), new GenericDatumReader<>())) {
+      GenericRecord record = null;
+      while (reader.hasNext()) {
+        record = reader.next(record);
+        long eventTimestamp = (Long) record.get(EVENT_TIMESTAMP_COLUMN);
+        if (eventTimestamp <= minFeatureTimestamp || eventTimestamp > maxFeatureTimestamp) {
+          continue;
+        }
+        FeatureRow featureRow = FeatureRow.parseFrom((ByteBuffer) record.get(FEATURE_ROW_COLUMN));
+        String key = getEntityKey(featureRow);
+        if (key != null && distinctEntityKeys.contains(key)) {
+          records.add(
+              new FeatureRecord(
+                  key, eventTimestamp, (Long) record.get(CREATED_TIMESTAMP_COLUMN), featureRow));
+        }
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Join the rows read from the files of the feature set to the entity dataset.
+   *
+   * @param records rows read from each file by {@link #read(Path)}
+   * @return joined feature row of every entity row, or null for entity rows without features
+   */
+  FeatureRow[] join(List<List<FeatureRecord>> records) {
+    Map<String, List<FeatureRecord>> recordsByKey = new HashMap<>();
+    for (List<FeatureRecord> fileRecords : records) {
+      for (FeatureRecord record : fileRecords) {
+        recordsByKey.computeIfAbsent(record.key, key -> new ArrayList<>()).add(record);
+      }
+    }
+    recordsByKey.values().forEach(keyRecords -> keyRecords.sort(RECORD_ORDER));
+
+    FeatureRow[] joined = new FeatureRow[entityKeys.length];
+    for (int i = 0; i < entityKeys.length; i++) {
+      List<FeatureRecord> keyRecords = recordsByKey.get(entityKeys[i]);
+      if (keyRecords == null) {
+        continue;
+      }
+      FeatureRecord latest = findLatest(keyRecords, entityTimestamps[i]);
+      if (latest != null
+          && (maxAgeMicros == 0 || entityTimestamps[i] - maxAgeMicros < latest.eventTimestamp)) {
+        joined[i] = latest.featureRow;
+      }
+    }
+    return joined;
+  }
+
+  private boolean isInRange(LocalDate date) {
+    return !date.isAfter(toDate(maxFeatureTimestamp))
+        && (minFeatureTimestamp == Long.MIN_VALUE || !date.isBefore(toDate(minFeatureTimestamp)));
+  }
+
+  private String getEntityKey(FeatureRow featureRow) {
+    Map<String, Value> values = new HashMap<>();
+    for (Field field : featureRow.getFieldsList()) {
+      values.put(field.getName(), field.getValue());
+    }
+    StringBuilder key = new StringBuilder();
+    for (String entityName : entityNames) {
+      Value value = values.get(entityName);
+      String entityKey = value == null ? null : TypeUtil.toEntityKey(value);
+      if (entityKey == null) {
+        return null;
+      }
+      key.append('\u0000').append(entityKey);
+    }
+    return key.toString();
+  }
+
+  /** Get the last of the sorted records with an event timestamp not after the given timestamp. */
+  private static FeatureRecord findLatest(List<FeatureRecord> sortedRecords, long timestamp) {
+    int low = 0;
+    int high = sortedRecords.size() - 1;
+    FeatureRecord latest = null;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (sortedRecords.get(middle).eventTimestamp <= timestamp) {
+        latest = sortedRecords.get(middle);
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return latest;
+  }
+
+  private static LocalDate toDate(long timestampMicros) {
+    return Instant.ofEpochMilli(timestampMicros / 1000).atOffset(ZoneOffset.UTC).toLocalDate();
+  }
+
+  /** Feature row read from a feature file, with the join key of its entities. */
+  static class FeatureRecord {
+
+    private final String key;
+    private final long eventTimestamp;
+    private final long createdTimestamp;
+    private final FeatureRow featureRow;
+
+    FeatureRecord(String key, long eventTimestamp, long createdTimestamp, FeatureRow featureRow) {
+      this.key = key;
+      this.eventTimestamp = eventTimestamp;
+      this.createdTimestamp = createdTimestamp;
+      this.featureRow = featureRow;
+    }
+  }
+}
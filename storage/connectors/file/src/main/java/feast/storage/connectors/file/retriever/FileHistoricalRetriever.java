@@ -0,0 +1,287 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.retriever;
+
+import static feast.storage.connectors.file.retriever.EntityDataset.EVENT_TIMESTAMP_COLUMN;
+
+import com.google.auto.value.AutoValue;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.serving.ServingAPIProto.DataFormat;
+import feast.proto.serving.ServingAPIProto.DatasetSource;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.HistoricalRetrievalResult;
+import feast.storage.api.retriever.HistoricalRetriever;
+import feast.storage.connectors.file.common.FeatureFiles;
+import feast.storage.connectors.file.common.TypeUtil;
+import feast.storage.connectors.file.retriever.FeatureSetJoin.FeatureRecord;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Historical retriever of the file store. Entity datasets are read from local Avro files, and
+ * joined to the feature files written by {@link
+ * feast.storage.connectors.file.writer.FileFeatureSink} in process. Feature files are read in
+ * parallel, and feature sets are joined in parallel, on a pool of threads of the retrieval.
+ *
+ * <p>Results are written to a single Avro file in the staging location, with the same columns as
+ * the results of the BigQuery store.
+ */
+@AutoValue
+public abstract class FileHistoricalRetriever implements HistoricalRetriever {
+
+  private static final String RESULT_RECORD_NAME = "FeatureRow";
+
+  public static HistoricalRetriever create(Map<String, String> config) {
+    String path = config.get("path");
+    String stagingLocation = config.get("staging_location");
+    if (path == null || path.isEmpty()) {
+      throw new IllegalArgumentException("Store type FILE requires a path");
+    }
+    if (stagingLocation == null || stagingLocation.isEmpty()) {
+      throw new IllegalArgumentException("Store type FILE requires a staging location");
+    }
+
+    Builder builder = builder().setPath(path).setStagingLocation(stagingLocation);
+    int retrievalThreads = Integer.parseInt(config.getOrDefault("retrieval_threads", "0"));
+    if (retrievalThreads > 0) {
+      builder.setRetrievalThreads(retrievalThreads);
+    }
+    return builder.build();
+  }
+
+  public abstract String path();
+
+  public abstract String stagingLocation();
+
+  /** Number of threads reading and joining the feature files of a retrieval. */
+  public abstract int retrievalThreads();
+
+  public static Builder builder() {
+    return new AutoValue_FileHistoricalRetriever.Builder()
+        .setRetrievalThreads(Runtime.getRuntime().availableProcessors());
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    public abstract Builder setPath(String path);
+
+    public abstract Builder setStagingLocation(String stagingLocation);
+
+    public abstract Builder setRetrievalThreads(int retrievalThreads);
+
+    public abstract FileHistoricalRetriever build();
+  }
+
+  @Override
+  public String getStagingLocation() {
+    return stagingLocation();
+  }
+
+  @Override
+  public HistoricalRetrievalResult getHistoricalFeatures(
+      String retrievalId, DatasetSource datasetSource, List<FeatureSetRequest> featureSetRequests) {
+    ExecutorService executorService = Executors.newFixedThreadPool(retrievalThreads());
+    try {
+      EntityDataset entities = EntityDataset.read(datasetSource);
+      List<FeatureSetJoin> joins = new ArrayList<>();
+      for (FeatureSetRequest featureSetRequest : featureSetRequests) {
+        joins.add(new FeatureSetJoin(featureSetRequest.getSpec(), entities));
+      }
+
+      // 1. Read the files of all the feature sets in parallel
+      Path storePath = toLocalPath(path());
+      List<List<Future<List<FeatureRecord>>>> reads = new ArrayList<>();
+      for (FeatureSetJoin join : joins) {
+        List<Future<List<FeatureRecord>>> featureSetReads = new ArrayList<>();
+        for (Path file : join.getFiles(storePath)) {
+          featureSetReads.add(executorService.submit(() -> join.read(file)));
+        }
+        reads.add(featureSetReads);
+      }
+
+      // 2. Join each feature set as soon as its files are read
+      List<Future<FeatureRow[]>> joinedFeatureSets = new ArrayList<>();
+      for (int i = 0; i < joins.size(); i++) {
+        List<List<FeatureRecord>> records = new ArrayList<>();
+        for (Future<List<FeatureRecord>> read : reads.get(i)) {
+          records.add(read.get());
+        }
+        FeatureSetJoin join = joins.get(i);
+        joinedFeatureSets.add(executorService.submit(() -> join.join(records)));
+      }
+      List<FeatureRow[]> joinedRows = new ArrayList<>();
+      for (Future<FeatureRow[]> joinedFeatureSet : joinedFeatureSets) {
+        joinedRows.add(joinedFeatureSet.get());
+      }
+
+      // 3. Write the joined features of every entity row
+      Path resultPath =
+          toLocalPath(stagingLocation()).resolve(retrievalId).resolve(0 + FeatureFiles.FILE_SUFFIX);
+      writeResults(resultPath, entities, featureSetRequests, joinedRows);
+      return HistoricalRetrievalResult.success(
+          retrievalId,
+          Collections.singletonList(resultPath.toUri().toString()),
+          DataFormat.DATA_FORMAT_AVRO);
+    } catch (IOException | ExecutionException | IllegalArgumentException e) {
+      return HistoricalRetrievalResult.error(retrievalId, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return HistoricalRetrievalResult.error(retrievalId, e);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Convert a path or a file URI to a local path.
+   *
+   * @param uri local path, or URI with the file scheme
+   * @return local path
+   */
+  static Path toLocalPath(String uri) {
+    if (uri.startsWith("file:")) {
+      return Paths.get(URI.create(uri));
+    }
+    if (uri.contains("://")) {
+      throw new IllegalArgumentException(
+          String.format("Store type FILE only supports local files, got: %s", uri));
+    }
+    return Paths.get(uri);
+  }
+
+  private static void writeResults(
+      Path resultPath,
+      EntityDataset entities,
+      List<FeatureSetRequest> featureSetRequests,
+      List<FeatureRow[]> joinedRows)
+      throws IOException {
+    // Result columns of the features of each feature set, by feature name
+    List<Map<String, String>> featureColumns = new ArrayList<>();
+    List<Schema.Field> fields = new ArrayList<>();
+    fields.add(
+        new Schema.Field(
+            EVENT_TIMESTAMP_COLUMN,
+            LogicalTypes.timestampMicros().addToSchema(Schema.create(Schema.Type.LONG)),
+            null,
+            (Object) null));
+    // Every column of the entity dataset is kept, as with the BigQuery store, and not only the
+    // entities of the requested feature sets
+    List<String> entityColumns = new ArrayList<>();
+    for (Schema.Field entityField : entities.getSchema().getFields()) {
+      if (!entityField.name().equals(EVENT_TIMESTAMP_COLUMN)) {
+        entityColumns.add(entityField.name());
+        fields.add(new Schema.Field(entityField.name(), entityField.schema(), null, (Object) null));
+      }
+    }
+    for (FeatureSetRequest featureSetRequest : featureSetRequests) {
+      Map<String, String> columns = new LinkedHashMap<>();
+      for (FeatureReference featureReference : featureSetRequest.getFeatureReferences()) {
+        String column = getColumnName(featureReference);
+        FeatureSpec featureSpec = getFeatureSpec(featureSetRequest.getSpec(), featureReference);
+        fields.add(
+            new Schema.Field(
+                column, TypeUtil.toAvroSchema(featureSpec.getValueType()), null, (Object) null));
+        columns.put(featureReference.getName(), column);
+      }
+      featureColumns.add(columns);
+    }
+    Schema schema = Schema.createRecord(RESULT_RECORD_NAME, null, null, false, fields);
+
+    Files.createDirectories(resultPath.getParent());
+    try (DataFileWriter<GenericRecord> writer =
+        new DataFileWriter<GenericRecord>(new GenericDatumWriter<>(schema))
+            .setCodec(CodecFactory.deflateCodec(CodecFactory.DEFAULT_DEFLATE_LEVEL))
+            .create(schema, resultPath.toFile())) {
+      long[] eventTimestamps = entities.getEventTimestamps();
+      for (int i = 0; i < eventTimestamps.length; i++) {
+        GenericRecord entityRow = entities.getRows().get(i);
+        GenericRecord result = new GenericData.Record(schema);
+        result.put(EVENT_TIMESTAMP_COLUMN, eventTimestamps[i]);
+        for (String entityColumn : entityColumns) {
+          result.put(entityColumn, entityRow.get(entityColumn));
+        }
+        for (int j = 0; j < featureSetRequests.size(); j++) {
+          FeatureRow featureRow = joinedRows.get(j)[i];
+          if (featureRow != null) {
+            putFeatures(result, featureRow, featureColumns.get(j));
+          }
+        }
+        writer.append(result);
+      }
+    }
+  }
+
+  private static void putFeatures(
+      GenericRecord result, FeatureRow featureRow, Map<String, String> columns) {
+    for (Field field : featureRow.getFieldsList()) {
+      String column = columns.get(field.getName());
+      if (column == null) {
+        continue;
+      }
+      Object value = TypeUtil.toAvroValue(field.getValue());
+      // Values that don't match the type of their feature are left unset
+      if (value != null
+          && GenericData.get().validate(result.getSchema().getField(column).schema(), value)) {
+        result.put(column, value);
+      }
+    }
+  }
+
+  private static String getColumnName(FeatureReference featureReference) {
+    if (featureReference.getFeatureSet().isEmpty()) {
+      return featureReference.getName();
+    }
+    return String.format("%s__%s", featureReference.getFeatureSet(), featureReference.getName());
+  }
+
+  private static FeatureSpec getFeatureSpec(
+      FeatureSetSpec spec, FeatureReference featureReference) {
+    return spec.getFeaturesList().stream()
+        .filter(featureSpec -> featureSpec.getName().equals(featureReference.getName()))
+        .findFirst()
+        .orElseThrow(
+            () ->
+                new IllegalArgumentException(
+                    String.format(
+                        "Feature set '%s/%s' has no feature '%s'",
+                        spec.getProject(), spec.getName(), featureReference.getName())));
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.writer;
+
+import static feast.storage.connectors.file.common.FeatureFiles.CREATED_TIMESTAMP_COLUMN;
+import static feast.storage.connectors.file.common.FeatureFiles.EVENT_TIMESTAMP_COLUMN;
+import static feast.storage.connectors.file.common.FeatureFiles.FEATURE_ROW_COLUMN;
+
+import com.google.auto.value.AutoValue;
+import com.google.protobuf.util.Timestamps;
+import feast.proto.core.FeatureSetProto;
+import feast.proto.core.StoreProto.Store.FileConfig;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.writer.FailedElement;
+import feast.storage.api.writer.FeatureSink;
+import feast.storage.api.writer.WriteResult;
+import feast.storage.connectors.file.common.FeatureFiles;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.io.AvroIO;
+import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TypeDescriptor;
+import org.joda.time.Duration;
+
+/**
+ * Writes feature rows to Avro files on a local file system, with the layout of {@link
+ * FeatureFiles}. Files are closed once per triggering frequency, and rows are readable by
+ * historical retrieval as soon as their file is closed.
+ *
+ * <p>Names of files are prefixed with an id unique to each write, since Beam only names files by
+ * window and shard. Jobs writing to the same partition, or a job restarted over the same windows,
+ * would otherwise replace each other's files.
+ *
+ * <p>Since files hold serialized rows rather than columns, the files of a feature set don't need to
+ * be updated when features are added to its spec.
+ */
+@AutoValue
+public abstract class FileFeatureSink implements FeatureSink {
+
+  public static final String DEFAULT_PROJECT_NAME = "default";
+  private static final Duration DEFAULT_WRITE_TRIGGERING_FREQUENCY = Duration.standardSeconds(60);
+
+  public abstract String getPath();
+
+  public abstract Duration getTriggeringFrequency();
+
+  /**
+   * Initialize a {@link FileFeatureSink} from a {@link FileConfig}.
+   *
+   * @param config {@link FileConfig}
+   * @return {@link FileFeatureSink}
+   */
+  public static FeatureSink fromConfig(FileConfig config) {
+    Builder builder = builder().setPath(config.getPath());
+    if (config.getWriteTriggeringFrequencySeconds() > 0) {
+      builder.setTriggeringFrequency(
+          Duration.standardSeconds(config.getWriteTriggeringFrequencySeconds()));
+    }
+    return builder.build();
+  }
+
+  public static Builder builder() {
+    return new AutoValue_FileFeatureSink.Builder()
+        .setTriggeringFrequency(DEFAULT_WRITE_TRIGGERING_FREQUENCY);
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    public abstract Builder setPath(String path);
+
+    public abstract Builder setTriggeringFrequency(Duration triggeringFrequency);
+
+    public abstract FileFeatureSink build();
+  }
+
+  /** Directories of feature sets are created along with their first file. */
+  @Override
+  public void prepareWrite(FeatureSetProto.FeatureSet featureSet) {}
+
+  @Override
+  public PTransform<PCollection<FeatureRow>, WriteResult> writer() {
+    return WriteFeatureRows.newBuilder()
+        .setPath(getPath())
+        .setTriggeringFrequency(getTriggeringFrequency())
+        .build();
+  }
+
+  @AutoValue
+  public abstract static class WriteFeatureRows
+      extends PTransform<PCollection<FeatureRow>, WriteResult> {
+
+    public abstract String getPath();
+
+    public abstract Duration getTriggeringFrequency();
+
+    public static Builder newBuilder() {
+      return new AutoValue_FileFeatureSink_WriteFeatureRows.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+
+      public abstract Builder setPath(String path);
+
+      public abstract Builder setTriggeringFrequency(Duration triggeringFrequency);
+
+      public abstract WriteFeatureRows build();
+    }
+
+    @Override
+    public WriteResult expand(PCollection<FeatureRow> input) {
+      String writeId = UUID.randomUUID().toString();
+      PCollection<FeatureRow> inputInFixedWindow =
+          input.apply("WindowFeatureRows", Window.into(FixedWindows.of(getTriggeringFrequency())));
+      inputInFixedWindow.apply(
+          "WriteFeatureRowsToFiles",
+          FileIO.<String, FeatureRow>writeDynamic()
+              .by(FileFeatureSink::getDestination)
+              .withDestinationCoder(StringUtf8Coder.of())
+              .via(
+                  AvroIO.sinkViaGenericRecords(FeatureFiles.getSchema(), FileFeatureSink::toRecord))
+              .to(getPath())
+              .withNaming(
+                  destination ->
+                      FileIO.Write.defaultNaming(
+                          String.format("%s/part-%s", destination, writeId),
+                          FeatureFiles.FILE_SUFFIX))
+              .withNumShards(1));
+
+      // Rows are written by the file writer without emitting failures, so rows are reported as
+      // written once they are handed to the writer
+      PCollection<FailedElement> failedElements =
+          input
+              .getPipeline()
+              .apply("NoFailedElements", Create.empty(TypeDescriptor.of(FailedElement.class)));
+
+      return WriteResult.in(input.getPipeline(), inputInFixedWindow, failedElements);
+    }
+  }
+
+  /**
+   * Get the directory of the file a row is written to, relative to the path of the store.
+   *
+   * @param featureRow row to write
+   * @return directory of the partition of the row
+   */
+  static String getDestination(FeatureRow featureRow) {
+    String[] splitName = featureRow.getFeatureSet().split("/");
+    String project = splitName.length == 2 ? splitName[0] : DEFAULT_PROJECT_NAME;
+    String name = splitName[splitName.length - 1];
+    return String.format(
+        "%s/%s",
+        FeatureFiles.getFeatureSetDirectory(project, name),
+        FeatureFiles.getPartition(Timestamps.toMillis(featureRow.getEventTimestamp())));
+  }
+
+  private static GenericRecord toRecord(FeatureRow featureRow, Schema schema) {
+    GenericRecord record = new GenericData.Record(schema);
+    record.put(EVENT_TIMESTAMP_COLUMN, Timestamps.toMicros(featureRow.getEventTimestamp()));
+    record.put(CREATED_TIMESTAMP_COLUMN, System.currentTimeMillis() * 1000);
+    record.put(FEATURE_ROW_COLUMN, ByteBuffer.wrap(featureRow.toByteArray()));
+    return record;
+  }
+}
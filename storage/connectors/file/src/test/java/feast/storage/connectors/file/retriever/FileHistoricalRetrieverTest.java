@@ -0,0 +1,352 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.retriever;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import com.google.protobuf.Duration;
+import com.google.protobuf.util.Timestamps;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.serving.ServingAPIProto.DataFormat;
+import feast.proto.serving.ServingAPIProto.DatasetSource;
+import feast.proto.serving.ServingAPIProto.DatasetSource.FileSource;
+import feast.proto.serving.ServingAPIProto.FeatureReference;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType;
+import feast.storage.api.retriever.FeatureSetRequest;
+import feast.storage.api.retriever.HistoricalRetrievalResult;
+import feast.storage.connectors.file.common.FeatureFiles;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileHistoricalRetrieverTest {
+
+  // 2020-05-20T18:40:00Z
+  private static final long T = 1590000000000L;
+  private static final long MINUTE = 60000L;
+  private static final long HOUR = 60 * MINUTE;
+  private static final long DAY = 24 * HOUR;
+
+  private static final FeatureSetSpec DRIVER_SPEC =
+      FeatureSetSpec.newBuilder()
+          .setProject("project")
+          .setName("driver")
+          .setMaxAge(Duration.newBuilder().setSeconds(3600))
+          .addEntities(
+              EntitySpec.newBuilder().setName("driver_id").setValueType(ValueType.Enum.INT64))
+          .addFeatures(FeatureSpec.newBuilder().setName("trips").setValueType(ValueType.Enum.INT64))
+          .build();
+
+  private static final FeatureSetSpec DRIVER_STATS_SPEC =
+      FeatureSetSpec.newBuilder()
+          .setProject("project")
+          .setName("driver_stats")
+          .addEntities(
+              EntitySpec.newBuilder().setName("driver_id").setValueType(ValueType.Enum.INT64))
+          .addFeatures(
+              FeatureSpec.newBuilder().setName("rating").setValueType(ValueType.Enum.DOUBLE))
+          .build();
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private FileHistoricalRetriever retriever;
+
+  @Before
+  public void setUp() throws IOException {
+    retriever =
+        FileHistoricalRetriever.builder()
+            .setPath(folder.newFolder("features").getAbsolutePath())
+            .setStagingLocation(folder.newFolder("staging").toURI().toString())
+            .setRetrievalThreads(2)
+            .build();
+  }
+
+  @Test
+  public void shouldJoinLatestFeaturesWithinMaxAge() throws IOException {
+    writeFeatureFile(
+        "driver",
+        T - 10 * MINUTE,
+        record(trips(1, T - 10 * MINUTE, 1), 1),
+        record(trips(1, T - 10 * MINUTE, 2), 2),
+        record(trips(1, T - 30 * MINUTE, 3), 1),
+        record(trips(2, T - 2 * HOUR, 4), 1));
+    writeFeatureFile("driver", T + DAY, record(trips(1, T + DAY - MINUTE, 5), 1));
+    writeFeatureFile("driver", T - DAY, record(trips(3, T - DAY, 6), 1));
+    writeFeatureFile("driver_stats", T - 2 * DAY, record(rating(2, T - 2 * DAY, 4.5), 1));
+
+    DatasetSource entities =
+        writeEntities(
+            entity(1, T),
+            entity(1, T - 20 * MINUTE),
+            entity(2, T),
+            entity(3, T),
+            entity(1, T + DAY));
+
+    HistoricalRetrievalResult result =
+        retriever.getHistoricalFeatures(
+            "retrieval",
+            entities,
+            Arrays.asList(
+                FeatureSetRequest.newBuilder()
+                    .setSpec(DRIVER_SPEC)
+                    .addFeatureReference(
+                        FeatureReference.newBuilder()
+                            .setProject("project")
+                            .setName("trips")
+                            .build())
+                    .build(),
+                FeatureSetRequest.newBuilder()
+                    .setSpec(DRIVER_STATS_SPEC)
+                    .addFeatureReference(
+                        FeatureReference.newBuilder()
+                            .setProject("project")
+                            .setFeatureSet("driver_stats")
+                            .setName("rating")
+                            .build())
+                    .build()));
+
+    assertThat(result.hasError(), equalTo(false));
+    assertThat(result.getDataFormat(), equalTo(DataFormat.DATA_FORMAT_AVRO));
+    assertThat(
+        Paths.get(URI.create(result.getFileUris().get(0)))
+            .startsWith(folder.getRoot().toPath().resolve("staging/retrieval")),
+        equalTo(true));
+    List<GenericRecord> rows = readResults(result.getFileUris());
+    assertThat(
+        rows.stream().map(row -> row.get("trips")).collect(Collectors.toList()),
+        contains(2L, 3L, null, null, 5L));
+    assertThat(
+        rows.stream().map(row -> row.get("driver_stats__rating")).collect(Collectors.toList()),
+        contains(null, null, 4.5, null, null));
+    assertThat(rows.get(0).get("driver_id"), equalTo(1L));
+    assertThat(rows.get(0).get("event_timestamp"), equalTo(T * 1000));
+  }
+
+  @Test
+  public void shouldKeepAllColumnsOfEntityDataset() throws IOException {
+    writeFeatureFile("driver", T - 10 * MINUTE, record(trips(1, T - 10 * MINUTE, 1), 1));
+    Schema schema =
+        SchemaBuilder.record("Entity")
+            .fields()
+            .name("event_timestamp")
+            .type(LogicalTypes.timestampMillis().addToSchema(Schema.create(Schema.Type.LONG)))
+            .noDefault()
+            .name("driver_id")
+            .type()
+            .longType()
+            .noDefault()
+            .name("label")
+            .type()
+            .stringType()
+            .noDefault()
+            .endRecord();
+    GenericRecord entity = new GenericData.Record(schema);
+    entity.put("event_timestamp", T);
+    entity.put("driver_id", 1L);
+    entity.put("label", "positive");
+
+    HistoricalRetrievalResult result =
+        retriever.getHistoricalFeatures(
+            "retrieval",
+            writeEntities(entity),
+            Arrays.asList(
+                FeatureSetRequest.newBuilder()
+                    .setSpec(DRIVER_SPEC)
+                    .addFeatureReference(
+                        FeatureReference.newBuilder()
+                            .setProject("project")
+                            .setName("trips")
+                            .build())
+                    .build()));
+
+    assertThat(result.hasError(), equalTo(false));
+    List<GenericRecord> rows = readResults(result.getFileUris());
+    assertThat(
+        rows.get(0).getSchema().getFields().stream()
+            .map(Schema.Field::name)
+            .collect(Collectors.toList()),
+        contains("event_timestamp", "driver_id", "label", "trips"));
+    assertThat(rows.get(0).get("label").toString(), equalTo("positive"));
+    assertThat(rows.get(0).get("trips"), equalTo(1L));
+  }
+
+  @Test
+  public void shouldReturnErrorIfEntityColumnIsMissing() throws IOException {
+    FeatureSetSpec spec =
+        DRIVER_SPEC
+            .toBuilder()
+            .clearEntities()
+            .addEntities(
+                EntitySpec.newBuilder().setName("customer_id").setValueType(ValueType.Enum.INT64))
+            .build();
+
+    HistoricalRetrievalResult result =
+        retriever.getHistoricalFeatures(
+            "retrieval",
+            writeEntities(entity(1, T)),
+            Arrays.asList(
+                FeatureSetRequest.newBuilder()
+                    .setSpec(spec)
+                    .addFeatureReference(
+                        FeatureReference.newBuilder()
+                            .setProject("project")
+                            .setName("trips")
+                            .build())
+                    .build()));
+
+    assertThat(result.hasError(), equalTo(true));
+    assertThat(result.getFileUris(), nullValue());
+  }
+
+  private void writeFeatureFile(String featureSet, long timestampMillis, GenericRecord... records)
+      throws IOException {
+    File partition =
+        folder
+            .getRoot()
+            .toPath()
+            .resolve("features")
+            .resolve(FeatureFiles.getFeatureSetDirectory("project", featureSet))
+            .resolve(FeatureFiles.getPartition(timestampMillis))
+            .toFile();
+    partition.mkdirs();
+    Schema schema = FeatureFiles.getSchema();
+    try (DataFileWriter<GenericRecord> writer =
+        new DataFileWriter<GenericRecord>(new GenericDatumWriter<>(schema))
+            .create(schema, File.createTempFile("part", FeatureFiles.FILE_SUFFIX, partition))) {
+      for (GenericRecord record : records) {
+        writer.append(record);
+      }
+    }
+  }
+
+  private DatasetSource writeEntities(GenericRecord... entities) throws IOException {
+    File file = folder.newFile();
+    Schema schema = entities[0].getSchema();
+    try (DataFileWriter<GenericRecord> writer =
+        new DataFileWriter<GenericRecord>(new GenericDatumWriter<>(schema)).create(schema, file)) {
+      for (GenericRecord entity : entities) {
+        writer.append(entity);
+      }
+    }
+    return DatasetSource.newBuilder()
+        .setFileSource(
+            FileSource.newBuilder()
+                .addFileUris(file.getAbsolutePath())
+                .setDataFormat(DataFormat.DATA_FORMAT_AVRO))
+        .build();
+  }
+
+  private static List<GenericRecord> readResults(List<String> fileUris) throws IOException {
+    List<GenericRecord> rows = new ArrayList<>();
+    for (String fileUri : fileUris) {
+      Path path = Paths.get(URI.create(fileUri));
+      try (DataFileReader<GenericRecord> reader =
+          new DataFileReader<>(path.toFile(), new GenericDatumReader<>())) {
+        reader.forEach(rows::add);
+      }
+    }
+    return rows;
+  }
+
+  private static Schema entitySchema() {
+    return SchemaBuilder.record("Entity")
+        .fields()
+        .name("event_timestamp")
+        .type(LogicalTypes.timestampMillis().addToSchema(Schema.create(Schema.Type.LONG)))
+        .noDefault()
+        .name("driver_id")
+        .type()
+        .longType()
+        .noDefault()
+        .endRecord();
+  }
+
+  private static GenericRecord entity(long driverId, long timestampMillis) {
+    GenericRecord entity = new GenericData.Record(entitySchema());
+    entity.put("event_timestamp", timestampMillis);
+    entity.put("driver_id", driverId);
+    return entity;
+  }
+
+  private static GenericRecord record(FeatureRow featureRow, long createdTimestamp) {
+    GenericRecord record = new GenericData.Record(FeatureFiles.getSchema());
+    record.put(
+        FeatureFiles.EVENT_TIMESTAMP_COLUMN, Timestamps.toMicros(featureRow.getEventTimestamp()));
+    record.put(FeatureFiles.CREATED_TIMESTAMP_COLUMN, createdTimestamp);
+    record.put(FeatureFiles.FEATURE_ROW_COLUMN, ByteBuffer.wrap(featureRow.toByteArray()));
+    return record;
+  }
+
+  private static FeatureRow trips(long driverId, long timestampMillis, long trips) {
+    return row(
+        "project/driver",
+        driverId,
+        timestampMillis,
+        "trips",
+        Value.newBuilder().setInt64Val(trips).build());
+  }
+
+  private static FeatureRow rating(long driverId, long timestampMillis, double rating) {
+    return row(
+        "project/driver_stats",
+        driverId,
+        timestampMillis,
+        "rating",
+        Value.newBuilder().setDoubleVal(rating).build());
+  }
+
+  private static FeatureRow row(
+      String featureSet, long driverId, long timestampMillis, String feature, Value value) {
+    return FeatureRow.newBuilder()
+        .setFeatureSet(featureSet)
+        .setEventTimestamp(Timestamps.fromMillis(timestampMillis))
+        .addFields(
+            Field.newBuilder()
+                .setName("driver_id")
+                .setValue(Value.newBuilder().setInt64Val(driverId)))
+        .addFields(Field.newBuilder().setName(feature).setValue(value))
+        .build();
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.file.writer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.google.protobuf.util.Timestamps;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.storage.api.writer.WriteResult;
+import feast.storage.connectors.file.common.FeatureFiles;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileFeatureSinkTest {
+
+  // 2020-05-20T18:40:00Z
+  private static final long TIMESTAMP_MILLIS = 1590000000000L;
+  private static final long DAY_MILLIS = 86400000L;
+
+  @Rule public transient TestPipeline p = TestPipeline.create();
+
+  @Rule public transient TestPipeline secondPipeline = TestPipeline.create();
+
+  @Rule public transient TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void shouldWriteRowsToPartitionsOfTheirFeatureSets() throws IOException {
+    FeatureRow first = row("project/driver", 1, TIMESTAMP_MILLIS);
+    FeatureRow second = row("project/driver", 2, TIMESTAMP_MILLIS);
+    FeatureRow nextDay = row("project/driver", 1, TIMESTAMP_MILLIS + DAY_MILLIS);
+    FeatureRow defaultProject = row("customer", 1, TIMESTAMP_MILLIS);
+
+    WriteResult result =
+        p.apply(
+                Create.of(first, second, nextDay, defaultProject)
+                    .withCoder(ProtoCoder.of(FeatureRow.class)))
+            .apply(
+                FileFeatureSink.builder()
+                    .setPath(folder.getRoot().getAbsolutePath())
+                    .build()
+                    .writer());
+
+    PAssert.that(result.getSuccessfulInserts())
+        .containsInAnyOrder(first, second, nextDay, defaultProject);
+    PAssert.that(result.getFailedInserts()).empty();
+    p.run();
+
+    Path root = folder.getRoot().toPath();
+    assertThat(
+        readRows(root.resolve("project/driver/date=2020-05-20")),
+        containsInAnyOrder(first, second));
+    assertThat(readRows(root.resolve("project/driver/date=2020-05-21")), contains(nextDay));
+    assertThat(
+        readRows(root.resolve("default/customer/date=2020-05-20")), contains(defaultProject));
+  }
+
+  @Test
+  public void shouldWriteTimestampsOfRows() throws IOException {
+    FeatureRow featureRow = row("project/driver", 1, TIMESTAMP_MILLIS);
+
+    p.apply(Create.of(featureRow).withCoder(ProtoCoder.of(FeatureRow.class)))
+        .apply(
+            FileFeatureSink.builder().setPath(folder.getRoot().getAbsolutePath()).build().writer());
+    p.run();
+
+    List<GenericRecord> records =
+        readRecords(folder.getRoot().toPath().resolve("project/driver/date=2020-05-20"));
+    assertThat(records.size(), equalTo(1));
+    assertThat(
+        records.get(0).get(FeatureFiles.EVENT_TIMESTAMP_COLUMN), equalTo(TIMESTAMP_MILLIS * 1000));
+  }
+
+  @Test
+  public void shouldKeepRowsOfEarlierWritesToTheSamePartition() throws IOException {
+    FeatureRow first = row("project/driver", 1, TIMESTAMP_MILLIS);
+    FeatureRow second = row("project/driver", 2, TIMESTAMP_MILLIS);
+    FileFeatureSink sink =
+        FileFeatureSink.builder().setPath(folder.getRoot().getAbsolutePath()).build();
+
+    p.apply(Create.of(first).withCoder(ProtoCoder.of(FeatureRow.class))).apply(sink.writer());
+    p.run();
+    secondPipeline
+        .apply(Create.of(second).withCoder(ProtoCoder.of(FeatureRow.class)))
+        .apply(sink.writer());
+    secondPipeline.run();
+
+    assertThat(
+        readRows(folder.getRoot().toPath().resolve("project/driver/date=2020-05-20")),
+        containsInAnyOrder(first, second));
+  }
+
+  private static List<FeatureRow> readRows(Path partition) throws IOException {
+    List<FeatureRow> rows = new ArrayList<>();
+    for (GenericRecord record : readRecords(partition)) {
+      rows.add(FeatureRow.parseFrom((ByteBuffer) record.get(FeatureFiles.FEATURE_ROW_COLUMN)));
+    }
+    return rows;
+  }
+
+  private static List<GenericRecord> readRecords(Path partition) throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    List<Path> files;
+    try (Stream<Path> paths = Files.list(partition)) {
+      files = paths.collect(Collectors.toList());
+    }
+    for (Path file : files) {
+      try (DataFileReader<GenericRecord> reader =
+          new DataFileReader<>(file.toFile(), new GenericDatumReader<>())) {
+        reader.forEach(records::add);
+      }
+    }
+    return records;
+  }
+
+  private static FeatureRow row(String featureSet, long driverId, long timestampMillis) {
+    return FeatureRow.newBuilder()
+        .setFeatureSet(featureSet)
+        .setEventTimestamp(Timestamps.fromMillis(timestampMillis))
+        .addFields(
+            Field.newBuilder()
+                .setName("driver_id")
+                .setValue(Value.newBuilder().setInt64Val(driverId)))
+        .build();
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.storage.RedisProto.RedisKey;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes feature rows of a single feature set into the key and value written to Redis. Entity and
+ * feature slots are resolved once from the {@link FeatureSetSpec}, so encoding a row only requires
+ * a single pass over its fields.
+ *
+ * <p>The key holds the feature set reference and the entity fields sorted by entity name. The value
+ * holds the event timestamp and the feature values sorted by feature name, without field names, as
+ * expected by {@link feast.storage.connectors.redis.retriever.FeatureRowDecoder}.
+ */
+public class FeatureRowEncoder {
+
+  private static final Field EMPTY_VALUE_FIELD =
+      Field.newBuilder().setValue(Value.getDefaultInstance()).build();
+
+  private final int version;
+  private final String[] entityNames;
+  private final Map<String, Integer> entitySlots;
+  private final Map<String, Integer> featureSlots;
+
+  public FeatureRowEncoder(FeatureSetSpec spec) {
+    this.version = spec.getVersion();
+    this.entityNames =
+        spec.getEntitiesList().stream().map(EntitySpec::getName).sorted().toArray(String[]::new);
+    this.entitySlots = slotsOf(entityNames);
+    this.featureSlots =
+        slotsOf(
+            spec.getFeaturesList().stream()
+                .map(FeatureSpec::getName)
+                .sorted()
+                .toArray(String[]::new));
+  }
+
+  private static Map<String, Integer> slotsOf(String[] sortedNames) {
+    Map<String, Integer> slots = new HashMap<>(sortedNames.length * 2);
+    for (int i = 0; i < sortedNames.length; i++) {
+      slots.put(sortedNames[i], i);
+    }
+    return slots;
+  }
+
+  /** @return version of the {@link FeatureSetSpec} this encoder was compiled from */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Encode the Redis key of a feature row. If an entity is present multiple times in the row, the
+   * first occurrence is used.
+   *
+   * @param featureRow Feature row
+   * @return serialized {@link RedisKey}
+   * @throws IllegalArgumentException if the row is missing one of the entities of the feature set
+   */
+  public byte[] encodeKey(FeatureRow featureRow) {
+    Field[] entities = new Field[entityNames.length];
+    for (Field field : featureRow.getFieldsList()) {
+      Integer slot = entitySlots.get(field.getName());
+      if (slot != null && entities[slot] == null) {
+        entities[slot] = field;
+      }
+    }
+
+    RedisKey.Builder redisKeyBuilder =
+        RedisKey.newBuilder().setFeatureSet(featureRow.getFeatureSet());
+    for (int i = 0; i < entities.length; i++) {
+      if (entities[i] == null) {
+        throw new IllegalArgumentException(
+            String.format(
+                "FeatureRow of feature set '%s' is missing entity '%s'.",
+                featureRow.getFeatureSet(), entityNames[i]));
+      }
+      redisKeyBuilder.addEntities(entities[i]);
+    }
+    return redisKeyBuilder.build().toByteArray();
+  }
+
+  /**
+   * Encode the Redis value of a feature row. Features missing from the row are populated with an
+   * empty value, and fields that are not features of the feature set are dropped.
+   *
+   * @param featureRow Feature row
+   * @return serialized {@link FeatureRow} without feature set reference and field names
+   * @throws IllegalArgumentException if the row contains conflicting values for the same feature
+   */
+  public byte[] encodeValue(FeatureRow featureRow) {
+    Field[] values = new Field[featureSlots.size()];
+    for (Field field : featureRow.getFieldsList()) {
+      Integer slot = featureSlots.get(field.getName());
+      if (slot == null) {
+        continue;
+      }
+      if (values[slot] == null) {
+        values[slot] = Field.newBuilder().setValue(field.getValue()).build();
+      } else if (!values[slot].getValue().equals(field.getValue())) {
+        throw new IllegalArgumentException(
+            String.format(
+                "FeatureRow of feature set '%s' contains conflicting values for feature '%s'.",
+                featureRow.getFeatureSet(), field.getName()));
+      }
+    }
+
+    FeatureRow.Builder valueBuilder =
+        FeatureRow.newBuilder().setEventTimestamp(featureRow.getEventTimestamp());
+    for (Field value : values) {
+      valueBuilder.addFields(value == null ? EMPTY_VALUE_FIELD : value);
+    }
+    return valueBuilder.build().toByteArray();
+  }
+}
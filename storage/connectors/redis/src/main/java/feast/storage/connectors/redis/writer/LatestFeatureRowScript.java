@@ -0,0 +1,108 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import com.google.protobuf.Timestamp;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lua script setting the encoded {@link feast.proto.types.FeatureRowProto.FeatureRow} of a key,
+ * unless the row currently set has a later event timestamp. Rows are compared atomically in Redis,
+ * as rows of the same entity may be written concurrently by different batches, in any order.
+ *
+ * <p>The event timestamp of the current row is decoded from its protobuf wire format. Values that
+ * cannot be decoded are overwritten.
+ */
+final class LatestFeatureRowScript {
+
+  static final String SCRIPT =
+      String.join(
+          "\n",
+          "local function varint(s, i)",
+          "  local value, scale = 0, 1",
+          "  repeat",
+          "    local b = string.byte(s, i)",
+          "    if not b then return nil end",
+          "    value = value + (b % 128) * scale",
+          "    scale = scale * 128",
+          "    i = i + 1",
+          "  until b < 128",
+          "  return value, i",
+          "end",
+          "local function parse(s, i, j)",
+          "  local varints, messages = {}, {}",
+          "  while i <= j do",
+          "    local tag, value",
+          "    tag, i = varint(s, i)",
+          "    if not i then return nil end",
+          "    local field, wire = math.floor(tag / 8), tag % 8",
+          "    if wire == 0 then",
+          "      value, i = varint(s, i)",
+          "      if not i then return nil end",
+          "      varints[field] = value",
+          "    elseif wire == 2 then",
+          "      value, i = varint(s, i)",
+          "      if not i then return nil end",
+          "      messages[field] = {i, i + value - 1}",
+          "      i = i + value",
+          "    elseif wire == 1 then",
+          "      i = i + 8",
+          "    elseif wire == 5 then",
+          "      i = i + 4",
+          "    else",
+          "      return nil",
+          "    end",
+          "  end",
+          "  return varints, messages",
+          "end",
+          "local current = redis.call('GET', KEYS[1])",
+          "if current then",
+          "  local _, messages = parse(current, 1, #current)",
+          "  if messages then",
+          "    local seconds, nanos = 0, 0",
+          "    local timestamp = messages[3]",
+          "    if timestamp then",
+          "      local varints = parse(current, timestamp[1], timestamp[2])",
+          "      if varints then",
+          "        seconds, nanos = varints[1] or 0, varints[2] or 0",
+          "        if seconds >= 2 ^ 63 then seconds = seconds - 2 ^ 64 end",
+          "      end",
+          "    end",
+          "    local newSeconds, newNanos = tonumber(ARGV[2]), tonumber(ARGV[3])",
+          "    if seconds > newSeconds or (seconds == newSeconds and nanos > newNanos) then",
+          "      return 0",
+          "    end",
+          "  end",
+          "end",
+          "redis.call('SET', KEYS[1], ARGV[1])",
+          "return 1");
+
+  private LatestFeatureRowScript() {}
+
+  /**
+   * @param value encoded feature row
+   * @param eventTimestamp event timestamp of the feature row
+   * @return arguments of the script
+   */
+  static byte[][] arguments(byte[] value, Timestamp eventTimestamp) {
+    return new byte[][] {
+      value,
+      Long.toString(eventTimestamp.getSeconds()).getBytes(StandardCharsets.UTF_8),
+      Integer.toString(eventTimestamp.getNanos()).getBytes(StandardCharsets.UTF_8)
+    };
+  }
+}
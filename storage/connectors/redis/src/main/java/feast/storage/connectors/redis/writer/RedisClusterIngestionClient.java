@@ -17,11 +17,13 @@
 package feast.storage.connectors.redis.writer;
 
 import com.google.common.collect.Lists;
+import com.google.protobuf.Timestamp;
 import feast.proto.core.StoreProto;
 import feast.storage.common.retry.BackOffExecutor;
 import io.lettuce.core.LettuceFutures;
 import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.cluster.RedisClusterClient;
 import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
 import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
@@ -110,6 +112,16 @@ public class RedisClusterIngestionClient implements RedisIngestionClient {
     futures.add(commands.set(key, value));
   }
 
+  @Override
+  public void setLatest(byte[] key, byte[] value, Timestamp eventTimestamp) {
+    futures.add(
+        commands.eval(
+            LatestFeatureRowScript.SCRIPT,
+            ScriptOutputType.INTEGER,
+            new byte[][] {key},
+            LatestFeatureRowScript.arguments(value, eventTimestamp)));
+  }
+
   @Override
   public void lpush(byte[] key, byte[] value) {
     futures.add(commands.lpush(key, value));
@@ -16,30 +16,24 @@
  */
 package feast.storage.connectors.redis.writer;
 
-import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
-import feast.proto.core.FeatureSetProto.EntitySpec;
-import feast.proto.core.FeatureSetProto.FeatureSetSpec;
-import feast.proto.core.FeatureSetProto.FeatureSpec;
-import feast.proto.storage.RedisProto.RedisKey;
-import feast.proto.storage.RedisProto.RedisKey.Builder;
+import com.google.protobuf.util.Timestamps;
 import feast.proto.types.FeatureRowProto.FeatureRow;
-import feast.proto.types.FieldProto.Field;
-import feast.proto.types.ValueProto;
+import feast.storage.api.specs.CompiledSpecRegistry;
 import feast.storage.api.writer.FailedElement;
 import feast.storage.api.writer.WriteResult;
 import feast.storage.common.retry.Retriable;
 import io.lettuce.core.RedisException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
 import org.apache.beam.sdk.transforms.*;
 import org.apache.beam.sdk.transforms.windowing.*;
 import org.apache.beam.sdk.values.*;
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,21 +53,21 @@ public class RedisCustomIO {
 
   public static Write write(
       RedisIngestionClient redisIngestionClient,
-      PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecs) {
+      PCollectionView<CompiledSpecRegistry> featureSetSpecs) {
     return new Write(redisIngestionClient, featureSetSpecs);
   }
 
   /** ServingStoreWrite data to a Redis server. */
   public static class Write extends PTransform<PCollection<FeatureRow>, WriteResult> {
 
-    private PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecs;
+    private PCollectionView<CompiledSpecRegistry> featureSetSpecs;
     private RedisIngestionClient redisIngestionClient;
     private int batchSize;
     private int timeout;
 
     public Write(
         RedisIngestionClient redisIngestionClient,
-        PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecs) {
+        PCollectionView<CompiledSpecRegistry> featureSetSpecs) {
       this.redisIngestionClient = redisIngestionClient;
       this.featureSetSpecs = featureSetSpecs;
     }
@@ -111,14 +105,14 @@ public class RedisCustomIO {
     }
 
     public static class WriteDoFn extends DoFn<Iterable<FeatureRow>, FeatureRow> {
-      private PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecsView;
+      private PCollectionView<CompiledSpecRegistry> featureSetSpecsView;
       private int batchSize = DEFAULT_BATCH_SIZE;
       private int timeout = DEFAULT_TIMEOUT;
       private RedisIngestionClient redisIngestionClient;
 
       WriteDoFn(
           RedisIngestionClient redisIngestionClient,
-          PCollectionView<Map<String, Iterable<FeatureSetSpec>>> featureSetSpecsView) {
+          PCollectionView<CompiledSpecRegistry> featureSetSpecsView) {
 
         this.redisIngestionClient = redisIngestionClient;
         this.featureSetSpecsView = featureSetSpecsView;
@@ -153,7 +147,7 @@ public class RedisCustomIO {
       }
 
       private void executeBatch(
-          Iterable<FeatureRow> featureRows, Map<String, FeatureSetSpec> featureSetSpecs)
+          Map<ByteBuffer, FeatureRow> latestRows, Map<String, FeatureRowEncoder> batchEncoders)
           throws Exception {
         this.redisIngestionClient
             .getBackOffExecutor()
@@ -164,12 +158,12 @@ public class RedisCustomIO {
                     if (!redisIngestionClient.isConnected()) {
                       redisIngestionClient.connect();
                     }
-                    featureRows.forEach(
-                        row -> {
-                          redisIngestionClient.set(
-                              getKey(row, featureSetSpecs.get(row.getFeatureSet())),
-                              getValue(row, featureSetSpecs.get(row.getFeatureSet())));
-                        });
+                    latestRows.forEach(
+                        (key, row) ->
+                            redisIngestionClient.setLatest(
+                                key.array(),
+                                batchEncoders.get(row.getFeatureSet()).encodeValue(row),
+                                row.getEventTimestamp()));
                     redisIngestionClient.sync();
                   }
 
@@ -183,81 +177,68 @@ public class RedisCustomIO {
                 });
       }
 
+      /**
+       * Key the rows of a batch, keeping only the row with the latest event timestamp of every key,
+       * or the last of them if they have the same event timestamp. Rows are then only written if
+       * the row currently written to Redis is not later, as rows of the same key are not written in
+       * the order of their event timestamps.
+       */
+      private Map<ByteBuffer, FeatureRow> getLatestRows(
+          List<FeatureRow> featureRows, Map<String, FeatureRowEncoder> batchEncoders) {
+        Map<ByteBuffer, FeatureRow> latestRows = new LinkedHashMap<>();
+        for (FeatureRow row : featureRows) {
+          ByteBuffer key = ByteBuffer.wrap(batchEncoders.get(row.getFeatureSet()).encodeKey(row));
+          latestRows.merge(
+              key,
+              row,
+              (current, next) ->
+                  Timestamps.compare(current.getEventTimestamp(), next.getEventTimestamp()) > 0
+                      ? current
+                      : next);
+        }
+        return latestRows;
+      }
+
       private FailedElement toFailedElement(
           FeatureRow featureRow, Exception exception, String jobName) {
         return FailedElement.newBuilder()
             .setJobName(jobName)
             .setTransformName("RedisCustomIO")
-            .setPayload(featureRow.toString())
+            .setFeatureRowPayload(featureRow)
             .setErrorMessage(exception.getMessage())
             .setStackTrace(ExceptionUtils.getStackTrace(exception))
             .build();
       }
 
-      private byte[] getKey(FeatureRow featureRow, FeatureSetSpec spec) {
-        List<String> entityNames =
-            spec.getEntitiesList().stream()
-                .map(EntitySpec::getName)
-                .sorted()
-                .collect(Collectors.toList());
-
-        Map<String, Field> entityFields = new HashMap<>();
-        Builder redisKeyBuilder = RedisKey.newBuilder().setFeatureSet(featureRow.getFeatureSet());
-        for (Field field : featureRow.getFieldsList()) {
-          if (entityNames.contains(field.getName())) {
-            entityFields.putIfAbsent(
-                field.getName(),
-                Field.newBuilder().setName(field.getName()).setValue(field.getValue()).build());
-          }
-        }
-        for (String entityName : entityNames) {
-          redisKeyBuilder.addEntities(entityFields.get(entityName));
+      /**
+       * Get the encoder of the latest spec of a feature set. Encoders are compiled by the registry
+       * of the worker once per spec version and reused across bundles.
+       */
+      private FeatureRowEncoder getEncoder(String featureSetRef, CompiledSpecRegistry registry) {
+        FeatureRowEncoder encoder =
+            registry.getCompiled(featureSetRef, FeatureRowEncoder.class, FeatureRowEncoder::new);
+        if (encoder == null) {
+          throw new IllegalArgumentException(
+              String.format("FeatureSetSpec for '%s' is not available.", featureSetRef));
         }
-        return redisKeyBuilder.build().toByteArray();
-      }
-
-      private byte[] getValue(FeatureRow featureRow, FeatureSetSpec spec) {
-        List<String> featureNames =
-            spec.getFeaturesList().stream().map(FeatureSpec::getName).collect(Collectors.toList());
-        Map<String, Field> fieldValueOnlyMap =
-            featureRow.getFieldsList().stream()
-                .filter(field -> featureNames.contains(field.getName()))
-                .distinct()
-                .collect(
-                    Collectors.toMap(
-                        Field::getName,
-                        field -> Field.newBuilder().setValue(field.getValue()).build()));
-
-        List<Field> values =
-            featureNames.stream()
-                .sorted()
-                .map(
-                    featureName ->
-                        fieldValueOnlyMap.getOrDefault(
-                            featureName,
-                            Field.newBuilder()
-                                .setValue(ValueProto.Value.getDefaultInstance())
-                                .build()))
-                .collect(Collectors.toList());
-
-        return FeatureRow.newBuilder()
-            .setEventTimestamp(featureRow.getEventTimestamp())
-            .addAllFields(values)
-            .build()
-            .toByteArray();
+        return encoder;
       }
 
       @ProcessElement
       public void processElement(ProcessContext context) {
         List<FeatureRow> featureRows = Lists.newArrayList(context.element().iterator());
-
-        Map<String, FeatureSetSpec> latestSpecs =
-            context.sideInput(featureSetSpecsView).entrySet().stream()
-                .map(e -> ImmutablePair.of(e.getKey(), Iterators.getLast(e.getValue().iterator())))
-                .collect(Collectors.toMap(ImmutablePair::getLeft, ImmutablePair::getRight));
+        CompiledSpecRegistry registry =
+            CompiledSpecRegistry.intern(
+                featureSetSpecsView, context.sideInput(featureSetSpecsView));
 
         try {
-          executeBatch(featureRows, latestSpecs);
+          Map<String, FeatureRowEncoder> batchEncoders = new HashMap<>();
+          for (FeatureRow row : featureRows) {
+            if (!batchEncoders.containsKey(row.getFeatureSet())) {
+              batchEncoders.put(row.getFeatureSet(), getEncoder(row.getFeatureSet(), registry));
+            }
+          }
+          executeBatch(getLatestRows(featureRows, batchEncoders), batchEncoders);
           featureRows.forEach(row -> context.output(successfulInsertsTag, row));
         } catch (Exception e) {
           featureRows.forEach(
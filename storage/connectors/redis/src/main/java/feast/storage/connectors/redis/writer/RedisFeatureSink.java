@@ -23,15 +23,14 @@ import feast.proto.core.StoreProto;
 import feast.proto.core.StoreProto.Store.RedisClusterConfig;
 import feast.proto.core.StoreProto.Store.RedisConfig;
 import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.storage.api.specs.CompiledSpecRegistry;
 import feast.storage.api.writer.FeatureSink;
 import feast.storage.api.writer.WriteResult;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisConnectionException;
 import io.lettuce.core.RedisURI;
-import java.util.Map;
 import javax.annotation.Nullable;
 import org.apache.beam.sdk.transforms.PTransform;
-import org.apache.beam.sdk.transforms.View;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionView;
@@ -106,8 +105,8 @@ public abstract class RedisFeatureSink implements FeatureSink {
   @Override
   public PTransform<PCollection<FeatureRow>, WriteResult> writer() {
 
-    PCollectionView<Map<String, Iterable<FeatureSetSpec>>> specsView =
-        getFeatureSetSpecs().apply(View.asMultimap());
+    PCollectionView<CompiledSpecRegistry> specsView =
+        getFeatureSetSpecs().apply(CompiledSpecRegistry.asSingletonView());
 
     if (getRedisClusterConfig() != null) {
       return new RedisCustomIO.Write(
@@ -16,6 +16,7 @@
  */
 package feast.storage.connectors.redis.writer;
 
+import com.google.protobuf.Timestamp;
 import feast.storage.common.retry.BackOffExecutor;
 import java.io.Serializable;
 
@@ -39,6 +40,15 @@ public interface RedisIngestionClient extends Serializable {
 
   void set(byte[] key, byte[] value);
 
+  /**
+   * Set the encoded feature row of a key, unless the row currently set has a later event timestamp.
+   *
+   * @param key Redis key
+   * @param value encoded feature row
+   * @param eventTimestamp event timestamp of the feature row
+   */
+  void setLatest(byte[] key, byte[] value, Timestamp eventTimestamp);
+
   void lpush(byte[] key, byte[] value);
 
   void rpush(byte[] key, byte[] value);
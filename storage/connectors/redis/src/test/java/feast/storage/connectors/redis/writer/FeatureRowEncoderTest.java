@@ -0,0 +1,144 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * Copyright 2018-2020 The Feast Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package feast.storage.connectors.redis.writer;
+
+import static org.junit.Assert.*;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Timestamp;
+import feast.proto.core.FeatureSetProto.EntitySpec;
+import feast.proto.core.FeatureSetProto.FeatureSetSpec;
+import feast.proto.core.FeatureSetProto.FeatureSpec;
+import feast.proto.storage.RedisProto.RedisKey;
+import feast.proto.types.FeatureRowProto.FeatureRow;
+import feast.proto.types.FieldProto.Field;
+import feast.proto.types.ValueProto.Value;
+import feast.proto.types.ValueProto.ValueType;
+import feast.storage.connectors.redis.retriever.FeatureRowDecoder;
+import org.junit.Test;
+
+public class FeatureRowEncoderTest {
+
+  private FeatureSetSpec spec =
+      FeatureSetSpec.newBuilder()
+          .setProject("project")
+          .setName("feature_set")
+          .setVersion(3)
+          .addEntities(
+              EntitySpec.newBuilder().setName("entity_b").setValueType(ValueType.Enum.STRING))
+          .addEntities(
+              EntitySpec.newBuilder().setName("entity_a").setValueType(ValueType.Enum.INT64))
+          .addFeatures(
+              FeatureSpec.newBuilder().setName("feature2").setValueType(ValueType.Enum.INT32))
+          .addFeatures(
+              FeatureSpec.newBuilder().setName("feature1").setValueType(ValueType.Enum.FLOAT))
+          .build();
+
+  private FeatureRow.Builder row =
+      FeatureRow.newBuilder()
+          .setFeatureSet("project/feature_set")
+          .setEventTimestamp(Timestamp.newBuilder().setSeconds(10))
+          .addFields(
+              Field.newBuilder().setName("feature2").setValue(Value.newBuilder().setInt32Val(2)))
+          .addFields(
+              Field.newBuilder().setName("entity_b").setValue(Value.newBuilder().setStringVal("b")))
+          .addFields(
+              Field.newBuilder().setName("entity_a").setValue(Value.newBuilder().setInt64Val(1)))
+          .addFields(
+              Field.newBuilder().setName("feature1").setValue(Value.newBuilder().setFloatVal(1f)));
+
+  @Test
+  public void shouldCarrySpecVersion() {
+    assertEquals(3, new FeatureRowEncoder(spec).getVersion());
+  }
+
+  @Test
+  public void shouldEncodeKeyWithEntitiesSortedByName() throws InvalidProtocolBufferException {
+    FeatureRowEncoder encoder = new FeatureRowEncoder(spec);
+    RedisKey expected =
+        RedisKey.newBuilder()
+            .setFeatureSet("project/feature_set")
+            .addEntities(
+                Field.newBuilder().setName("entity_a").setValue(Value.newBuilder().setInt64Val(1)))
+            .addEntities(
+                Field.newBuilder()
+                    .setName("entity_b")
+                    .setValue(Value.newBuilder().setStringVal("b")))
+            .build();
+
+    assertEquals(expected, RedisKey.parseFrom(encoder.encodeKey(row.build())));
+  }
+
+  @Test
+  public void shouldUseFirstOccurrenceOfDuplicatedEntity() throws InvalidProtocolBufferException {
+    FeatureRowEncoder encoder = new FeatureRowEncoder(spec);
+    FeatureRow duplicated =
+        row.addFields(
+                Field.newBuilder()
+                    .setName("entity_a")
+                    .setValue(Value.newBuilder().setInt64Val(100)))
+            .build();
+
+    RedisKey key = RedisKey.parseFrom(encoder.encodeKey(duplicated));
+    assertEquals(1, key.getEntities(0).getValue().getInt64Val());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowIfEntityIsMissing() {
+    new FeatureRowEncoder(spec).encodeKey(row.removeFields(1).build());
+  }
+
+  @Test
+  public void shouldEncodeValueThatCanBeDecoded() throws InvalidProtocolBufferException {
+    FeatureRowEncoder encoder = new FeatureRowEncoder(spec);
+    FeatureRow encoded = FeatureRow.parseFrom(encoder.encodeValue(row.build()));
+    FeatureRow expected =
+        FeatureRow.newBuilder()
+            .setFeatureSet("project/feature_set")
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(10))
+            .addFields(
+                Field.newBuilder().setName("feature1").setValue(Value.newBuilder().setFloatVal(1f)))
+            .addFields(
+                Field.newBuilder().setName("feature2").setValue(Value.newBuilder().setInt32Val(2)))
+            .build();
+
+    FeatureRowDecoder decoder = new FeatureRowDecoder("project/feature_set", spec);
+    assertTrue(decoder.isEncoded(encoded));
+    assertEquals(expected, decoder.decode(encoded));
+  }
+
+  @Test
+  public void shouldPopulateMissingFeaturesWithEmptyValue() throws InvalidProtocolBufferException {
+    FeatureRowEncoder encoder = new FeatureRowEncoder(spec);
+    FeatureRow encoded = FeatureRow.parseFrom(encoder.encodeValue(row.removeFields(3).build()));
+
+    assertEquals(2, encoded.getFieldsCount());
+    assertEquals(Value.getDefaultInstance(), encoded.getFields(0).getValue());
+    assertEquals(2, encoded.getFields(1).getValue().getInt32Val());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldThrowOnConflictingFeatureValues() {
+    new FeatureRowEncoder(spec)
+        .encodeValue(
+            row.addFields(
+                    Field.newBuilder()
+                        .setName("feature1")
+                        .setValue(Value.newBuilder().setFloatVal(2f)))
+                .build());
+  }
+}
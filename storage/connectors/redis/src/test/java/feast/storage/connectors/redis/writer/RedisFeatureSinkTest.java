@@ -172,6 +172,68 @@ public class RedisFeatureSinkTest {
         });
   }
 
+  @Test
+  public void shouldNotOverwriteRowsWithLaterEventTimestamp() {
+    RedisKey key =
+        RedisKey.newBuilder()
+            .setFeatureSet("myproject/fs")
+            .addEntities(field("entity", 1, Enum.INT64))
+            .build();
+    FeatureRow expected =
+        FeatureRow.newBuilder()
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(20))
+            .addFields(Field.newBuilder().setValue(Value.newBuilder().setStringVal("latest")))
+            .build();
+
+    List<FeatureRow> featureRows =
+        ImmutableList.of(
+            FeatureRow.newBuilder()
+                .setFeatureSet("myproject/fs")
+                .setEventTimestamp(Timestamp.newBuilder().setSeconds(20))
+                .addFields(field("entity", 1, Enum.INT64))
+                .addFields(field("feature", "latest", Enum.STRING))
+                .build(),
+            FeatureRow.newBuilder()
+                .setFeatureSet("myproject/fs")
+                .setEventTimestamp(Timestamp.newBuilder().setSeconds(10))
+                .addFields(field("entity", 1, Enum.INT64))
+                .addFields(field("feature", "earlier", Enum.STRING))
+                .build());
+
+    p.apply(Create.of(featureRows)).apply(redisFeatureSink.writer());
+    p.run();
+
+    assertThat(sync.get(key.toByteArray()), equalTo(expected.toByteArray()));
+  }
+
+  @Test
+  public void shouldNotOverwriteValueWithLaterEventTimestamp() {
+    RedisKey key =
+        RedisKey.newBuilder()
+            .setFeatureSet("myproject/fs")
+            .addEntities(field("entity", 1, Enum.INT64))
+            .build();
+    FeatureRow current =
+        FeatureRow.newBuilder()
+            .setEventTimestamp(Timestamp.newBuilder().setSeconds(20).setNanos(1))
+            .addFields(Field.newBuilder().setValue(Value.newBuilder().setStringVal("current")))
+            .build();
+    sync.set(key.toByteArray(), current.toByteArray());
+
+    p.apply(
+            Create.of(
+                FeatureRow.newBuilder()
+                    .setFeatureSet("myproject/fs")
+                    .setEventTimestamp(Timestamp.newBuilder().setSeconds(20))
+                    .addFields(field("entity", 1, Enum.INT64))
+                    .addFields(field("feature", "earlier", Enum.STRING))
+                    .build()))
+        .apply(redisFeatureSink.writer());
+    p.run();
+
+    assertThat(sync.get(key.toByteArray()), equalTo(current.toByteArray()));
+  }
+
   @Test(timeout = 10000)
   public void shouldRetryFailConnection() throws InterruptedException {
     RedisConfig redisConfig =